@@ -25,22 +25,39 @@ package com.gmail.br45entei.game.graphics;
 
 import com.gmail.br45entei.game.ui.Window;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
+import org.lwjgl.opengl.GL11;
+
 /** Class used to store multiple textures and activate each one for a set amount
  * of time before moving on to the next one, creating a single 'animated'
- * texture.
+ * texture.<br>
+ * An AnimatedTexture may alternatively be backed by a single
+ * {@link TextureArray}, in which case every frame is a layer of the same
+ * texture object, and advancing frames only changes which layer is sampled
+ * (see {@link #bind(TextureArrayShader)}) rather than which texture is bound.
+ * The texture list mutators have no effect on array backed instances.
  * 
  * @since 1.0
  * @author Brian_Entei &ltbr45entei&#064;gmail.com&gt; */
 public class AnimatedTexture {
 	
+	/** The time, in milliseconds, that a frame whose duration is zero or
+	 * negative displays on screen for (one hundredth of a second, the shortest
+	 * delay a GIF can specify) */
+	public static final double MINIMUM_FRAME_DURATION = 10.0;
+	
 	private volatile double millisBetweenChanges;
 	private final ArrayList<Texture> textures = new ArrayList<>();
 	private volatile int texIndex = 0;
 	private volatile double frameRenderCount = 0;
 	
+	private volatile TextureArray array = null;
+	private volatile double[] frameDurations = null;
+	
 	/** Creates a new AnimatedTexture with the specified settings and textures.
 	 * 
 	 * @param millisBetweenChanges The time, in milliseconds, that each texture
@@ -68,13 +85,133 @@ public class AnimatedTexture {
 		this(1000.0 / Window.getDefaultRefreshRate(), textures);
 	}
 	
+	/** Creates a new AnimatedTexture whose frames are the layers of the given
+	 * texture array.
+	 * 
+	 * @param millisBetweenChanges The time, in milliseconds, that each layer
+	 *            will display on screen before changing to the next layer
+	 * @param array The texture array that will make up this animated
+	 *            texture */
+	public AnimatedTexture(double millisBetweenChanges, TextureArray array) {
+		this(array, null);
+		this.millisBetweenChanges = millisBetweenChanges;
+	}
+	
+	/** Creates a new AnimatedTexture whose frames are the layers of the given
+	 * texture array, each displayed for its own duration.
+	 * 
+	 * @param array The texture array that will make up this animated texture
+	 * @param frameDurations The time, in milliseconds, that each layer will
+	 *            display on screen before changing to the next layer, or
+	 *            <tt><b>null</b></tt> to use the default refresh rate for
+	 *            every layer
+	 * @throws IllegalArgumentException Thrown if the number of durations does
+	 *             not match the number of layers */
+	public AnimatedTexture(TextureArray array, double[] frameDurations) throws IllegalArgumentException {
+		this.millisBetweenChanges = 1000.0 / Window.getDefaultRefreshRate();
+		if(array == null) {
+			this.textures.add(TextureLoader.getMissingTexture());
+			return;
+		}
+		if(frameDurations != null && frameDurations.length != array.getLayerCount()) {
+			throw new IllegalArgumentException(String.format("The number of frame durations(%s) does not match the number of layers in the texture array(%s)!", Integer.toString(frameDurations.length), Integer.toString(array.getLayerCount())));
+		}
+		this.array = array;
+		this.frameDurations = frameDurations == null ? null : Arrays.copyOf(frameDurations, frameDurations.length);
+	}
+	
+	/** Creates a new AnimatedTexture from the frames of a sprite sheet.<br>
+	 * If the current context supports {@link TextureArray texture arrays},
+	 * the frames are uploaded as the layers of a single texture array;
+	 * otherwise each frame is uploaded as its own Texture.<br>
+	 * This must be called on the thread that owns the OpenGL context.
+	 * 
+	 * @param resourcePath The location of the sprite sheet resource
+	 * @param frameWidth The width of each frame
+	 * @param frameHeight The height of each frame
+	 * @param frameCount The number of frames to read, or <tt>-1</tt> to read
+	 *            every frame in the sheet
+	 * @param millisBetweenChanges The time, in milliseconds, that each frame
+	 *            will display on screen before changing to the next frame
+	 * @param minFilter The minimizing filter
+	 * @param magFilter The magnification filter
+	 * @return The new AnimatedTexture
+	 * @throws IOException Indicates a failure to find or decode the resource */
+	public static AnimatedTexture fromSpriteSheet(String resourcePath, int frameWidth, int frameHeight, int frameCount, double millisBetweenChanges, int minFilter, int magFilter) throws IOException {
+		return fromFrames(resourcePath, TextureArray.loadSpriteSheet(resourcePath, frameWidth, frameHeight, frameCount, millisBetweenChanges), minFilter, magFilter);
+	}
+	
+	/** Creates a new AnimatedTexture from the frames of an animated GIF,
+	 * honoring each frame's delay time.<br>
+	 * If the current context supports {@link TextureArray texture arrays},
+	 * the frames are uploaded as the layers of a single texture array;
+	 * otherwise each frame is uploaded as its own Texture.<br>
+	 * This must be called on the thread that owns the OpenGL context.
+	 * 
+	 * @param resourcePath The location of the GIF resource
+	 * @param minFilter The minimizing filter
+	 * @param magFilter The magnification filter
+	 * @return The new AnimatedTexture
+	 * @throws IOException Indicates a failure to find or decode the resource */
+	public static AnimatedTexture fromGIF(String resourcePath, int minFilter, int magFilter) throws IOException {
+		return fromFrames(resourcePath, TextureArray.loadGIF(resourcePath), minFilter, magFilter);
+	}
+	
+	private static AnimatedTexture fromFrames(String resourcePath, TextureArray.Frames frames, int minFilter, int magFilter) {
+		if(TextureArray.isSupported()) {
+			return new AnimatedTexture(TextureArray.create(resourcePath, minFilter, magFilter, frames.images), frames.durations);
+		}
+		Texture[] textures = new Texture[frames.images.length];
+		for(int i = 0; i < textures.length; i++) {
+			textures[i] = TextureLoader.createTexture(frames.images[i], resourcePath.concat("#").concat(Integer.toString(i)), GL11.GL_TEXTURE_2D, GL11.GL_RGBA, minFilter, magFilter);
+		}
+		AnimatedTexture animation = new AnimatedTexture(frames.durations[0], textures);
+		animation.frameDurations = frames.durations;
+		return animation;
+	}
+	
+	/** @return Whether or not this AnimatedTexture's frames are the layers of a
+	 *         single {@link TextureArray} */
+	public boolean isArrayBacked() {
+		return this.array != null;
+	}
+	
+	/** @return The TextureArray backing this AnimatedTexture, or
+	 *         <tt><b>null</b></tt> if it is made up of separate textures */
+	public TextureArray getTextureArray() {
+		return this.array;
+	}
+	
+	/** @return The total number of frames in this AnimatedTexture */
+	public int getNumFrames() {
+		final TextureArray array = this.array;
+		return array != null ? array.getLayerCount() : this.textures.size();
+	}
+	
+	/** @return The index of the currently selected frame (which is also the
+	 *         layer to sample if this AnimatedTexture is
+	 *         {@link #isArrayBacked() array backed}) */
+	public int getCurrentFrame() {
+		return this.texIndex;
+	}
+	
+	/** @param frame The index of the frame
+	 * @return The time, in milliseconds, that the specified frame displays on
+	 *         screen for ({@link #MINIMUM_FRAME_DURATION} if its duration
+	 *         is zero or negative) */
+	public double getFrameDuration(int frame) {
+		final double[] frameDurations = this.frameDurations;
+		final double duration = frameDurations != null && frame >= 0 && frame < frameDurations.length ? frameDurations[frame] : this.millisBetweenChanges;
+		return duration > 0 ? duration : MINIMUM_FRAME_DURATION;
+	}
+	
 	/** Selects the next Texture for rendering in this AnimatedTexture's list of
 	 * textures.<br>
 	 * If the end of the list is reached, the first Texture is selected.
 	 * 
 	 * @return This AnimatedTexture */
 	public AnimatedTexture advanceToNextTexture() {
-		if(this.texIndex + 1 < this.textures.size()) {
+		if(this.texIndex + 1 < this.getNumFrames()) {
 			this.texIndex++;
 		} else {
 			this.texIndex = 0;
@@ -93,7 +230,7 @@ public class AnimatedTexture {
 	 *         {@link #advanceToNextTexture()} if the <tt>deltaTime</tt> is
 	 *         passed to {@link #update(double)} */
 	public boolean willAdvanceToNextTexture(double deltaTime) {
-		return (this.frameRenderCount + (deltaTime * 1000.0)) >= this.millisBetweenChanges;
+		return (this.frameRenderCount + (deltaTime * 1000.0)) >= this.getFrameDuration(this.texIndex);
 	}
 	
 	/** Adds the deltaTime to this AnimatedTexture's internal counter, and then
@@ -104,11 +241,13 @@ public class AnimatedTexture {
 	 *            1000) */
 	public void update(double deltaTime) {
 		this.frameRenderCount += deltaTime * 1000.0;
-		if(this.frameRenderCount >= this.millisBetweenChanges) {
+		double duration = this.getFrameDuration(this.texIndex);
+		if(this.frameRenderCount >= duration) {
 			do {
-				this.frameRenderCount -= this.millisBetweenChanges;
+				this.frameRenderCount -= duration;
 				this.advanceToNextTexture();
-			} while(this.frameRenderCount > this.millisBetweenChanges);
+				duration = this.getFrameDuration(this.texIndex);
+			} while(this.frameRenderCount > duration);
 			//this.frameRenderCount = 0;
 		}
 	}
@@ -117,7 +256,10 @@ public class AnimatedTexture {
 	 * 
 	 * @return This AnimatedTexture */
 	public AnimatedTexture bind() {
-		if(this.texIndex >= 0 && this.texIndex < this.textures.size()) {
+		final TextureArray array = this.array;
+		if(array != null) {
+			array.bind();
+		} else if(this.texIndex >= 0 && this.texIndex < this.textures.size()) {
 			this.textures.get(this.texIndex).bind();
 		}
 		return this;
@@ -136,9 +278,27 @@ public class AnimatedTexture {
 		return this;
 	}
 	
+	/** Binds this AnimatedTexture's texture array and sets the given shader's
+	 * layer uniform to the currently selected frame.<br>
+	 * The shader must already be in use.
+	 * 
+	 * @param shader The shader that will sample from the texture array
+	 * @return This AnimatedTexture */
+	public AnimatedTexture bind(TextureArrayShader shader) {
+		this.bind();
+		if(this.array != null) {
+			shader.glSetLayer(this.texIndex);
+		}
+		return this;
+	}
+	
 	/** @return The Texture that this AnimatedTexture currently has selected for
-	 *         rendering */
+	 *         rendering (or the backing {@link TextureArray} if this
+	 *         AnimatedTexture is {@link #isArrayBacked() array backed}) */
 	public Texture getCurrentTexture() {
+		if(this.array != null) {
+			return this.array;
+		}
 		if(this.texIndex >= 0 && this.texIndex < this.textures.size()) {
 			return this.textures.get(this.texIndex);
 		}
@@ -183,7 +343,7 @@ public class AnimatedTexture {
 	 * @return The Texture that was previously at the specified index, or
 	 *         <tt><b>null</b></tt> if the specified index was out of range */
 	public Texture setTexture(int index, Texture texture) {
-		if(index >= 0 && index < this.textures.size()) {
+		if(this.array == null && index >= 0 && index < this.textures.size()) {
 			Texture oldTex = this.getTexture(index);
 			this.textures.set(index, texture == null ? TextureLoader.getMissingTexture() : texture);
 			return oldTex;
@@ -202,7 +362,7 @@ public class AnimatedTexture {
 	 * @return True if the specified index was valid and the Texture was
 	 *         added */
 	public boolean addTexture(int index, Texture texture) {
-		if(index >= 0 && index <= this.textures.size()) {
+		if(this.array == null && index >= 0 && index <= this.textures.size()) {
 			this.textures.add(index, texture == null ? TextureLoader.getMissingTexture() : texture);
 			return true;
 		}
@@ -218,7 +378,7 @@ public class AnimatedTexture {
 	 * @return The Texture that was previously at the specified index, or
 	 *         <tt><b>null</b></tt> if the specified index was out of range */
 	public Texture removeTexture(int index) {
-		if(index >= 0 && index < this.textures.size()) {
+		if(this.array == null && index >= 0 && index < this.textures.size()) {
 			return this.textures.remove(index);
 		}
 		return null;
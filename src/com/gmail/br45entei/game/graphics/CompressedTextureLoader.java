@@ -0,0 +1,564 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.util.BufferUtil;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.EXTTextureCompressionS3TC;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GLCapabilities;
+
+/** Loads precompressed DDS and KTX(version 1) textures, including any mipmap
+ * levels they contain, into {@link TextureCache.Entry entries} that can be
+ * uploaded with
+ * {@link TextureLoader#createTexture(TextureCache.Entry, String, int, int)}.<br>
+ * <br>
+ * Supported compressed formats are S3TC(BC1/DXT1, BC2/DXT3 and BC3/DXT5) and
+ * RGTC(BC4 and BC5). KTX files may also contain uncompressed data.<br>
+ * Like {@link TextureLoader#loadImage(String)}, the loaded data is flipped
+ * vertically so that the first row is the bottom of the image. For block
+ * compressed data this is done block by block, which is only exact for
+ * images whose height is a multiple of four.<br>
+ * When the driver does not support a compressed format,
+ * {@link #decompress(TextureCache.Entry)} can be used to decode it to RGBA8 on
+ * the CPU instead.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class CompressedTextureLoader {
+	
+	//@formatter:off
+	public static final int GL_COMPRESSED_RGBA_S3TC_DXT1	= EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT;
+	public static final int GL_COMPRESSED_RGBA_S3TC_DXT3	= EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT3_EXT;
+	public static final int GL_COMPRESSED_RGBA_S3TC_DXT5	= EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+	public static final int GL_COMPRESSED_RED_RGTC1			= GL30.GL_COMPRESSED_RED_RGTC1;
+	public static final int GL_COMPRESSED_RG_RGTC2			= GL30.GL_COMPRESSED_RG_RGTC2;
+	//@formatter:on
+	
+	private static final int DDS_MAGIC = 0x20534444;//"DDS " (little endian)
+	private static final int DDSD_MIPMAPCOUNT = 0x20000;
+	private static final int DDPF_FOURCC = 0x4;
+	private static final int DXGI_FORMAT_BC1_UNORM = 71, DXGI_FORMAT_BC2_UNORM = 74, DXGI_FORMAT_BC3_UNORM = 77, DXGI_FORMAT_BC4_UNORM = 80, DXGI_FORMAT_BC5_UNORM = 83;
+	
+	private static final byte[] KTX_IDENTIFIER = {(byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'};
+	private static final int KTX_ENDIANNESS = 0x04030201;
+	
+	private CompressedTextureLoader() {
+	}
+	
+	/** @param resourceName The resource path to check
+	 * @return Whether or not the resource's file extension is one that this
+	 *         class can load(<tt>.dds</tt> or <tt>.ktx</tt>) */
+	public static final boolean isCompressedFile(String resourceName) {
+		String lower = resourceName.toLowerCase(Locale.ENGLISH);
+		return lower.endsWith(".dds") || lower.endsWith(".ktx");
+	}
+	
+	/** @param internalFormat The compressed internal format to check
+	 * @return Whether or not the current OpenGL context can upload data in
+	 *         the given compressed format */
+	public static final boolean isFormatSupported(int internalFormat) {
+		GLCapabilities caps;
+		try {
+			caps = GL.getCapabilities();
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+		switch(internalFormat) {
+		case GL_COMPRESSED_RGBA_S3TC_DXT1:
+		case GL_COMPRESSED_RGBA_S3TC_DXT3:
+		case GL_COMPRESSED_RGBA_S3TC_DXT5:
+			return caps.GL_EXT_texture_compression_s3tc;
+		case GL_COMPRESSED_RED_RGTC1:
+		case GL_COMPRESSED_RG_RGTC2:
+			return caps.OpenGL30 || caps.GL_ARB_texture_compression_rgtc || caps.GL_EXT_texture_compression_rgtc;
+		default:
+			return false;
+		}
+	}
+	
+	/** @param internalFormat The compressed internal format
+	 * @return The size in bytes of one 4x4 block of the given format, or
+	 *         <tt>0</tt> if the format is not a known block compressed
+	 *         format */
+	public static final int getBlockSize(int internalFormat) {
+		switch(internalFormat) {
+		case GL_COMPRESSED_RGBA_S3TC_DXT1:
+		case GL_COMPRESSED_RED_RGTC1:
+			return 8;
+		case GL_COMPRESSED_RGBA_S3TC_DXT3:
+		case GL_COMPRESSED_RGBA_S3TC_DXT5:
+		case GL_COMPRESSED_RG_RGTC2:
+			return 16;
+		default:
+			return 0;
+		}
+	}
+	
+	/** Loads a DDS or KTX texture, depending on the data's file signature.
+	 * 
+	 * @param data The contents of the texture file
+	 * @param ref The location that the data was loaded from(used for error
+	 *            messages)
+	 * @return The resulting entry, targeting {@link GL11#GL_TEXTURE_2D}
+	 * @throws IOException Thrown if the data is not a supported DDS or KTX
+	 *             file */
+	public static final TextureCache.Entry load(byte[] data, String ref) throws IOException {
+		ByteBuffer buf = BufferUtil.wrapDirect(data).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			if(data.length >= 4 && buf.getInt(0) == DDS_MAGIC) {
+				return loadDDS(buf, ref);
+			}
+			if(data.length >= KTX_IDENTIFIER.length) {
+				boolean ktx = true;
+				for(int i = 0; i < KTX_IDENTIFIER.length; i++) {
+					ktx &= data[i] == KTX_IDENTIFIER[i];
+				}
+				if(ktx) {
+					return loadKTX(buf, ref);
+				}
+			}
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+			throw new IOException("Truncated or corrupt texture file: ".concat(ref), ex);
+		}
+		throw new IOException("Not a DDS or KTX file: ".concat(ref));
+	}
+	
+	private static final TextureCache.Entry loadDDS(ByteBuffer buf, String ref) throws IOException {
+		buf.position(4);
+		if(buf.getInt() != 124) {
+			throw new IOException("Invalid DDS header size: ".concat(ref));
+		}
+		final int flags = buf.getInt();
+		final int height = buf.getInt(), width = buf.getInt();
+		buf.getInt();//dwPitchOrLinearSize
+		buf.getInt();//dwDepth
+		final int dwMipMapCount = buf.getInt();
+		final int mipMapCount = (flags & DDSD_MIPMAPCOUNT) != 0 ? Math.max(1, dwMipMapCount) : 1;
+		buf.position(buf.position() + 11 * 4);//dwReserved1
+		buf.getInt();//ddspf.dwSize
+		final int pfFlags = buf.getInt(), fourCC = buf.getInt();
+		buf.position(4 + 124);
+		if((pfFlags & DDPF_FOURCC) == 0) {
+			throw new IOException("Only block compressed DDS files are supported: ".concat(ref));
+		}
+		final int internalFormat;
+		switch(fourCC) {
+		case 0x31545844://"DXT1"
+			internalFormat = GL_COMPRESSED_RGBA_S3TC_DXT1;
+			break;
+		case 0x33545844://"DXT3"
+			internalFormat = GL_COMPRESSED_RGBA_S3TC_DXT3;
+			break;
+		case 0x35545844://"DXT5"
+			internalFormat = GL_COMPRESSED_RGBA_S3TC_DXT5;
+			break;
+		case 0x31495441://"ATI1"
+		case 0x55344342://"BC4U"
+			internalFormat = GL_COMPRESSED_RED_RGTC1;
+			break;
+		case 0x32495441://"ATI2"
+		case 0x55354342://"BC5U"
+			internalFormat = GL_COMPRESSED_RG_RGTC2;
+			break;
+		case 0x30315844://"DX10"
+			internalFormat = getFormatFromDXGI(buf.getInt(), ref);
+			buf.position(buf.position() + 4 * 4);//resourceDimension, miscFlag, arraySize, miscFlags2
+			break;
+		default:
+			throw new IOException(String.format("Unsupported DDS FourCC 0x%s: %s", Integer.toHexString(fourCC), ref));
+		}
+		final int blockSize = getBlockSize(internalFormat);
+		int[] widths = new int[mipMapCount], heights = new int[mipMapCount];
+		ByteBuffer[] levels = new ByteBuffer[mipMapCount];
+		int offset = buf.position();
+		for(int level = 0; level < mipMapCount; level++) {
+			final int w = MipmapGenerator.getLevelSize(width, level), h = MipmapGenerator.getLevelSize(height, level);
+			final int size = ((w + 3) / 4) * ((h + 3) / 4) * blockSize;
+			widths[level] = w;
+			heights[level] = h;
+			levels[level] = buf.duplicate().position(offset).limit(offset + size).slice();
+			flipBlocks(levels[level], w, h, internalFormat);
+			offset += size;
+		}
+		final int alphaFlag = internalFormat == GL_COMPRESSED_RED_RGTC1 || internalFormat == GL_COMPRESSED_RG_RGTC2 ? 0 : TextureCache.FLAG_ALPHA;
+		return new TextureCache.Entry(GL11.GL_TEXTURE_2D, internalFormat, 0, 0, TextureCache.FLAG_COMPRESSED | alphaFlag, width, height, widths, heights, levels);
+	}
+	
+	private static final int getFormatFromDXGI(int dxgiFormat, String ref) throws IOException {
+		switch(dxgiFormat) {
+		case DXGI_FORMAT_BC1_UNORM:
+			return GL_COMPRESSED_RGBA_S3TC_DXT1;
+		case DXGI_FORMAT_BC2_UNORM:
+			return GL_COMPRESSED_RGBA_S3TC_DXT3;
+		case DXGI_FORMAT_BC3_UNORM:
+			return GL_COMPRESSED_RGBA_S3TC_DXT5;
+		case DXGI_FORMAT_BC4_UNORM:
+			return GL_COMPRESSED_RED_RGTC1;
+		case DXGI_FORMAT_BC5_UNORM:
+			return GL_COMPRESSED_RG_RGTC2;
+		default:
+			throw new IOException(String.format("Unsupported DXGI format %s: %s", Integer.toString(dxgiFormat), ref));
+		}
+	}
+	
+	private static final TextureCache.Entry loadKTX(ByteBuffer buf, String ref) throws IOException {
+		buf.position(KTX_IDENTIFIER.length);
+		final int endianness = buf.getInt();
+		if(endianness != KTX_ENDIANNESS) {
+			if(Integer.reverseBytes(endianness) != KTX_ENDIANNESS) {
+				throw new IOException("Invalid KTX endianness marker: ".concat(ref));
+			}
+			buf.order(ByteOrder.BIG_ENDIAN);
+		}
+		final int glType = buf.getInt(), glTypeSize = buf.getInt(), glFormat = buf.getInt(), glInternalFormat = buf.getInt();
+		buf.getInt();//glBaseInternalFormat
+		final int width = buf.getInt(), height = Math.max(1, buf.getInt()), depth = buf.getInt();
+		final int arrayElements = buf.getInt(), faces = buf.getInt();
+		final int mipMapCount = Math.max(1, buf.getInt());
+		final int keyValueBytes = buf.getInt();
+		if(depth > 1 || arrayElements > 0 || faces != 1) {
+			throw new IOException("Only 2D KTX textures are supported: ".concat(ref));
+		}
+		final boolean compressed = glType == 0;
+		if(compressed && getBlockSize(glInternalFormat) == 0) {
+			throw new IOException(String.format("Unsupported KTX compressed format 0x%s: %s", Integer.toHexString(glInternalFormat), ref));
+		}
+		buf.position(buf.position() + keyValueBytes);
+		int[] widths = new int[mipMapCount], heights = new int[mipMapCount];
+		ByteBuffer[] levels = new ByteBuffer[mipMapCount];
+		for(int level = 0; level < mipMapCount; level++) {
+			final int w = MipmapGenerator.getLevelSize(width, level), h = MipmapGenerator.getLevelSize(height, level);
+			final int imageSize = buf.getInt();
+			final int offset = buf.position();
+			widths[level] = w;
+			heights[level] = h;
+			ByteBuffer data = buf.duplicate().position(offset).limit(offset + imageSize).slice();
+			if(compressed) {
+				flipBlocks(data, w, h, glInternalFormat);
+			} else {
+				if(glTypeSize > 1 && buf.order() != ByteOrder.nativeOrder()) {
+					swapBytes(data, glTypeSize);
+				}
+				data = flipRows(data, w, h, getPixelSize(glFormat, glType, glTypeSize));
+			}
+			levels[level] = data;
+			buf.position(offset + ((imageSize + 3) & ~3));//mipPadding
+		}
+		final boolean hasAlpha = compressed ? glInternalFormat != GL_COMPRESSED_RED_RGTC1 && glInternalFormat != GL_COMPRESSED_RG_RGTC2 : glFormat == GL11.GL_RGBA || glFormat == GL12.GL_BGRA || glFormat == GL11.GL_ALPHA || glFormat == GL11.GL_LUMINANCE_ALPHA;
+		final int flags = (compressed ? TextureCache.FLAG_COMPRESSED : 0) | (hasAlpha ? TextureCache.FLAG_ALPHA : 0);
+		return new TextureCache.Entry(GL11.GL_TEXTURE_2D, glInternalFormat, glFormat, glType, flags, width, height, widths, heights, levels);
+	}
+	
+	private static final int getPixelSize(int format, int type, int typeSize) {
+		if((type >= GL12.GL_UNSIGNED_BYTE_3_3_2 && type <= GL12.GL_UNSIGNED_INT_10_10_10_2) || (type >= GL12.GL_UNSIGNED_BYTE_2_3_3_REV && type <= GL12.GL_UNSIGNED_INT_2_10_10_10_REV) || type == GL30.GL_UNSIGNED_INT_10F_11F_11F_REV || type == GL30.GL_UNSIGNED_INT_5_9_9_9_REV) {
+			return typeSize;//Packed pixel types store an entire pixel in one value
+		}
+		switch(format) {
+		case GL11.GL_RED:
+		case GL11.GL_ALPHA:
+		case GL11.GL_LUMINANCE:
+		case GL11.GL_DEPTH_COMPONENT:
+			return typeSize;
+		case GL30.GL_RG:
+		case GL11.GL_LUMINANCE_ALPHA:
+			return typeSize * 2;
+		case GL11.GL_RGB:
+		case GL12.GL_BGR:
+			return typeSize * 3;
+		default:
+			return typeSize * 4;
+		}
+	}
+	
+	private static final void swapBytes(ByteBuffer data, int typeSize) {
+		for(int i = 0; i + typeSize <= data.capacity(); i += typeSize) {
+			for(int a = i, b = i + typeSize - 1; a < b; a++, b--) {
+				byte tmp = data.get(a);
+				data.put(a, data.get(b));
+				data.put(b, tmp);
+			}
+		}
+	}
+	
+	/** Flips uncompressed KTX rows vertically, also removing the KTX 4-byte
+	 * row padding so that the data can be uploaded with an unpack alignment of
+	 * <tt>1</tt>. */
+	private static final ByteBuffer flipRows(ByteBuffer data, int width, int height, int pixelSize) {
+		final int rowSize = width * pixelSize, paddedRowSize = (rowSize + 3) & ~3;
+		ByteBuffer flipped = BufferUtils.createByteBuffer(rowSize * height);
+		for(int y = 0; y < height; y++) {
+			ByteBuffer row = data.duplicate();
+			row.position((height - 1 - y) * paddedRowSize).limit((height - 1 - y) * paddedRowSize + rowSize);
+			flipped.position(y * rowSize);
+			flipped.put(row);
+		}
+		return flipped.rewind();
+	}
+	
+	//=========================================================================================================================
+	
+	/** Flips block compressed data vertically, by reversing the order of the
+	 * block rows and flipping the pixel rows within each block. */
+	private static final void flipBlocks(ByteBuffer data, int width, int height, int internalFormat) {
+		final int blockSize = getBlockSize(internalFormat);
+		final int blocksWide = (width + 3) / 4, blocksHigh = (height + 3) / 4;
+		final int rowSize = blocksWide * blockSize;
+		byte[] top = new byte[rowSize], bottom = new byte[rowSize];
+		for(int y = 0; y < (blocksHigh + 1) / 2; y++) {
+			final int y2 = blocksHigh - 1 - y;
+			data.get(y * rowSize, top);
+			data.get(y2 * rowSize, bottom);
+			for(int x = 0; x < blocksWide; x++) {
+				flipBlock(top, x * blockSize, internalFormat);
+				if(y != y2) {
+					flipBlock(bottom, x * blockSize, internalFormat);
+				}
+			}
+			data.put(y2 * rowSize, top);
+			if(y != y2) {
+				data.put(y * rowSize, bottom);
+			}
+		}
+	}
+	
+	private static final void flipBlock(byte[] data, int offset, int internalFormat) {
+		switch(internalFormat) {
+		case GL_COMPRESSED_RGBA_S3TC_DXT1:
+			flipColorBlock(data, offset);
+			break;
+		case GL_COMPRESSED_RGBA_S3TC_DXT3:
+			for(int row = 0; row < 2; row++) {//Explicit alpha: 2 bytes per row
+				swap(data, offset + row * 2, offset + (3 - row) * 2);
+				swap(data, offset + row * 2 + 1, offset + (3 - row) * 2 + 1);
+			}
+			flipColorBlock(data, offset + 8);
+			break;
+		case GL_COMPRESSED_RGBA_S3TC_DXT5:
+			flipInterpolatedBlock(data, offset);
+			flipColorBlock(data, offset + 8);
+			break;
+		case GL_COMPRESSED_RED_RGTC1:
+			flipInterpolatedBlock(data, offset);
+			break;
+		case GL_COMPRESSED_RG_RGTC2:
+			flipInterpolatedBlock(data, offset);
+			flipInterpolatedBlock(data, offset + 8);
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/** BC1 color block: two RGB565 endpoints followed by one byte of 2-bit
+	 * indices per row */
+	private static final void flipColorBlock(byte[] data, int offset) {
+		swap(data, offset + 4, offset + 7);
+		swap(data, offset + 5, offset + 6);
+	}
+	
+	/** BC3 alpha/BC4 block: two 8-bit endpoints followed by 48 bits of 3-bit
+	 * indices, 12 bits per row */
+	private static final void flipInterpolatedBlock(byte[] data, int offset) {
+		long bits = 0;
+		for(int i = 0; i < 6; i++) {
+			bits |= (data[offset + 2 + i] & 0xFFL) << (8 * i);
+		}
+		long flipped = 0;
+		for(int row = 0; row < 4; row++) {
+			flipped |= ((bits >>> (12 * row)) & 0xFFFL) << (12 * (3 - row));
+		}
+		for(int i = 0; i < 6; i++) {
+			data[offset + 2 + i] = (byte) (flipped >>> (8 * i));
+		}
+	}
+	
+	private static final void swap(byte[] data, int a, int b) {
+		byte tmp = data[a];
+		data[a] = data[b];
+		data[b] = tmp;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Decodes a block compressed entry into uncompressed RGBA8 data on the
+	 * CPU.<br>
+	 * This is used as a fallback when the driver does not
+	 * {@link #isFormatSupported(int) support} the entry's compressed format.
+	 * RGTC data is expanded into the red(and green) channels, matching how
+	 * OpenGL samples it.
+	 * 
+	 * @param entry The compressed entry to decode
+	 * @return A new, uncompressed entry, or the given entry if it was not
+	 *         compressed */
+	public static final TextureCache.Entry decompress(TextureCache.Entry entry) {
+		if(!entry.isCompressed()) {
+			return entry;
+		}
+		final int levelCount = entry.getLevelCount();
+		int[] widths = new int[levelCount], heights = new int[levelCount];
+		ByteBuffer[] levels = new ByteBuffer[levelCount];
+		for(int level = 0; level < levelCount; level++) {
+			widths[level] = entry.getLevelWidth(level);
+			heights[level] = entry.getLevelHeight(level);
+			levels[level] = decompress(entry.levels[level], widths[level], heights[level], entry.internalFormat);
+		}
+		return new TextureCache.Entry(entry.target, GL11.GL_RGBA8, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, entry.flags & ~TextureCache.FLAG_COMPRESSED, entry.imageWidth, entry.imageHeight, widths, heights, levels);
+	}
+	
+	private static final ByteBuffer decompress(ByteBuffer data, int width, int height, int internalFormat) {
+		final int blockSize = getBlockSize(internalFormat);
+		final int blocksWide = (width + 3) / 4, blocksHigh = (height + 3) / 4;
+		ByteBuffer rgba = BufferUtils.createByteBuffer(width * height * 4);
+		byte[] block = new byte[blockSize];
+		int[] pixels = new int[16];//0xRRGGBBAA
+		for(int by = 0; by < blocksHigh; by++) {
+			for(int bx = 0; bx < blocksWide; bx++) {
+				data.get((by * blocksWide + bx) * blockSize, block);
+				decodeBlock(block, internalFormat, pixels);
+				for(int py = 0; py < 4; py++) {
+					final int y = by * 4 + py;
+					for(int px = 0; px < 4; px++) {
+						final int x = bx * 4 + px;
+						if(x < width && y < height) {
+							final int pixel = pixels[py * 4 + px], index = (y * width + x) * 4;
+							rgba.put(index, (byte) (pixel >>> 24)).put(index + 1, (byte) (pixel >>> 16)).put(index + 2, (byte) (pixel >>> 8)).put(index + 3, (byte) pixel);
+						}
+					}
+				}
+			}
+		}
+		return rgba.rewind();
+	}
+	
+	/** Decodes one 4x4 block into <tt>pixels</tt>, where each pixel is packed
+	 * as <tt>0xRRGGBBAA</tt>. */
+	private static final void decodeBlock(byte[] block, int internalFormat, int[] pixels) {
+		switch(internalFormat) {
+		case GL_COMPRESSED_RGBA_S3TC_DXT1:
+			decodeColorBlock(block, 0, true, pixels);
+			break;
+		case GL_COMPRESSED_RGBA_S3TC_DXT3:
+			decodeColorBlock(block, 8, false, pixels);
+			for(int i = 0; i < 16; i++) {
+				int alpha = (block[i / 2] >>> ((i & 1) * 4)) & 0xF;
+				pixels[i] = (pixels[i] & 0xFFFFFF00) | (alpha * 17);
+			}
+			break;
+		case GL_COMPRESSED_RGBA_S3TC_DXT5: {
+			decodeColorBlock(block, 8, false, pixels);
+			int[] alpha = decodeInterpolatedBlock(block, 0);
+			for(int i = 0; i < 16; i++) {
+				pixels[i] = (pixels[i] & 0xFFFFFF00) | alpha[i];
+			}
+			break;
+		}
+		case GL_COMPRESSED_RED_RGTC1: {
+			int[] red = decodeInterpolatedBlock(block, 0);
+			for(int i = 0; i < 16; i++) {
+				pixels[i] = (red[i] << 24) | 0xFF;
+			}
+			break;
+		}
+		case GL_COMPRESSED_RG_RGTC2: {
+			int[] red = decodeInterpolatedBlock(block, 0), green = decodeInterpolatedBlock(block, 8);
+			for(int i = 0; i < 16; i++) {
+				pixels[i] = (red[i] << 24) | (green[i] << 16) | 0xFF;
+			}
+			break;
+		}
+		default:
+			throw new IllegalArgumentException(String.format("Unsupported compressed format: 0x%s", Integer.toHexString(internalFormat)));
+		}
+	}
+	
+	private static final void decodeColorBlock(byte[] block, int offset, boolean allowThreeColorMode, int[] pixels) {
+		final int c0 = (block[offset] & 0xFF) | ((block[offset + 1] & 0xFF) << 8);
+		final int c1 = (block[offset + 2] & 0xFF) | ((block[offset + 3] & 0xFF) << 8);
+		final int r0 = expand(c0 >>> 11, 5), g0 = expand((c0 >>> 5) & 0x3F, 6), b0 = expand(c0 & 0x1F, 5);
+		final int r1 = expand(c1 >>> 11, 5), g1 = expand((c1 >>> 5) & 0x3F, 6), b1 = expand(c1 & 0x1F, 5);
+		int[] palette = new int[4];
+		palette[0] = rgba(r0, g0, b0, 255);
+		palette[1] = rgba(r1, g1, b1, 255);
+		if(c0 > c1 || !allowThreeColorMode) {
+			palette[2] = rgba((2 * r0 + r1) / 3, (2 * g0 + g1) / 3, (2 * b0 + b1) / 3, 255);
+			palette[3] = rgba((r0 + 2 * r1) / 3, (g0 + 2 * g1) / 3, (b0 + 2 * b1) / 3, 255);
+		} else {
+			palette[2] = rgba((r0 + r1) / 2, (g0 + g1) / 2, (b0 + b1) / 2, 255);
+			palette[3] = 0;//Transparent black
+		}
+		for(int row = 0; row < 4; row++) {
+			final int indices = block[offset + 4 + row] & 0xFF;
+			for(int col = 0; col < 4; col++) {
+				pixels[row * 4 + col] = palette[(indices >>> (col * 2)) & 0x3];
+			}
+		}
+	}
+	
+	private static final int[] decodeInterpolatedBlock(byte[] block, int offset) {
+		final int a0 = block[offset] & 0xFF, a1 = block[offset + 1] & 0xFF;
+		int[] palette = new int[8];
+		palette[0] = a0;
+		palette[1] = a1;
+		if(a0 > a1) {
+			for(int i = 1; i < 7; i++) {
+				palette[i + 1] = ((7 - i) * a0 + i * a1) / 7;
+			}
+		} else {
+			for(int i = 1; i < 5; i++) {
+				palette[i + 1] = ((5 - i) * a0 + i * a1) / 5;
+			}
+			palette[6] = 0;
+			palette[7] = 255;
+		}
+		long bits = 0;
+		for(int i = 0; i < 6; i++) {
+			bits |= (block[offset + 2 + i] & 0xFFL) << (8 * i);
+		}
+		int[] values = new int[16];
+		for(int i = 0; i < 16; i++) {
+			values[i] = palette[(int) ((bits >>> (3 * i)) & 0x7)];
+		}
+		return values;
+	}
+	
+	private static final int expand(int value, int bits) {
+		return (value << (8 - bits)) | (value >>> (2 * bits - 8));
+	}
+	
+	private static final int rgba(int r, int g, int b, int a) {
+		return (r << 24) | (g << 16) | (b << 8) | a;
+	}
+	
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.PerspectiveShader.ColorMode;
+import com.gmail.br45entei.game.graphics.Shader.UniformInt;
+import com.gmail.br45entei.game.graphics.Shader.UniformMat4;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+
+/** A rendering path that needs nothing but OpenGL 3.3 core profile
+ * functionality, for renderers that opt into a core context (see
+ * {@link com.gmail.br45entei.game.ui.Window#createGLData(int, int, boolean)
+ * Window.createGLData(3, 3, true)}).<br>
+ * <br>
+ * Instead of the fixed-function matrix stack (<tt>glPushMatrix</tt>,
+ * <tt>glTranslated</tt>, <tt>glMultMatrixd</tt>, etc.), the pipeline keeps
+ * separate {@link #getModel() model}, {@link #getView() view} and
+ * {@link #getProjection() projection} {@link MatrixStack}s. Right before
+ * anything is drawn, the model and view matrices are combined into the
+ * shader's <tt>modelView</tt> uniform and the projection matrix is copied
+ * into its <tt>projection</tt> uniform; both are set through
+ * {@link UniformMat4 typed uniforms}, so a matrix that didn't change since the
+ * last draw isn't uploaded again. The shader's color mode is set the same
+ * way.<br>
+ * <br>
+ * Geometry is drawn from {@link Mesh}es and {@link PrimitiveBatch}es, using a
+ * {@link CoreShader} (the pipeline compiles a default one on first use).
+ * While a shader is used by a pipeline, its matrices and color mode should
+ * only be changed through the pipeline.<br>
+ * <br>
+ * Each thread has its own pipeline, for the context that is current on it;
+ * the {@link GLThread} {@link #dispose() disposes} its pipeline before its
+ * context is destroyed.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class CorePipeline {
+	
+	private static final ThreadLocal<CorePipeline> pipelines = ThreadLocal.withInitial(CorePipeline::new);
+	
+	/** @return The core pipeline of the context that is current on the
+	 *         calling thread */
+	public static final CorePipeline get() {
+		return pipelines.get();
+	}
+	
+	/** @return Whether or not the current OpenGL context lacks the
+	 *         fixed-function pipeline (i.e. it is a forward-compatible core
+	 *         profile context), in which case everything must be drawn
+	 *         through a path like this one */
+	public static final boolean isCoreProfile() {
+		return GL.getCapabilities().glBegin == 0L;
+	}
+	
+	private final MatrixStack model = new MatrixStack(32);
+	private final MatrixStack view = new MatrixStack(4);
+	private final MatrixStack projection = new MatrixStack(4);
+	private final double[] modelMatrix = new double[MatrixStack.MATRIX_ARRAY_LENGTH];
+	private final double[] viewMatrix = new double[MatrixStack.MATRIX_ARRAY_LENGTH];
+	private final float[] modelViewMatrix = new float[MatrixStack.MATRIX_ARRAY_LENGTH];
+	private final float[] projectionMatrix = new float[MatrixStack.MATRIX_ARRAY_LENGTH];
+	
+	private volatile CoreShader defaultShader = null;
+	private volatile CoreShader shader = null;
+	private volatile UniformMat4 modelViewUniform = null, projectionUniform = null;
+	private volatile UniformInt colorModeUniform = null;
+	
+	private CorePipeline() {
+	}
+	
+	/** @return The model matrix stack. This takes the place of the
+	 *         fixed-function modelview stack's <tt>glPushMatrix</tt>,
+	 *         <tt>glTranslated</tt>, <tt>glRotated</tt>, etc. */
+	public final MatrixStack getModel() {
+		return this.model;
+	}
+	
+	/** @return The view (camera) matrix stack */
+	public final MatrixStack getView() {
+		return this.view;
+	}
+	
+	/** @return The projection matrix stack */
+	public final MatrixStack getProjection() {
+		return this.projection;
+	}
+	
+	/** Loads an orthographic projection that maps one unit to one pixel of a
+	 * viewport of the given size (the same projection that the
+	 * {@link GLThread}'s loading screen uses for 2D drawing), and resets the
+	 * view and model matrices.
+	 * 
+	 * @param width The width of the viewport
+	 * @param height The height of the viewport
+	 * @return This pipeline */
+	public final CorePipeline setOrthographic(double width, double height) {
+		this.projection.setOrthographicProjection(0, 0, width, height, 0.01, 1000.0);
+		this.view.loadIdentity();
+		this.model.loadIdentity();
+		return this;
+	}
+	
+	/** Loads a perspective projection for a viewport of the given size.
+	 * 
+	 * @param fovy The vertical field of view, in degrees
+	 * @param width The width of the viewport
+	 * @param height The height of the viewport
+	 * @param zNear The distance of the near clipping plane
+	 * @param zFar The distance of the far clipping plane
+	 * @return This pipeline */
+	public final CorePipeline setPerspective(double fovy, double width, double height, double zNear, double zFar) {
+		this.projection.setPerspectiveProjection(fovy, width, height, zNear, zFar);
+		return this;
+	}
+	
+	//=========================================================================================================================
+	
+	/** @return The shader that this pipeline draws with, compiling the
+	 *         default {@link CoreShader} if no other shader was set
+	 * @throws IllegalStateException Thrown if the default shader failed to
+	 *             compile */
+	public final CoreShader getShader() throws IllegalStateException {
+		CoreShader shader = this.shader;
+		if(shader == null) {
+			if(this.defaultShader == null) {
+				this.defaultShader = new CoreShader();
+			}
+			shader = this.defaultShader;
+			if(!shader.isCompiled() && !shader.glCompileShader()) {
+				throw new IllegalStateException(String.format("Failed to compile the shader \"%s\"!", shader.getName()));
+			}
+			this.setShader(shader);
+		}
+		return shader;
+	}
+	
+	/** @param shader The (compiled) shader that this pipeline should draw
+	 *            with, or <tt><b>null</b></tt> to use the default
+	 *            {@link CoreShader}
+	 * @return This pipeline
+	 * @throws IllegalStateException Thrown if the given shader has not been
+	 *             compiled */
+	public final CorePipeline setShader(CoreShader shader) throws IllegalStateException {
+		if(shader != null && !shader.isCompiled()) {
+			throw new IllegalStateException(String.format("Cannot draw with the shader \"%s\" as it has not been compiled!", shader.getName()));
+		}
+		if(shader != this.shader) {
+			this.shader = shader;
+			this.modelViewUniform = shader == null ? null : shader.getUniformMat4("modelView");
+			this.projectionUniform = shader == null ? null : shader.getUniformMat4("projection");
+			this.colorModeUniform = shader == null ? null : shader.getUniformInt("colorMode");
+		}
+		return this;
+	}
+	
+	/** Binds this pipeline's shader and uploads the current model, view and
+	 * projection matrices to it, if they changed.<br>
+	 * This is called by every <tt>glDraw</tt> method; it only needs to be
+	 * called manually to draw with the shader directly.
+	 * 
+	 * @return The shader that was bound
+	 * @throws IllegalStateException Thrown if the shader could not be
+	 *             bound */
+	public final CoreShader glBind() throws IllegalStateException {
+		final CoreShader shader = this.getShader();
+		this.model.peek(this.modelMatrix);
+		this.view.peek(this.viewMatrix);
+		multiply(this.modelMatrix, this.viewMatrix, this.modelViewMatrix);
+		this.projection.peekf(this.projectionMatrix);
+		this.modelViewUniform.set(this.modelViewMatrix);
+		this.projectionUniform.set(this.projectionMatrix);
+		if(!shader.bind()) {
+			throw new IllegalStateException(String.format("Cannot draw with the shader \"%s\" as it has not been compiled!", shader.getName()));
+		}
+		return shader;
+	}
+	
+	/** Multiplies two row-major matrices in the same order as
+	 * {@link GLUtil#multMatrix4x4d(double[], double[])}, without allocating. */
+	private static final strictfp void multiply(double[] m1, double[] m2, float[] dst) {
+		for(int row = 0; row < 4; row++) {
+			for(int col = 0; col < 4; col++) {
+				dst[(row * 4) + col] = (float) ((m1[row * 4] * m2[col]) + (m1[(row * 4) + 1] * m2[4 + col]) + (m1[(row * 4) + 2] * m2[8 + col]) + (m1[(row * 4) + 3] * m2[12 + col]));
+			}
+		}
+	}
+	
+	/** Draws the given mesh with the current matrices.<br>
+	 * If a texture is given, it is bound to unit <tt>0</tt> and each texel is
+	 * multiplied by the vertex color and the shader's color; otherwise only
+	 * the vertex color and the shader's color are used.
+	 * 
+	 * @param mesh The mesh to draw
+	 * @param texture The texture to draw the mesh with, or
+	 *            <tt><b>null</b></tt> to draw it untextured
+	 * @return This pipeline
+	 * @throws IllegalStateException Thrown if the shader could not be
+	 *             bound */
+	public final CorePipeline glDraw(Mesh mesh, Texture texture) throws IllegalStateException {
+		this.glBind();
+		if(texture != null) {
+			GLState.get().glBindTexture(0, GL11.GL_TEXTURE_2D, texture.getID());
+			this.colorModeUniform.glSet(ColorMode.INTERPOLATED_COLORED_TEXTURE.ordinal());
+		} else {
+			this.colorModeUniform.glSet(ColorMode.INTERPOLATED_COLOR.ordinal());
+		}
+		mesh.glDraw();
+		return this;
+	}
+	
+	/** Draws the given mesh untextured with the current matrices.
+	 * 
+	 * @param mesh The mesh to draw
+	 * @return This pipeline
+	 * @throws IllegalStateException Thrown if the shader could not be
+	 *             bound
+	 * @see #glDraw(Mesh, Texture) */
+	public final CorePipeline glDraw(Mesh mesh) throws IllegalStateException {
+		return this.glDraw(mesh, null);
+	}
+	
+	/** Draws everything in the given batch with the current matrices, then
+	 * clears it.
+	 * 
+	 * @param batch The batch to draw
+	 * @return The number of draw calls that were made
+	 * @throws IllegalStateException Thrown if the shader could not be
+	 *             bound
+	 * @see PrimitiveBatch#flush(CoreShader) */
+	public final int glDraw(PrimitiveBatch batch) throws IllegalStateException {
+		if(batch.isEmpty()) {
+			batch.clear();
+			return 0;
+		}
+		return batch.flush(this.glBind());
+	}
+	
+	/** Releases the default shader, if it was compiled, and resets the
+	 * matrices. This is called by the {@link GLThread} before its context is
+	 * destroyed. */
+	public final void dispose() {
+		if(this.defaultShader != null) {
+			this.defaultShader.glDisposeProgram();
+			this.defaultShader = null;
+		}
+		this.shader = null;
+		this.modelViewUniform = this.projectionUniform = null;
+		this.colorModeUniform = null;
+		this.model.loadIdentity();
+		this.view.loadIdentity();
+		this.projection.loadIdentity();
+	}
+	
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+/** A {@link PerspectiveShader} written against GLSL <tt>3.30 core</tt>, so
+ * that it can be used on any OpenGL 3.3+ core profile context.<br>
+ * In addition to the usual position and texture coordinate attributes, each
+ * vertex has its own color (location <tt>2</tt>); this is the vertex layout
+ * that {@link Mesh}es and {@link PrimitiveBatch}es use. The
+ * {@link ColorMode}s that mention interpolation refer to that per-vertex
+ * color:
+ * <ul>
+ * <li>{@link ColorMode#COLORED_TEXTURE}: <tt>texel * textureColor</tt></li>
+ * <li>{@link ColorMode#INTERPOLATED_TEXTURE}: <tt>texel * vertexColor</tt></li>
+ * <li>{@link ColorMode#INTERPOLATED_COLORED_TEXTURE}: <tt>texel * vertexColor * textureColor</tt></li>
+ * <li>{@link ColorMode#SOLID_COLOR}: <tt>textureColor</tt></li>
+ * <li>{@link ColorMode#INTERPOLATED}: <tt>vertexColor</tt></li>
+ * <li>{@link ColorMode#INTERPOLATED_COLOR}: <tt>vertexColor * textureColor</tt></li>
+ * </ul>
+ * The sampler always reads from texture unit <tt>0</tt>.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class CoreShader extends PerspectiveShader {
+	
+	/** The vertex attribute location of the position */
+	public static final int POSITION_ATTRIBUTE = 0;
+	/** The vertex attribute location of the texture coordinate */
+	public static final int TEXCOORD_ATTRIBUTE = 1;
+	/** The vertex attribute location of the color */
+	public static final int COLOR_ATTRIBUTE = 2;
+	
+	/** @param name The name of this shader program */
+	public CoreShader(String name) {
+		super(name, ""//@formatter:off
+				+ "#version 330 core\n"
+				+ "\n"
+				+ "layout (location=0) in vec3 position;\n"
+				+ "layout (location=1) in vec2 texCoord;\n"
+				+ "layout (location=2) in vec4 vertexColor;\n"
+				+ "out vec2 tc;\n"
+				+ "out vec4 vc;\n"
+				+ "uniform mat4 modelView;\n"
+				+ "uniform mat4 projection;\n"
+				+ "\n"
+				+ "void main(void) {\n"
+				+ "	gl_Position = projection * modelView * vec4(position, 1.0);\n"
+				+ "	tc = texCoord;\n"
+				+ "	vc = vertexColor;\n"
+				+ "}\n"
+				+ "\n",
+				
+				"#version 330 core\n"
+				+ "\n"
+				+ "in vec2 tc;\n"
+				+ "in vec4 vc;\n"
+				+ "out vec4 color;\n"
+				+ "uniform mat4 modelView;\n"
+				+ "uniform mat4 projection;\n"
+				+ "uniform sampler2D samp;\n"
+				+ "uniform vec4 textureColor;\n"
+				+ "uniform int colorMode;\n"
+				+ "\n"
+				+ "void main(void) {\n"
+				+ "	if(colorMode == 0) {\n"
+				+ "		color = texture(samp, tc) * textureColor;\n"
+				+ "	} else if(colorMode == 1) {\n"
+				+ "		color = texture(samp, tc) * vc;\n"
+				+ "	} else if(colorMode == 2) {\n"
+				+ "		color = texture(samp, tc) * vc * textureColor;\n"
+				+ "	} else if(colorMode == 3) {\n"
+				+ "		color = textureColor;\n"
+				+ "	} else if(colorMode == 4) {\n"
+				+ "		color = vc;\n"
+				+ "	} else {\n"
+				+ "		color = vc * textureColor;\n"
+				+ "	}\n"
+				+ "}\n"
+				+ "\n"
+		);//@formatter:on
+	}
+	
+	public CoreShader() {
+		this("Core Shader");
+	}
+	
+}
@@ -782,21 +782,23 @@ public strictfp class CubeTexture {
 	
 	private static final boolean setCull(boolean renderInside, boolean renderOutside) {
 		final int cull = !renderInside ? (!renderOutside ? GL11.GL_FRONT_AND_BACK : GL11.GL_BACK) : (!renderOutside ? GL11.GL_FRONT : GL11.GL_NONE);
-		GL11.glFrontFace(GL11.GL_CCW);
-		GL11.glCullFace(cull);
+		final GLState state = GLState.get();
+		state.glFrontFace(GL11.GL_CCW);
 		if(cull == GL11.GL_NONE) {
-			GL11.glDisable(GL11.GL_CULL_FACE);
+			state.glDisable(GL11.GL_CULL_FACE);
 		} else {
-			GL11.glEnable(GL11.GL_CULL_FACE);
+			state.glCullFace(cull);
+			state.glEnable(GL11.GL_CULL_FACE);
 		}
 		return cull == GL11.GL_FRONT_AND_BACK;
 	}
 	
 	@SuppressWarnings("unused")
 	private static final void resetCull() {//set culling back to default and disable it
-		GL11.glFrontFace(GL11.GL_CCW);
-		GL11.glCullFace(GL11.GL_BACK);
-		GL11.glDisable(GL11.GL_CULL_FACE);
+		final GLState state = GLState.get();
+		state.glFrontFace(GL11.GL_CCW);
+		state.glCullFace(GL11.GL_BACK);
+		state.glDisable(GL11.GL_CULL_FACE);
 	}
 	
 	/** Renders this cube without using any rendering checks */
@@ -823,7 +825,7 @@ public strictfp class CubeTexture {
 		}
 		if(test) {
 			this.translateOffset();
-			GL11.glBegin(GL11.GL_QUADS);
+			GLStats.glBegin(GL11.GL_QUADS);
 		}
 		if(this.getTexture(0) == texture) {
 			this.renderFront(false);
@@ -844,7 +846,7 @@ public strictfp class CubeTexture {
 			this.renderLeft(false);
 		}
 		if(test) {
-			GL11.glEnd();
+			GLStats.glEnd();
 			this.unTranslateOffset();
 		}
 	}
@@ -916,48 +918,48 @@ public strictfp class CubeTexture {
 			this.shadeSide(this.frontLightLevel, this.frontLightHue, this.frontTransparency);
 			if(!test) {
 				this.translateOffset();
-				GL11.glBegin(GL11.GL_QUADS);
+				GLStats.glBegin(GL11.GL_QUADS);
 			}
 			GL11.glNormal3f(0f, 0f, 1f);
 			if(this.flipFrontH && this.flipFrontV) {
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 			} else if(this.flipFrontH) {
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 			} else if(this.flipFrontV) {
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 			} else {
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 			}
 			if(!test) {
-				GL11.glEnd();
+				GLStats.glEnd();
 				this.unTranslateOffset();
 			}
 			this.unShade();
@@ -989,48 +991,48 @@ public strictfp class CubeTexture {
 			this.shadeSide(this.backLightLevel, this.backLightHue, this.backTransparency);
 			if(!test) {
 				this.translateOffset();
-				GL11.glBegin(GL11.GL_QUADS);
+				GLStats.glBegin(GL11.GL_QUADS);
 			}
 			GL11.glNormal3f(0f, 0f, -1f);
 			if(this.flipFrontH && this.flipFrontV) {
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 			} else if(this.flipFrontH) {
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 			} else if(this.flipFrontV) {
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 			} else {
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 			}
 			if(!test) {
-				GL11.glEnd();
+				GLStats.glEnd();
 				this.unTranslateOffset();
 			}
 			this.unShade();
@@ -1062,48 +1064,48 @@ public strictfp class CubeTexture {
 			this.shadeSide(this.topLightLevel, this.topLightHue, this.topTransparency);
 			if(!test) {
 				this.translateOffset();
-				GL11.glBegin(GL11.GL_QUADS);
+				GLStats.glBegin(GL11.GL_QUADS);
 			}
 			GL11.glNormal3f(0f, 1f, 0f);
 			if(this.flipFrontH && this.flipFrontV) {
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 			} else if(this.flipFrontH) {
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 			} else if(this.flipFrontV) {
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 			} else {
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 			}
 			if(!test) {
-				GL11.glEnd();
+				GLStats.glEnd();
 				this.unTranslateOffset();
 			}
 			this.unShade();
@@ -1135,48 +1137,48 @@ public strictfp class CubeTexture {
 			this.shadeSide(this.bottomLightLevel, this.bottomLightHue, this.bottomTransparency);
 			if(!test) {
 				this.translateOffset();
-				GL11.glBegin(GL11.GL_QUADS);
+				GLStats.glBegin(GL11.GL_QUADS);
 			}
 			GL11.glNormal3f(0f, -1f, 0f);
 			if(this.flipFrontH && this.flipFrontV) {
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 			} else if(this.flipFrontH) {
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 			} else if(this.flipFrontV) {
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 			} else {
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 			}
 			if(!test) {
-				GL11.glEnd();
+				GLStats.glEnd();
 				this.unTranslateOffset();
 			}
 			this.unShade();
@@ -1209,48 +1211,48 @@ public strictfp class CubeTexture {
 			this.shadeSide(this.rightLightLevel, this.rightLightHue, this.rightTransparency);
 			if(!test) {
 				this.translateOffset();
-				GL11.glBegin(GL11.GL_QUADS);
+				GLStats.glBegin(GL11.GL_QUADS);
 			}
 			GL11.glNormal3f(1f, 0f, 0f);
 			if(this.flipFrontH && this.flipFrontV) {
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 			} else if(this.flipFrontH) {
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 			} else if(this.flipFrontV) {
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 			} else {
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, -this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, -this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, this.scale, this.scale);	// Top Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(this.scale, -this.scale, this.scale);	// Bottom Left Of The Texture and Quad
 			}
 			if(!test) {
-				GL11.glEnd();
+				GLStats.glEnd();
 				this.unTranslateOffset();
 			}
 			this.unShade();
@@ -1282,48 +1284,48 @@ public strictfp class CubeTexture {
 			this.shadeSide(this.leftLightLevel, this.rightLightHue, this.rightTransparency);
 			if(!test) {
 				this.translateOffset();
-				GL11.glBegin(GL11.GL_QUADS);
+				GLStats.glBegin(GL11.GL_QUADS);
 			}
 			GL11.glNormal3f(-1f, 0f, 0f);
 			if(this.flipFrontH && this.flipFrontV) {
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 			} else if(this.flipFrontH) {
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 			} else if(this.flipFrontV) {
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 			} else {
 				GL11.glTexCoord2f(0.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, -this.scale);	// Bottom Left Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 1.0f);
-				GL11.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, -this.scale, this.scale);	// Bottom Right Of The Texture and Quad
 				GL11.glTexCoord2f(1.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, this.scale);	// Top Right Of The Texture and Quad
 				GL11.glTexCoord2f(0.0f, 0.0f);
-				GL11.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
+				GLStats.glVertex3f(-this.scale, this.scale, -this.scale);	// Top Left Of The Texture and Quad
 			}
 			if(!test) {
-				GL11.glEnd();
+				GLStats.glEnd();
 				this.unTranslateOffset();
 			}
 			this.unShade();
@@ -1386,7 +1388,7 @@ public strictfp class CubeTexture {
 	 * 
 	 * @param changeColor Whether or not the hit box should change color */
 	public strictfp void renderHitBox(boolean changeColor) {
-		GL11.glDisable(GL11.GL_DEPTH_TEST);
+		GLState.get().glDisable(GL11.GL_DEPTH_TEST);
 		GL11.glPolygonMode(GL11.GL_FRONT, GL11.GL_LINE);
 		GL11.glLineWidth(2.0F);
 		if(changeColor) {
@@ -1405,56 +1407,56 @@ public strictfp class CubeTexture {
 		this.isRenderingHitBox = false;
 		GL11.glLineWidth(1.0F);
 		GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_FILL);
-		GL11.glEnable(GL11.GL_DEPTH_TEST);
+		GLState.get().glEnable(GL11.GL_DEPTH_TEST);
 		GL11.glColor3f(1, 1, 1);
 	}
 	
 	/** Renders a sample cube with a different color on each side */
 	public static final void renderColorCube() {
-		GL11.glBegin(GL11.GL_QUADS);
+		GLStats.glBegin(GL11.GL_QUADS);
 		
 		GL11.glColor3f(1.0f, 1.0f, 0.0f);//bindOpenGLTexture(cubeTexture.getTexture(0));
-		GL11.glVertex3f(0.5f, 0.5f, -0.5f);
-		GL11.glVertex3f(-0.5f, 0.5f, -0.5f);
-		GL11.glVertex3f(-0.5f, 0.5f, 0.5f);
-		GL11.glVertex3f(0.5f, 0.5f, 0.5f);
+		GLStats.glVertex3f(0.5f, 0.5f, -0.5f);
+		GLStats.glVertex3f(-0.5f, 0.5f, -0.5f);
+		GLStats.glVertex3f(-0.5f, 0.5f, 0.5f);
+		GLStats.glVertex3f(0.5f, 0.5f, 0.5f);
 		
 		//
 		GL11.glColor3f(1.0f, 0.5f, 0.0f);//bindOpenGLTexture(cubeTexture.getTexture(1));
-		GL11.glVertex3f(0.5f, -0.5f, 0.5f);
-		GL11.glVertex3f(-0.5f, -0.5f, 0.5f);
-		GL11.glVertex3f(-0.5f, -0.5f, -0.5f);
-		GL11.glVertex3f(0.5f, -0.5f, -0.5f);
+		GLStats.glVertex3f(0.5f, -0.5f, 0.5f);
+		GLStats.glVertex3f(-0.5f, -0.5f, 0.5f);
+		GLStats.glVertex3f(-0.5f, -0.5f, -0.5f);
+		GLStats.glVertex3f(0.5f, -0.5f, -0.5f);
 		
 		//Front:
 		GL11.glColor3f(0.5f, 0.0f, 0.0f);//bindOpenGLTexture(cubeTexture.getTexture(2));
-		GL11.glVertex3f(0.5f, 0.5f, 0.5f);
-		GL11.glVertex3f(-0.5f, 0.5f, 0.5f);
-		GL11.glVertex3f(-0.5f, -0.5f, 0.5f);
-		GL11.glVertex3f(0.5f, -0.5f, 0.5f);
+		GLStats.glVertex3f(0.5f, 0.5f, 0.5f);
+		GLStats.glVertex3f(-0.5f, 0.5f, 0.5f);
+		GLStats.glVertex3f(-0.5f, -0.5f, 0.5f);
+		GLStats.glVertex3f(0.5f, -0.5f, 0.5f);
 		
 		//
 		GL11.glColor3f(0.0f, 1.0f, 0.0f);//bindOpenGLTexture(cubeTexture.getTexture(3));
-		GL11.glVertex3f(0.5f, -0.5f, -0.5f);
-		GL11.glVertex3f(-0.5f, -0.5f, -0.5f);
-		GL11.glVertex3f(-0.5f, 0.5f, -0.5f);
-		GL11.glVertex3f(0.5f, 0.5f, -0.5f);
+		GLStats.glVertex3f(0.5f, -0.5f, -0.5f);
+		GLStats.glVertex3f(-0.5f, -0.5f, -0.5f);
+		GLStats.glVertex3f(-0.5f, 0.5f, -0.5f);
+		GLStats.glVertex3f(0.5f, 0.5f, -0.5f);
 		
 		//
 		GL11.glColor3f(0.0f, 0.0f, 1.0f);//bindOpenGLTexture(cubeTexture.getTexture(4));
-		GL11.glVertex3f(-0.5f, 0.5f, 0.5f);
-		GL11.glVertex3f(-0.5f, 0.5f, -0.5f);
-		GL11.glVertex3f(-0.5f, -0.5f, -0.5f);
-		GL11.glVertex3f(-0.5f, -0.5f, 0.5f);
+		GLStats.glVertex3f(-0.5f, 0.5f, 0.5f);
+		GLStats.glVertex3f(-0.5f, 0.5f, -0.5f);
+		GLStats.glVertex3f(-0.5f, -0.5f, -0.5f);
+		GLStats.glVertex3f(-0.5f, -0.5f, 0.5f);
 		
 		//
 		GL11.glColor3f(1.0f, 0.0f, 1.0f);//bindOpenGLTexture(cubeTexture.getTexture(5));
-		GL11.glVertex3f(0.5f, 0.5f, -0.5f);
-		GL11.glVertex3f(0.5f, 0.5f, 0.5f);
-		GL11.glVertex3f(0.5f, -0.5f, 0.5f);
-		GL11.glVertex3f(0.5f, -0.5f, -0.5f);
+		GLStats.glVertex3f(0.5f, 0.5f, -0.5f);
+		GLStats.glVertex3f(0.5f, 0.5f, 0.5f);
+		GLStats.glVertex3f(0.5f, -0.5f, 0.5f);
+		GLStats.glVertex3f(0.5f, -0.5f, -0.5f);
 		
-		GL11.glEnd();
+		GLStats.glEnd();
 	}
 	
 }
@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+
+/** Collects the names of OpenGL objects that are no longer needed and deletes
+ * them in batches on the context that created them.<br>
+ * <br>
+ * Object names are only meaningful to the context that created them, so
+ * every context has its own queue: {@link #get()} returns the queue of the
+ * context that is current on the calling thread. Objects that own names
+ * should keep a reference to the queue that was current when their names
+ * were created, and post their names to that queue when they are
+ * disposed.<br>
+ * <br>
+ * Any thread may post names to a queue (including threads that have no
+ * context current, and cleanup code that runs after the object that owned the
+ * names has become unreachable). Once per frame, after the buffers have been
+ * swapped, the {@link GLThread} that owns the queue {@link #flush() flushes}
+ * it: the names posted since the last flush are set aside behind a fence, and
+ * every batch whose fence has been passed by the GPU is deleted with one
+ * <tt>glDeleteTextures</tt>/<tt>glDeleteBuffers</tt>/etc. call per type.
+ * Deletion therefore happens a frame or two after the names were posted,
+ * once the frames that may still have been using them have finished.<br>
+ * <br>
+ * When the {@link GLThread} destroys its context it {@link #flushAll()
+ * flushes everything}; names that are posted to the queue after that are
+ * ignored, as they were deleted along with the context.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class DeletionQueue {
+	
+	private static final int TEXTURE = 0, BUFFER = 1, PROGRAM = 2, SHADER = 3, FRAMEBUFFER = 4, RENDERBUFFER = 5, VERTEX_ARRAY = 6;
+	private static final int TYPES = 7;
+	/** The number of frames that a batch is kept for when fences aren't
+	 * supported */
+	private static final int UNFENCED_FRAMES = 3;
+	
+	private static final ThreadLocal<DeletionQueue> queues = ThreadLocal.withInitial(DeletionQueue::new);
+	
+	/** @return The deletion queue of the context that is current on the
+	 *         calling thread */
+	public static final DeletionQueue get() {
+		return queues.get();
+	}
+	
+	/** The names of one frame's worth of deleted objects, one array per
+	 * type */
+	private static final class Batch {
+		
+		final int[][] names = new int[TYPES][16];
+		final int[] counts = new int[TYPES];
+		long fence = 0L;
+		long frame = 0L;
+		
+		Batch() {
+		}
+		
+		final void add(int type, int name) {
+			int count = this.counts[type];
+			if(count == this.names[type].length) {
+				this.names[type] = Arrays.copyOf(this.names[type], count * 2);
+			}
+			this.names[type][count] = name;
+			this.counts[type] = count + 1;
+		}
+		
+		final boolean isEmpty() {
+			for(int count : this.counts) {
+				if(count != 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		final void clear() {
+			Arrays.fill(this.counts, 0);
+			this.fence = 0L;
+		}
+		
+	}
+	
+	// Guards posted, free and destroyed; everything else is only touched by the owning thread
+	private final Object lock = new Object();
+	private Batch posted = new Batch();
+	private final ArrayDeque<Batch> retiring = new ArrayDeque<>();
+	private final ArrayDeque<Batch> free = new ArrayDeque<>();
+	private boolean destroyed = false;
+	private long frame = 0L;
+	private volatile long deletedCount = 0L;
+	private IntBuffer scratch = null;
+	
+	private DeletionQueue() {
+	}
+	
+	//=========================================================================================================================
+	
+	private final void post(int type, int name) {
+		if(name == 0) {
+			return;
+		}
+		synchronized(this.lock) {
+			if(!this.destroyed) {
+				this.posted.add(type, name);
+			}
+		}
+	}
+	
+	/** Schedules the given texture for deletion.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param texture The name of the texture to delete */
+	public final void deleteTexture(int texture) {
+		this.post(TEXTURE, texture);
+	}
+	
+	/** Schedules the given buffer object for deletion.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param buffer The name of the buffer to delete */
+	public final void deleteBuffer(int buffer) {
+		this.post(BUFFER, buffer);
+	}
+	
+	/** Schedules the given shader program for deletion.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param program The name of the program to delete */
+	public final void deleteProgram(int program) {
+		this.post(PROGRAM, program);
+	}
+	
+	/** Schedules the given shader object for deletion.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param shader The name of the shader to delete */
+	public final void deleteShader(int shader) {
+		this.post(SHADER, shader);
+	}
+	
+	/** Schedules the given framebuffer for deletion.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param framebuffer The name of the framebuffer to delete */
+	public final void deleteFramebuffer(int framebuffer) {
+		this.post(FRAMEBUFFER, framebuffer);
+	}
+	
+	/** Schedules the given renderbuffer for deletion.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param renderbuffer The name of the renderbuffer to delete */
+	public final void deleteRenderbuffer(int renderbuffer) {
+		this.post(RENDERBUFFER, renderbuffer);
+	}
+	
+	/** Schedules the given vertex array object for deletion.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param vertexArray The name of the vertex array to delete */
+	public final void deleteVertexArray(int vertexArray) {
+		this.post(VERTEX_ARRAY, vertexArray);
+	}
+	
+	/** @return The total number of objects that this queue has deleted */
+	public final long getDeletedCount() {
+		return this.deletedCount;
+	}
+	
+	//=========================================================================================================================
+	
+	private static final boolean isFenceSupported() {
+		return GL.getCapabilities().glFenceSync != 0L;
+	}
+	
+	/** Sets aside the names that were posted since the last flush and deletes
+	 * the batches that the GPU has finished with. This is called by the
+	 * {@link GLThread} once per frame, and must only be called on the thread
+	 * that owns this queue, with its context current. */
+	public final void flush() {
+		final boolean fenced = isFenceSupported();
+		final long frame = this.frame++;
+		Batch batch;
+		synchronized(this.lock) {
+			batch = this.posted;
+			if(batch.isEmpty()) {
+				batch = null;
+			} else {
+				Batch next = this.free.pollFirst();
+				this.posted = next == null ? new Batch() : next;
+			}
+		}
+		if(batch != null) {
+			batch.frame = frame;
+			batch.fence = fenced ? GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0) : 0L;
+			this.retiring.addLast(batch);
+		}
+		
+		// Batches are fenced in order, so stop at the first one still in flight
+		while((batch = this.retiring.peekFirst()) != null) {
+			if(batch.fence != 0L) {
+				int status = GL32.glClientWaitSync(batch.fence, 0, 0L);
+				if(status != GL32.GL_ALREADY_SIGNALED && status != GL32.GL_CONDITION_SATISFIED) {
+					break;
+				}
+				GL32.glDeleteSync(batch.fence);
+			} else if(frame - batch.frame < UNFENCED_FRAMES) {
+				break;
+			}
+			this.retiring.removeFirst();
+			this.delete(batch);
+		}
+	}
+	
+	/** Deletes every name that has been posted to this queue right away,
+	 * without waiting for the GPU, and stops accepting new names. This is
+	 * called by the {@link GLThread} that owns this queue before its context
+	 * is destroyed. */
+	public final void flushAll() {
+		Batch batch;
+		while((batch = this.retiring.pollFirst()) != null) {
+			if(batch.fence != 0L) {
+				GL32.glDeleteSync(batch.fence);
+			}
+			this.delete(batch);
+		}
+		synchronized(this.lock) {
+			batch = this.posted;
+			this.posted = new Batch();
+			this.destroyed = true;
+		}
+		this.delete(batch);
+		queues.remove();
+	}
+	
+	private final void delete(Batch batch) {
+		final GLState state = GLState.get();
+		int[] names;
+		int count;
+		
+		names = batch.names[TEXTURE];
+		count = batch.counts[TEXTURE];
+		if(count > 0) {
+			GL11.glDeleteTextures(this.fill(names, count));
+			for(int i = 0; i < count; i++) {
+				state.onTextureDeleted(names[i]);
+			}
+		}
+		names = batch.names[BUFFER];
+		count = batch.counts[BUFFER];
+		if(count > 0) {
+			GL15.glDeleteBuffers(this.fill(names, count));
+			for(int i = 0; i < count; i++) {
+				state.onBufferDeleted(names[i]);
+			}
+		}
+		names = batch.names[FRAMEBUFFER];
+		count = batch.counts[FRAMEBUFFER];
+		if(count > 0) {
+			GL30.glDeleteFramebuffers(this.fill(names, count));
+			for(int i = 0; i < count; i++) {
+				state.onFramebufferDeleted(names[i]);
+			}
+		}
+		count = batch.counts[RENDERBUFFER];
+		if(count > 0) {
+			GL30.glDeleteRenderbuffers(this.fill(batch.names[RENDERBUFFER], count));
+		}
+		count = batch.counts[VERTEX_ARRAY];
+		if(count > 0) {
+			names = batch.names[VERTEX_ARRAY];
+			GL30.glDeleteVertexArrays(this.fill(names, count));
+			for(int i = 0; i < count; i++) {
+				if(state.getVertexArray() == names[i]) {
+					state.glBindVertexArray(0);
+				}
+			}
+		}
+		// Programs and shaders can only be deleted one at a time
+		names = batch.names[PROGRAM];
+		count = batch.counts[PROGRAM];
+		for(int i = 0; i < count; i++) {
+			if(state.getProgram() == names[i]) {
+				state.glUseProgram(0);
+			}
+			GL20.glDeleteProgram(names[i]);
+		}
+		names = batch.names[SHADER];
+		count = batch.counts[SHADER];
+		for(int i = 0; i < count; i++) {
+			GL20.glDeleteShader(names[i]);
+		}
+		
+		long total = 0L;
+		for(int n : batch.counts) {
+			total += n;
+		}
+		this.deletedCount += total;
+		batch.clear();
+		synchronized(this.lock) {
+			this.free.addLast(batch);
+		}
+	}
+	
+	private final IntBuffer fill(int[] names, int count) {
+		if(this.scratch == null || this.scratch.capacity() < count) {
+			this.scratch = BufferUtils.createIntBuffer(Math.max(64, Integer.highestOneBit(count) << 1));
+		}
+		this.scratch.clear();
+		this.scratch.put(names, 0, count);
+		this.scratch.flip();
+		return this.scratch;
+	}
+	
+}
@@ -0,0 +1,421 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.FontRender.GLFont;
+import com.gmail.br45entei.game.graphics.FontRender.Glyph;
+import com.gmail.br45entei.game.graphics.FontRender.GlyphPage;
+import com.gmail.br45entei.util.BufferUtil;
+import com.gmail.br45entei.util.FileUtil;
+
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Persistent on-disk cache of rasterized {@link GLFont} glyph pages.<br>
+ * Each font configuration (family, size, style, antialiasing, distance field
+ * mode and the other rendering options) has its own cache file, consisting of
+ * a small big-endian header that stores the configuration, followed by one
+ * record per rasterized glyph page. A record holds the page's glyph metrics,
+ * the set of code points that the font could display when the page was
+ * rasterized, and the page's raw RGBA pixels.<br>
+ * Records are appended as new pages are rasterized, so a page only ever goes
+ * through AWT once. On later launches the file is memory-mapped and pages
+ * are uploaded straight from the mapping. A file whose configuration does not
+ * match is deleted, and a record whose code point coverage no longer matches
+ * the font is ignored and replaced.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class FontCache {
+	
+	/** The magic number that every font cache file begins with
+	 * (<tt>"BFNC"</tt>) */
+	public static final int MAGIC = 0x42464E43;
+	/** The magic number that every page record begins with
+	 * (<tt>"PAGE"</tt>) */
+	public static final int PAGE_MAGIC = 0x50414745;
+	/** The version of the cache file format. Files with any other version are
+	 * treated as a cache miss. */
+	public static final int VERSION = 1;
+	/** The file extension used for font cache files */
+	public static final String EXTENSION = ".fontcache";
+	
+	/** The number of longs in a page's code point coverage bit set */
+	private static final int COVERAGE_LONGS = GLFont.GLYPHS_PER_PAGE / Long.SIZE;
+	/** The size of a single glyph's metrics in a page record: a presence flag
+	 * followed by four floats */
+	private static final int GLYPH_SIZE = 1 + (4 * 4);
+	/** The size of a page record, excluding its pixels */
+	private static final int RECORD_HEADER_SIZE = (4 * 4) + (COVERAGE_LONGS * 8) + (GLFont.GLYPHS_PER_PAGE * GLYPH_SIZE) + 4;
+	
+	private static volatile File cacheFolder = new File(System.getProperty("user.dir"), "cache".concat(File.separator).concat("fonts"));
+	private static volatile boolean enabled = true;
+	/** The open entries, one per cache file, shared by every font that has
+	 * the same configuration */
+	private static final HashMap<File, Entry> entries = new HashMap<>();
+	
+	private FontCache() {
+	}
+	
+	/** @return The folder that font cache files are stored in */
+	public static final File getCacheFolder() {
+		return cacheFolder;
+	}
+	
+	/** @param folder The new folder that font cache files will be stored in */
+	public static final void setCacheFolder(File folder) {
+		if(folder != null) {
+			cacheFolder = folder;
+		}
+	}
+	
+	/** @return Whether or not fonts use the cache when rasterizing their glyph
+	 *         pages */
+	public static final boolean isEnabled() {
+		return enabled;
+	}
+	
+	/** @param enabled Whether or not fonts should use the cache when
+	 *            rasterizing their glyph pages */
+	public static final void setEnabled(boolean enabled) {
+		FontCache.enabled = enabled;
+	}
+	
+	/** Returns the string that identifies the given font's configuration.
+	 * Any change to it invalidates the font's cache file.
+	 * 
+	 * @param font The font
+	 * @return The given font's cache key */
+	public static final String getKey(GLFont font) {
+		Font awtFont = font.renderFont;
+		return new StringBuilder().append(awtFont.getFamily()).append('|').append(awtFont.getFontName()).append('|').append(awtFont.getNumGlyphs())//
+				.append('|').append(font.size).append('|').append(font.bold ? 'b' : '-').append(font.italic ? 'i' : '-')//
+				.append('|').append(font.antialiasing ? 'a' : '-').append(font.usesFractionalMetrics ? 'f' : '-').append(font.widerGlyphs ? 'w' : '-').append(font.scaleTextSizeToMatchNativeRenderingSize ? 's' : '-').append(font.distanceField ? 'd' : '-')//
+				.append('|').append(Integer.toHexString(font.unknownGlyphIndex)).toString();
+	}
+	
+	/** @param font The font
+	 * @return The cache file that would contain the given font's glyph
+	 *         pages */
+	public static final File getCacheFile(GLFont font) {
+		final String key = getKey(font);
+		String name = font.renderFont.getFamily().concat("_").concat(Integer.toString(font.size)).concat(font.bold ? "_bold" : "").concat(font.italic ? "_italic" : "");
+		return new File(getCacheFolder(), FileUtil.makeStringFilesystemSafe(name).concat("_").concat(Integer.toHexString(key.hashCode())).concat(EXTENSION));
+	}
+	
+	/** Deletes every font cache file in the {@link #getCacheFolder() cache
+	 * folder}.<br>
+	 * Files that are currently mapped by a loaded font may not be deletable on
+	 * some platforms.
+	 * 
+	 * @return The number of cache files that were deleted */
+	public static final int clear() {
+		File[] files = getCacheFolder().listFiles();
+		int count = 0;
+		if(files != null) {
+			for(File file : files) {
+				if(file.isFile() && file.getName().endsWith(EXTENSION) && file.delete()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+	
+	/** Returns the set of code points in the given page that the font will
+	 * rasterize glyphs for.
+	 * 
+	 * @param font The font
+	 * @param pageIndex The index of the page
+	 * @return The page's code point coverage, one bit per code point */
+	public static final long[] getCoverage(GLFont font, int pageIndex) {
+		final long[] coverage = new long[COVERAGE_LONGS];
+		final int first = pageIndex * GLFont.GLYPHS_PER_PAGE;
+		for(int i = 0; i < GLFont.GLYPHS_PER_PAGE; i++) {
+			final int cp = first + i;
+			if(cp == font.unknownGlyphIndex || font.renderFont.canDisplay(cp)) {
+				coverage[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+			}
+		}
+		return coverage;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Opens the cache file of the given font, deleting it first if it belongs
+	 * to a different configuration or is corrupt.<br>
+	 * Fonts with the same configuration share one entry, so that they append
+	 * their records to the same end of the file; every call must be balanced
+	 * by a call to {@link Entry#close()}.
+	 * 
+	 * @param font The font
+	 * @return The font's cache entry */
+	public static final Entry open(GLFont font) {
+		final String key = getKey(font);
+		final File file = getCacheFile(font);
+		synchronized(entries) {
+			Entry entry = entries.get(file);
+			if(entry != null && entry.key.equals(key)) {
+				entry.references++;
+				return entry;
+			}
+			entry = open(file, key);
+			entries.put(file, entry);
+			return entry;
+		}
+	}
+	
+	private static final Entry open(File file, String key) {
+		Entry entry = new Entry(file, key);
+		if(file.isFile()) {
+			MappedByteBuffer map = null;
+			try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} catch(IOException ex) {
+				map = null;
+			}
+			boolean valid = false;
+			if(map != null) {
+				try {
+					valid = entry.parse(map);
+				} catch(RuntimeException ex) {//Corrupt header
+					valid = false;
+				}
+				if(valid) {
+					entry.mapping = map;
+				} else {
+					unmap(map);
+				}
+			}
+			if(!valid) {
+				entry.records.clear();
+				entry.validLength = 0;
+				file.delete();
+			}
+		}
+		return entry;
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static final void unmap(MappedByteBuffer map) {
+		BufferUtil.freeDirectBufferMemory(map);
+	}
+	
+	/** A font's open cache file.<br>
+	 * Pages that are loaded from the entry are backed by a memory mapping of
+	 * the cache file, which is released once every font that
+	 * {@link FontCache#open(GLFont) opened} the entry has {@link #close()
+	 * closed} it; the entry must therefore outlive every page that was loaded
+	 * from it.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Entry implements AutoCloseable {
+		
+		/** The cache file */
+		public final File file;
+		/** The key of the font configuration that this entry belongs to */
+		public final String key;
+		/** The offset of the newest record of each page in the mapping */
+		protected final HashMap<Integer, Integer> records = new HashMap<>();
+		protected volatile MappedByteBuffer mapping = null;
+		/** The length of the file up to the end of its last intact record */
+		protected volatile long validLength = 0;
+		/** The number of fonts that have this entry open; guarded by
+		 * {@link FontCache#entries} */
+		protected int references = 1;
+		
+		protected Entry(File file, String key) {
+			this.file = file;
+			this.key = key;
+		}
+		
+		/** Reads the header and indexes the records of the given mapping.
+		 * Reading stops at the first incomplete record, which is overwritten by
+		 * the next {@link #store(GlyphPage, long[]) store}.
+		 * 
+		 * @return Whether or not the header matched this entry's key */
+		protected boolean parse(MappedByteBuffer map) {
+			ByteBuffer buf = map.duplicate().order(ByteOrder.BIG_ENDIAN);
+			if(buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+				return false;
+			}
+			byte[] key = new byte[buf.getInt()];
+			buf.get(key);
+			if(!this.key.equals(new String(key, StandardCharsets.UTF_8))) {
+				return false;
+			}
+			this.validLength = buf.position();
+			while(buf.remaining() >= RECORD_HEADER_SIZE) {
+				final int offset = buf.position();
+				if(buf.getInt() != PAGE_MAGIC) {
+					break;
+				}
+				final int index = buf.getInt(), width = buf.getInt(), height = buf.getInt();
+				buf.position(offset + RECORD_HEADER_SIZE - 4);
+				final int length = buf.getInt();
+				if(index < 0 || index >= GLFont.PAGE_COUNT || width <= 0 || height <= 0 || length != width * height * 4 || buf.remaining() < length) {
+					break;
+				}
+				buf.position(buf.position() + length);
+				this.records.put(Integer.valueOf(index), Integer.valueOf(offset));
+				this.validLength = buf.position();
+			}
+			return true;
+		}
+		
+		/** Loads the given page from the cache.
+		 * 
+		 * @param index The index of the page to load
+		 * @param coverage The code points of the page that the font can
+		 *            currently display (see {@link FontCache#getCoverage(GLFont, int)})
+		 * @return The loaded page, or <tt><b>null</b></tt> if the cache has no
+		 *         record of the page or the font's coverage of the page has
+		 *         changed since it was stored */
+		public synchronized GlyphPage load(int index, long[] coverage) {
+			final MappedByteBuffer mapping = this.mapping;
+			final Integer offset = this.records.get(Integer.valueOf(index));
+			if(mapping == null || offset == null) {
+				return null;
+			}
+			ByteBuffer buf = mapping.duplicate().order(ByteOrder.BIG_ENDIAN);
+			buf.position(offset.intValue() + 4 + 4);
+			final int width = buf.getInt(), height = buf.getInt();
+			long[] stored = new long[COVERAGE_LONGS];
+			for(int i = 0; i < stored.length; i++) {
+				stored[i] = buf.getLong();
+			}
+			if(!Arrays.equals(stored, coverage)) {
+				return null;
+			}
+			GlyphPage page = new GlyphPage(index);
+			page.width = width;
+			page.height = height;
+			for(int i = 0; i < GLFont.GLYPHS_PER_PAGE; i++) {
+				final boolean present = buf.get() != 0;
+				final float x = buf.getFloat(), y = buf.getFloat(), w = buf.getFloat(), h = buf.getFloat();
+				if(present) {
+					Glyph glyph = new Glyph(page.getFirstCodePoint() + i);
+					glyph.x = x;
+					glyph.y = y;
+					glyph.w = w;
+					glyph.h = h;
+					glyph.page = page;
+					page.glyphs[i] = glyph;
+				}
+			}
+			final int length = buf.getInt();
+			page.pixels = mapping.duplicate().position(buf.position()).limit(buf.position() + length).slice();
+			return page;
+		}
+		
+		/** Appends the given freshly rasterized page to the cache file. The
+		 * page must not have been uploaded yet, as its pixels are read from its
+		 * image.
+		 * 
+		 * @param page The page to store
+		 * @param coverage The code points of the page that the font can display
+		 * @return Whether or not the page was successfully written */
+		public synchronized boolean store(GlyphPage page, long[] coverage) {
+			final BufferedImage image = page.image;
+			if(image == null) {
+				return false;
+			}
+			final byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+			File folder = this.file.getParentFile();
+			if(folder != null && !folder.isDirectory() && !folder.mkdirs()) {
+				return false;
+			}
+			ByteBuffer header = null;
+			if(this.validLength == 0) {
+				final byte[] key = this.key.getBytes(StandardCharsets.UTF_8);
+				header = ByteBuffer.allocate(4 * 3 + key.length).order(ByteOrder.BIG_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putInt(key.length).put(key);
+				header.flip();
+			}
+			ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			record.putInt(PAGE_MAGIC).putInt(page.index).putInt(page.width).putInt(page.height);
+			for(long bits : coverage) {
+				record.putLong(bits);
+			}
+			for(Glyph glyph : page.glyphs) {
+				record.put((byte) (glyph != null ? 1 : 0));
+				record.putFloat(glyph != null ? glyph.x : 0).putFloat(glyph != null ? glyph.y : 0);
+				record.putFloat(glyph != null ? glyph.w : 0).putFloat(glyph != null ? glyph.h : 0);
+			}
+			record.putInt(pixels.length);
+			record.flip();
+			
+			try(FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				long position = this.validLength;
+				for(ByteBuffer buf : new ByteBuffer[] {header, record, ByteBuffer.wrap(pixels)}) {
+					while(buf != null && buf.hasRemaining()) {
+						position += channel.write(buf, position);
+					}
+				}
+				this.validLength = position;
+				return true;
+			} catch(IOException ex) {
+				System.err.print("Failed to write font cache file \"".concat(this.file.getAbsolutePath()).concat("\": "));
+				System.err.println(ex);
+				return false;
+			}
+		}
+		
+		/** Releases this entry's memory mapping, if it has one, once every font
+		 * that opened this entry has closed it. */
+		@Override
+		public void close() {
+			synchronized(entries) {
+				if(--this.references > 0) {
+					return;
+				}
+				if(entries.get(this.file) == this) {
+					entries.remove(this.file);
+				}
+			}
+			synchronized(this) {
+				final MappedByteBuffer mapping = this.mapping;
+				this.mapping = null;
+				this.records.clear();
+				if(mapping != null) {
+					unmap(mapping);
+				}
+			}
+		}
+		
+	}
+	
+}
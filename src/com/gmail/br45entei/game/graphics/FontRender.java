@@ -19,6 +19,7 @@
 
 package com.gmail.br45entei.game.graphics;
 
+import com.gmail.br45entei.thread.ThreadUtils;
 import com.gmail.br45entei.util.CodeUtil;
 
 import java.awt.Color;
@@ -31,7 +32,6 @@ import java.awt.Transparency;
 import java.awt.color.ColorSpace;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
-import java.awt.font.LineMetrics;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
@@ -52,9 +52,12 @@ import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
 import org.lwjgl.util.glu.GLU;
@@ -116,7 +119,8 @@ public class FontRender {
 	protected static class Glyph {
 		float x, y, w, h;
 		final String c;
-		int list = -1;
+		/** The page whose texture this glyph was rasterized into */
+		GlyphPage page;
 		
 		public Glyph(String c) {
 			this.c = c;
@@ -132,11 +136,85 @@ public class FontRender {
 		
 	}
 	
+	/** A block of {@link GLFont#GLYPHS_PER_PAGE} consecutive code points whose
+	 * glyphs share a single texture.<br>
+	 * Pages are laid out and rasterized the first time one of their glyphs is
+	 * needed, and their texture is uploaded the first time one of their glyphs
+	 * is drawn.
+	 * 
+	 * @author Brian_Entei */
+	protected static class GlyphPage {
+		final int index;
+		/** This page's glyphs, or <tt>null</tt> for code points that the font
+		 * cannot display */
+		final Glyph[] glyphs = new Glyph[GLFont.GLYPHS_PER_PAGE];
+		int texture = 0;
+		/** The deletion queue of the context that this page's texture was
+		 * uploaded on */
+		DeletionQueue deletionQueue;
+		int width, height;
+		/** The rasterized glyphs, kept until this page's texture is
+		 * uploaded */
+		BufferedImage image;
+		/** The RGBA pixels of a page that was loaded from the
+		 * {@link FontCache}, kept until this page's texture is uploaded */
+		ByteBuffer pixels;
+		/** Whether or not this page's alpha channel holds a signed distance
+		 * field rather than coverage */
+		boolean distanceField;
+		
+		public GlyphPage(int index) {
+			this.index = index;
+		}
+		
+		public int getFirstCodePoint() {
+			return this.index * GLFont.GLYPHS_PER_PAGE;
+		}
+		
+		public boolean isUploaded() {
+			return this.texture != 0;
+		}
+		
+		/** Binds this page's texture, uploading it first if necessary. */
+		public void bind() {
+			if(this.texture == 0 && this.image != null) {
+				this.texture = createTexture(this.image, false);
+				this.deletionQueue = DeletionQueue.get();
+				this.image = null;
+			} else if(this.texture == 0 && this.pixels != null) {
+				this.texture = createTexture(this.pixels, this.width, this.height);
+				this.deletionQueue = DeletionQueue.get();
+				this.pixels = null;
+			}
+			GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, this.texture);
+		}
+		
+		public void destroy() {
+			if(this.texture != 0) {
+				this.deletionQueue.deleteTexture(this.texture);
+				this.texture = 0;
+			}
+			this.image = null;
+			this.pixels = null;
+		}
+		
+	}
+	
 	public static final void disposeAll() {
 		for(GLFont font : GLFont.instances) {
 			font.destroy();
 			GLFont.instances.remove(font);
 		}
+		disposeImmediateBatch();
+	}
+	
+	/** Releases the vertex array and buffer of the batch that
+	 * {@link #drawString(GLFont, CharSequence, double, double, double, double, double, double, double, double, double)
+	 * drawString(...)} uses on the calling thread. This is called by the
+	 * {@link GLThread} before its context is destroyed. */
+	public static final void disposeImmediateBatch() {
+		immediateBatches.get().dispose();
+		immediateBatches.remove();
 	}
 	
 	public static final Collection<GLFont> getLoadedFonts() {
@@ -168,13 +246,26 @@ public class FontRender {
 		public final boolean usesFractionalMetrics;
 		public final FontRenderContext frc;
 		
-		protected int texture = -1;
-		protected int width, height;
-		protected final Glyph[] glyphs = new Glyph[65536];
+		/** The number of consecutive code points stored in each glyph page */
+		public static final int GLYPHS_PER_PAGE = 256;
+		/** The number of glyph pages needed to cover every Unicode code
+		 * point */
+		public static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) / GLYPHS_PER_PAGE;
+		
+		/** The glyph pages that have been laid out so far; pages that have not
+		 * been needed yet are <tt>null</tt> */
+		protected final GlyphPage[] pages = new GlyphPage[PAGE_COUNT];
+		/** The base font, derived to this font's style and size */
+		protected final Font renderFont;
 		protected final int unknownGlyphIndex;
-		protected final int[] supportedCodePoints;
+		private volatile int[] supportedCodePoints = null;
+		private volatile FontCache.Entry cache = null;
 		public final boolean widerGlyphs;
 		public final boolean scaleTextSizeToMatchNativeRenderingSize;
+		/** Whether or not this font's glyphs are stored as signed distance
+		 * fields, so that they can be drawn at any scale (see
+		 * {@link FontRender#createDistanceFieldFont(String, boolean, boolean)}) */
+		public final boolean distanceField;
 		
 		public final int size;
 		private volatile boolean disposed = false;
@@ -184,10 +275,13 @@ public class FontRender {
 		}
 		
 		public GLFont(String name, Font baseFont, int unknownCharSym, int size, boolean bold, boolean italic, boolean antialiasing, boolean usesFractionalMetrics, boolean widerGlyphs, boolean scaleTextSizeToMatchNativeRenderingSize) {
+			this(name, baseFont, unknownCharSym, size, bold, italic, antialiasing, usesFractionalMetrics, widerGlyphs, scaleTextSizeToMatchNativeRenderingSize, false);
+		}
+		
+		public GLFont(String name, Font baseFont, int unknownCharSym, int size, boolean bold, boolean italic, boolean antialiasing, boolean usesFractionalMetrics, boolean widerGlyphs, boolean scaleTextSizeToMatchNativeRenderingSize, boolean distanceField) {
 			this.name = name;
 			this.baseFont = baseFont;
 			
-			this.supportedCodePoints = getSupportedCodePointsFor(baseFont, 0, 65536);
 			this.unknownCharacterSymbol = new String(new int[] {unknownCharSym}, 0, 1);
 			
 			this.size = size;
@@ -198,41 +292,13 @@ public class FontRender {
 			final double awtToGLScalar = 9.0 / 7.0;// Fonts drawn in OpenGL seem to be smaller than they should be (as compared to fonts of the same size rendered in the OS or by native applications)
 			AffineTransform af = scaleTextSizeToMatchNativeRenderingSize ? AffineTransform.getScaleInstance(awtToGLScalar, awtToGLScalar) : null;
 			this.frc = new FontRenderContext(af, antialiasing, usesFractionalMetrics);
-			final Glyph unsupportedGlyph = new Glyph(this.unknownCharacterSymbol);
-			this.glyphs[unknownCharSym] = unsupportedGlyph;
 			this.unknownGlyphIndex = unknownCharSym;
-			/*int unknownGlyphIndex = -1;
-			for(int i = 0; i < this.glyphs.length; i++) {
-				if(i < this.supportedCodePoints.length) {
-					this.glyphs[i] = new Glyph(this.supportedCodePoints[i]);
-					if(this.supportedCodePoints[i] == unknownCharSym) {
-						unknownGlyphIndex = i;
-					}
-				} else {
-					this.glyphs[i] = unsupportedGlyph;
-					if(unknownGlyphIndex == -1) {
-						unknownGlyphIndex = i;
-					}
-				}
-			}*/
-			for(int cp : this.supportedCodePoints) {
-				if(cp < 0 || cp >= this.glyphs.length || cp == this.unknownGlyphIndex) {
-					continue;
-				}
-				if(this.glyphs[cp] != null) {
-					throw new IllegalArgumentException("Duplicate supported code point detected: \\u".concat(Integer.toHexString(cp)));
-				}
-				this.glyphs[cp] = new Glyph(cp);
-				System.out.println("FontRender.GLFont<init>: Code Point #".concat(Integer.toString(cp)).concat(" (\"\\u".concat(Integer.toHexString(cp)).concat("\")")));
-			}
-			for(int i = 0; i < this.glyphs.length; i++) {
-				if(this.glyphs[i] == null) {
-					this.glyphs[i] = unsupportedGlyph;
-				}
-			}
-			//this.unknownGlyphIndex = unknownGlyphIndex;
+			int style = bold ? Font.BOLD : Font.PLAIN;
+			style = italic ? style | Font.ITALIC : style;
+			this.renderFont = baseFont.deriveFont(style, size);
 			this.widerGlyphs = widerGlyphs;
 			this.scaleTextSizeToMatchNativeRenderingSize = scaleTextSizeToMatchNativeRenderingSize;
+			this.distanceField = distanceField;
 			instances.add(this);
 		}
 		
@@ -246,27 +312,125 @@ public class FontRender {
 		}
 		
 		public Glyph getUnknownGlyph() {
-			return this.glyphs[this.unknownGlyphIndex];
+			return this.getPage(this.unknownGlyphIndex / GLYPHS_PER_PAGE).glyphs[this.unknownGlyphIndex % GLYPHS_PER_PAGE];
 		}
 		
-		/*public Glyph getGlyphFor(int codePoint) {
-			for(Glyph g : this.glyphs) {
-				if(g.c.codePointAt(0) == codePoint) {
-					return g;
+		/** Returns the glyph page with the given index, laying it out and
+		 * rasterizing it first if no string has needed it yet.<br>
+		 * The page's texture is not uploaded until the page is
+		 * {@link GlyphPage#bind() bound}, so this may be called from any
+		 * thread.
+		 * 
+		 * @param pageIndex The index of the page (the code point divided by
+		 *            {@link #GLYPHS_PER_PAGE})
+		 * @return The glyph page */
+		protected GlyphPage getPage(int pageIndex) {
+			synchronized(this) {
+				GlyphPage page = this.pages[pageIndex];
+				if(page != null) {
+					return page;
 				}
 			}
-			return this.getUnknownGlyph();
-		}*/
+			// Pages are loaded without holding the lock, so that several pages can be rasterized at once
+			FontCache.Entry cache = this.getCache();
+			long[] coverage = cache == null ? null : FontCache.getCoverage(this, pageIndex);
+			GlyphPage page = cache == null ? null : cache.load(pageIndex, coverage);
+			if(page != null) {
+				page.distanceField = this.distanceField;
+			} else {
+				page = renderPage(this, pageIndex);
+				if(cache != null) {
+					cache.store(page, coverage);
+				}
+			}
+			synchronized(this) {
+				if(this.pages[pageIndex] == null) {// Another thread may have loaded the same page in the meantime
+					this.pages[pageIndex] = page;
+				}
+				return this.pages[pageIndex];
+			}
+		}
+		
+		/** Lays out and rasterizes every glyph page in the given range of code
+		 * points that has not been loaded yet, several pages at a time on the
+		 * {@link ThreadUtils#getWorkerPool() shared worker pool}, and waits for
+		 * them to finish.<br>
+		 * This may be called from any thread; the pages' textures are uploaded
+		 * when they are first drawn.
+		 * 
+		 * @param firstCodePoint The first code point to load (inclusive)
+		 * @param lastCodePoint The last code point to load (inclusive) */
+		public void preload(int firstCodePoint, int lastCodePoint) {
+			final int firstPage = Math.max(0, firstCodePoint) / GLYPHS_PER_PAGE;
+			final int lastPage = Math.min(Character.MAX_CODE_POINT, lastCodePoint) / GLYPHS_PER_PAGE;
+			List<Callable<Void>> jobs = new ArrayList<>();
+			for(int pageIndex = firstPage; pageIndex <= lastPage; pageIndex++) {
+				if(!this.isPageLoaded(pageIndex)) {
+					final int index = pageIndex;
+					jobs.add(() -> {
+						this.getPage(index);
+						return null;
+					});
+				}
+			}
+			invokeAll(jobs);
+		}
+		
+		/** @return This font's {@link FontCache} entry, or <tt><b>null</b></tt>
+		 *         if the cache is disabled */
+		protected synchronized FontCache.Entry getCache() {
+			if(this.cache == null && FontCache.isEnabled() && !this.disposed) {
+				this.cache = FontCache.open(this);
+			}
+			return this.cache;
+		}
+		
+		/** @param pageIndex The index of the page
+		 * @return Whether or not the given page has been laid out yet */
+		public synchronized boolean isPageLoaded(int pageIndex) {
+			return pageIndex >= 0 && pageIndex < PAGE_COUNT && this.pages[pageIndex] != null;
+		}
+		
+		/** @return The number of glyph pages that have been laid out so far */
+		public synchronized int getLoadedPageCount() {
+			int count = 0;
+			for(GlyphPage page : this.pages) {
+				if(page != null) {
+					count++;
+				}
+			}
+			return count;
+		}
+		
+		/** Deletes every glyph page, so that they are laid out and uploaded
+		 * again when next needed. */
+		protected synchronized void clearPages() {
+			for(int i = 0; i < this.pages.length; i++) {
+				if(this.pages[i] != null) {
+					this.pages[i].destroy();
+					this.pages[i] = null;
+				}
+			}
+			TextLayout.invalidate(this);
+		}
 		
 		public Rectangle2D getStringBounds(String str) {
 			return this.baseFont.getStringBounds(str, this.frc);
 		}
 		
 		protected Glyph getGlyphForCodePoint(int codePoint) {
-			if(codePoint < 0 || codePoint >= this.glyphs.length) {
-				codePoint = this.unknownCharacterSymbol.codePointAt(0);
+			if(codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+				codePoint = this.unknownGlyphIndex;
 			}
-			return this.glyphs[codePoint];
+			Glyph glyph = this.getPage(codePoint / GLYPHS_PER_PAGE).glyphs[codePoint % GLYPHS_PER_PAGE];
+			return glyph == null ? this.getUnknownGlyph() : glyph;
+		}
+		
+		/** @param pointSize The size that text should appear at
+		 * @return The scale that this font's text must be drawn at to appear
+		 *         at the given size */
+		public double getScaleFor(double pointSize) {
+			return pointSize / this.size;
 		}
 		
 		public float[] getGlyphBounds(int codePoint) {
@@ -274,9 +438,15 @@ public class FontRender {
 			return new float[] {0, 0, g.w, g.h};
 		}
 		
+		/** @return The code points in the Basic Multilingual Plane that this
+		 *         font can display */
 		public int[] getSupportedCodePoints() {
-			int[] tmp = new int[this.supportedCodePoints.length];
-			System.arraycopy(this.supportedCodePoints, 0, tmp, 0, tmp.length);
+			int[] supportedCodePoints = this.supportedCodePoints;
+			if(supportedCodePoints == null) {
+				supportedCodePoints = this.supportedCodePoints = getSupportedCodePointsFor(this.baseFont, 0, 65536);
+			}
+			int[] tmp = new int[supportedCodePoints.length];
+			System.arraycopy(supportedCodePoints, 0, tmp, 0, tmp.length);
 			return tmp;
 		}
 		
@@ -288,12 +458,14 @@ public class FontRender {
 			return this.size;
 		}
 		
+		/** @return The width of the first glyph page's texture */
 		public int getWidth() {
-			return this.width;
+			return this.getPage(0).width;
 		}
 		
+		/** @return The height of the first glyph page's texture */
 		public int getHeight() {
-			return this.height;
+			return this.getPage(0).height;
 		}
 		
 		public double getLineHeight() {
@@ -305,9 +477,12 @@ public class FontRender {
 		}
 		
 		public void destroy() {
-			if(this.texture != 0) {
-				GL11.glDeleteTextures(this.texture);
-				this.texture = 0;
+			this.clearPages();
+			synchronized(this) {
+				if(this.cache != null) {
+					this.cache.close();
+					this.cache = null;
+				}
 			}
 			this.disposed = true;
 		}
@@ -318,29 +493,52 @@ public class FontRender {
 		
 		protected void save(File f) throws IOException {
 			try(DataOutputStream out = new DataOutputStream(new FileOutputStream(f))) {
-				out.writeInt(this.width);
-				out.writeInt(this.height);
+				ArrayList<GlyphPage> loadedPages = new ArrayList<>();
+				synchronized(this) {
+					for(GlyphPage page : this.pages) {
+						if(page != null) {
+							loadedPages.add(page);
+						}
+					}
+				}
+				out.writeInt(loadedPages.size());
 				
 				GL11.glPixelStorei(GL11.GL_PACK_ROW_LENGTH, 0);
 				GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, 1);
 				GL11.glPixelStorei(GL11.GL_PACK_SKIP_ROWS, 0);
 				GL11.glPixelStorei(GL11.GL_PACK_SKIP_PIXELS, 0);
 				
-				int size = this.width * this.height * 4;
-				ByteBuffer buf = ByteBuffer.allocateDirect((Byte.SIZE / 8) * size).order(ByteOrder.nativeOrder());//BufferUtils.createByteBuffer(size);
-				byte[] data = new byte[size];
-				GL11.glBindTexture(GL11.GL_TEXTURE_2D, this.texture);
-				GL11.glGetTexImage(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
-				buf.get(data);
-				for(byte b : data) {
-					out.writeByte(b & 0xFF);
-				}
-				
-				for(int i = 0; i < this.glyphs.length; i++) {
-					out.writeFloat(this.glyphs[i].x);
-					out.writeFloat(this.glyphs[i].y);
-					out.writeFloat(this.glyphs[i].w);
-					out.writeFloat(this.glyphs[i].h);
+				for(GlyphPage page : loadedPages) {
+					out.writeInt(page.index);
+					out.writeInt(page.width);
+					out.writeInt(page.height);
+					
+					byte[] data;
+					BufferedImage image = page.image;
+					if(image != null) {
+						data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+					} else if(page.pixels != null) {
+						data = new byte[page.pixels.capacity()];
+						page.pixels.duplicate().clear().get(data);
+					} else {
+						int size = page.width * page.height * 4;
+						ByteBuffer buf = ByteBuffer.allocateDirect((Byte.SIZE / 8) * size).order(ByteOrder.nativeOrder());//BufferUtils.createByteBuffer(size);
+						data = new byte[size];
+						GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, page.texture);
+						GL11.glGetTexImage(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
+						buf.get(data);
+					}
+					out.write(data);
+					
+					for(Glyph glyph : page.glyphs) {
+						out.writeBoolean(glyph != null);
+						if(glyph != null) {
+							out.writeFloat(glyph.x);
+							out.writeFloat(glyph.y);
+							out.writeFloat(glyph.w);
+							out.writeFloat(glyph.h);
+						}
+					}
 				}
 				
 				out.close();
@@ -354,41 +552,40 @@ public class FontRender {
 		
 		protected void load(InputStream _in) throws IOException {
 			try(DataInputStream in = new DataInputStream(_in)) {
-				int w = in.readInt();
-				int h = in.readInt();
-				int size = w * h * 4;
-				
-				GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
-				GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
-				GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_ROWS, 0);
-				GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_PIXELS, 0);
-				
-				ByteBuffer buf = BufferUtils.createByteBuffer(size);//BufferUtil.createDirectByteBuffer(size);
-				buf.rewind();
-				for(int i = 0; i < size; i++) {
-					buf.put(in.readByte());
-				}
-				buf.rewind();
-				
-				int[] id = new int[1];
-				GL11.glGenTextures(id);
-				this.texture = id[0];
-				this.width = w;
-				this.height = h;
-				
-				GL11.glBindTexture(GL11.GL_TEXTURE_2D, this.texture);
-				GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
-				GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
-				GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, w, h, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
-				
-				for(int i = 0; i < this.glyphs.length; i++) {
-					this.glyphs[i].x = in.readFloat();
-					this.glyphs[i].y = in.readFloat();
-					this.glyphs[i].w = in.readFloat();
-					this.glyphs[i].h = in.readFloat();
+				final int count = in.readInt();
+				for(int i = 0; i < count; i++) {
+					final int index = in.readInt();
+					if(index < 0 || index >= PAGE_COUNT) {
+						throw new IOException("Invalid glyph page index: ".concat(Integer.toString(index)));
+					}
+					GlyphPage page = new GlyphPage(index);
+					page.distanceField = this.distanceField;
+					page.width = in.readInt();
+					page.height = in.readInt();
+					page.image = createImage(page.width, page.height, true);
+					in.readFully(((DataBufferByte) page.image.getRaster().getDataBuffer()).getData());
+					
+					for(int j = 0; j < GLYPHS_PER_PAGE; j++) {
+						if(in.readBoolean()) {
+							Glyph glyph = new Glyph(page.getFirstCodePoint() + j);
+							glyph.x = in.readFloat();
+							glyph.y = in.readFloat();
+							glyph.w = in.readFloat();
+							glyph.h = in.readFloat();
+							glyph.page = page;
+							page.glyphs[j] = glyph;
+						}
+					}
+					
+					synchronized(this) {
+						if(this.pages[index] != null) {
+							this.pages[index].destroy();
+						}
+						this.pages[index] = page;
+					}
 				}
-				
 			}
+			TextLayout.invalidate(this);
 		}
 		
 	}
@@ -426,31 +623,24 @@ public class FontRender {
 		return font;
 	}
 	
+	/** Lays out and uploads the glyph page containing the basic Latin
+	 * characters of the given font.<br>
+	 * Every other page is rendered the first time a string needs one of its
+	 * glyphs.
+	 * 
+	 * @param glFont The font to render */
 	public static void renderFont(GLFont glFont) {
-		if(glFont.texture != -1) {
-			return;
-		}
-		int style = glFont.bold ? Font.BOLD : Font.PLAIN;
-		style = glFont.italic ? style | Font.ITALIC : style;
-		final BufferedImage img = renderFont(glFont.baseFont.deriveFont(style, glFont.size), glFont, glFont.unknownCharacterSymbol.codePointAt(0), glFont.widerGlyphs);
-		glFont.texture = createTexture(img, false);
-		glFont.width = img.getWidth();
-		glFont.height = img.getHeight();
+		GlyphPage page = glFont.getPage(0);
+		if(!page.isUploaded()) {
+			page.bind();
+			GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		}
 	}
 	
 	@Deprecated
 	public static void forceRenderFont(GLFont glFont) throws Throwable {
-		final int oldTex = glFont.texture;
-		try {
-			renderFont(glFont);
-			if(oldTex > 0) {
-				GL11.glDeleteTextures(oldTex);
-			}
-		} catch(Throwable ex) {
-			glFont.texture = oldTex;
-			//ex.printStackTrace();
-			throw ex;
-		}
+		glFont.clearPages();
+		renderFont(glFont);
 	}
 	
 	public static GLFont importTrueTypeFont(Font baseFont, int unknownCharSym, int size, boolean bold, boolean italic, boolean antialiasing, boolean usesFractionalMetrics, boolean widerGlyphs, boolean scaleTextSizeToMatchNativeRenderingSize) {
@@ -489,10 +679,7 @@ public class FontRender {
 			return gf;
 		}*/
 		
-		BufferedImage img = renderFont(font, gf, unknownCharSym, widerGlyphs);
-		gf.texture = createTexture(img, false);
-		gf.width = img.getWidth();
-		gf.height = img.getHeight();
+		renderFont(gf);
 		//gf.save(f);
 		return gf;
 	}
@@ -513,6 +700,113 @@ public class FontRender {
 		return createFont(family, '?', size, bold, italic, antialiasing, usesFractionalMetrics, false);
 	}
 	
+	/** The size that distance field fonts are rasterized at */
+	public static final int DISTANCE_FIELD_SIZE = 64;
+	/** The distance, in pixels of a distance field font's atlas, over which
+	 * the field falls off from a glyph's edge */
+	public static final int DISTANCE_FIELD_SPREAD = 8;
+	
+	/** Creates a font whose glyphs are rasterized once at
+	 * {@link #DISTANCE_FIELD_SIZE} into signed distance fields, so that it can
+	 * be drawn crisply at any size by {@link GLFont#getScaleFor(double)
+	 * scaling} it.<br>
+	 * A single distance field font (and its single {@link FontCache cached}
+	 * atlas) can therefore replace a separate font for every point size.
+	 * 
+	 * @param baseFont The font to rasterize
+	 * @param unknownCharSym The code point that is drawn in place of
+	 *            characters the font cannot display
+	 * @param bold Whether or not the font is bold
+	 * @param italic Whether or not the font is italic
+	 * @return The new font */
+	public static GLFont createDistanceFieldFont(Font baseFont, int unknownCharSym, boolean bold, boolean italic) {
+		GLFont gf = new GLFont(baseFont.getFamily(), baseFont, unknownCharSym, DISTANCE_FIELD_SIZE, bold, italic, true, true, false, false, true);
+		renderFont(gf);
+		return gf;
+	}
+	
+	public static GLFont createDistanceFieldFont(String family, boolean bold, boolean italic) {
+		return createDistanceFieldFont(new Font(family, Font.PLAIN, DISTANCE_FIELD_SIZE), '?', bold, italic);
+	}
+	
+	/** Replaces the alpha channel of the given RGBA image with a signed
+	 * distance field of its glyphs, and its color with white.<br>
+	 * An alpha of <tt>0.5</tt> lies on a glyph's edge, increasing to
+	 * <tt>1.0</tt> at <tt>spread</tt> pixels inside it and decreasing to
+	 * <tt>0.0</tt> at <tt>spread</tt> pixels outside it.
+	 * 
+	 * @param img The image to convert, as created by
+	 *            {@link #createImage(int, int, boolean)}
+	 * @param spread The distance over which the field falls off */
+	protected static void toDistanceField(BufferedImage img, int spread) {
+		final int width = img.getWidth(), height = img.getHeight();
+		final byte[] data = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+		final int size = width * height;
+		final float[] outside = new float[size], inside = new float[size];
+		for(int i = 0; i < size; i++) {
+			final boolean in = (data[(i * 4) + 3] & 0xFF) >= 128;
+			outside[i] = in ? 0 : 1e20f;// squared distance to the nearest pixel inside a glyph
+			inside[i] = in ? 1e20f : 0;// squared distance to the nearest pixel outside a glyph
+		}
+		distanceTransform(outside, width, height);
+		distanceTransform(inside, width, height);
+		for(int i = 0; i < size; i++) {
+			final double distance = Math.sqrt(inside[i]) - Math.sqrt(outside[i]);
+			final double value = Math.max(0.0, Math.min(1.0, 0.5 + (distance / (2.0 * spread))));
+			data[i * 4] = data[(i * 4) + 1] = data[(i * 4) + 2] = (byte) 0xFF;
+			data[(i * 4) + 3] = (byte) Math.round(value * 255.0);
+		}
+	}
+	
+	/** Computes the exact squared euclidean distance transform of the given
+	 * grid in place, one column pass followed by one row pass (Felzenszwalb
+	 * and Huttenlocher). */
+	private static void distanceTransform(float[] grid, int width, int height) {
+		final int n = Math.max(width, height);
+		final float[] f = new float[n], d = new float[n], z = new float[n + 1];
+		final int[] v = new int[n];
+		for(int x = 0; x < width; x++) {
+			for(int y = 0; y < height; y++) {
+				f[y] = grid[(y * width) + x];
+			}
+			distanceTransform(f, height, d, v, z);
+			for(int y = 0; y < height; y++) {
+				grid[(y * width) + x] = d[y];
+			}
+		}
+		for(int y = 0; y < height; y++) {
+			System.arraycopy(grid, y * width, f, 0, width);
+			distanceTransform(f, width, d, v, z);
+			System.arraycopy(d, 0, grid, y * width, width);
+		}
+	}
+	
+	private static void distanceTransform(float[] f, int n, float[] d, int[] v, float[] z) {
+		int k = 0;
+		v[0] = 0;
+		z[0] = Float.NEGATIVE_INFINITY;
+		z[1] = Float.POSITIVE_INFINITY;
+		for(int q = 1; q < n; q++) {
+			float s = ((f[q] + (q * q)) - (f[v[k]] + (v[k] * v[k]))) / (2 * (q - v[k]));
+			while(s <= z[k]) {
+				k--;
+				s = ((f[q] + (q * q)) - (f[v[k]] + (v[k] * v[k]))) / (2 * (q - v[k]));
+			}
+			k++;
+			v[k] = q;
+			z[k] = s;
+			z[k + 1] = Float.POSITIVE_INFINITY;
+		}
+		k = 0;
+		for(int q = 0; q < n; q++) {
+			while(z[k + 1] < q) {
+				k++;
+			}
+			final int r = v[k];
+			d[q] = ((q - r) * (q - r)) + f[r];
+		}
+	}
+	
 	public static final int nextPowerOf2(int i) {
 		int j = 2;
 		while(j < i) {
@@ -568,80 +862,86 @@ public class FontRender {
 		return new int[] {Long.valueOf(Math.round(Math.floor(bounds[0]))).intValue(), Long.valueOf(Math.round(Math.floor(bounds[1]))).intValue(), Long.valueOf(Math.round(Math.ceil(bounds[2]))).intValue(), Long.valueOf(Math.round(Math.ceil(bounds[3]))).intValue()};
 	}
 	
-	public static BufferedImage renderFont(final Font font, GLFont glFont, int unknownCharSym, boolean widerGlyphs) {
-		int[] supportedGlyphs = glFont.getSupportedCodePoints();
-		int charLength = supportedGlyphs.length;
-		System.out.println("[" + glFont.getName() + "] ================= " + charLength + " =================");
-		FontRenderContext frc = glFont.frc;//new FontRenderContext(null, antialiasing, usesFractionalMetrics);
-		boolean antialiasing = glFont.antialiasing;
-		boolean usesFractionalMetrics = glFont.usesFractionalMetrics;
-		
-		int imgw, imgh;
-		int cl = nextPowerOf2(charLength);
-		{
-			if(cl > 16384) {
-				//throw new IllegalArgumentException("glyphs.length must not be larger than 16384! glyphs.length: ".concat(Integer.toString(glyphs.length)));
-				System.err.println("[" + glFont.getName() + "] ================= " + cl + " --> 16384 =================");
-				cl = 16384;
-			}
-			imgw = cl;
-			if(font.getSize() >= 36) imgw <<= 1;
-			if(font.getSize() >= 72) imgw <<= 1;
-			
-			imgw = Math.min(imgw, 16384);
-			imgh = Math.min(imgw * 2, 16384);
-			
-			imgw = imgh == imgw ? imgw / 2 : imgw;
-		}
-		/*
-		
-		java.lang.IllegalArgumentException: Dimensions (width=65536 height=131072) are too large
-			at java.desktop/java.awt.image.SampleModel.<init>(SampleModel.java:130)
-			at java.desktop/java.awt.image.ComponentSampleModel.<init>(ComponentSampleModel.java:140)
-			at java.desktop/java.awt.image.PixelInterleavedSampleModel.<init>(PixelInterleavedSampleModel.java:87)
-			at java.desktop/java.awt.image.Raster.createInterleavedRaster(Raster.java:642)
-			at java.desktop/java.awt.image.Raster.createInterleavedRaster(Raster.java:278)
-			at java.desktop/java.awt.image.Raster.createInterleavedRaster(Raster.java:212)
-			at com.gmail.br45entei.game.graphics.FontRender.createImage(FontRender.java:941)
-		
-		 */
-		
-		//BufferedImage img = new BufferedImage(imgw, charLength * 8, BufferedImage.TYPE_INT_ARGB);
-		BufferedImage img = createImage(imgw, imgh, true);
-		Graphics2D g = (Graphics2D) img.getGraphics();
-		AffineTransform af = frc.getTransform();
-		
-		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasing ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
-		g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, usesFractionalMetrics ? RenderingHints.VALUE_FRACTIONALMETRICS_ON : RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
-		g.transform(af);
-		g.setColor(Color.WHITE);
-		g.setFont(font);
-		
-		int x = 0, y = 0, largestRowSize = 0, largestColumnSize = 0;
-		double gw, gh;
-		float glyphXSpacing = (font.getSize2D() / 18.0f) * ((float) af.getScaleX());
-		for(int cp : glFont.supportedCodePoints) {
-			if(cp < 0 || cp >= glFont.glyphs.length) {
+	/** Lays out and rasterizes the glyphs of a single page of the given font.
+	 * No OpenGL calls are made; the page's texture is uploaded when it is
+	 * first {@link GlyphPage#bind() bound}.
+	 * 
+	 * @param glFont The font whose glyphs will be rendered
+	 * @param pageIndex The index of the page to render
+	 * @return The rendered page */
+	protected static GlyphPage renderPage(GLFont glFont, int pageIndex) {
+		final Font font = glFont.renderFont;
+		final FontRenderContext frc = glFont.frc;
+		final boolean antialiasing = glFont.antialiasing;
+		final boolean usesFractionalMetrics = glFont.usesFractionalMetrics;
+		final boolean widerGlyphs = glFont.widerGlyphs;
+		final GlyphPage page = new GlyphPage(pageIndex);
+		final int firstCodePoint = page.getFirstCodePoint();
+		final int spread = glFont.distanceField ? DISTANCE_FIELD_SPREAD : 0;
+		page.distanceField = glFont.distanceField;
+		final AffineTransform af = frc.getTransform();
+		
+		// Measure the glyphs in parallel; each job only writes to its own indices
+		final boolean[] present = new boolean[GLFont.GLYPHS_PER_PAGE];
+		final double[] glyphWidths = new double[GLFont.GLYPHS_PER_PAGE], glyphHeights = new double[GLFont.GLYPHS_PER_PAGE];
+		final int[] ascents = new int[GLFont.GLYPHS_PER_PAGE], inkX = new int[GLFont.GLYPHS_PER_PAGE], inkWidths = new int[GLFont.GLYPHS_PER_PAGE];
+		List<Callable<Void>> jobs = new ArrayList<>();
+		for(int start = 0; start < GLFont.GLYPHS_PER_PAGE; start += METRICS_CHUNK) {
+			final int first = start, last = Math.min(GLFont.GLYPHS_PER_PAGE, start + METRICS_CHUNK);
+			jobs.add(() -> {
+				for(int i = first; i < last; i++) {
+					final int cp = firstCodePoint + i;
+					if(cp != glFont.unknownGlyphIndex && !font.canDisplay(cp)) {
+						continue;
+					}
+					final String c = new String(new int[] {cp}, 0, 1);
+					Rectangle2D rect = font.getStringBounds(c, frc);
+					glyphWidths[i] = rect.getWidth() * af.getScaleX();
+					glyphHeights[i] = rect.getHeight() * af.getScaleY();
+					ascents[i] = (int) font.getLineMetrics(c, frc).getAscent();
+					int[] bounds = getActualGlyphBoundsI(font, frc, c);
+					inkX[i] = bounds[0];
+					inkWidths[i] = bounds[2];
+					present[i] = true;
+				}
+				return null;
+			});
+		}
+		invokeAll(jobs);
+		
+		// Lay the glyphs out, so that the image can be created at its final size
+		final int rowWidth = Math.max(256, nextPowerOf2(Math.round(font.getSize2D() * 16.0f)));
+		final int[] drawX = new int[GLFont.GLYPHS_PER_PAGE], drawY = new int[GLFont.GLYPHS_PER_PAGE];
+		final boolean[] drawn = new boolean[GLFont.GLYPHS_PER_PAGE];
+		final int[] glyphRows = new int[GLFont.GLYPHS_PER_PAGE], rowTops = new int[GLFont.GLYPHS_PER_PAGE + 1], rowSizes = new int[GLFont.GLYPHS_PER_PAGE + 1];
+		int rowCount = 1;
+		float imageWidth = 1, imageHeight = 1;
+		
+		int x = 0, y = 0, largestColumnSize = 0;
+		float glyphXSpacing = ((font.getSize2D() / 18.0f) * ((float) af.getScaleX())) + spread;// Distance fields need room to fall off between glyphs
+		for(int i = 0; i < GLFont.GLYPHS_PER_PAGE; i++) {
+			if(!present[i]) {
 				continue;
 			}
-			Glyph glyph = glFont.glyphs[cp];
-			Rectangle2D rect = font.getStringBounds(glyph.c, frc);
-			gw = rect.getWidth() * af.getScaleX();
-			gh = rect.getHeight() * af.getScaleY();
-			LineMetrics lm = font.getLineMetrics(glyph.c, frc);
-			int[] bounds = getActualGlyphBoundsI(font, frc, glyph.c);
-			//int xOffset = Math.min(0, Math.round(bounds[0]));
-			int xOffset = widerGlyphs ? Math.min(0, Math.round(bounds[0])) : 0;
-			float w = (widerGlyphs ? Math.max(bounds[2], (float) gw) : (float) gw) + 2;
-			float h = ((float) gh) + glyphXSpacing;
+			final int cp = firstCodePoint + i;
+			Glyph glyph = new Glyph(cp);
+			glyph.page = page;
+			int xOffset = widerGlyphs ? Math.min(0, inkX[i]) : 0;
+			float w = (widerGlyphs ? Math.max(inkWidths[i], (float) glyphWidths[i]) : (float) glyphWidths[i]) + 2;
+			float h = ((float) glyphHeights[i]) + glyphXSpacing;
 			
-			if(x + glyphXSpacing + w + (widerGlyphs ? 4 : 2) > img.getWidth()) {
+			if(x + glyphXSpacing + w + (widerGlyphs ? 4 : 2) > rowWidth) {
+				rowSizes[rowCount - 1] = largestColumnSize;
 				x = 0;
 				y += largestColumnSize;
 				largestColumnSize = 0;
+				rowTops[rowCount++] = y;
 			}
 			if(cp != '\r' && cp != '\n' && cp != '\t' && cp != '\b' && cp != ' ') {
-				g.drawString(glyph.c, x - xOffset, y + (int) lm.getAscent() + 1);
+				drawX[i] = x - xOffset;
+				drawY[i] = y + ascents[i] + 1;
+				drawn[i] = true;
+				glyphRows[i] = rowCount - 1;
 			} else {// Whitespace characters (except for space) have no actual width or height
 				if(cp != ' ') {
 					w = 0;
@@ -651,170 +951,129 @@ public class FontRender {
 			
 			glyph.x = x * ((float) af.getScaleX());
 			glyph.y = y * ((float) af.getScaleY());
-			glyph.w = (w + (widerGlyphs ? 4 : 0)) * (glyph.c.equals("\t") ? 4.0f : 1.0f);
+			glyph.w = (w + (widerGlyphs ? 4 : 0)) * (cp == '\t' ? 4.0f : 1.0f);
 			glyph.h = h;
-			
-			/*if(Window.DEVELOPMENT_ENVIRONMENT && widerGlyphs) {
-				if(cp != '\r' && cp != '\n' && cp != '\t' && cp != '\b' && cp != ' ') {
-					g.drawRect(Math.round(glyph.x), Math.round(glyph.y), Math.round(glyph.w) - 2, Math.round(glyph.h) - 2);
-				}
-			}*/
+			page.glyphs[i] = glyph;
+			imageWidth = Math.max(imageWidth, glyph.x + w + (widerGlyphs ? 4 : 0));
+			imageHeight = Math.max(imageHeight, glyph.y + h);
 			
 			w += widerGlyphs ? (glyphXSpacing * 2.0) : glyphXSpacing;
 			h += glyphXSpacing;
 			
 			x += w + glyphXSpacing;
-			largestRowSize = Math.max(largestRowSize, x);
 			largestColumnSize = Math.max(largestColumnSize, Math.round((float) Math.ceil(h)));
 		}
+		rowSizes[rowCount - 1] = largestColumnSize;
 		
-		final Glyph unknownCharSymGlyph = glFont.getUnknownGlyph();//glFont.glyphs[glFont.unknownCharacterSymbol.codePointAt(0)];
-		if(!"".isBlank()) {
-			Font f;
-			for(int i = 0; i < glFont.glyphs.length; i++) {
-				f = font;
-				Glyph glyph = glFont.glyphs[i];
-				
-				String s = glyph.c;
-				final int cp = s.codePointAt(0);
-				/*if(!f.canDisplay(cp) && cp != '\r' && cp != '\n' && cp != '\t' && cp != '\b' && cp != ' ') {
-					if(cp >= 0 && cp < 256) {
-						f = new Font(fallbackFontFamily, font.getSize(), font.getStyle());
-					} else {
-						s = new String(new int[] {unknownCharSym}, 0, 1);
-					}
-					//glFont.glyphs[i] = unknownCharSymGlyph;
-					continue;
-				}*/
-				g.setFont(f);
-				Rectangle2D rect = f.getStringBounds(s, frc);
-				/*if((rect.getWidth() == 0.0 || rect.getHeight() == 0.0) && cp != unknownCharSym && cp != '\r' && cp != '\n' && cp != '\t' && cp != '\b' && cp != ' ') {
-					if(Window.DEVELOPMENT_ENVIRONMENT) {
-						System.err.println("FontRender.renderFont(...): \"".concat(new String(new int[] {cp}, 0, 1)).concat("\" (\\u").concat(Integer.toHexString(cp)).concat(") has either a width or height that is zero!"));
-					}
-					//glFont.glyphs[i] = unknownCharSymGlyph;
-					continue;
-				}*/
-				LineMetrics lm = f.getLineMetrics(s, frc);
-				int[] bounds = getActualGlyphBoundsI(f, frc, s);
-				int xOffset = Math.min(0, bounds[0]);
-				int w = (widerGlyphs ? Math.max(bounds[2], (int) rect.getWidth()) : (int) rect.getWidth()) + 2;
-				int h = (int) rect.getHeight() + 2;
-				
-				if(x + 2 + w + (widerGlyphs ? 4 : 2) > img.getWidth()) {
-					x = 0;
-					y += largestColumnSize;
-					largestColumnSize = 0;
-				}
-				if(cp != '\r' && cp != '\n' && cp != '\t' && cp != '\b' && cp != ' ') {
-					g.drawString(s, x - xOffset, y + (int) lm.getAscent() + 1);
-				} else {// Whitespace characters (except for space) have no actual width or height
-					if(cp != ' ') {
-						w = 0;
-						h = 0;
+		page.width = (int) Math.ceil(imageWidth) + 2;
+		page.height = (int) Math.ceil(imageHeight) + 2;
+		final BufferedImage img = createImage(page.width, page.height, true);
+		final byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+		
+		// Rasterize bands of rows in parallel, each into its own image, then merge them into the page
+		int largestRowSize = 0;
+		for(int row = 0; row < rowCount; row++) {
+			largestRowSize = Math.max(largestRowSize, rowSizes[row]);
+		}
+		final int margin = (int) Math.ceil((largestRowSize * af.getScaleY()) / 2.0) + 2;// Room for ink that hangs outside of its row
+		final int bands = Math.min(rowCount, ThreadUtils.getWorkerPool().getMaximumPoolSize());
+		final int rowsPerBand = (rowCount + bands - 1) / bands;
+		jobs.clear();
+		for(int firstRow = 0; firstRow < rowCount; firstRow += rowsPerBand) {
+			final int startRow = firstRow, endRow = Math.min(rowCount, firstRow + rowsPerBand);
+			final int top = Math.max(0, (int) Math.floor(rowTops[startRow] * af.getScaleY()) - margin);
+			final int bottom = Math.min(page.height, (int) Math.ceil((rowTops[endRow - 1] + rowSizes[endRow - 1]) * af.getScaleY()) + margin);
+			if(bottom <= top) {
+				continue;
+			}
+			jobs.add(() -> {
+				BufferedImage band = createImage(page.width, bottom - top, true);
+				Graphics2D g = (Graphics2D) band.getGraphics();
+				g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasing ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+				g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, usesFractionalMetrics ? RenderingHints.VALUE_FRACTIONALMETRICS_ON : RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+				g.translate(0, -top);
+				g.transform(af);
+				g.setColor(Color.WHITE);
+				g.setFont(font);
+				for(int i = 0; i < GLFont.GLYPHS_PER_PAGE; i++) {
+					if(drawn[i] && glyphRows[i] >= startRow && glyphRows[i] < endRow) {
+						g.drawString(page.glyphs[i].c, drawX[i], drawY[i]);
 					}
 				}
+				g.dispose();
 				
-				glyph.x = x;
-				glyph.y = y;
-				glyph.w = (w + (widerGlyphs ? 4 : 0)) * (s.equals("\t") ? 4.0f : 1.0f);
-				glyph.h = h;
-				
-				/*if(Window.DEVELOPMENT_ENVIRONMENT && widerGlyphs) {
-					if(cp != '\r' && cp != '\n' && cp != '\t' && cp != '\b' && cp != ' ') {
-						g.drawRect(Math.round(glyph.x), Math.round(glyph.y), Math.round(glyph.w) - 2, Math.round(glyph.h) - 2);
+				// Bands overlap by their margins, so keep whichever ink is strongest
+				final byte[] src = ((DataBufferByte) band.getRaster().getDataBuffer()).getData();
+				final int offset = top * page.width * 4;
+				synchronized(pixels) {
+					for(int i = 0; i < src.length; i++) {
+						if((src[i] & 0xFF) > (pixels[offset + i] & 0xFF)) {
+							pixels[offset + i] = src[i];
+						}
 					}
-				}*/
-				
-				w += widerGlyphs ? 4 : 2;
-				h += 2;
-				
-				x += w + 2;
-				largestColumnSize = Math.max(largestColumnSize, h);
-			}
-			g.setFont(font);
+				}
+				return null;
+			});
 		}
-		
-		/*for(int i = 0; i < glFont.glyphs.length; i++) {
-			if(glFont.glyphs[i] == null) {
-				glFont.glyphs[i] = unknownCharSymGlyph;
-			}
-		}*/
-		
-		y += largestColumnSize;
-		g.dispose();
-		
-		/*if(y < cl) {
-			img = img.getSubimage(0, 0, img.getWidth(), cl);
-		} else if(y < cl * 2) {
-			img = img.getSubimage(0, 0, img.getWidth(), cl * 2);
-		} else if(y < cl * 4) {
-			img = img.getSubimage(0, 0, img.getWidth(), cl * 4);
-		} else if(y < cl * 8) {
-			img = img.getSubimage(0, 0, img.getWidth(), cl * 8);
-		}*/
-		
-		/*int width = Math.min(img.getWidth(), largestRowSize);
-		int height = Math.min(img.getHeight(), y);
-		
-		if(width < img.getWidth() || height < img.getHeight()) {
-			img = img.getSubimage(0, 0, width, height);
-		}*/
-		if(y < img.getHeight()) {
-			img = img.getSubimage(0, 0, img.getWidth(), y);
+		invokeAll(jobs);
+		if(glFont.distanceField) {
+			toDistanceField(img, spread);
 		}
 		
-		return img;
+		page.image = img;
+		return page;
 	}
 	
-	private static void renderGlyph(GLFont font, Glyph g) {
-		if(g.list != -1) {
-			GL11.glCallList(g.list);
-			return;
+	/** The number of code points measured by each glyph metrics job */
+	private static final int METRICS_CHUNK = 32;
+	/** Set on worker threads that are running FontRender jobs, so that work
+	 * they start is run inline instead of waiting on the (possibly
+	 * saturated) pool */
+	private static final ThreadLocal<Boolean> isFontWorker = new ThreadLocal<>();
+	
+	/** Runs the given jobs on the {@link ThreadUtils#getWorkerPool() shared
+	 * worker pool} and waits for all of them to complete. If the calling
+	 * thread is itself running a font job, the jobs are run on it
+	 * instead. */
+	protected static void invokeAll(List<Callable<Void>> jobs) throws IllegalStateException {
+		try {
+			if(jobs.size() <= 1 || Boolean.TRUE.equals(isFontWorker.get())) {
+				for(Callable<Void> job : jobs) {
+					job.call();
+				}
+				return;
+			}
+			List<Callable<Void>> workerJobs = new ArrayList<>(jobs.size());
+			for(Callable<Void> job : jobs) {
+				workerJobs.add(() -> {
+					isFontWorker.set(Boolean.TRUE);
+					try {
+						return job.call();
+					} finally {
+						isFontWorker.remove();
+					}
+				});
+			}
+			for(Future<Void> result : ThreadUtils.getWorkerPool().invokeAll(workerJobs)) {
+				result.get();
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while rasterizing glyphs!", ex);
+		} catch(ExecutionException ex) {
+			throw new IllegalStateException("Failed to rasterize glyphs!", ex.getCause());
+		} catch(RuntimeException ex) {
+			throw ex;
+		} catch(Exception ex) {
+			throw new IllegalStateException("Failed to rasterize glyphs!", ex);
 		}
-		
-		g.list = GL11.glGenLists(1);
-		GL11.glNewList(g.list, GL11.GL_COMPILE_AND_EXECUTE);//GL11.glNewList(g.list, GL11.GL_COMPILE);
-		
-		float tw = font.width;// 512.0
-		float th = font.height;//256.0
-		
-		CodeUtil.printlnDebug("FontRender.renderGlyph(): " + g.c + " (\"\\u" + Integer.toHexString(g.c.codePointAt(0)) + "\"): " + tw + ", " + th + ", " + g.x + ", " + g.y + ", " + g.w + ", " + g.h);
-		
-		float gX = g.x;//    203.0
-		float gY = g.y;//    18.0
-		float gW = g.w - 1;//10.0
-		float gH = g.h - 1;//15.0
-		
-		GL11.glBegin(GL11.GL_QUADS);
-		/*GL11.glTexCoord2d(203.0 / 512.0, 18.0 / 256.0);// This is H if font size == 12 and font == "Times New Roman"
-		GL11.glVertex3d(0, 0, 1);
-		
-		GL11.glTexCoord2d((203.0 + 10.0) / 512.0, 18.0 / 256.0);
-		GL11.glVertex3d(10.0, 0, 1);
-		
-		GL11.glTexCoord2d((203.0 + 10.0) / 512.0, (18.0 + 15.0) / 256.0);
-		GL11.glVertex3d(10.0, 15.0, 1);
-		
-		GL11.glTexCoord2d(203.0 / 512.0, (18.0 + 15.0) / 256.0);
-		GL11.glVertex3d(0, 15.0, 1);*/
-		GL11.glTexCoord2f((gX) / tw, (gY) / th);
-		GL11.glVertex3f(0, 0, 1);
-		
-		GL11.glTexCoord2f((gX + gW) / tw, (gY) / th);
-		GL11.glVertex3f((0 + gW), 0, 1);
-		
-		GL11.glTexCoord2f((gX + gW) / tw, (gY + gH) / th);
-		GL11.glVertex3f((0 + gW), 0 + gH, 1);
-		
-		GL11.glTexCoord2f((gX) / tw, (gY + gH) / th);
-		GL11.glVertex3f(0, 0 + gH, 1);
-		GL11.glEnd();
-		
-		GL11.glEndList();
-		//GL11.glCallList(g.list);
 	}
 	
+	/** The batches that the <tt>drawString(...)</tt> methods draw with, one
+	 * per thread (and therefore one per context), as a batch's vertex array
+	 * and buffer belong to the context that created them */
+	private static final ThreadLocal<TextBatch> immediateBatches = ThreadLocal.withInitial(TextBatch::new);
+	
 	public static GLFontBounds drawString(GLFont font, CharSequence s) {
 		return drawString(font, s, 0, 0);
 	}
@@ -871,200 +1130,35 @@ public class FontRender {
 	}
 	
 	public static GLFontBounds sizeOf(GLFont font, CharSequence s, double x, double y, double scaleX, double scaleY) {
-		double sizeWidth = 0;
-		double sizeHeight = font.getLineHeight();
-		
-		double standardCharWidth = (font.size + 0.0) * 0.75;
-		
-		double smallestWidth = 0;
-		double smallestHeight = 0;
-		double largestWidth = sizeWidth;
-		double largestHeight = sizeHeight;
-		double lastCharWidth = 0;
-		
-		for(int cp : s.codePoints().toArray()) {
-			String c = new String(new int[] {cp}, 0, 1);
-			//String c = font.codePointsOrCharacters ? new String(new int[] {cp}, 0, 1) : new String(new char[] {(char) cp});
-			if(cp < 0 || cp >= font.glyphs.length) {
-				if(!c.equals("\r") && !c.equals("\n") && !c.equals("\b") && !c.equals("\t") && !c.equals(" ")) {
-					c = font.unknownCharacterSymbol;
-				}
-				cp = font.unknownCharacterSymbol.codePointAt(0);
-			}
-			if(cp < 0 || cp >= font.glyphs.length) {
-				cp = font.unknownCharacterSymbol.codePointAt(0);
-			}
-			Glyph g = font.glyphs[cp];
-			//Glyph g = font.getGlyphFor(cp);
-			double w = Math.round(g.w - (font.widerGlyphs ? -0.0 : g.w * 0.15));
-			if(c.equals("\b")) {
-				sizeWidth -= lastCharWidth;//w * scaleX;
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-			} else if(c.equals("\r")) {
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-				sizeWidth = 0;
-			} else if(c.equals("\n")) {
-				sizeHeight += Math.round(font.getLineHeight()) * scaleY;
-				if(sizeHeight < smallestHeight) {
-					smallestHeight = sizeHeight;
-				} else if(sizeHeight > largestHeight) {
-					largestHeight = sizeHeight;
-				}
-			} else if(c.equals("\t")) {
-				if(Math.round(w) == 0.0) {
-					w = Math.round(standardCharWidth * 4.0);//Math.round(font.size * 0.5625 * 5.3333333333333333);
-				}
-				sizeWidth += w * scaleX;
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-			} else {
-				sizeWidth += w * scaleX;
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-			}
-			if(!c.equals("\b") && !c.equals("\r") && !c.equals("\n")) {
-				lastCharWidth = w * scaleX;
-			}
-		}
-		return new GLFontBounds(x, y, smallestWidth, smallestHeight, largestWidth, largestHeight);
+		return TextLayout.get(font, s).getBounds(x, y, scaleX, scaleY);
 	}
 	
 	public static GLFontBounds drawString(GLFont font, CharSequence s, double x, double y, double red, double green, double blue, double alpha) {
 		return drawString(font, s, x, y, red, green, blue, alpha, 1.0, 1.0, 1.0);
 	}
 	
+	/** Draws the given string immediately, using the current modelview and
+	 * projection matrices.<br>
+	 * To draw many strings, add them all to a {@link TextBatch} and flush it
+	 * once instead.
+	 * 
+	 * @param font The font to draw the string with
+	 * @param s The string to draw
+	 * @param x The x coordinate of the string's origin
+	 * @param y The y coordinate of the string's origin
+	 * @param red The red component of the string's color
+	 * @param green The green component of the string's color
+	 * @param blue The blue component of the string's color
+	 * @param alpha The alpha component of the string's color
+	 * @param scaleX The horizontal scale of the string
+	 * @param scaleY The vertical scale of the string
+	 * @param scaleZ The depth scale of the string
+	 * @return The bounds of the string */
 	public static GLFontBounds drawString(GLFont font, CharSequence s, double x, double y, double red, double green, double blue, double alpha, double scaleX, double scaleY, double scaleZ) {
-		/*Rectangle vp = Window.getWindow().getViewport();
-		double width = (Math.max(1.0, vp.width) + 0.0);
-		double height = (Math.max(1.0, vp.height) + 0.0);*/
-		
-		GLUtil.glPushCullMode();
-		GLUtil.glCullFront();
-		GLUtil.glPushBlendMode();
-		GLUtil.glBlend(true, GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
-		
-		GL11.glPushMatrix();
-		GLUtil.glPushColor();
-		GL11.glTranslated(x, y, 1.0);
-		GL11.glRotated(180, 1, 0, 0);
-		GL11.glScaled(scaleX, scaleY, scaleZ);
-		
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, font.texture);
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
-		GLUtil.glColord(red, green, blue, alpha);
-		double lineWidth = 0;
-		//double lineHeight = font.getLineHeightRender();
-		double sizeWidth = 0;
-		double sizeHeight = font.getLineHeight();
-		
-		double standardCharWidth = (font.size + 0.0) * 0.75;
-		
-		double smallestWidth = 0;
-		double smallestHeight = 0;
-		double largestWidth = sizeWidth;
-		double largestHeight = sizeHeight;
-		double lastCharWidth = 0;
-		/*for(int i = 0, n = s.length(); i < n; i++) {
-			char c = s.charAt(i);
-			if(c < charBegin || c > charEnd) c = '?';
-			Glyph g = font.glyphs[c - charBegin];*/
-		for(int cp : s.codePoints().toArray()) {
-			String c = new String(new int[] {cp}, 0, 1);
-			//String c = font.codePointsOrCharacters ? new String(new int[] {cp}, 0, 1) : new String(new char[] {(char) cp});
-			if(cp < 0 || cp >= font.glyphs.length) {
-				if(!c.equals("\r") && !c.equals("\n") && !c.equals("\b") && !c.equals("\t") && !c.equals(" ")) {
-					c = font.unknownCharacterSymbol;
-				}
-				cp = font.unknownCharacterSymbol.codePointAt(0);
-			}
-			if(cp < 0 || cp >= font.glyphs.length) {
-				cp = font.unknownCharacterSymbol.codePointAt(0);
-			}
-			Glyph g = font.glyphs[cp];
-			//Glyph g = font.getGlyphFor(cp);
-			
-			double w = Math.round(g.w - (font.widerGlyphs ? -0.0 : g.w * 0.15));
-			if(c.equals("\b")) {
-				GL11.glTranslated(-lastCharWidth, 0, 0);
-				lineWidth -= w;
-				sizeWidth -= w;
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-			} else if(c.equals("\r")) {
-				GL11.glTranslated(-lineWidth, 0, 0);
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-				lineWidth = 0;
-				sizeWidth = 0;
-			} else if(c.equals("\n")) {
-				double h = Math.round(font.getLineHeight());
-				GL11.glTranslated(0, h, 0);
-				//lineHeight += h;
-				sizeHeight += h;
-				if(sizeHeight < smallestHeight) {
-					smallestHeight = sizeHeight;
-				} else if(sizeHeight > largestHeight) {
-					largestHeight = sizeHeight;
-				}
-			} else if(c.equals("\t")) {
-				if(Math.round(w) == 0.0) {
-					w = Math.round(standardCharWidth * 4.0);//Math.round(font.size * 0.5625 * 5.3333333333333333);
-				}
-				GL11.glTranslated(w, 0, 0);
-				lineWidth += w;
-				sizeWidth += w;
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-			} else {
-				renderGlyph(font, g);
-				GL11.glTranslated(w, 0, 0);
-				lineWidth += w;
-				sizeWidth += w;
-				if(sizeWidth < smallestWidth) {
-					smallestWidth = sizeWidth;
-				} else if(sizeWidth > largestWidth) {
-					largestWidth = sizeWidth;
-				}
-			}
-			if(!c.equals("\b") && !c.equals("\r") && !c.equals("\n")) {
-				lastCharWidth = w;
-			}
-		}
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
-		GL11.glDisable(GL11.GL_TEXTURE_2D);
-		
-		GLUtil.glPopColor();
-		GL11.glPopMatrix();
-		
-		GL11.glDisable(GL11.GL_BLEND);
-		GLUtil.glPopBlendMode();
-		GLUtil.glPopCullMode();
-		return new GLFontBounds(x, y, smallestWidth, smallestHeight, largestWidth, largestHeight);
+		final TextBatch immediateBatch = immediateBatches.get();
+		GLFontBounds bounds = immediateBatch.add(font, s, x, y, red, green, blue, alpha, scaleX, scaleY, scaleZ);
+		immediateBatch.flush();
+		return bounds;
 	}
 	
 	protected static final int test = '\uE230';
@@ -1072,6 +1166,15 @@ public class FontRender {
 	private static ColorModel glColorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] {8, 8, 8, 0}, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
 	private static ColorModel glColorModelAlpha = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] {8, 8, 8, 8}, true, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
 	
+	private static int createTexture(ByteBuffer rgba, int width, int height) {
+		int tex = GL11.glGenTextures();
+		GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, tex);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+		StagingBuffer.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, rgba);
+		return tex;
+	}
+	
 	private static int createTexture(BufferedImage img, boolean mipMap) {
 		boolean USE_COMPRESSION = false;
 		
@@ -1079,19 +1182,18 @@ public class FontRender {
 		GL11.glGenTextures(id);
 		int tex = id[0];
 		
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, tex);
+		GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, tex);
 		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, mipMap ? GL11.GL_LINEAR_MIPMAP_LINEAR : GL11.GL_LINEAR);
 		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
 		
 		byte[] data = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
 		
-		ByteBuffer buf = ByteBuffer.allocateDirect(data.length).order(ByteOrder.nativeOrder()).put(data, 0, data.length).rewind();
-		
 		boolean alpha = img.getColorModel().hasAlpha();
 		
 		//GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, alpha? GL11.GL_RGBA:GL11.GL_RGB, img.getWidth(), img.getHeight(), 0, alpha? GL11.GL_RGBA:GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, buf);
-		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, USE_COMPRESSION ? (alpha ? GL13.GL_COMPRESSED_RGBA : GL13.GL_COMPRESSED_RGB) : (alpha ? GL11.GL_RGBA : GL11.GL_RGB), img.getWidth(), img.getHeight(), 0, alpha ? GL11.GL_RGBA : GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, buf);
+		StagingBuffer.glTexImage2D(GL11.GL_TEXTURE_2D, 0, USE_COMPRESSION ? (alpha ? GL13.GL_COMPRESSED_RGBA : GL13.GL_COMPRESSED_RGB) : (alpha ? GL11.GL_RGBA : GL11.GL_RGB), img.getWidth(), img.getHeight(), 0, alpha ? GL11.GL_RGBA : GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, data);
 		if(mipMap) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(data.length).order(ByteOrder.nativeOrder()).put(data, 0, data.length).rewind();
 			GLU.gluBuild2DMipmaps(GL11.GL_TEXTURE_2D, USE_COMPRESSION ? (alpha ? GL13.GL_COMPRESSED_RGBA : GL13.GL_COMPRESSED_RGB) : (alpha ? GL11.GL_RGBA : GL11.GL_RGB), img.getWidth(), img.getHeight(), alpha ? GL11.GL_RGBA : GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, buf);
 			//glu.gluBuild2DMipmaps(GL11.GL_TEXTURE_2D, GL2GL3.GL_COMPRESSED_RGB, img.getWidth(), img.getHeight(), GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, buf);
 		}
@@ -0,0 +1,499 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.util.ArrayList;
+
+/** Describes the offscreen passes of a frame (e.g. shadows, scene, blur, UI)
+ * and the render targets that each of them reads and writes, so that the
+ * targets can be allocated for only as long as they are actually needed.<br>
+ * <br>
+ * A renderer {@link #createTarget(String, int, int, int, int, int) declares}
+ * the targets it needs, then {@link #addPass(String, Executor) adds} its
+ * passes in the order they should run, declaring what each one
+ * {@link Pass#read(Resource) reads} and {@link Pass#write(Resource)
+ * writes}. When the graph is {@link #compile() compiled}:
+ * <ul>
+ * <li>passes whose output is never read by another pass, never
+ * {@link #markOutput(Resource) marked as an output} and that don't have
+ * {@link Pass#setSideEffect(boolean) side effects} are culled, along with
+ * every pass that only fed them;</li>
+ * <li>the first and last pass that uses each transient target is
+ * recorded.</li>
+ * </ul>
+ * When the graph is {@link #execute() executed}, each transient target is
+ * acquired from the {@link RenderTargetPool} right before the first pass that
+ * uses it and released right after the last one, so transient targets of the
+ * same size and formats whose lifetimes don't overlap share the same
+ * framebuffer within the frame.<br>
+ * <br>
+ * A graph may be built once and executed every frame, or rebuilt every frame;
+ * either way it must be executed on the {@link GLThread} while it is
+ * rendering a frame, since the targets it acquires are returned to the pool
+ * at the end of the frame.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class FrameGraph {
+	
+	private final ArrayList<Resource> resources = new ArrayList<>();
+	private final ArrayList<Pass> passes = new ArrayList<>();
+	private volatile boolean compiled = false;
+	private volatile int culledPasses = 0;
+	
+	/** Creates a new, empty frame graph. */
+	public FrameGraph() {
+	}
+	
+	/** Declares a transient target that only exists while the passes that use
+	 * it are running.
+	 * 
+	 * @param name The name of the target, for debugging
+	 * @param width The width of the target, in pixels
+	 * @param height The height of the target, in pixels
+	 * @param colorFormat The internal format of the color attachment
+	 * @param samples The number of samples per pixel, or <tt>0</tt> for a
+	 *            target that is not multisampled
+	 * @param depthFormat The internal format of the depth attachment, or
+	 *            <tt>0</tt> for none
+	 * @return The declared resource
+	 * @throws IllegalArgumentException Thrown if the size or sample count is
+	 *             invalid */
+	public final Resource createTarget(String name, int width, int height, int colorFormat, int samples, int depthFormat) throws IllegalArgumentException {
+		if(width <= 0 || height <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid size for render target \"%s\": %sx%s", name, Integer.toString(width), Integer.toString(height)));
+		}
+		if(samples < 0) {
+			throw new IllegalArgumentException(String.format("Invalid sample count for render target \"%s\": %s", name, Integer.toString(samples)));
+		}
+		return this.addResource(new Resource(this, name, width, height, colorFormat, samples, depthFormat, null));
+	}
+	
+	/** Declares a transient target the size of the window.
+	 * 
+	 * @param name The name of the target, for debugging
+	 * @param colorFormat The internal format of the color attachment
+	 * @param samples The number of samples per pixel, or <tt>0</tt> for a
+	 *            target that is not multisampled
+	 * @param depthFormat The internal format of the depth attachment, or
+	 *            <tt>0</tt> for none
+	 * @return The declared resource
+	 * @throws IllegalArgumentException Thrown if the sample count is invalid
+	 * @see RenderTargetPool#acquireScreen(int, int, int) */
+	public final Resource createScreenTarget(String name, int colorFormat, int samples, int depthFormat) throws IllegalArgumentException {
+		if(samples < 0) {
+			throw new IllegalArgumentException(String.format("Invalid sample count for render target \"%s\": %s", name, Integer.toString(samples)));
+		}
+		return this.addResource(new Resource(this, name, 0, 0, colorFormat, samples, depthFormat, null));
+	}
+	
+	/** Declares a target that is owned by something outside of this graph.
+	 * Imported targets are never released by the graph, and passes may read
+	 * them without an earlier pass having written them.
+	 * 
+	 * @param name The name of the target, for debugging
+	 * @param target The target to import
+	 * @return The declared resource
+	 * @throws IllegalArgumentException Thrown if the target is
+	 *             <tt>null</tt> or has been disposed */
+	public final Resource importTarget(String name, RenderTarget target) throws IllegalArgumentException {
+		if(target == null || target.isDisposed()) {
+			throw new IllegalArgumentException(String.format("Cannot import render target \"%s\": %s", name, target == null ? "null" : "it has been disposed"));
+		}
+		return this.addResource(new Resource(this, name, target.width, target.height, target.colorFormat, target.samples, target.depthFormat, target));
+	}
+	
+	private final Resource addResource(Resource resource) {
+		this.resources.add(resource);
+		this.compiled = false;
+		return resource;
+	}
+	
+	/** Adds a pass to the end of this graph. Passes run in the order that
+	 * they were added in.
+	 * 
+	 * @param name The name of the pass, for debugging
+	 * @param executor The code that draws the pass
+	 * @return The new pass, whose inputs and outputs should be declared next
+	 * @throws IllegalArgumentException Thrown if the executor is
+	 *             <tt>null</tt> */
+	public final Pass addPass(String name, Executor executor) throws IllegalArgumentException {
+		if(executor == null) {
+			throw new IllegalArgumentException(String.format("Pass \"%s\" has no executor!", name));
+		}
+		Pass pass = new Pass(this, name, executor, this.passes.size());
+		this.passes.add(pass);
+		this.compiled = false;
+		return pass;
+	}
+	
+	/** Marks the given resource as an output of the frame (e.g. the image that
+	 * will be drawn to the window after the graph has executed), so that the
+	 * passes that write it are never culled. Transient outputs are not
+	 * released until the end of the frame, so they can still be used after
+	 * {@link #execute()} returns.
+	 * 
+	 * @param resource The resource to mark
+	 * @return This graph
+	 * @throws IllegalArgumentException Thrown if the resource belongs to a
+	 *             different graph */
+	public final FrameGraph markOutput(Resource resource) throws IllegalArgumentException {
+		this.checkOwner(resource);
+		resource.output = true;
+		this.compiled = false;
+		return this;
+	}
+	
+	final void checkOwner(Resource resource) throws IllegalArgumentException {
+		if(resource == null || resource.graph != this) {
+			throw new IllegalArgumentException(String.format("Resource \"%s\" does not belong to this frame graph!", resource == null ? "null" : resource.name));
+		}
+	}
+	
+	/** Removes every pass and resource from this graph. */
+	public final void clear() {
+		this.passes.clear();
+		this.resources.clear();
+		this.compiled = false;
+		this.culledPasses = 0;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Culls the passes that don't contribute to an output of the frame and
+	 * works out the lifetime of every transient target. This is done
+	 * automatically by {@link #execute()} if the graph has changed since it
+	 * was last compiled.
+	 * 
+	 * @return This graph */
+	public final FrameGraph compile() {
+		// Reference counting: a pass is kept while something reads what it
+		// writes, and a resource is kept while a kept pass reads it.
+		ArrayList<Resource> unreferenced = new ArrayList<>();
+		for(Pass pass : this.passes) {
+			pass.refCount = pass.writes.size();
+			pass.culled = false;
+		}
+		for(Resource resource : this.resources) {
+			resource.refCount = resource.output ? 1 : 0;
+			resource.firstUse = resource.lastUse = -1;
+		}
+		for(Pass pass : this.passes) {
+			for(Resource resource : pass.reads) {
+				resource.refCount++;
+			}
+		}
+		for(Resource resource : this.resources) {
+			if(resource.refCount == 0) {
+				unreferenced.add(resource);
+			}
+		}
+		while(!unreferenced.isEmpty()) {
+			Resource resource = unreferenced.remove(unreferenced.size() - 1);
+			for(Pass writer : resource.writers) {
+				if(writer.sideEffect || --writer.refCount > 0) {
+					continue;
+				}
+				writer.culled = true;
+				for(Resource input : writer.reads) {
+					if(--input.refCount == 0) {
+						unreferenced.add(input);
+					}
+				}
+			}
+		}
+		
+		int culled = 0;
+		for(Pass pass : this.passes) {
+			if(pass.culled) {
+				culled++;
+				continue;
+			}
+			for(Resource resource : pass.reads) {
+				resource.use(pass.index);
+			}
+			for(Resource resource : pass.writes) {
+				resource.use(pass.index);
+			}
+		}
+		this.culledPasses = culled;
+		this.compiled = true;
+		return this;
+	}
+	
+	/** Runs every pass that wasn't culled, in the order that they were added
+	 * in, acquiring and releasing transient targets around them. Each pass is
+	 * timed on the GPU under its name by the {@link GPUTimer}.
+	 * 
+	 * @return This graph
+	 * @throws IllegalStateException Thrown if a transient target could not be
+	 *             created */
+	public final FrameGraph execute() throws IllegalStateException {
+		if(!this.compiled) {
+			this.compile();
+		}
+		final RenderTargetPool pool = RenderTargetPool.get();
+		final GPUTimer timer = GPUTimer.get();
+		for(Resource resource : this.resources) {
+			resource.target = resource.imported;
+		}
+		for(Pass pass : this.passes) {
+			if(pass.culled) {
+				continue;
+			}
+			for(Resource resource : this.resources) {
+				if(resource.firstUse == pass.index && resource.imported == null) {
+					resource.target = resource.isScreenSized() ? pool.acquireScreen(resource.colorFormat, resource.samples, resource.depthFormat) : pool.acquire(resource.width, resource.height, resource.colorFormat, resource.samples, resource.depthFormat);
+				}
+			}
+			GLDebug.glPushGroup(pass.name);
+			timer.begin(pass.name);
+			try {
+				pass.executor.execute(this);
+			} finally {
+				timer.end();
+				GLDebug.glPopGroup();
+			}
+			for(Resource resource : this.resources) {
+				if(resource.lastUse == pass.index && resource.imported == null && !resource.output) {
+					pool.release(resource.target);
+					resource.target = null;
+				}
+			}
+		}
+		return this;
+	}
+	
+	/** Returns the render target that is currently backing the given resource.
+	 * This should only be called by the passes that use the resource, or
+	 * after {@link #execute()} for resources that were
+	 * {@link #markOutput(Resource) marked as outputs}.
+	 * 
+	 * @param resource The resource whose target will be returned
+	 * @return The target backing the given resource
+	 * @throws IllegalArgumentException Thrown if the resource belongs to a
+	 *             different graph
+	 * @throws IllegalStateException Thrown if the resource has no target at
+	 *             the moment */
+	public final RenderTarget getTarget(Resource resource) throws IllegalArgumentException, IllegalStateException {
+		this.checkOwner(resource);
+		RenderTarget target = resource.target;
+		if(target == null) {
+			throw new IllegalStateException(String.format("Render target \"%s\" is not allocated right now!", resource.name));
+		}
+		return target;
+	}
+	
+	/** @return The number of passes in this graph */
+	public final int getPassCount() {
+		return this.passes.size();
+	}
+	
+	/** @return The number of passes that were culled the last time this graph
+	 *         was compiled */
+	public final int getCulledPassCount() {
+		return this.culledPasses;
+	}
+	
+	/** @return The number of resources declared in this graph */
+	public final int getResourceCount() {
+		return this.resources.size();
+	}
+	
+	//=========================================================================================================================
+	
+	/** The code that draws a single pass of a {@link FrameGraph}.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	@FunctionalInterface
+	public static interface Executor {
+		
+		/** Draws the pass. The targets of the resources that the pass declared
+		 * are available from {@link FrameGraph#getTarget(Resource)}.
+		 * 
+		 * @param graph The graph that is executing the pass */
+		public void execute(FrameGraph graph);
+		
+	}
+	
+	/** A render target declared in a {@link FrameGraph}.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Resource {
+		
+		final FrameGraph graph;
+		final String name;
+		final int width, height, colorFormat, samples, depthFormat;
+		final RenderTarget imported;
+		final ArrayList<Pass> writers = new ArrayList<>();
+		
+		volatile boolean output = false;
+		volatile RenderTarget target = null;
+		int refCount = 0, firstUse = -1, lastUse = -1;
+		
+		Resource(FrameGraph graph, String name, int width, int height, int colorFormat, int samples, int depthFormat, RenderTarget imported) {
+			this.graph = graph;
+			this.name = name;
+			this.width = width;
+			this.height = height;
+			this.colorFormat = colorFormat;
+			this.samples = samples;
+			this.depthFormat = depthFormat;
+			this.imported = imported;
+		}
+		
+		final void use(int passIndex) {
+			if(this.firstUse == -1) {
+				this.firstUse = passIndex;
+			}
+			this.lastUse = passIndex;
+		}
+		
+		/** @return The name of this resource */
+		public final String getName() {
+			return this.name;
+		}
+		
+		/** @return Whether or not this resource is owned by something outside
+		 *         of its graph */
+		public final boolean isImported() {
+			return this.imported != null;
+		}
+		
+		/** @return Whether or not this resource is always the size of the
+		 *         window */
+		public final boolean isScreenSized() {
+			return this.imported == null && this.width == 0;
+		}
+		
+		/** @return Whether or not this resource was marked as an output of the
+		 *         frame */
+		public final boolean isOutput() {
+			return this.output;
+		}
+		
+		/** @return Whether or not no pass that was kept the last time the
+		 *         graph was compiled uses this resource */
+		public final boolean isCulled() {
+			return this.graph.compiled && this.firstUse == -1;
+		}
+		
+		@Override
+		public final String toString() {
+			return String.format("%s[%s, %s]", this.name, this.isImported() ? "imported" : "transient", this.isScreenSized() ? "screen" : Integer.toString(this.width).concat("x").concat(Integer.toString(this.height)));
+		}
+		
+	}
+	
+	/** A single pass of a {@link FrameGraph}.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Pass {
+		
+		final FrameGraph graph;
+		final String name;
+		final Executor executor;
+		final int index;
+		final ArrayList<Resource> reads = new ArrayList<>();
+		final ArrayList<Resource> writes = new ArrayList<>();
+		
+		volatile boolean sideEffect = false;
+		volatile boolean culled = false;
+		int refCount = 0;
+		
+		Pass(FrameGraph graph, String name, Executor executor, int index) {
+			this.graph = graph;
+			this.name = name;
+			this.executor = executor;
+			this.index = index;
+		}
+		
+		/** Declares that this pass reads the given resource. The resource must
+		 * either be imported or have been written by an earlier pass.
+		 * 
+		 * @param resource The resource that this pass reads
+		 * @return This pass
+		 * @throws IllegalArgumentException Thrown if the resource belongs to a
+		 *             different graph, or if it is transient and no earlier
+		 *             pass writes it */
+		public final Pass read(Resource resource) throws IllegalArgumentException {
+			this.graph.checkOwner(resource);
+			if(resource.imported == null && resource.writers.isEmpty()) {
+				throw new IllegalArgumentException(String.format("Pass \"%s\" reads render target \"%s\" before any pass has written it!", this.name, resource.name));
+			}
+			if(!this.reads.contains(resource)) {
+				this.reads.add(resource);
+				this.graph.compiled = false;
+			}
+			return this;
+		}
+		
+		/** Declares that this pass writes the given resource.
+		 * 
+		 * @param resource The resource that this pass writes
+		 * @return This pass
+		 * @throws IllegalArgumentException Thrown if the resource belongs to a
+		 *             different graph */
+		public final Pass write(Resource resource) throws IllegalArgumentException {
+			this.graph.checkOwner(resource);
+			if(!this.writes.contains(resource)) {
+				this.writes.add(resource);
+				resource.writers.add(this);
+				this.graph.compiled = false;
+			}
+			return this;
+		}
+		
+		/** @param sideEffect Whether or not this pass does something other than
+		 *            write its declared resources (e.g. draws directly to the
+		 *            window), and so must never be culled
+		 * @return This pass */
+		public final Pass setSideEffect(boolean sideEffect) {
+			this.sideEffect = sideEffect;
+			this.graph.compiled = false;
+			return this;
+		}
+		
+		/** @return The name of this pass */
+		public final String getName() {
+			return this.name;
+		}
+		
+		/** @return Whether or not this pass was culled the last time the graph
+		 *         was compiled */
+		public final boolean isCulled() {
+			return this.culled;
+		}
+		
+		@Override
+		public final String toString() {
+			return this.culled ? this.name.concat(" (culled)") : this.name;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.io.PrintStream;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.opengl.ARBDebugOutput;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.GLDebugMessageARBCallback;
+import org.lwjgl.opengl.GLDebugMessageCallback;
+import org.lwjgl.opengl.KHRDebug;
+import org.lwjgl.system.Callback;
+
+/** Reports OpenGL errors and warnings through the driver's debug output
+ * (<tt>GL_KHR_debug</tt>, or <tt>GL_ARB_debug_output</tt> on older drivers)
+ * instead of by polling <tt>glGetError</tt>.<br>
+ * <br>
+ * Debug mode is turned on by launching with
+ * <tt>-Dbr45entei.gl.debug=true</tt>. When it is on,
+ * {@link com.gmail.br45entei.game.ui.Window Window}s request a debug
+ * context, and the {@link GLThread} {@link #glInstall() installs} a message
+ * callback that prints every message at or above the
+ * {@link #setMinimumSeverity(int) minimum severity}, along with a stack trace
+ * of the call that caused it for errors. Debug output is synchronous, so the
+ * stack trace points at the offending call.<br>
+ * <br>
+ * The callback and the debug group support are kept per context, so every
+ * {@link GLThread} installs and frees its own callback.<br>
+ * <br>
+ * Passes can be labelled with {@link #glPushGroup(String)} and
+ * {@link #glPopGroup()}, which makes them show up by name in tools such as
+ * RenderDoc and apitrace.<br>
+ * <br>
+ * {@link #ENABLED} is a constant, so when debug mode is off every check in
+ * this class and every <tt>if(GLDebug.ENABLED)</tt> block at its call sites
+ * is removed by the JIT, and release builds pay nothing for them.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class GLDebug {
+	
+	/** Whether or not debug mode is on. This is read once from the
+	 * <tt>br45entei.gl.debug</tt> system property. */
+	public static final boolean ENABLED = Boolean.getBoolean("br45entei.gl.debug");
+	
+	private static volatile int minimumSeverity = KHRDebug.GL_DEBUG_SEVERITY_LOW;
+	private static volatile PrintStream out = System.err;
+	private static final AtomicLong messageCount = new AtomicLong();
+	
+	/** The debug state of one context */
+	private static final class ContextState {
+		
+		Callback callback = null;
+		boolean groupsSupported = false;
+		
+		ContextState() {
+		}
+		
+	}
+	
+	private static final ThreadLocal<ContextState> states = ThreadLocal.withInitial(ContextState::new);
+	
+	private GLDebug() {
+	}
+	
+	//=========================================================================================================================
+	
+	private static final int getSeverityRank(int severity) {
+		switch(severity) {
+		case KHRDebug.GL_DEBUG_SEVERITY_HIGH:
+			return 3;
+		case KHRDebug.GL_DEBUG_SEVERITY_MEDIUM:
+			return 2;
+		case KHRDebug.GL_DEBUG_SEVERITY_LOW:
+			return 1;
+		case KHRDebug.GL_DEBUG_SEVERITY_NOTIFICATION:
+		default:
+			return 0;
+		}
+	}
+	
+	private static final String getSeverityName(int severity) {
+		switch(severity) {
+		case KHRDebug.GL_DEBUG_SEVERITY_HIGH:
+			return "HIGH";
+		case KHRDebug.GL_DEBUG_SEVERITY_MEDIUM:
+			return "MEDIUM";
+		case KHRDebug.GL_DEBUG_SEVERITY_LOW:
+			return "LOW";
+		case KHRDebug.GL_DEBUG_SEVERITY_NOTIFICATION:
+			return "NOTIFICATION";
+		default:
+			return "0x".concat(Integer.toHexString(severity));
+		}
+	}
+	
+	private static final String getSourceName(int source) {
+		switch(source) {
+		case KHRDebug.GL_DEBUG_SOURCE_API:
+			return "API";
+		case KHRDebug.GL_DEBUG_SOURCE_WINDOW_SYSTEM:
+			return "WINDOW SYSTEM";
+		case KHRDebug.GL_DEBUG_SOURCE_SHADER_COMPILER:
+			return "SHADER COMPILER";
+		case KHRDebug.GL_DEBUG_SOURCE_THIRD_PARTY:
+			return "THIRD PARTY";
+		case KHRDebug.GL_DEBUG_SOURCE_APPLICATION:
+			return "APPLICATION";
+		case KHRDebug.GL_DEBUG_SOURCE_OTHER:
+			return "OTHER";
+		default:
+			return "0x".concat(Integer.toHexString(source));
+		}
+	}
+	
+	private static final String getTypeName(int type) {
+		switch(type) {
+		case KHRDebug.GL_DEBUG_TYPE_ERROR:
+			return "ERROR";
+		case KHRDebug.GL_DEBUG_TYPE_DEPRECATED_BEHAVIOR:
+			return "DEPRECATED BEHAVIOR";
+		case KHRDebug.GL_DEBUG_TYPE_UNDEFINED_BEHAVIOR:
+			return "UNDEFINED BEHAVIOR";
+		case KHRDebug.GL_DEBUG_TYPE_PORTABILITY:
+			return "PORTABILITY";
+		case KHRDebug.GL_DEBUG_TYPE_PERFORMANCE:
+			return "PERFORMANCE";
+		case KHRDebug.GL_DEBUG_TYPE_MARKER:
+			return "MARKER";
+		case KHRDebug.GL_DEBUG_TYPE_PUSH_GROUP:
+			return "PUSH GROUP";
+		case KHRDebug.GL_DEBUG_TYPE_POP_GROUP:
+			return "POP GROUP";
+		case KHRDebug.GL_DEBUG_TYPE_OTHER:
+			return "OTHER";
+		default:
+			return "0x".concat(Integer.toHexString(type));
+		}
+	}
+	
+	private static final void onMessage(int source, int type, int id, int severity, String message) {
+		if(getSeverityRank(severity) < getSeverityRank(minimumSeverity)) {
+			return;
+		}
+		messageCount.incrementAndGet();
+		PrintStream out = GLDebug.out;
+		out.println(String.format("[GL DEBUG] [%s] [%s] [%s] #%s: %s", getSeverityName(severity), getSourceName(source), getTypeName(type), Integer.toString(id), message));
+		if(type == KHRDebug.GL_DEBUG_TYPE_ERROR) {
+			new Throwable("OpenGL error raised here").printStackTrace(out);
+		}
+		out.flush();
+	}
+	
+	//=========================================================================================================================
+	
+	/** @return Whether or not the current OpenGL context has a debug output
+	 *         extension that a message callback can be installed with */
+	public static final boolean isSupported() {
+		try {
+			GLCapabilities caps = GL.getCapabilities();
+			return caps.glDebugMessageCallback != 0L || caps.glDebugMessageCallbackARB != 0L;
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+	}
+	
+	/** @return Whether or not a message callback is currently installed on
+	 *         the context that is current on the calling thread, in which
+	 *         case errors are reported as they happen and don't need to be
+	 *         polled for */
+	public static final boolean isInstalled() {
+		return ENABLED && states.get().callback != null;
+	}
+	
+	/** @return The lowest severity of message that is printed */
+	public static final int getMinimumSeverity() {
+		return minimumSeverity;
+	}
+	
+	/** @param severity The lowest severity of message to print (one of
+	 *            {@link KHRDebug#GL_DEBUG_SEVERITY_HIGH},
+	 *            {@link KHRDebug#GL_DEBUG_SEVERITY_MEDIUM},
+	 *            {@link KHRDebug#GL_DEBUG_SEVERITY_LOW} or
+	 *            {@link KHRDebug#GL_DEBUG_SEVERITY_NOTIFICATION}). The default
+	 *            is {@link KHRDebug#GL_DEBUG_SEVERITY_LOW}.<br>
+	 *            Whether or not the driver generates notifications at all is
+	 *            decided per context: calling this on a thread whose context has
+	 *            the callback installed updates that context right away, and
+	 *            every other context picks the setting up when its callback is
+	 *            {@link #glInstall() installed}. */
+	public static final void setMinimumSeverity(int severity) {
+		minimumSeverity = severity;
+		if(ENABLED && states.get().callback instanceof GLDebugMessageCallback) {
+			glControlNotifications();
+		}
+	}
+	
+	/** Tells the driver of the current context whether or not to generate
+	 * notifications, depending on the minimum severity. Notifications are by
+	 * far the most frequent messages, so the driver shouldn't generate them at
+	 * all unless they were asked for. */
+	private static final void glControlNotifications() {
+		KHRDebug.glDebugMessageControl(GL11.GL_DONT_CARE, GL11.GL_DONT_CARE, KHRDebug.GL_DEBUG_SEVERITY_NOTIFICATION, (IntBuffer) null, minimumSeverity == KHRDebug.GL_DEBUG_SEVERITY_NOTIFICATION);
+	}
+	
+	/** @param out The stream that messages are printed to. The default is
+	 *            {@link System#err}. */
+	public static final void setOutput(PrintStream out) {
+		GLDebug.out = out == null ? System.err : out;
+	}
+	
+	/** @return The number of messages that have been printed */
+	public static final long getMessageCount() {
+		return messageCount.get();
+	}
+	
+	/** Installs the message callback on the current context. This is called
+	 * by the {@link GLThread} after its context is created, and does nothing
+	 * if debug mode is off or the context doesn't support debug output.
+	 * 
+	 * @return Whether or not the callback was installed */
+	public static final boolean glInstall() {
+		if(!ENABLED || !isSupported()) {
+			return false;
+		}
+		glUninstall();
+		final ContextState state = states.get();
+		GLCapabilities caps = GL.getCapabilities();
+		if(caps.glDebugMessageCallback != 0L) {
+			GLDebugMessageCallback cb = GLDebugMessageCallback.create((source, type, id, severity, length, message, userParam) -> onMessage(source, type, id, severity, GLDebugMessageCallback.getMessage(length, message)));
+			KHRDebug.glDebugMessageCallback(cb, 0L);
+			glControlNotifications();
+			GL11.glEnable(KHRDebug.GL_DEBUG_OUTPUT);
+			GL11.glEnable(KHRDebug.GL_DEBUG_OUTPUT_SYNCHRONOUS);
+			state.callback = cb;
+		} else {
+			GLDebugMessageARBCallback cb = GLDebugMessageARBCallback.create((source, type, id, severity, length, message, userParam) -> onMessage(source, type, id, severity, GLDebugMessageARBCallback.getMessage(length, message)));
+			ARBDebugOutput.glDebugMessageCallbackARB(cb, 0L);
+			GL11.glEnable(ARBDebugOutput.GL_DEBUG_OUTPUT_SYNCHRONOUS_ARB);
+			state.callback = cb;
+		}
+		state.groupsSupported = caps.glPushDebugGroup != 0L;
+		return true;
+	}
+	
+	/** Removes the message callback that was installed on the current
+	 * context and frees it. Callbacks installed on other contexts are left
+	 * alone. This is called by the {@link GLThread} before its context is
+	 * destroyed. */
+	public static final void glUninstall() {
+		if(!ENABLED) {
+			return;
+		}
+		final ContextState state = states.get();
+		Callback cb = state.callback;
+		if(cb == null) {
+			return;
+		}
+		state.callback = null;
+		if(cb instanceof GLDebugMessageCallback) {
+			KHRDebug.glDebugMessageCallback(null, 0L);
+		} else {
+			ARBDebugOutput.glDebugMessageCallbackARB(null, 0L);
+		}
+		cb.free();
+		state.groupsSupported = false;
+	}
+	
+	/** Opens a named group of commands, such as a render pass. Groups may be
+	 * nested, and must be closed with {@link #glPopGroup()}. This does nothing
+	 * unless debug mode is on.
+	 * 
+	 * @param name The name of the group */
+	public static final void glPushGroup(String name) {
+		if(ENABLED && states.get().groupsSupported) {
+			KHRDebug.glPushDebugGroup(KHRDebug.GL_DEBUG_SOURCE_APPLICATION, 0, name);
+		}
+	}
+	
+	/** Closes the group that was most recently opened by
+	 * {@link #glPushGroup(String)}. This does nothing unless debug mode is
+	 * on. */
+	public static final void glPopGroup() {
+		if(ENABLED && states.get().groupsSupported) {
+			KHRDebug.glPopDebugGroup();
+		}
+	}
+	
+	/** Gives an OpenGL object a name that is used in debug messages and by
+	 * graphics debuggers. This does nothing unless debug mode is on.
+	 * 
+	 * @param identifier The type of the object (e.g.
+	 *            {@link GL11#GL_TEXTURE}, {@link KHRDebug#GL_PROGRAM} or
+	 *            {@link KHRDebug#GL_BUFFER})
+	 * @param name The name of the object
+	 * @param label The label to give the object */
+	public static final void glLabel(int identifier, int name, String label) {
+		if(ENABLED && states.get().groupsSupported) {
+			KHRDebug.glObjectLabel(identifier, name, label);
+		}
+	}
+	
+	/** Returns and clears any errors that have been raised since the last
+	 * call to <tt>glGetError</tt>, for code that used to poll for them.<br>
+	 * Polling forces the driver to synchronize, so this only polls when debug
+	 * mode is on and no callback could be installed; otherwise the errors
+	 * have already been reported by the callback (or aren't being looked for)
+	 * and an empty string is returned.
+	 * 
+	 * @return The errors that were raised, one per line, or an empty string
+	 * @see Shader#getOpenGLError() */
+	public static final String glPollErrors() {
+		if(!ENABLED || states.get().callback != null) {
+			return "";
+		}
+		return Shader.getOpenGLError();
+	}
+	
+}
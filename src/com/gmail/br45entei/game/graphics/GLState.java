@@ -0,0 +1,769 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.opengl.GLCapabilities;
+
+/** A shadow copy of the OpenGL state of the context that is current on the
+ * calling thread.<br>
+ * <br>
+ * Every state change that goes through this class is compared against the
+ * shadow copy first, and is only passed on to the driver if it would actually
+ * change something; state queries are answered from the shadow copy instead
+ * of with a <tt>glGet...</tt> round-trip, which would otherwise force the
+ * driver to wait for the commands that are still queued. The shadow covers
+ * capabilities ({@link #glEnable(int)}/{@link #glDisable(int)}), the blend
+ * function and equation, the cull face and front face, the viewport, the
+ * active texture unit and the textures and sampler objects bound to each
+ * unit, the current program, the bound vertex array, the bound buffers and
+ * the bound draw and read framebuffers.<br>
+ * <br>
+ * Every value starts out (and returns to, after {@link #invalidate()}) as
+ * unknown; the first change to an unknown value is always issued, and the
+ * first query of an unknown value asks the driver once. Code that changes
+ * any of the tracked state directly through <tt>GL11</tt> etc. must call
+ * {@link #invalidate()} afterwards, or the shadow copy will no longer match
+ * the context.<br>
+ * <br>
+ * Each thread has its own shadow copy, since each context is only ever
+ * current on the thread that renders with it.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class GLState {
+	
+	/** The value of any shadowed state that is not yet known */
+	public static final int UNKNOWN = -1;
+	/** The number of texture units that are shadowed; units above this are
+	 * always passed through to the driver */
+	public static final int MAX_TEXTURE_UNITS = 32;
+	
+	//@formatter:off
+	private static final int[] TEXTURE_TARGETS = {
+			GL11.GL_TEXTURE_1D, GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_3D, GL13.GL_TEXTURE_CUBE_MAP,
+			GL30.GL_TEXTURE_1D_ARRAY, GL30.GL_TEXTURE_2D_ARRAY, GL31.GL_TEXTURE_RECTANGLE, GL31.GL_TEXTURE_BUFFER,
+			GL32.GL_TEXTURE_2D_MULTISAMPLE, GL40.GL_TEXTURE_CUBE_MAP_ARRAY
+	};
+	private static final int[] TEXTURE_BINDINGS = {
+			GL11.GL_TEXTURE_BINDING_1D, GL11.GL_TEXTURE_BINDING_2D, GL12.GL_TEXTURE_BINDING_3D, GL13.GL_TEXTURE_BINDING_CUBE_MAP,
+			GL30.GL_TEXTURE_BINDING_1D_ARRAY, GL30.GL_TEXTURE_BINDING_2D_ARRAY, GL31.GL_TEXTURE_BINDING_RECTANGLE, GL31.GL_TEXTURE_BINDING_BUFFER,
+			GL32.GL_TEXTURE_BINDING_2D_MULTISAMPLE, GL40.GL_TEXTURE_BINDING_CUBE_MAP_ARRAY
+	};
+	private static final int[] BUFFER_TARGETS = {
+			GL15.GL_ARRAY_BUFFER, GL15.GL_ELEMENT_ARRAY_BUFFER, GL21.GL_PIXEL_PACK_BUFFER, GL21.GL_PIXEL_UNPACK_BUFFER,
+			GL31.GL_UNIFORM_BUFFER, GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER, GL31.GL_TEXTURE_BUFFER,
+			GL40.GL_DRAW_INDIRECT_BUFFER, GL43.GL_SHADER_STORAGE_BUFFER, GL30.GL_TRANSFORM_FEEDBACK_BUFFER
+	};
+	private static final int[] BUFFER_BINDINGS = {
+			GL15.GL_ARRAY_BUFFER_BINDING, GL15.GL_ELEMENT_ARRAY_BUFFER_BINDING, GL21.GL_PIXEL_PACK_BUFFER_BINDING, GL21.GL_PIXEL_UNPACK_BUFFER_BINDING,
+			GL31.GL_UNIFORM_BUFFER_BINDING, 0, 0, 0,
+			GL40.GL_DRAW_INDIRECT_BUFFER_BINDING, GL43.GL_SHADER_STORAGE_BUFFER_BINDING, GL30.GL_TRANSFORM_FEEDBACK_BUFFER_BINDING
+	};
+	//@formatter:on
+	private static final int ELEMENT_ARRAY_INDEX = 1;
+	
+	private static final ThreadLocal<GLState> states = ThreadLocal.withInitial(GLState::new);
+	
+	/** @return The shadow state of the context that is current on the calling
+	 *         thread */
+	public static final GLState get() {
+		return states.get();
+	}
+	
+	private static final int indexOf(int[] targets, int target) {
+		for(int i = 0; i < targets.length; i++) {
+			if(targets[i] == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	//=========================================================================================================================
+	
+	private volatile GLCapabilities caps = null;
+	
+	private int[] capabilities = new int[16];
+	private byte[] enabled = new byte[16];
+	private int capabilityCount = 0;
+	
+	private int blendSrcRGB = UNKNOWN, blendDstRGB = UNKNOWN, blendSrcAlpha = UNKNOWN, blendDstAlpha = UNKNOWN;
+	private int blendEquation = UNKNOWN;
+	private int cullFace = UNKNOWN, frontFace = UNKNOWN;
+	private final int[] viewport = new int[4];
+	private boolean viewportKnown = false;
+	
+	private int activeTexture = UNKNOWN;
+	private final int[][] textures = new int[MAX_TEXTURE_UNITS][TEXTURE_TARGETS.length];
+	private final int[] samplers = new int[MAX_TEXTURE_UNITS];
+	private final HashMap<Long, Integer> samplerObjects = new HashMap<>();
+	
+	private int program = UNKNOWN;
+	private int vertexArray = UNKNOWN;
+	private final int[] buffers = new int[BUFFER_TARGETS.length];
+	private int drawFramebuffer = UNKNOWN, readFramebuffer = UNKNOWN;
+	
+	private long issued = 0, skipped = 0;
+	
+	private GLState() {
+		this.invalidate();
+	}
+	
+	private final GLCapabilities caps() {
+		GLCapabilities caps = this.caps;
+		if(caps == null) {
+			this.caps = caps = GL.getCapabilities();
+		}
+		return caps;
+	}
+	
+	private final boolean skip() {
+		this.skipped++;
+		return false;
+	}
+	
+	private final boolean issue() {
+		this.issued++;
+		return true;
+	}
+	
+	/** Forgets every shadowed value, so that the next change to each of them
+	 * is passed on to the driver. This must be called after the tracked state
+	 * is changed without going through this class, and whenever a new context
+	 * is made current on this thread. */
+	public final void invalidate() {
+		this.caps = null;
+		this.capabilityCount = 0;
+		this.blendSrcRGB = this.blendDstRGB = this.blendSrcAlpha = this.blendDstAlpha = UNKNOWN;
+		this.blendEquation = UNKNOWN;
+		this.cullFace = this.frontFace = UNKNOWN;
+		this.viewportKnown = false;
+		this.activeTexture = UNKNOWN;
+		for(int[] unit : this.textures) {
+			Arrays.fill(unit, UNKNOWN);
+		}
+		Arrays.fill(this.samplers, UNKNOWN);
+		this.program = UNKNOWN;
+		this.vertexArray = UNKNOWN;
+		Arrays.fill(this.buffers, UNKNOWN);
+		this.drawFramebuffer = this.readFramebuffer = UNKNOWN;
+	}
+	
+	/** Deletes the sampler objects that were created for this thread's
+	 * context and forgets every shadowed value. This should be called before
+	 * the context is destroyed. */
+	public final void dispose() {
+		if(!this.samplerObjects.isEmpty()) {
+			try {
+				if(this.caps().glDeleteSamplers != 0L) {
+					for(Integer sampler : this.samplerObjects.values()) {
+						GL33.glDeleteSamplers(sampler.intValue());
+					}
+				}
+			} catch(IllegalStateException ex) {
+				// The context is already gone, and its samplers with it
+			}
+			this.samplerObjects.clear();
+		}
+		this.invalidate();
+	}
+	
+	/** @return The number of state changes that were passed on to the driver
+	 *         since the last call to {@link #resetCounters()} */
+	public final long getIssuedCount() {
+		return this.issued;
+	}
+	
+	/** @return The number of redundant state changes that were skipped since
+	 *         the last call to {@link #resetCounters()} */
+	public final long getSkippedCount() {
+		return this.skipped;
+	}
+	
+	/** Resets the issued and skipped state change counters. */
+	public final void resetCounters() {
+		this.issued = this.skipped = 0;
+	}
+	
+	//=========================================================================================================================
+	
+	private final int capabilityIndex(int cap) {
+		for(int i = 0; i < this.capabilityCount; i++) {
+			if(this.capabilities[i] == cap) {
+				return i;
+			}
+		}
+		if(this.capabilityCount == this.capabilities.length) {
+			this.capabilities = Arrays.copyOf(this.capabilities, this.capabilityCount * 2);
+			this.enabled = Arrays.copyOf(this.enabled, this.capabilityCount * 2);
+		}
+		this.capabilities[this.capabilityCount] = cap;
+		this.enabled[this.capabilityCount] = UNKNOWN;
+		return this.capabilityCount++;
+	}
+	
+	/** @param cap The capability to check
+	 * @return Whether or not the given capability is enabled */
+	public final boolean isEnabled(int cap) {
+		final int index = this.capabilityIndex(cap);
+		if(this.enabled[index] == UNKNOWN) {
+			this.enabled[index] = (byte) (GL11.glIsEnabled(cap) ? 1 : 0);
+		}
+		return this.enabled[index] == 1;
+	}
+	
+	/** Enables or disables the given capability, unless it already is.
+	 * 
+	 * @param cap The capability to enable or disable
+	 * @param enable Whether the capability should be enabled or disabled
+	 * @return Whether or not the driver was called */
+	public final boolean glSetEnabled(int cap, boolean enable) {
+		final int index = this.capabilityIndex(cap);
+		final byte value = (byte) (enable ? 1 : 0);
+		if(this.enabled[index] == value) {
+			return this.skip();
+		}
+		if(enable) {
+			GL11.glEnable(cap);
+		} else {
+			GL11.glDisable(cap);
+		}
+		this.enabled[index] = value;
+		return this.issue();
+	}
+	
+	/** @param cap The capability to enable
+	 * @return Whether or not the driver was called
+	 * @see #glSetEnabled(int, boolean) */
+	public final boolean glEnable(int cap) {
+		return this.glSetEnabled(cap, true);
+	}
+	
+	/** @param cap The capability to disable
+	 * @return Whether or not the driver was called
+	 * @see #glSetEnabled(int, boolean) */
+	public final boolean glDisable(int cap) {
+		return this.glSetEnabled(cap, false);
+	}
+	
+	//=========================================================================================================================
+	
+	/** @param sFactor The source blend factor
+	 * @param dFactor The destination blend factor
+	 * @return Whether or not the driver was called */
+	public final boolean glBlendFunc(int sFactor, int dFactor) {
+		if(this.blendSrcRGB == sFactor && this.blendDstRGB == dFactor && this.blendSrcAlpha == sFactor && this.blendDstAlpha == dFactor) {
+			return this.skip();
+		}
+		GL11.glBlendFunc(sFactor, dFactor);
+		this.blendSrcRGB = this.blendSrcAlpha = sFactor;
+		this.blendDstRGB = this.blendDstAlpha = dFactor;
+		return this.issue();
+	}
+	
+	/** @param srcRGB The source blend factor for the color channels
+	 * @param dstRGB The destination blend factor for the color channels
+	 * @param srcAlpha The source blend factor for the alpha channel
+	 * @param dstAlpha The destination blend factor for the alpha channel
+	 * @return Whether or not the driver was called */
+	public final boolean glBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+		if(this.blendSrcRGB == srcRGB && this.blendDstRGB == dstRGB && this.blendSrcAlpha == srcAlpha && this.blendDstAlpha == dstAlpha) {
+			return this.skip();
+		}
+		if(this.caps().glBlendFuncSeparate == 0L) {
+			return this.glBlendFunc(srcRGB, dstRGB);
+		}
+		GL14.glBlendFuncSeparate(srcRGB, dstRGB, srcAlpha, dstAlpha);
+		this.blendSrcRGB = srcRGB;
+		this.blendDstRGB = dstRGB;
+		this.blendSrcAlpha = srcAlpha;
+		this.blendDstAlpha = dstAlpha;
+		return this.issue();
+	}
+	
+	/** @param mode The blend equation to use; ignored if the context does not
+	 *            support <tt>glBlendEquation</tt>
+	 * @return Whether or not the driver was called */
+	public final boolean glBlendEquation(int mode) {
+		if(this.blendEquation == mode || this.caps().glBlendEquation == 0L) {
+			return this.skip();
+		}
+		GL14.glBlendEquation(mode);
+		this.blendEquation = mode;
+		return this.issue();
+	}
+	
+	/** @return The source blend factor for the color channels */
+	public final int getBlendSrc() {
+		if(this.blendSrcRGB == UNKNOWN) {
+			this.blendSrcRGB = GL11.glGetInteger(GL11.GL_BLEND_SRC);
+		}
+		return this.blendSrcRGB;
+	}
+	
+	/** @return The destination blend factor for the color channels */
+	public final int getBlendDst() {
+		if(this.blendDstRGB == UNKNOWN) {
+			this.blendDstRGB = GL11.glGetInteger(GL11.GL_BLEND_DST);
+		}
+		return this.blendDstRGB;
+	}
+	
+	/** @return The blend equation */
+	public final int getBlendEquation() {
+		if(this.blendEquation == UNKNOWN) {
+			this.blendEquation = this.caps().glBlendEquation == 0L ? GL14.GL_FUNC_ADD : GL11.glGetInteger(GL20.GL_BLEND_EQUATION_RGB);
+		}
+		return this.blendEquation;
+	}
+	
+	//=========================================================================================================================
+	
+	/** @param mode The faces to cull
+	 * @return Whether or not the driver was called */
+	public final boolean glCullFace(int mode) {
+		if(this.cullFace == mode) {
+			return this.skip();
+		}
+		GL11.glCullFace(mode);
+		this.cullFace = mode;
+		return this.issue();
+	}
+	
+	/** @param dir The winding order of front faces
+	 * @return Whether or not the driver was called */
+	public final boolean glFrontFace(int dir) {
+		if(this.frontFace == dir) {
+			return this.skip();
+		}
+		GL11.glFrontFace(dir);
+		this.frontFace = dir;
+		return this.issue();
+	}
+	
+	/** @return The faces that are culled */
+	public final int getCullFace() {
+		if(this.cullFace == UNKNOWN) {
+			this.cullFace = GL11.glGetInteger(GL11.GL_CULL_FACE_MODE);
+		}
+		return this.cullFace;
+	}
+	
+	/** @return The winding order of front faces */
+	public final int getFrontFace() {
+		if(this.frontFace == UNKNOWN) {
+			this.frontFace = GL11.glGetInteger(GL11.GL_FRONT_FACE);
+		}
+		return this.frontFace;
+	}
+	
+	//=========================================================================================================================
+	
+	/** @param x The x coordinate of the viewport's lower left corner
+	 * @param y The y coordinate of the viewport's lower left corner
+	 * @param width The width of the viewport
+	 * @param height The height of the viewport
+	 * @return Whether or not the driver was called */
+	public final boolean glViewport(int x, int y, int width, int height) {
+		final int[] viewport = this.viewport;
+		if(this.viewportKnown && viewport[0] == x && viewport[1] == y && viewport[2] == width && viewport[3] == height) {
+			return this.skip();
+		}
+		GL11.glViewport(x, y, width, height);
+		viewport[0] = x;
+		viewport[1] = y;
+		viewport[2] = width;
+		viewport[3] = height;
+		this.viewportKnown = true;
+		return this.issue();
+	}
+	
+	/** @param viewport The array to store the viewport's x, y, width and
+	 *            height in
+	 * @return The given array */
+	public final int[] getViewport(int[] viewport) {
+		if(!this.viewportKnown) {
+			GL11.glGetIntegerv(GL11.GL_VIEWPORT, this.viewport);
+			this.viewportKnown = true;
+		}
+		System.arraycopy(this.viewport, 0, viewport, 0, 4);
+		return viewport;
+	}
+	
+	/** @return A new array containing the viewport's x, y, width and height */
+	public final int[] getViewport() {
+		return this.getViewport(new int[4]);
+	}
+	
+	//=========================================================================================================================
+	
+	/** @param unit The texture unit to make active, starting at <tt>0</tt>
+	 *            (not at {@link GL13#GL_TEXTURE0})
+	 * @return Whether or not the driver was called */
+	public final boolean glActiveTexture(int unit) {
+		if(this.activeTexture == unit) {
+			return this.skip();
+		}
+		if(this.caps().glActiveTexture == 0L) {
+			if(unit != 0) {
+				throw new IllegalStateException(String.format("Cannot activate texture unit %s: multitexturing is not supported by the current context!", Integer.toString(unit)));
+			}
+			this.activeTexture = unit;
+			return this.skip();
+		}
+		GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+		this.activeTexture = unit;
+		return this.issue();
+	}
+	
+	/** @return The active texture unit, starting at <tt>0</tt> */
+	public final int getActiveTexture() {
+		if(this.activeTexture == UNKNOWN) {
+			this.activeTexture = this.caps().glActiveTexture == 0L ? 0 : GL11.glGetInteger(GL13.GL_ACTIVE_TEXTURE) - GL13.GL_TEXTURE0;
+		}
+		return this.activeTexture;
+	}
+	
+	/** Makes the given unit active, then binds the given texture to the given
+	 * target of that unit if it is not bound there already.
+	 * 
+	 * @param unit The texture unit to bind to, starting at <tt>0</tt>
+	 * @param target The target to bind to
+	 * @param texture The texture to bind, or <tt>0</tt> to unbind
+	 * @return Whether or not the driver was called */
+	public final boolean glBindTexture(int unit, int target, int texture) {
+		final int index = indexOf(TEXTURE_TARGETS, target);
+		this.glActiveTexture(unit);
+		if(index >= 0 && unit >= 0 && unit < MAX_TEXTURE_UNITS && this.textures[unit][index] == texture) {
+			return this.skip();
+		}
+		GL11.glBindTexture(target, texture);
+		GLStats.count(GLStats.Counter.TEXTURE_BINDS);
+		if(index >= 0 && unit >= 0 && unit < MAX_TEXTURE_UNITS) {
+			this.textures[unit][index] = texture;
+		}
+		return this.issue();
+	}
+	
+	/** Binds the given texture to the given target of the active unit.
+	 * 
+	 * @param target The target to bind to
+	 * @param texture The texture to bind, or <tt>0</tt> to unbind
+	 * @return Whether or not the driver was called */
+	public final boolean glBindTexture(int target, int texture) {
+		return this.glBindTexture(this.getActiveTexture(), target, texture);
+	}
+	
+	/** @param unit The texture unit, starting at <tt>0</tt>
+	 * @param target The texture target
+	 * @return The texture that is bound to the given target of the given
+	 *         unit */
+	public final int getBoundTexture(int unit, int target) {
+		final int index = indexOf(TEXTURE_TARGETS, target);
+		if(index >= 0 && unit >= 0 && unit < MAX_TEXTURE_UNITS && this.textures[unit][index] != UNKNOWN) {
+			return this.textures[unit][index];
+		}
+		final int active = this.getActiveTexture();
+		this.glActiveTexture(unit);
+		final int texture = index < 0 ? UNKNOWN : GL11.glGetInteger(TEXTURE_BINDINGS[index]);
+		this.glActiveTexture(active);
+		if(index >= 0 && unit >= 0 && unit < MAX_TEXTURE_UNITS) {
+			this.textures[unit][index] = texture;
+		}
+		return texture;
+	}
+	
+	/** @param target The texture target
+	 * @return The texture that is bound to the given target of the active
+	 *         unit */
+	public final int getBoundTexture(int target) {
+		return this.getBoundTexture(this.getActiveTexture(), target);
+	}
+	
+	/** Forgets the given texture wherever it is bound. This must be called
+	 * when a texture is deleted, since deleting a texture unbinds it.
+	 * 
+	 * @param texture The texture that was deleted */
+	public final void onTextureDeleted(int texture) {
+		if(texture == 0) {
+			return;
+		}
+		for(int[] unit : this.textures) {
+			for(int i = 0; i < unit.length; i++) {
+				if(unit[i] == texture) {
+					unit[i] = 0;
+				}
+			}
+		}
+	}
+	
+	//=========================================================================================================================
+	
+	/** @return Whether or not the current context supports sampler objects */
+	public final boolean isSamplerSupported() {
+		return this.caps().glBindSampler != 0L;
+	}
+	
+	/** Returns a sampler object with the given parameters, creating it the
+	 * first time it is asked for. Sampler objects are shared by every texture
+	 * that is sampled the same way, and are owned by this thread's context.
+	 * 
+	 * @param minFilter The minification filter
+	 * @param magFilter The magnification filter
+	 * @param wrapS The wrap mode of the <tt>s</tt> coordinate
+	 * @param wrapT The wrap mode of the <tt>t</tt> coordinate
+	 * @return The sampler object, or <tt>0</tt> if sampler objects are not
+	 *         supported */
+	public final int getSampler(int minFilter, int magFilter, int wrapS, int wrapT) {
+		if(!this.isSamplerSupported()) {
+			return 0;
+		}
+		final Long key = Long.valueOf(((minFilter & 0xFFFFL) << 48) | ((magFilter & 0xFFFFL) << 32) | ((wrapS & 0xFFFFL) << 16) | (wrapT & 0xFFFFL));
+		Integer sampler = this.samplerObjects.get(key);
+		if(sampler == null) {
+			final int id = GL33.glGenSamplers();
+			GL33.glSamplerParameteri(id, GL11.GL_TEXTURE_MIN_FILTER, minFilter);
+			GL33.glSamplerParameteri(id, GL11.GL_TEXTURE_MAG_FILTER, magFilter);
+			GL33.glSamplerParameteri(id, GL11.GL_TEXTURE_WRAP_S, wrapS);
+			GL33.glSamplerParameteri(id, GL11.GL_TEXTURE_WRAP_T, wrapT);
+			this.samplerObjects.put(key, sampler = Integer.valueOf(id));
+		}
+		return sampler.intValue();
+	}
+	
+	/** @param unit The texture unit to bind the sampler to, starting at
+	 *            <tt>0</tt>
+	 * @param sampler The sampler object to bind, or <tt>0</tt> to sample with
+	 *            the bound texture's own parameters
+	 * @return Whether or not the driver was called */
+	public final boolean glBindSampler(int unit, int sampler) {
+		if(unit >= 0 && unit < MAX_TEXTURE_UNITS && this.samplers[unit] == sampler) {
+			return this.skip();
+		}
+		if(!this.isSamplerSupported()) {
+			return this.skip();
+		}
+		GL33.glBindSampler(unit, sampler);
+		if(unit >= 0 && unit < MAX_TEXTURE_UNITS) {
+			this.samplers[unit] = sampler;
+		}
+		return this.issue();
+	}
+	
+	/** Sets how the texture that is bound to the given unit is filtered.<br>
+	 * When sampler objects are supported, a shared sampler object is bound to
+	 * the unit instead of changing the texture's own parameters, so switching
+	 * between filters costs a single binding rather than several
+	 * <tt>glTexParameteri</tt> calls. Otherwise the bound texture's
+	 * parameters are changed.
+	 * 
+	 * @param unit The texture unit, starting at <tt>0</tt>
+	 * @param target The target that the texture is bound to
+	 * @param minFilter The minification filter
+	 * @param magFilter The magnification filter
+	 * @param wrapS The wrap mode of the <tt>s</tt> coordinate
+	 * @param wrapT The wrap mode of the <tt>t</tt> coordinate
+	 * @return Whether or not the driver was called */
+	public final boolean glSetFilter(int unit, int target, int minFilter, int magFilter, int wrapS, int wrapT) {
+		if(this.isSamplerSupported()) {
+			return this.glBindSampler(unit, this.getSampler(minFilter, magFilter, wrapS, wrapT));
+		}
+		this.glActiveTexture(unit);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_MIN_FILTER, minFilter);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_MAG_FILTER, magFilter);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_WRAP_S, wrapS);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_WRAP_T, wrapT);
+		return this.issue();
+	}
+	
+	/** @param unit The texture unit, starting at <tt>0</tt>
+	 * @param target The target that the texture is bound to
+	 * @param minFilter The minification filter
+	 * @param magFilter The magnification filter
+	 * @return Whether or not the driver was called
+	 * @see #glSetFilter(int, int, int, int, int, int) */
+	public final boolean glSetFilter(int unit, int target, int minFilter, int magFilter) {
+		return this.glSetFilter(unit, target, minFilter, magFilter, GL11.GL_REPEAT, GL11.GL_REPEAT);
+	}
+	
+	//=========================================================================================================================
+	
+	/** @param program The program to use, or <tt>0</tt> to use none
+	 * @return Whether or not the driver was called */
+	public final boolean glUseProgram(int program) {
+		if(this.program == program) {
+			return this.skip();
+		}
+		GL20.glUseProgram(program);
+		GLStats.count(GLStats.Counter.PROGRAM_SWITCHES);
+		this.program = program;
+		return this.issue();
+	}
+	
+	/** @return The program that is in use */
+	public final int getProgram() {
+		if(this.program == UNKNOWN) {
+			this.program = this.caps().glUseProgram == 0L ? 0 : GL11.glGetInteger(GL20.GL_CURRENT_PROGRAM);
+		}
+		return this.program;
+	}
+	
+	/** @param vertexArray The vertex array to bind, or <tt>0</tt> to unbind
+	 * @return Whether or not the driver was called */
+	public final boolean glBindVertexArray(int vertexArray) {
+		if(this.vertexArray == vertexArray) {
+			return this.skip();
+		}
+		GL30.glBindVertexArray(vertexArray);
+		this.vertexArray = vertexArray;
+		// The element array binding belongs to the vertex array
+		this.buffers[ELEMENT_ARRAY_INDEX] = UNKNOWN;
+		return this.issue();
+	}
+	
+	/** @return The vertex array that is bound */
+	public final int getVertexArray() {
+		if(this.vertexArray == UNKNOWN) {
+			this.vertexArray = this.caps().glBindVertexArray == 0L ? 0 : GL11.glGetInteger(GL30.GL_VERTEX_ARRAY_BINDING);
+		}
+		return this.vertexArray;
+	}
+	
+	/** @param target The target to bind to
+	 * @param buffer The buffer to bind, or <tt>0</tt> to unbind
+	 * @return Whether or not the driver was called */
+	public final boolean glBindBuffer(int target, int buffer) {
+		final int index = indexOf(BUFFER_TARGETS, target);
+		if(index >= 0 && this.buffers[index] == buffer) {
+			return this.skip();
+		}
+		GL15.glBindBuffer(target, buffer);
+		if(index >= 0) {
+			this.buffers[index] = buffer;
+		}
+		return this.issue();
+	}
+	
+	/** @param target The buffer target
+	 * @return The buffer that is bound to the given target, or
+	 *         {@link #UNKNOWN} if it is not known and cannot be queried */
+	public final int getBoundBuffer(int target) {
+		final int index = indexOf(BUFFER_TARGETS, target);
+		if(index < 0) {
+			return UNKNOWN;
+		}
+		if(this.buffers[index] == UNKNOWN && BUFFER_BINDINGS[index] != 0) {
+			this.buffers[index] = GL11.glGetInteger(BUFFER_BINDINGS[index]);
+		}
+		return this.buffers[index];
+	}
+	
+	/** Forgets the given buffer wherever it is bound. This must be called
+	 * when a buffer is deleted, since deleting a buffer unbinds it.
+	 * 
+	 * @param buffer The buffer that was deleted */
+	public final void onBufferDeleted(int buffer) {
+		if(buffer == 0) {
+			return;
+		}
+		for(int i = 0; i < this.buffers.length; i++) {
+			if(this.buffers[i] == buffer) {
+				this.buffers[i] = 0;
+			}
+		}
+	}
+	
+	//=========================================================================================================================
+	
+	/** @param target {@link GL30#GL_FRAMEBUFFER}, {@link GL30#GL_DRAW_FRAMEBUFFER}
+	 *            or {@link GL30#GL_READ_FRAMEBUFFER}
+	 * @param framebuffer The framebuffer to bind, or <tt>0</tt> to bind the
+	 *            default framebuffer
+	 * @return Whether or not the driver was called */
+	public final boolean glBindFramebuffer(int target, int framebuffer) {
+		final boolean draw = target != GL30.GL_READ_FRAMEBUFFER, read = target != GL30.GL_DRAW_FRAMEBUFFER;
+		if((!draw || this.drawFramebuffer == framebuffer) && (!read || this.readFramebuffer == framebuffer)) {
+			return this.skip();
+		}
+		GL30.glBindFramebuffer(target, framebuffer);
+		if(draw) {
+			this.drawFramebuffer = framebuffer;
+		}
+		if(read) {
+			this.readFramebuffer = framebuffer;
+		}
+		return this.issue();
+	}
+	
+	/** @return The framebuffer that is bound for drawing */
+	public final int getDrawFramebuffer() {
+		if(this.drawFramebuffer == UNKNOWN) {
+			this.drawFramebuffer = this.caps().glBindFramebuffer == 0L ? 0 : GL11.glGetInteger(GL30.GL_DRAW_FRAMEBUFFER_BINDING);
+		}
+		return this.drawFramebuffer;
+	}
+	
+	/** @return The framebuffer that is bound for reading */
+	public final int getReadFramebuffer() {
+		if(this.readFramebuffer == UNKNOWN) {
+			this.readFramebuffer = this.caps().glBindFramebuffer == 0L ? 0 : GL11.glGetInteger(GL30.GL_READ_FRAMEBUFFER_BINDING);
+		}
+		return this.readFramebuffer;
+	}
+	
+	/** Forgets the given framebuffer wherever it is bound. This must be called
+	 * when a framebuffer is deleted, since deleting a framebuffer binds the
+	 * default framebuffer in its place.
+	 * 
+	 * @param framebuffer The framebuffer that was deleted */
+	public final void onFramebufferDeleted(int framebuffer) {
+		if(framebuffer == 0) {
+			return;
+		}
+		if(this.drawFramebuffer == framebuffer) {
+			this.drawFramebuffer = 0;
+		}
+		if(this.readFramebuffer == framebuffer) {
+			this.readFramebuffer = 0;
+		}
+	}
+	
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.lwjgl.opengl.GL11;
+
+/** Counts the draw calls, primitives, binds, uniform uploads and buffer
+ * uploads that each frame issues.<br>
+ * <br>
+ * The framework's own GL entry points report to this class: draws made with
+ * {@link #glDrawArrays(int, int, int)} and immediate-mode geometry drawn
+ * with {@link #glBegin(int)}/{@link #glVertex2f(float, float)}/
+ * {@link #glEnd()} (by {@link GLUtil}, {@link CubeTexture}, the
+ * {@link PrimitiveBatch} and {@link TextBatch} used by {@link FontRender},
+ * etc.), texture binds and program switches made through {@link GLState},
+ * uniform uploads made through {@link Shader.Uniform}s and uploads made
+ * through {@link StagingBuffer}s.<br>
+ * <br>
+ * Counting is off by default, and is turned on with
+ * {@link #setEnabled(boolean)} or by launching with
+ * <tt>-Dbr45entei.gl.stats=true</tt>. When it is off, every counter is a
+ * single branch that is never taken.<br>
+ * <br>
+ * Each thread (and therefore each context) counts its own frame. At the end
+ * of each frame the {@link GLThread} calls {@link #endFrame(String)}, which
+ * moves the frame's counts into the {@link #getLastFrame(Counter) last
+ * frame's} and keeps a copy under the name of the renderer that drew it, for
+ * {@link #printReport(PrintStream)}.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class GLStats {
+	
+	/** The things that are counted each frame.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static enum Counter {
+		/** Draw calls, including <tt>glBegin</tt>/<tt>glEnd</tt> blocks */
+		DRAW_CALLS("draw calls"),
+		/** Points, lines, triangles and quads drawn */
+		PRIMITIVES("primitives"),
+		/** Vertices submitted by draw calls */
+		VERTICES("vertices"),
+		/** Vertices submitted one at a time in immediate mode */
+		IMMEDIATE_VERTICES("immediate-mode vertices"),
+		/** Texture binds that were passed on to the driver */
+		TEXTURE_BINDS("texture binds"),
+		/** Program switches that were passed on to the driver */
+		PROGRAM_SWITCHES("program switches"),
+		/** Uniform values uploaded */
+		UNIFORM_UPLOADS("uniform uploads"),
+		/** Buffer and texture uploads */
+		BUFFER_UPLOADS("buffer uploads"),
+		/** Bytes uploaded by buffer and texture uploads */
+		UPLOAD_BYTES("bytes uploaded"),
+		/** State changes that {@link GLState} passed on to the driver */
+		STATE_CHANGES("state changes"),
+		/** Redundant state changes that {@link GLState} skipped */
+		REDUNDANT_STATE_CHANGES("redundant state changes");
+		
+		/** A short description of this counter, for reports */
+		public final String description;
+		
+		private Counter(String description) {
+			this.description = description;
+		}
+		
+	}
+	
+	private static final Counter[] COUNTERS = Counter.values();
+	private static final int DRAW_CALLS = Counter.DRAW_CALLS.ordinal(), PRIMITIVES = Counter.PRIMITIVES.ordinal(), VERTICES = Counter.VERTICES.ordinal(), IMMEDIATE_VERTICES = Counter.IMMEDIATE_VERTICES.ordinal(), STATE_CHANGES = Counter.STATE_CHANGES.ordinal(), REDUNDANT_STATE_CHANGES = Counter.REDUNDANT_STATE_CHANGES.ordinal();
+	
+	/** The counts of the frame that one thread is drawing */
+	private static final class Frame {
+		
+		final long[] current = new long[COUNTERS.length];
+		int beginMode = -1, beginVertices = 0;
+		int generation = GLStats.generation;
+		
+		Frame() {
+		}
+		
+		final void reset() {
+			Arrays.fill(this.current, 0L);
+			this.beginMode = -1;
+			this.generation = GLStats.generation;
+		}
+		
+	}
+	
+	private static boolean enabled = Boolean.getBoolean("br45entei.gl.stats");
+	/** Incremented whenever counting is turned on or off, so that every thread
+	 * discards the counts it made before */
+	private static volatile int generation = 0;
+	private static final ThreadLocal<Frame> frames = ThreadLocal.withInitial(Frame::new);
+	private static final long[] last = new long[COUNTERS.length];
+	private static final Map<String, long[]> renderers = new LinkedHashMap<>();
+	
+	private GLStats() {
+	}
+	
+	/** @return Whether or not counting is turned on */
+	public static final boolean isEnabled() {
+		return enabled;
+	}
+	
+	/** @param enabled Whether or not counting should be turned on. This should
+	 *            be called between frames, from the {@link GLThread}. */
+	public static final void setEnabled(boolean enabled) {
+		GLStats.enabled = enabled;
+		synchronized(renderers) {
+			generation++;
+		}
+		frames.get().reset();
+	}
+	
+	/** Adds one to the given counter for the current frame.
+	 * 
+	 * @param counter The counter to increment */
+	public static final void count(Counter counter) {
+		if(enabled) {
+			frames.get().current[counter.ordinal()]++;
+		}
+	}
+	
+	/** Adds the given amount to the given counter for the current frame.
+	 * 
+	 * @param counter The counter to add to
+	 * @param amount The amount to add */
+	public static final void count(Counter counter, long amount) {
+		if(enabled) {
+			frames.get().current[counter.ordinal()] += amount;
+		}
+	}
+	
+	/** @param mode The primitive type (e.g. {@link GL11#GL_TRIANGLES})
+	 * @param vertices The number of vertices drawn
+	 * @return The number of primitives that the given number of vertices
+	 *         makes up */
+	public static final int getPrimitiveCount(int mode, int vertices) {
+		switch(mode) {
+		case GL11.GL_POINTS:
+		case GL11.GL_LINE_LOOP:
+			return vertices;
+		case GL11.GL_LINES:
+			return vertices / 2;
+		case GL11.GL_LINE_STRIP:
+			return Math.max(0, vertices - 1);
+		case GL11.GL_TRIANGLES:
+			return vertices / 3;
+		case GL11.GL_TRIANGLE_STRIP:
+		case GL11.GL_TRIANGLE_FAN:
+			return Math.max(0, vertices - 2);
+		case GL11.GL_QUADS:
+			return vertices / 4;
+		case GL11.GL_QUAD_STRIP:
+			return Math.max(0, vertices - 2) / 2;
+		case GL11.GL_POLYGON:
+			return vertices >= 3 ? 1 : 0;
+		default:
+			return 0;
+		}
+	}
+	
+	private static final void countDraw(long[] current, int mode, int vertices) {
+		current[DRAW_CALLS]++;
+		current[VERTICES] += vertices;
+		current[PRIMITIVES] += getPrimitiveCount(mode, vertices);
+	}
+	
+	//=========================================================================================================================
+	
+	/** Calls {@link GL11#glDrawArrays(int, int, int)}, counting the draw.
+	 * 
+	 * @param mode The primitive type
+	 * @param first The first vertex to draw
+	 * @param count The number of vertices to draw */
+	public static final void glDrawArrays(int mode, int first, int count) {
+		GL11.glDrawArrays(mode, first, count);
+		if(enabled) {
+			countDraw(frames.get().current, mode, count);
+		}
+	}
+	
+	/** Calls {@link GL11#glBegin(int)}, counting the vertices that follow it
+	 * as one draw.
+	 * 
+	 * @param mode The primitive type */
+	public static final void glBegin(int mode) {
+		GL11.glBegin(mode);
+		if(enabled) {
+			Frame frame = frames.get();
+			frame.beginMode = mode;
+			frame.beginVertices = 0;
+		}
+	}
+	
+	/** Calls {@link GL11#glEnd()}. */
+	public static final void glEnd() {
+		GL11.glEnd();
+		if(enabled) {
+			Frame frame = frames.get();
+			if(frame.beginMode != -1) {
+				countDraw(frame.current, frame.beginMode, frame.beginVertices);
+				frame.current[IMMEDIATE_VERTICES] += frame.beginVertices;
+				frame.beginMode = -1;
+			}
+		}
+	}
+	
+	/** Calls {@link GL11#glVertex2f(float, float)}, counting the vertex.
+	 * 
+	 * @param x The x coordinate
+	 * @param y The y coordinate */
+	public static final void glVertex2f(float x, float y) {
+		GL11.glVertex2f(x, y);
+		if(enabled) {
+			frames.get().beginVertices++;
+		}
+	}
+	
+	/** Calls {@link GL11#glVertex2d(double, double)}, counting the vertex.
+	 * 
+	 * @param x The x coordinate
+	 * @param y The y coordinate */
+	public static final void glVertex2d(double x, double y) {
+		GL11.glVertex2d(x, y);
+		if(enabled) {
+			frames.get().beginVertices++;
+		}
+	}
+	
+	/** Calls {@link GL11#glVertex3f(float, float, float)}, counting the
+	 * vertex.
+	 * 
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @param z The z coordinate */
+	public static final void glVertex3f(float x, float y, float z) {
+		GL11.glVertex3f(x, y, z);
+		if(enabled) {
+			frames.get().beginVertices++;
+		}
+	}
+	
+	//=========================================================================================================================
+	
+	/** Ends the calling thread's current frame: the {@link GLState}'s state
+	 * change counters are added in, the counts become
+	 * {@link #getLastFrame(Counter) the last frame's}, a copy is kept under the
+	 * given renderer name, and the calling thread's counters are reset. This
+	 * is called by the {@link GLThread} after every frame.
+	 * 
+	 * @param renderer The name of the renderer that drew the frame */
+	public static final void endFrame(String renderer) {
+		if(!enabled) {
+			return;
+		}
+		final Frame frame = frames.get();
+		final long[] current = frame.current;
+		GLState state = GLState.get();
+		current[STATE_CHANGES] += state.getIssuedCount();
+		current[REDUNDANT_STATE_CHANGES] += state.getSkippedCount();
+		state.resetCounters();
+		if(frame.generation != generation) {
+			// counting was turned off and on again during this frame
+			frame.reset();
+			return;
+		}
+		synchronized(renderers) {
+			System.arraycopy(current, 0, last, 0, current.length);
+			long[] copy = renderers.get(renderer);
+			if(copy == null) {
+				renderers.put(renderer, copy = new long[current.length]);
+			}
+			System.arraycopy(current, 0, copy, 0, current.length);
+		}
+		frame.reset();
+	}
+	
+	/** @param counter The counter to return
+	 * @return The given counter's value for the last frame that any thread
+	 *         completed.<br>
+	 *         This method is thread-safe. */
+	public static final long getLastFrame(Counter counter) {
+		synchronized(renderers) {
+			return last[counter.ordinal()];
+		}
+	}
+	
+	/** @param counter The counter to return
+	 * @return The given counter's value so far in the calling thread's
+	 *         current frame */
+	public static final long getCurrentFrame(Counter counter) {
+		return frames.get().current[counter.ordinal()];
+	}
+	
+	/** Prints the counters of the last frame that each renderer drew.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @param pr The stream to print to */
+	public static final void printReport(PrintStream pr) {
+		synchronized(renderers) {
+			if(renderers.isEmpty()) {
+				pr.println(enabled ? "No frames have been counted yet." : "Frame statistics are disabled.");
+				return;
+			}
+			for(Map.Entry<String, long[]> entry : renderers.entrySet()) {
+				pr.println(String.format("Last frame of \"%s\":", entry.getKey()));
+				long[] counts = entry.getValue();
+				for(Counter counter : COUNTERS) {
+					pr.println(String.format("\t%s: %s", counter.description, Long.toString(counts[counter.ordinal()])));
+				}
+			}
+		}
+		pr.flush();
+	}
+	
+	/** Prints the counters of the last frame that each renderer drew to
+	 * {@link System#out}.
+	 * 
+	 * @see #printReport(PrintStream) */
+	public static final void printReport() {
+		printReport(System.out);
+	}
+	
+}
@@ -24,6 +24,7 @@
 package com.gmail.br45entei.game.graphics;
 
 import com.gmail.br45entei.game.graphics.FontRender.GLFont;
+import com.gmail.br45entei.game.graphics.GLStats.Counter;
 import com.gmail.br45entei.game.ui.Window;
 import com.gmail.br45entei.thread.FrequencyTimer;
 import com.gmail.br45entei.thread.FrequencyTimer.TimerCallback;
@@ -77,6 +78,7 @@ public final class GLThread extends Thread {
 	protected final ConcurrentLinkedDeque<String> fpsLog = new ConcurrentLinkedDeque<>();
 	
 	private volatile ΔTimer δTimer;
+	private volatile GPUTimer gpuTimer;
 	
 	protected volatile Renderer renderer = null;//Renderer.colorDemo;
 	protected volatile int lastWidth, lastHeight;
@@ -112,7 +114,11 @@ public final class GLThread extends Thread {
 			@Override
 			public void onSecond() {
 				if(GLThread.this.logFPS) {
-					GLThread.this.fpsLog.addLast(String.format("FPS: %s; Average FPS: %s; Last MPF: %s; Average MPF: %s; Last MPFPS: %s;", Double.toString(GLThread.this.timer.getLastFrameCount()), Double.toString(GLThread.this.timer.getTargetPeriodInMilliseconds() / GLThread.this.timer.getLastAverageMillisecondsPerFrame()), Double.toString(GLThread.this.timer.getLastMillisecondsPerFrame()), Double.toString(GLThread.this.timer.getLastAverageMillisecondsPerFrame()), Long.toString(GLThread.this.timer.getLastMillisecondsPerFramePerPeriod())));
+					String log = String.format("FPS: %s; Average FPS: %s; Last MPF: %s; Average MPF: %s; Last MPFPS: %s;", Double.toString(GLThread.this.timer.getLastFrameCount()), Double.toString(GLThread.this.timer.getTargetPeriodInMilliseconds() / GLThread.this.timer.getLastAverageMillisecondsPerFrame()), Double.toString(GLThread.this.timer.getLastMillisecondsPerFrame()), Double.toString(GLThread.this.timer.getLastAverageMillisecondsPerFrame()), Long.toString(GLThread.this.timer.getLastMillisecondsPerFramePerPeriod()));
+					if(GLStats.isEnabled()) {
+						log = log.concat(String.format(" Draw calls: %s; Primitives: %s; Texture binds: %s; Program switches: %s; State changes: %s;", Long.toString(GLStats.getLastFrame(Counter.DRAW_CALLS)), Long.toString(GLStats.getLastFrame(Counter.PRIMITIVES)), Long.toString(GLStats.getLastFrame(Counter.TEXTURE_BINDS)), Long.toString(GLStats.getLastFrame(Counter.PROGRAM_SWITCHES)), Long.toString(GLStats.getLastFrame(Counter.STATE_CHANGES))));
+					}
+					GLThread.this.fpsLog.addLast(log);
 				}
 			}
 		});
@@ -804,6 +810,32 @@ public final class GLThread extends Thread {
 		return this.δTimer.getLastΔTime();
 	}
 	
+	/** Returns the time that the GPU spent rendering a recent frame, in
+	 * milliseconds.<br>
+	 * GPU timings are read back a few frames late so that reading them never
+	 * stalls rendering; see {@link GPUTimer}.<br>
+	 * This method is thread-safe.
+	 * 
+	 * @return The GPU time of a recent frame, or <tt>-1.0</tt> if none is
+	 *         available (e.g. if the context doesn't support timer queries)
+	 * @see #getGPUTimer() */
+	public final double getLastGPUFrameTime() {
+		GPUTimer gpuTimer = this.gpuTimer;
+		return gpuTimer == null ? -1.0 : gpuTimer.getFrameMillis();
+	}
+	
+	/** Returns the timer that measures how long the GPU spends on each frame
+	 * and on each named section within it.<br>
+	 * Its results may be read from any thread, but sections may only be
+	 * {@link GPUTimer#begin(String) begun} and {@link GPUTimer#end() ended}
+	 * on this GLThread.
+	 * 
+	 * @return This GLThread's GPU timer, or <tt>null</tt> if this thread has
+	 *         not started yet */
+	public final GPUTimer getGPUTimer() {
+		return this.gpuTimer;
+	}
+	
 	//===========================================================================================================================
 	
 	/** Returns whether or not vertical sync is enabled.<br>
@@ -1130,9 +1162,15 @@ public final class GLThread extends Thread {
 				}
 			}
 			
+			final RenderTargetPool targets = RenderTargetPool.get();
+			targets.setViewportSize(width, height);
+			final GPUTimer gpuTimer = this.gpuTimer;
 			double δTime = this.δTimer.getΔTime(true);
+			GLDebug.glPushGroup(GPUTimer.FRAME);
 			try {
+				gpuTimer.begin(GPUTimer.FRAME);
 				renderer.render(δTime, width, height);
+				gpuTimer.end();
 			} catch(Throwable ex) {
 				boolean handled = false;
 				try {
@@ -1147,6 +1185,11 @@ public final class GLThread extends Thread {
 					this.renderer = null;
 					return;
 				}
+			} finally {
+				GLDebug.glPopGroup();
+				targets.endFrame();
+				gpuTimer.endFrame();
+				GLStats.endFrame(renderer.getName());
 			}
 			
 		}
@@ -1299,6 +1342,7 @@ public final class GLThread extends Thread {
 	@Override
 	public void run() {
 		this.δTimer = ΔTimer.getΔTimer();
+		this.gpuTimer = GPUTimer.get();
 		this.state[0] = true;
 		try {
 			this.glCanvas.setCurrent();
@@ -1307,6 +1351,8 @@ public final class GLThread extends Thread {
 			if(this.glCaps == null || !this.glCanvas.isCurrent()) {
 				throw new IllegalStateException("Failed to set the canvas context as current and create the OpenGL Capabilities!");
 			}
+			GLState.get().invalidate();// Nothing is known about the new context's state yet
+			GLDebug.glInstall();
 			
 			try {
 				this.isVsyncAvailable = this.glCanvas.glSwapInterval(this.vsync ? 1 : 0);
@@ -1392,6 +1438,14 @@ public final class GLThread extends Thread {
 				}
 			}
 			
+			StagingBuffer.disposeAll();
+			RenderTargetPool.get().dispose();
+			GPUTimer.get().dispose();
+			CorePipeline.get().dispose();
+			FontRender.disposeImmediateBatch();
+			DeletionQueue.get().flushAll();
+			GLState.get().dispose();
+			GLDebug.glUninstall();
 			GL.destroy();
 			this.glCanvas.deleteContext();
 		}
@@ -1403,6 +1457,7 @@ public final class GLThread extends Thread {
 			this.runTasks(false);
 			this._swapBuffers();
 			this.runTasks(true);
+			DeletionQueue.get().flush();
 		}
 		return this.shouldBeRunning();
 	}
@@ -1535,8 +1590,8 @@ public final class GLThread extends Thread {
 				GL11.glLoadMatrixd(GLUtil.getOrthographicMatrixd(0, 0, this.glThread.lastWidth, this.glThread.lastHeight, 0.01, 1000.0));
 				GL11.glMatrixMode(GL11.GL_MODELVIEW);
 				GL11.glLoadIdentity();
-				GL11.glEnable(GL11.GL_TEXTURE_2D);
-				GL11.glDisable(GL11.GL_DEPTH_TEST);
+				GLState.get().glEnable(GL11.GL_TEXTURE_2D);
+				GLState.get().glDisable(GL11.GL_DEPTH_TEST);
 				this.textBounds = FontRender.sizeOf(this.font, this.text, 0, 0).getBounds();
 				this.x = (this.glThread.lastWidth - this.textBounds[2]) / 2.0;
 				this.y = (this.glThread.lastHeight - this.textBounds[3]) / 2.0;
@@ -1792,7 +1847,7 @@ public final class GLThread extends Thread {
 					
 					final Runnable drawTask = () -> {
 						if(this.glThread.lastWidth != width || this.glThread.lastHeight != height) {
-							GL11.glViewport(0, 0, width, height);
+							GLState.get().glViewport(0, 0, width, height);
 						}
 						GL11.glClearColor(0, 0, 0, 1);
 						GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
@@ -1804,10 +1859,10 @@ public final class GLThread extends Thread {
 						}
 						
 						if(background != null && !this.glThread.glCaps.forwardCompatible) {
-							GL11.glEnable(background.getTarget());
+							GLState.get().glEnable(background.getTarget());
 							GLUtil.glRenderQuad(background, new Vector2f(width, height), this.backgroundColorHue, this.flipBackgroundHorizontally, this.flipBackgroundVertically);
-							GL11.glBindTexture(background.getTarget(), 0);
-							GL11.glDisable(background.getTarget());
+							GLState.get().glBindTexture(background.getTarget(), 0);
+							GLState.get().glDisable(background.getTarget());
 						}
 						if(this.font != null && !this.glThread.glCaps.forwardCompatible) {
 							FontRender.drawString(this.font, this.text, this.x, height - this.y, 1, 1, 1, 1);
@@ -39,7 +39,6 @@ import java.util.regex.Pattern;
 import org.eclipse.swt.graphics.Color;
 import org.lwjgl.opengl.ARBInternalformatQuery;
 import org.lwjgl.opengl.ARBInternalformatQuery2;
-import org.lwjgl.opengl.EXTFramebufferObject;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
@@ -2916,8 +2915,11 @@ public class GLUtil {
 		if(colorStackIndex + 1 >= colorStack.length) {
 			throw new RuntimeException("Cannot push any more color onto the stack!");
 		}
-		glColord();
-		colorStack[colorStackIndex++] = new double[] {glColor[0], glColor[1], glColor[2], glColor[3]};
+		double[] color = colorStack[colorStackIndex++];
+		color[0] = glColor[0];
+		color[1] = glColor[1];
+		color[2] = glColor[2];
+		color[3] = glColor[3];
 	}
 	
 	public static final void glPopColor() {
@@ -3007,21 +3009,20 @@ public class GLUtil {
 	private static volatile int cullFace = GL11.GL_BACK;
 	
 	private static final void glUpdateCullMode() {
-		if(cullEnabled == 1) {
-			GL11.glEnable(GL11.GL_CULL_FACE);
-		} else {
-			GL11.glDisable(GL11.GL_CULL_FACE);
-		}
-		GL11.glFrontFace(frontFace);
-		GL11.glCullFace(cullFace);
+		final GLState state = GLState.get();
+		state.glSetEnabled(GL11.GL_CULL_FACE, cullEnabled == 1);
+		state.glFrontFace(frontFace);
+		state.glCullFace(cullFace);
 	}
 	
 	public static final void glPushCullMode() {
 		if(cullStackIndex + 1 >= cullStack.length) {
 			throw new RuntimeException("Cannot push any more cull modes onto the stack!");
 		}
-		glUpdateCullMode();
-		cullStack[cullStackIndex++] = new int[] {cullEnabled, frontFace, cullFace};
+		int[] push = cullStack[cullStackIndex++];
+		push[0] = cullEnabled;
+		push[1] = frontFace;
+		push[2] = cullFace;
 	}
 	
 	public static final void glPopCullMode() {
@@ -3032,7 +3033,6 @@ public class GLUtil {
 		cullEnabled = pop[0];
 		frontFace = pop[1];
 		cullFace = pop[2];
-		cullStack[cullStackIndex + 1] = null;
 		glUpdateCullMode();
 	}
 	
@@ -3093,27 +3093,21 @@ public class GLUtil {
 	}
 	
 	private static final void glUpdateBlendMode() {
-		if(blendEnabled == 1) {
-			GL11.glEnable(GL11.GL_BLEND);
-			GL11.glBlendFunc(blendSrcFactor, blendDestFactor);
-			if(GLUtil.isGL14Available(GL.getCapabilities()/*, false*/)) {
-				GL14.glBlendEquation(blendEquation);
-			}
-		} else {
-			GL11.glBlendFunc(blendSrcFactor, blendDestFactor);
-			if(GLUtil.isGL14Available(GL.getCapabilities()/*, false*/)) {
-				GL14.glBlendEquation(blendEquation);
-			}
-			GL11.glDisable(GL11.GL_BLEND);
-		}
+		final GLState state = GLState.get();
+		state.glBlendFunc(blendSrcFactor, blendDestFactor);
+		state.glBlendEquation(blendEquation);
+		state.glSetEnabled(GL11.GL_BLEND, blendEnabled == 1);
 	}
 	
 	public static final void glPushBlendMode() {
 		if(blendStackIndex + 1 >= blendStack.length) {
 			throw new RuntimeException("Cannot push any more blend modes onto the stack!");
 		}
-		glUpdateBlendMode();
-		blendStack[blendStackIndex++] = new int[] {blendEnabled, blendSrcFactor, blendDestFactor, blendEquation};
+		int[] push = blendStack[blendStackIndex++];
+		push[0] = blendEnabled;
+		push[1] = blendSrcFactor;
+		push[2] = blendDestFactor;
+		push[3] = blendEquation;
 	}
 	
 	public static final void glPopBlendMode() {
@@ -3125,7 +3119,6 @@ public class GLUtil {
 		blendSrcFactor = pop[1];
 		blendDestFactor = pop[2];
 		blendEquation = pop[3];
-		blendStack[blendStackIndex + 1] = null;
 		glUpdateBlendMode();
 	}
 	
@@ -3155,19 +3148,18 @@ public class GLUtil {
 	private static final int[][] viewportStack = new int[20][4];
 	
 	public static final void glPushViewport() {
-		if(blendStackIndex + 1 >= blendStack.length) {
+		if(viewportStackIndex + 1 >= viewportStack.length) {
 			throw new RuntimeException("Cannot push any more viewports onto the stack!");
 		}
-		viewportStack[viewportStackIndex++] = GLUtil.glGetViewport();
+		GLState.get().getViewport(viewportStack[viewportStackIndex++]);
 	}
 	
 	public static final void glPopViewport() {
-		if(blendStackIndex - 1 < 0) {
+		if(viewportStackIndex - 1 < 0) {
 			throw new RuntimeException("There are no more viewports to pop from the stack!");
 		}
 		int[] vp = viewportStack[--viewportStackIndex];
-		viewportStack[viewportStackIndex + 1] = null;
-		GL11.glViewport(vp[0], vp[1], vp[2], vp[3]);
+		GLState.get().glViewport(vp[0], vp[1], vp[2], vp[3]);
 	}
 	
 	//====================================================================================================================================================
@@ -3240,9 +3232,7 @@ public class GLUtil {
 	
 	@Deprecated
 	public static final int[] glGetViewport() {
-		int[] viewport = new int[4];
-		GL11.glGetIntegerv(GL11.GL_VIEWPORT, viewport);
-		return viewport;
+		return GLState.get().getViewport();
 	}
 	
 	public static final float[] glGetProjectionMatrixf() {
@@ -3272,16 +3262,16 @@ public class GLUtil {
 	public static final strictfp void glDrawRect2d(double x, double y, double width, double height) {
 		//GL11.glTranslated(x, y, 0x0.0p0);
 		
-		GL11.glBegin(GL11.GL_TRIANGLE_STRIP);
+		GLStats.glBegin(GL11.GL_TRIANGLE_STRIP);
 		GL11.glTexCoord2d(1, 1);
-		GL11.glVertex2d(x + width, y + height);
+		GLStats.glVertex2d(x + width, y + height);
 		GL11.glTexCoord2d(0, 1);
-		GL11.glVertex2d(x, y + height);
+		GLStats.glVertex2d(x, y + height);
 		GL11.glTexCoord2d(1, 0);
-		GL11.glVertex2d(x + width, y);
+		GLStats.glVertex2d(x + width, y);
 		GL11.glTexCoord2d(0, 0);
-		GL11.glVertex2d(x, y);
-		GL11.glEnd();
+		GLStats.glVertex2d(x, y);
+		GLStats.glEnd();
 	}
 	
 	public static final strictfp void glDrawRect2d(double[] bounds) {
@@ -3289,9 +3279,10 @@ public class GLUtil {
 	}
 	
 	public static final strictfp void glInvertRect2d(double x, double y, double width, double height) {
-		boolean tex2DEnabled = GL11.glIsEnabled(GL11.GL_TEXTURE_2D);
+		final GLState state = GLState.get();
+		boolean tex2DEnabled = state.isEnabled(GL11.GL_TEXTURE_2D);
 		if(tex2DEnabled) {
-			GL11.glDisable(GL11.GL_TEXTURE_2D);
+			state.glDisable(GL11.GL_TEXTURE_2D);
 		}
 		GLUtil.glPushColor();
 		GLUtil.glPushBlendMode();
@@ -3301,7 +3292,7 @@ public class GLUtil {
 		GLUtil.glPopBlendMode();
 		GLUtil.glPopColor();
 		if(tex2DEnabled) {
-			GL11.glEnable(GL11.GL_TEXTURE_2D);
+			state.glEnable(GL11.GL_TEXTURE_2D);
 		}
 	}
 	
@@ -3345,14 +3336,14 @@ public class GLUtil {
 		
 		//==[Now to actually render the triangle :D]==========================================================================
 		
-		GL11.glBegin(GL11.GL_TRIANGLES);
+		GLStats.glBegin(GL11.GL_TRIANGLES);
 		GL11.glTexCoord2d(s3, t3);
-		GL11.glVertex2d(x3, y3);
+		GLStats.glVertex2d(x3, y3);
 		GL11.glTexCoord2d(s2, t2);
-		GL11.glVertex2d(x2, y2);
+		GLStats.glVertex2d(x2, y2);
 		GL11.glTexCoord2d(s1, t1);
-		GL11.glVertex2d(x1, y1);
-		GL11.glEnd();
+		GLStats.glVertex2d(x1, y1);
+		GLStats.glEnd();
 	}
 	
 	public static final strictfp void glDrawTriangle2dDistorted(double x1, double y1, double x2, double y2, double x3, double y3) {
@@ -3370,14 +3361,14 @@ public class GLUtil {
 	}
 	
 	public static final strictfp void glDrawTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3, double s1, double t1, double s2, double t2, double s3, double t3) {
-		GL11.glBegin(GL11.GL_TRIANGLES);
+		GLStats.glBegin(GL11.GL_TRIANGLES);
 		GL11.glTexCoord2d(s3, t3);
-		GL11.glVertex2d(x3, y3);
+		GLStats.glVertex2d(x3, y3);
 		GL11.glTexCoord2d(s2, t2);
-		GL11.glVertex2d(x2, y2);
+		GLStats.glVertex2d(x2, y2);
 		GL11.glTexCoord2d(s1, t1);
-		GL11.glVertex2d(x1, y1);
-		GL11.glEnd();
+		GLStats.glVertex2d(x1, y1);
+		GLStats.glEnd();
 	}
 	
 	public static final strictfp void glDrawEquilateralTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3) {
@@ -3445,9 +3436,7 @@ public class GLUtil {
 	
 	protected static volatile boolean fboDrawing = false;
 	
-	protected static volatile int framebufferID;
-	protected static volatile int colorTextureID;
-	protected static volatile int depthRenderBufferID;
+	protected static volatile RenderTarget fboTarget = null;
 	
 	public static final Texture fboTexture = TextureLoader.OPENGL;//new Texture(GL11.GL_TEXTURE_2D, 0, "OpenGL");
 	
@@ -3468,15 +3457,14 @@ public class GLUtil {
 	}
 	
 	public static final void beginDrawingFrameBuffer() {
-		EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, framebufferID);
+		RenderTarget target = fboTarget = RenderTargetPool.get().acquireScreen(GL11.GL_RGBA8, 0, GL14.GL_DEPTH_COMPONENT32);
+		target.glBind();
 		fboDrawing = true;
-		if(fboTexture.getID() == 0) {
-			TextureLoader.openGLTextureID = GL11.glGenTextures();
-		}
+		TextureLoader.openGLTextureID = target.getColorTexture();
 	}
 	
 	public static final void endDrawingFrameBuffer() {
-		EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, 0);
+		RenderTarget.glBindDefault(Window.getWindow().getWidth(), Window.getWindow().getHeight());
 		Texture.unbindAllTextures();
 		
 		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
@@ -3487,96 +3475,72 @@ public class GLUtil {
 		int width = Window.getWindow().getWidth();
 		int height = Window.getWindow().getHeight();
 		
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, fboTexture.getID());                   // bind our FBO texture
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+		final GLState state = GLState.get();
+		state.glEnable(GL11.GL_TEXTURE_2D);
+		state.glBindTexture(0, GL11.GL_TEXTURE_2D, fboTexture.getID());                   // bind our FBO texture
+		state.glSetFilter(0, GL11.GL_TEXTURE_2D, GL11.GL_NEAREST, GL11.GL_NEAREST);
 		GL11.glColor4f(1, 1, 1, alpha);
-		GL11.glBegin(GL11.GL_QUADS);//@formatter:off
+		GLStats.glBegin(GL11.GL_QUADS);//@formatter:off
 			GL11.glTexCoord2f(0, 1);
-			GL11.glVertex2f(0, 0);// top left
+			GLStats.glVertex2f(0, 0);// top left
 			GL11.glTexCoord2f(1, 1);
-			GL11.glVertex2f(width, 0);// top right
+			GLStats.glVertex2f(width, 0);// top right
 			GL11.glTexCoord2f(1, 0);
-			GL11.glVertex2f(width, height);// bottom right
+			GLStats.glVertex2f(width, height);// bottom right
 			GL11.glTexCoord2f(0, 0);
-			GL11.glVertex2f(0, height);// bottom left
-		GL11.glEnd();//@formatter:on
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+			GLStats.glVertex2f(0, height);// bottom left
+		GLStats.glEnd();//@formatter:on
+		state.glBindSampler(0, 0);
+		state.glBindTexture(0, GL11.GL_TEXTURE_2D, 0);
 	}
 	
+	/** Checks whether or not framebuffer objects are supported by the current
+	 * context. The framebuffer itself is acquired from the
+	 * {@link RenderTargetPool} every time drawing to it begins, so resizing the
+	 * window no longer rebuilds it here. */
 	public static final void updateFrameBuffer() {
-		int width = Window.getWindow().getWidth();
-		int height = Window.getWindow().getHeight();
-		
-		// Initialize FrameBufferObjects ====
-		
-		// check if GL_EXT_framebuffer_object can be use on this system
-		if(GL.getCapabilities().GL_EXT_framebuffer_object) {
-			fboSupported = true;
-			
-			framebufferID = EXTFramebufferObject.glGenFramebuffersEXT();                                         // create a new framebuffer
-			colorTextureID = GL11.glGenTextures();                                               // and a new texture used as a color buffer
-			depthRenderBufferID = EXTFramebufferObject.glGenRenderbuffersEXT();                                  // And finally a new depthbuffer
-			
-			EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, framebufferID);                        // switch to the new framebuffer
-			
-			// initialize color texture
-			GL11.glBindTexture(GL11.GL_TEXTURE_2D, colorTextureID);                                   // Bind the colorbuffer texture
-			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);               // make it linear filtered
-			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
-			GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0, glGetPreferredPixelFormat(GL11.GL_TEXTURE_2D)/*GL11.GL_RGBA*/, GL11.GL_UNSIGNED_BYTE/*GL11.GL_INT*/, (java.nio.ByteBuffer) null);  // Create the texture data
-			EXTFramebufferObject.glFramebufferTexture2DEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, EXTFramebufferObject.GL_COLOR_ATTACHMENT0_EXT, GL11.GL_TEXTURE_2D, colorTextureID, 0); // attach it to the framebuffer
-			
-			// initialize depth renderbuffer
-			EXTFramebufferObject.glBindRenderbufferEXT(EXTFramebufferObject.GL_RENDERBUFFER_EXT, depthRenderBufferID);                // bind the depth renderbuffer
-			EXTFramebufferObject.glRenderbufferStorageEXT(EXTFramebufferObject.GL_RENDERBUFFER_EXT, GL14.GL_DEPTH_COMPONENT32, width, height); // get the data space for it
-			EXTFramebufferObject.glFramebufferRenderbufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, EXTFramebufferObject.GL_DEPTH_ATTACHMENT_EXT, EXTFramebufferObject.GL_RENDERBUFFER_EXT, depthRenderBufferID); // bind it to the renderbuffer
-			
-			EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, 0);                                    // Switch back to normal framebuffer rendering
-		} else {
-			fboSupported = false;
-		}
+		fboSupported = RenderTarget.isSupported();
 	}
 	
 	//================================================================================================================================================================================================
 	
 	public static final strictfp void glLegacyRenderCrosshairsAt(double x, double y, double z, double width, double height, boolean invertBackground) {
-		final int boundTexture = GL11.glGetInteger(GL11.GL_TEXTURE_BINDING_2D);
-		final int texTarget = isGL45Available() ? GL45.glGetTextureParameteri(boundTexture, GL45.GL_TEXTURE_TARGET) : 0;
-		final boolean tex2DEnabled = GL11.glIsEnabled(GL11.GL_TEXTURE_2D);
-		final boolean texTargetEnabled = texTarget != 0 ? GL11.glIsEnabled(texTarget) : false;
-		final boolean blendEnabled = GL11.glIsEnabled(GL11.GL_BLEND);
-		final int srcFactor = GL11.glGetInteger(GL11.GL_BLEND_SRC);
-		final int dstFactor = GL11.glGetInteger(GL11.GL_BLEND_DST);
+		final GLState state = GLState.get();
+		final int boundTexture = state.getBoundTexture(GL11.GL_TEXTURE_2D);
+		final int texTarget = isGL45Available() && boundTexture != 0 ? GL45.glGetTextureParameteri(boundTexture, GL45.GL_TEXTURE_TARGET) : 0;
+		final boolean tex2DEnabled = state.isEnabled(GL11.GL_TEXTURE_2D);
+		final boolean texTargetEnabled = texTarget != 0 ? state.isEnabled(texTarget) : false;
+		final boolean blendEnabled = state.isEnabled(GL11.GL_BLEND);
+		final int srcFactor = state.getBlendSrc();
+		final int dstFactor = state.getBlendDst();
 		
 		GLUtil.glPushBlendMode();
 		try {
-			GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+			state.glBindTexture(GL11.GL_TEXTURE_2D, 0);
 			if(invertBackground) {
-				GL11.glEnable(GL11.GL_BLEND);
-				GL11.glBlendFunc(GL11.GL_ONE_MINUS_DST_COLOR, GL11.GL_ZERO);
+				state.glEnable(GL11.GL_BLEND);
+				state.glBlendFunc(GL11.GL_ONE_MINUS_DST_COLOR, GL11.GL_ZERO);
 			}
 			
 			GL11.glPushMatrix();
 			GL11.glTranslated(x - (width / 2.0), y - (height / 2.0), z);
 			GL11.glColor3f(1, 1, 1);
-			GL11.glBegin(GL11.GL_QUADS);//@formatter:off
-				GL11.glVertex2d(0, 0);// top left
-				GL11.glVertex2d(width, 0);// top right
-				GL11.glVertex2d(width, height);// bottom right
-				GL11.glVertex2d(0, height);// bottom left
-			GL11.glEnd();//@formatter:on
+			GLStats.glBegin(GL11.GL_QUADS);//@formatter:off
+				GLStats.glVertex2d(0, 0);// top left
+				GLStats.glVertex2d(width, 0);// top right
+				GLStats.glVertex2d(width, height);// bottom right
+				GLStats.glVertex2d(0, height);// bottom left
+			GLStats.glEnd();//@formatter:on
 			GL11.glPopMatrix();
 			
 			GL11.glPushMatrix();
 			GL11.glTranslated(x - (height / 2.0), y - (width / 2.0), z);
-			GL11.glBegin(GL11.GL_QUADS);//@formatter:off
-				GL11.glVertex2d(0, 0);// top left
-				GL11.glVertex2d(height, 0);// top right
-				GL11.glVertex2d(height, width);// bottom right
-				GL11.glVertex2d(0, width);// bottom left
-			GL11.glEnd();//@formatter:on
+			GLStats.glBegin(GL11.GL_QUADS);//@formatter:off
+				GLStats.glVertex2d(0, 0);// top left
+				GLStats.glVertex2d(height, 0);// top right
+				GLStats.glVertex2d(height, width);// bottom right
+				GLStats.glVertex2d(0, width);// bottom left
+			GLStats.glEnd();//@formatter:on
 			GL11.glPopMatrix();
 			
 			//if(invertBackground) {
@@ -3585,18 +3549,12 @@ public class GLUtil {
 		} finally {
 			GLUtil.glPopBlendMode();
 			
-			GL11.glEnable(GL11.GL_BLEND);
-			GL11.glBlendFunc(srcFactor, dstFactor);
-			if(!blendEnabled) {
-				GL11.glDisable(GL11.GL_BLEND);
-			}
-			GL11.glEnable(GL11.GL_TEXTURE_2D);
-			GL11.glBindTexture(texTarget == 0 ? GL11.GL_TEXTURE_2D : texTarget, boundTexture);
-			if(!tex2DEnabled) {
-				GL11.glDisable(GL11.GL_TEXTURE_2D);
-			}
+			state.glBlendFunc(srcFactor, dstFactor);
+			state.glSetEnabled(GL11.GL_BLEND, blendEnabled);
+			state.glBindTexture(texTarget == 0 ? GL11.GL_TEXTURE_2D : texTarget, boundTexture);
+			state.glSetEnabled(GL11.GL_TEXTURE_2D, tex2DEnabled);
 			if(texTargetEnabled) {
-				GL11.glEnable(texTarget);
+				state.glEnable(texTarget);
 			}
 		}
 	}
@@ -3619,19 +3577,19 @@ public class GLUtil {
 		GLUtil.glBlend(true, GL11.GL_ONE_MINUS_DST_COLOR, GL11.GL_ZERO, GL14.GL_FUNC_ADD);
 		
 		GL11.glColor3f(1f, 1f, 1f);
-		GL11.glBegin(GL11.GL_QUADS);//@formatter:off
+		GLStats.glBegin(GL11.GL_QUADS);//@formatter:off
 			GL11.glTexCoord2f(0, 0);
-			GL11.glVertex2f(x, y);// bottom left
+			GLStats.glVertex2f(x, y);// bottom left
 			
 			GL11.glTexCoord2f(1, 0);
-			GL11.glVertex2f(x + width, y);// bottom right
+			GLStats.glVertex2f(x + width, y);// bottom right
 			
 			GL11.glTexCoord2f(1, 1);
-			GL11.glVertex2f(x + width, y + height);// top right
+			GLStats.glVertex2f(x + width, y + height);// top right
 			
 			GL11.glTexCoord2f(0, 1);
-			GL11.glVertex2f(x, y + height);// top left
-		GL11.glEnd();//@formatter:on
+			GLStats.glVertex2f(x, y + height);// top left
+		GLStats.glEnd();//@formatter:on
 		
 		GLUtil.glPopBlendMode();
 	}
@@ -3684,45 +3642,45 @@ public class GLUtil {
 		} else {
 			GL11.glColor4f(colorHue.getX(), colorHue.getY(), colorHue.getZ(), colorHue.getW());
 		}
-		GL11.glBegin(GL11.GL_QUADS);
+		GLStats.glBegin(GL11.GL_QUADS);
 		if(flipHorizontally && flipVertically) {
 			GL11.glTexCoord2f(1.0f, 1.0f);
-			GL11.glVertex2f(0, 0);// top left
+			GLStats.glVertex2f(0, 0);// top left
 			GL11.glTexCoord2f(0.0f, 1.0f);
-			GL11.glVertex2f(size.getX(), 0);// top right
+			GLStats.glVertex2f(size.getX(), 0);// top right
 			GL11.glTexCoord2f(0.0f, 0.0f);
-			GL11.glVertex2f(size.getX(), size.getY());// bottom right
+			GLStats.glVertex2f(size.getX(), size.getY());// bottom right
 			GL11.glTexCoord2f(1.0f, 0.0f);
-			GL11.glVertex2f(0, size.getY());// bottom left
+			GLStats.glVertex2f(0, size.getY());// bottom left
 		} else if(flipHorizontally) {
 			GL11.glTexCoord2f(1.0f, 0.0f);
-			GL11.glVertex2f(0, 0);// top left
+			GLStats.glVertex2f(0, 0);// top left
 			GL11.glTexCoord2f(0.0f, 0.0f);
-			GL11.glVertex2f(size.getX(), 0);// top right
+			GLStats.glVertex2f(size.getX(), 0);// top right
 			GL11.glTexCoord2f(0.0f, 1.0f);
-			GL11.glVertex2f(size.getX(), size.getY());// bottom right
+			GLStats.glVertex2f(size.getX(), size.getY());// bottom right
 			GL11.glTexCoord2f(1.0f, 1.0f);
-			GL11.glVertex2f(0, size.getY());// bottom left
+			GLStats.glVertex2f(0, size.getY());// bottom left
 		} else if(flipVertically) {
 			GL11.glTexCoord2f(0.0f, 1.0f);
-			GL11.glVertex2f(0, 0);// top left
+			GLStats.glVertex2f(0, 0);// top left
 			GL11.glTexCoord2f(1.0f, 1.0f);
-			GL11.glVertex2f(size.getX(), 0);// top right
+			GLStats.glVertex2f(size.getX(), 0);// top right
 			GL11.glTexCoord2f(1.0f, 0.0f);
-			GL11.glVertex2f(size.getX(), size.getY());// bottom right
+			GLStats.glVertex2f(size.getX(), size.getY());// bottom right
 			GL11.glTexCoord2f(0.0f, 0.0f);
-			GL11.glVertex2f(0, size.getY());// bottom left
+			GLStats.glVertex2f(0, size.getY());// bottom left
 		} else {
 			GL11.glTexCoord2f(0.0f, 0.0f);
-			GL11.glVertex2f(0, 0);// bottom left
+			GLStats.glVertex2f(0, 0);// bottom left
 			GL11.glTexCoord2f(1.0f, 0.0f);
-			GL11.glVertex2f(size.getX(), 0);// bottom right
+			GLStats.glVertex2f(size.getX(), 0);// bottom right
 			GL11.glTexCoord2f(1.0f, 1.0f);
-			GL11.glVertex2f(size.getX(), size.getY());// top right
+			GLStats.glVertex2f(size.getX(), size.getY());// top right
 			GL11.glTexCoord2f(0.0f, 1.0f);
-			GL11.glVertex2f(0, size.getY());// top left
+			GLStats.glVertex2f(0, size.getY());// top left
 		}
-		GL11.glEnd();
+		GLStats.glEnd();
 	}
 	
 	/** @param size The size of the texture to use(null = display size, default)
@@ -3741,12 +3699,12 @@ public class GLUtil {
 			color = new Vector4f(1, 1, 1, 1);
 		}
 		GL11.glColor4f(color.getX(), color.getY(), color.getZ(), color.getW());
-		GL11.glBegin(GL11.GL_QUADS);//@formatter:off
-			GL11.glVertex2f(0, 0);// top left
-			GL11.glVertex2f(size.getX(), 0);// top right
-			GL11.glVertex2f(size.getX(), size.getY());// bottom right
-			GL11.glVertex2f(0, size.getY());// bottom left
-		GL11.glEnd();//@formatter:on
+		GLStats.glBegin(GL11.GL_QUADS);//@formatter:off
+			GLStats.glVertex2f(0, 0);// top left
+			GLStats.glVertex2f(size.getX(), 0);// top right
+			GLStats.glVertex2f(size.getX(), size.getY());// bottom right
+			GLStats.glVertex2f(0, size.getY());// bottom left
+		GLStats.glEnd();//@formatter:on
 	}
 	
 	/** @param size The size of the texture to use(null = display size, default)
@@ -3761,12 +3719,12 @@ public class GLUtil {
 			color = new Vector4f(1, 1, 1, 1);
 		}
 		GL11.glColor4f(color.getX(), color.getY(), color.getZ(), color.getW());
-		GL11.glBegin(GL11.GL_QUADS);//@formatter:off
-			GL11.glVertex2d(0, 0);// top left
-			GL11.glVertex2d(size.getX(), 0);// top right
-			GL11.glVertex2d(size.getX(), size.getY());// bottom right
-			GL11.glVertex2d(0, size.getY());// bottom left
-		GL11.glEnd();//@formatter:on
+		GLStats.glBegin(GL11.GL_QUADS);//@formatter:off
+			GLStats.glVertex2d(0, 0);// top left
+			GLStats.glVertex2d(size.getX(), 0);// top right
+			GLStats.glVertex2d(size.getX(), size.getY());// bottom right
+			GLStats.glVertex2d(0, size.getY());// bottom left
+		GLStats.glEnd();//@formatter:on
 	}
 	
 	private static final float[] grayPauseOverlayColor = new float[] {0.25f, 0.25f, 0.25f, 0.75f};
@@ -3778,16 +3736,16 @@ public class GLUtil {
 		Texture.unbindAllTextures();
 		GLUtil.glPushColor();
 		GLUtil.glColorf(grayPauseOverlayColor);
-		GL11.glBegin(GL11.GL_QUADS);//@formatter:off
+		GLStats.glBegin(GL11.GL_QUADS);//@formatter:off
 			GL11.glTexCoord2f(0, 0);
-			GL11.glVertex2f(0, 0);// top left
+			GLStats.glVertex2f(0, 0);// top left
 			GL11.glTexCoord2f(1, 0);
-			GL11.glVertex2f(width, 0);// top right
+			GLStats.glVertex2f(width, 0);// top right
 			GL11.glTexCoord2f(1, 1);
-			GL11.glVertex2f(width, height);// bottom right
+			GLStats.glVertex2f(width, height);// bottom right
 			GL11.glTexCoord2f(0, 1);
-			GL11.glVertex2f(0, height);// bottom left
-		GL11.glEnd();//@formatter:on
+			GLStats.glVertex2f(0, height);// bottom left
+		GLStats.glEnd();//@formatter:on
 	}
 	
 	//================================================================================================================================================================================================
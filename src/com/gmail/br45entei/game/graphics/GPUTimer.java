@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.util.Arrays;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+/** Measures how long the GPU spends on named sections of a frame, using
+ * timestamp queries.<br>
+ * <br>
+ * Sections are marked with {@link #begin(String)} and {@link #end()} and may
+ * be nested. The {@link GLThread} times every call to
+ * {@link Renderer#render(double, int, int)} as {@link #FRAME}, and every pass
+ * of a {@link FrameGraph} is timed under the pass's name.<br>
+ * <br>
+ * The query objects of each frame are cycled through a ring of
+ * {@link #FRAME_LATENCY} frames, and a frame's results are only read once
+ * the ring comes back around to it, by which point the GPU has almost always
+ * finished with it. If it hasn't, that frame's results are dropped rather
+ * than waiting for them, so timing never stalls the pipeline; the results
+ * returned by the getters are therefore always a few frames old.<br>
+ * <br>
+ * Each thread has its own timer, since query objects belong to the context
+ * that created them.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class GPUTimer {
+	
+	/** The name of the section that the {@link GLThread} wraps around each
+	 * call to {@link Renderer#render(double, int, int)} */
+	public static final String FRAME = "frame";
+	/** The number of frames that the query objects are cycled through */
+	public static final int FRAME_LATENCY = 4;
+	
+	private static final ThreadLocal<GPUTimer> timers = ThreadLocal.withInitial(GPUTimer::new);
+	
+	/** @return The GPU timer of the context that is current on the calling
+	 *         thread */
+	public static final GPUTimer get() {
+		return timers.get();
+	}
+	
+	/** @return Whether or not the current OpenGL context supports timestamp
+	 *         queries */
+	public static final boolean isSupported() {
+		try {
+			return GL.getCapabilities().glQueryCounter != 0L;
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+	}
+	
+	//=========================================================================================================================
+	
+	/** The queries issued during a single frame. Section <tt>i</tt> uses the
+	 * queries at <tt>2i</tt> (start) and <tt>2i + 1</tt> (end). */
+	private static final class Frame {
+		
+		int[] queries = new int[0];
+		String[] names = new String[8];
+		int[] depths = new int[8];
+		int count = 0, lastQuery = 0;
+		long frameID = -1L;
+		
+		Frame() {
+		}
+		
+		final int add(String name, int depth) {
+			if(this.count == this.names.length) {
+				this.names = Arrays.copyOf(this.names, this.count * 2);
+				this.depths = Arrays.copyOf(this.depths, this.count * 2);
+			}
+			if(this.count * 2 + 2 > this.queries.length) {
+				int[] queries = Arrays.copyOf(this.queries, this.names.length * 2);
+				for(int i = this.queries.length; i < queries.length; i++) {
+					queries[i] = GL15.glGenQueries();
+				}
+				this.queries = queries;
+			}
+			int index = this.count++;
+			this.names[index] = name;
+			this.depths[index] = depth;
+			return index;
+		}
+		
+		final void glQueryCounter(int slot) {
+			GL33.glQueryCounter(this.lastQuery = this.queries[slot], GL33.GL_TIMESTAMP);
+		}
+		
+		final void dispose() {
+			for(int query : this.queries) {
+				GL15.glDeleteQueries(query);
+			}
+			this.queries = new int[0];
+			this.count = 0;
+			this.frameID = -1L;
+		}
+		
+	}
+	
+	private final Frame[] frames = new Frame[FRAME_LATENCY];
+	private volatile int frameIndex = 0;
+	private volatile long frameID = 0L;
+	private volatile boolean enabled = true;
+	private volatile Boolean supported = null;
+	private boolean active = false;
+	
+	private int[] open = new int[8];
+	private int depth = 0;
+	
+	private final Object resultLock = new Object();
+	private String[] resultNames = new String[8];
+	private double[] resultMillis = new double[8];
+	private int[] resultDepths = new int[8];
+	private int resultCount = 0;
+	private long resultFrameID = -1L;
+	private volatile long droppedFrames = 0L;
+	
+	private GPUTimer() {
+		for(int i = 0; i < this.frames.length; i++) {
+			this.frames[i] = new Frame();
+		}
+	}
+	
+	/** @return Whether or not sections are currently being timed */
+	public final boolean isEnabled() {
+		return this.enabled;
+	}
+	
+	/** @param enabled Whether or not sections should be timed. Disabling the
+	 *            timer takes effect at the start of the next frame.
+	 * @return This timer */
+	public final GPUTimer setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		return this;
+	}
+	
+	private final boolean isActive() {
+		if(this.supported == null) {
+			this.supported = Boolean.valueOf(isSupported());
+			this.active = this.enabled && this.supported.booleanValue();
+		}
+		return this.active;
+	}
+	
+	/** Marks the start of a section of the current frame. Every call to this
+	 * method must be matched by a call to {@link #end()} on the same frame.
+	 * 
+	 * @param name The name of the section
+	 * @return This timer */
+	public final GPUTimer begin(String name) {
+		if(!this.isActive()) {
+			return this;
+		}
+		Frame frame = this.frames[this.frameIndex];
+		int index = frame.add(name, this.depth);
+		if(this.depth == this.open.length) {
+			this.open = Arrays.copyOf(this.open, this.depth * 2);
+		}
+		this.open[this.depth++] = index;
+		frame.glQueryCounter(index * 2);
+		return this;
+	}
+	
+	/** Marks the end of the section that was most recently
+	 * {@link #begin(String) begun} and not yet ended.
+	 * 
+	 * @return This timer
+	 * @throws IllegalStateException Thrown if no section is open */
+	public final GPUTimer end() throws IllegalStateException {
+		if(!this.isActive()) {
+			return this;
+		}
+		if(this.depth == 0) {
+			throw new IllegalStateException("GPUTimer.end() called without a matching call to begin()!");
+		}
+		Frame frame = this.frames[this.frameIndex];
+		int index = this.open[--this.depth];
+		frame.glQueryCounter(index * 2 + 1);
+		return this;
+	}
+	
+	/** Ends the current frame, closing any sections that were left open, and
+	 * reads back the results of the frame that was issued
+	 * {@link #FRAME_LATENCY} - 1 frames ago if the GPU has finished with it.
+	 * This is called by the {@link GLThread} after every frame. */
+	public final void endFrame() {
+		if(this.supported == null || !this.supported.booleanValue()) {
+			return;
+		}
+		Frame current = this.frames[this.frameIndex];
+		while(this.depth > 0) {
+			current.glQueryCounter(this.open[--this.depth] * 2 + 1);
+		}
+		current.frameID = this.frameID++;
+		this.frameIndex = (this.frameIndex + 1) % this.frames.length;
+		
+		// The slot that the next frame will reuse holds the oldest frame
+		Frame oldest = this.frames[this.frameIndex];
+		if(oldest.count > 0) {
+			// Queries complete in the order that they were issued in
+			if(GL15.glGetQueryObjecti(oldest.lastQuery, GL15.GL_QUERY_RESULT_AVAILABLE) != GL15.GL_FALSE) {
+				this.readResults(oldest);
+			} else {
+				this.droppedFrames++;
+			}
+		}
+		oldest.count = 0;
+		this.active = this.enabled;
+	}
+	
+	private final void readResults(Frame frame) {
+		synchronized(this.resultLock) {
+			if(this.resultNames.length < frame.count) {
+				this.resultNames = new String[frame.names.length];
+				this.resultMillis = new double[frame.names.length];
+				this.resultDepths = new int[frame.names.length];
+			}
+			for(int i = 0; i < frame.count; i++) {
+				long start = GL33.glGetQueryObjectui64(frame.queries[i * 2], GL15.GL_QUERY_RESULT);
+				long end = GL33.glGetQueryObjectui64(frame.queries[i * 2 + 1], GL15.GL_QUERY_RESULT);
+				this.resultNames[i] = frame.names[i];
+				this.resultMillis[i] = (end - start) / 1000000.0;
+				this.resultDepths[i] = frame.depths[i];
+				frame.names[i] = null;
+			}
+			Arrays.fill(this.resultNames, frame.count, this.resultNames.length, null);
+			this.resultCount = frame.count;
+			this.resultFrameID = frame.frameID;
+		}
+	}
+	
+	//=========================================================================================================================
+	
+	/** @return The number of sections in the most recent frame whose results
+	 *         have been read back.<br>
+	 *         This method is thread-safe. */
+	public final int getResultCount() {
+		synchronized(this.resultLock) {
+			return this.resultCount;
+		}
+	}
+	
+	/** @param index The index of the section, in the order that the sections
+	 *            were begun in
+	 * @return The name of the section.<br>
+	 *         This method is thread-safe.
+	 * @throws IndexOutOfBoundsException Thrown if the index is not less than
+	 *             {@link #getResultCount()} */
+	public final String getResultName(int index) throws IndexOutOfBoundsException {
+		synchronized(this.resultLock) {
+			this.checkIndex(index);
+			return this.resultNames[index];
+		}
+	}
+	
+	/** @param index The index of the section, in the order that the sections
+	 *            were begun in
+	 * @return The time that the GPU spent on the section, in milliseconds.<br>
+	 *         This method is thread-safe.
+	 * @throws IndexOutOfBoundsException Thrown if the index is not less than
+	 *             {@link #getResultCount()} */
+	public final double getResultMillis(int index) throws IndexOutOfBoundsException {
+		synchronized(this.resultLock) {
+			this.checkIndex(index);
+			return this.resultMillis[index];
+		}
+	}
+	
+	/** @param index The index of the section, in the order that the sections
+	 *            were begun in
+	 * @return The number of sections that the section was nested in.<br>
+	 *         This method is thread-safe.
+	 * @throws IndexOutOfBoundsException Thrown if the index is not less than
+	 *             {@link #getResultCount()} */
+	public final int getResultDepth(int index) throws IndexOutOfBoundsException {
+		synchronized(this.resultLock) {
+			this.checkIndex(index);
+			return this.resultDepths[index];
+		}
+	}
+	
+	private final void checkIndex(int index) throws IndexOutOfBoundsException {
+		if(index < 0 || index >= this.resultCount) {
+			throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", Integer.toString(index), Integer.toString(this.resultCount)));
+		}
+	}
+	
+	/** Returns the total time that the GPU spent on every section with the
+	 * given name in the most recent frame whose results have been read back.
+	 * <br>
+	 * This method is thread-safe.
+	 * 
+	 * @param name The name of the section(s)
+	 * @return The time in milliseconds, or <tt>-1.0</tt> if no section with
+	 *         the given name was timed in that frame */
+	public final double getMillis(String name) {
+		synchronized(this.resultLock) {
+			double millis = -1.0;
+			for(int i = 0; i < this.resultCount; i++) {
+				if(this.resultNames[i].equals(name)) {
+					millis = (millis < 0 ? 0 : millis) + this.resultMillis[i];
+				}
+			}
+			return millis;
+		}
+	}
+	
+	/** @return The time that the GPU spent rendering the most recent frame
+	 *         whose results have been read back, in milliseconds, or
+	 *         <tt>-1.0</tt> if none have been read back yet.<br>
+	 *         This method is thread-safe.
+	 * @see #FRAME */
+	public final double getFrameMillis() {
+		return this.getMillis(FRAME);
+	}
+	
+	/** @return The number of the frame that the current results belong to,
+	 *         counting from <tt>0</tt>, or <tt>-1</tt> if none have been read
+	 *         back yet.<br>
+	 *         This method is thread-safe. */
+	public final long getResultFrameID() {
+		synchronized(this.resultLock) {
+			return this.resultFrameID;
+		}
+	}
+	
+	/** @return The number of frames whose results were dropped because the GPU
+	 *         hadn't finished with them by the time their queries were
+	 *         needed again */
+	public final long getDroppedFrames() {
+		return this.droppedFrames;
+	}
+	
+	/** Deletes every query object owned by this timer. This should be called
+	 * before the context that they were created on is destroyed. */
+	public final void dispose() {
+		for(Frame frame : this.frames) {
+			frame.dispose();
+		}
+		this.depth = 0;
+		this.frameIndex = 0;
+		this.supported = null;
+		synchronized(this.resultLock) {
+			Arrays.fill(this.resultNames, null);
+			this.resultCount = 0;
+			this.resultFrameID = -1L;
+		}
+	}
+	
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.GLStats.Counter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+/** A vertex buffer object and the vertex array object that describes it,
+ * holding geometry that can be drawn on a core profile context.<br>
+ * <br>
+ * Vertices use the same interleaved layout as {@link PrimitiveBatch}: a
+ * position (three floats), a texture coordinate (two floats) and an RGBA
+ * color (four unsigned bytes), {@link #VERTEX_SIZE} bytes in all, bound to
+ * the {@link CoreShader#POSITION_ATTRIBUTE position},
+ * {@link CoreShader#TEXCOORD_ATTRIBUTE texture coordinate} and
+ * {@link CoreShader#COLOR_ATTRIBUTE color} attribute locations.<br>
+ * <br>
+ * Meshes are usually drawn with {@link CorePipeline#glDraw(Mesh, Texture)},
+ * which uploads the pipeline's matrices first. Their OpenGL objects are
+ * created on the first upload and belong to the context that was current
+ * then, so a mesh can only be drawn on that context; {@link #dispose()}
+ * releases them through that context's {@link DeletionQueue}.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class Mesh {
+	
+	/** The size of each vertex, in bytes */
+	public static final int VERTEX_SIZE = PrimitiveBatch.VERTEX_SIZE;
+	
+	private volatile int vao = 0, vbo = 0;
+	private volatile int mode;
+	private volatile int vertexCount = 0, capacity = 0;
+	private final int usage;
+	/** The deletion queue of the context that this mesh's objects were
+	 * created on */
+	private volatile DeletionQueue deletionQueue = null;
+	
+	/** @param mode The primitive type to draw this mesh with (e.g.
+	 *            {@link GL11#GL_TRIANGLES})
+	 * @param dynamic Whether or not this mesh's vertices will be replaced
+	 *            often */
+	public Mesh(int mode, boolean dynamic) {
+		this.mode = mode;
+		this.usage = dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW;
+	}
+	
+	/** Creates a new static mesh that is drawn as
+	 * {@link GL11#GL_TRIANGLES triangles}. */
+	public Mesh() {
+		this(GL11.GL_TRIANGLES, false);
+	}
+	
+	/** @return The primitive type that this mesh is drawn with */
+	public int getMode() {
+		return this.mode;
+	}
+	
+	/** @param mode The primitive type to draw this mesh with
+	 * @return This mesh */
+	public Mesh setMode(int mode) {
+		this.mode = mode;
+		return this;
+	}
+	
+	/** @return The number of vertices that were last uploaded */
+	public int getVertexCount() {
+		return this.vertexCount;
+	}
+	
+	/** @return The name of this mesh's vertex array object, or <tt>0</tt> if
+	 *         nothing has been uploaded yet */
+	public int getVertexArray() {
+		return this.vao;
+	}
+	
+	/** @return The name of this mesh's vertex buffer object, or <tt>0</tt> if
+	 *         nothing has been uploaded yet */
+	public int getVertexBuffer() {
+		return this.vbo;
+	}
+	
+	//=========================================================================================================================
+	
+	private final void checkContext() throws IllegalStateException {
+		if(this.deletionQueue != DeletionQueue.get()) {
+			throw new IllegalStateException("This mesh belongs to a different OpenGL context than the one that is current on this thread!");
+		}
+	}
+	
+	private final void glCreate() {
+		final GLState state = GLState.get();
+		this.vbo = GL15.glGenBuffers();
+		this.vao = GL30.glGenVertexArrays();
+		this.deletionQueue = DeletionQueue.get();
+		state.glBindVertexArray(this.vao);
+		state.glBindBuffer(GL15.GL_ARRAY_BUFFER, this.vbo);
+		GL20.glEnableVertexAttribArray(CoreShader.POSITION_ATTRIBUTE);
+		GL20.glEnableVertexAttribArray(CoreShader.TEXCOORD_ATTRIBUTE);
+		GL20.glEnableVertexAttribArray(CoreShader.COLOR_ATTRIBUTE);
+		GL20.glVertexAttribPointer(CoreShader.POSITION_ATTRIBUTE, 3, GL11.GL_FLOAT, false, VERTEX_SIZE, 0L);
+		GL20.glVertexAttribPointer(CoreShader.TEXCOORD_ATTRIBUTE, 2, GL11.GL_FLOAT, false, VERTEX_SIZE, 12L);
+		GL20.glVertexAttribPointer(CoreShader.COLOR_ATTRIBUTE, 4, GL11.GL_UNSIGNED_BYTE, true, VERTEX_SIZE, 20L);
+		state.glBindVertexArray(0);
+	}
+	
+	/** Replaces this mesh's vertices with the given interleaved vertex
+	 * data.<br>
+	 * The data between the buffer's position and its limit is uploaded; its
+	 * length must be a multiple of {@link #VERTEX_SIZE}.
+	 * 
+	 * @param vertices The interleaved vertex data to upload
+	 * @return This mesh
+	 * @throws IllegalArgumentException Thrown if the buffer's remaining length
+	 *             is not a multiple of the vertex size */
+	public Mesh glUpload(ByteBuffer vertices) throws IllegalArgumentException {
+		final int size = vertices.remaining();
+		if(size % VERTEX_SIZE != 0) {
+			throw new IllegalArgumentException(String.format("Vertex data length %s is not a multiple of the vertex size (%s bytes)!", Integer.toString(size), Integer.toString(VERTEX_SIZE)));
+		}
+		if(this.vao == 0) {
+			this.glCreate();
+		} else {
+			this.checkContext();
+		}
+		GLState.get().glBindBuffer(GL15.GL_ARRAY_BUFFER, this.vbo);
+		if(size > this.capacity || this.usage == GL15.GL_STATIC_DRAW) {
+			GL15.glBufferData(GL15.GL_ARRAY_BUFFER, vertices, this.usage);
+			this.capacity = size;
+		} else {
+			GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0L, vertices);
+		}
+		GLStats.count(Counter.BUFFER_UPLOADS);
+		GLStats.count(Counter.UPLOAD_BYTES, size);
+		this.vertexCount = size / VERTEX_SIZE;
+		return this;
+	}
+	
+	/** Replaces this mesh's vertices with the given attributes.
+	 * 
+	 * @param positions The positions of the vertices, three floats per
+	 *            vertex
+	 * @param texCoords The texture coordinates of the vertices, two floats per
+	 *            vertex, or <tt><b>null</b></tt> to use <tt>(0, 0)</tt> for
+	 *            every vertex
+	 * @param colors The RGBA colors of the vertices, four floats per vertex,
+	 *            or <tt><b>null</b></tt> to use opaque white for every vertex
+	 * @return This mesh
+	 * @throws IllegalArgumentException Thrown if the attribute arrays don't
+	 *             describe the same number of vertices */
+	public Mesh glUpload(float[] positions, float[] texCoords, float[] colors) throws IllegalArgumentException {
+		final int count = positions.length / 3;
+		if(positions.length % 3 != 0 || (texCoords != null && texCoords.length != count * 2) || (colors != null && colors.length != count * 4)) {
+			throw new IllegalArgumentException(String.format("Mismatched vertex attribute arrays: %s positions, %s texture coordinates, %s colors!", Integer.toString(positions.length), texCoords == null ? "no" : Integer.toString(texCoords.length), colors == null ? "no" : Integer.toString(colors.length)));
+		}
+		ByteBuffer buf = ByteBuffer.allocateDirect(count * VERTEX_SIZE).order(ByteOrder.nativeOrder());
+		for(int i = 0; i < count; i++) {
+			buf.putFloat(positions[i * 3]).putFloat(positions[(i * 3) + 1]).putFloat(positions[(i * 3) + 2]);
+			if(texCoords != null) {
+				buf.putFloat(texCoords[i * 2]).putFloat(texCoords[(i * 2) + 1]);
+			} else {
+				buf.putFloat(0.0f).putFloat(0.0f);
+			}
+			for(int c = 0; c < 4; c++) {
+				float value = colors == null ? 1.0f : Math.max(0.0f, Math.min(1.0f, colors[(i * 4) + c]));
+				buf.put((byte) Math.round(value * 255.0f));
+			}
+		}
+		buf.flip();
+		return this.glUpload(buf);
+	}
+	
+	/** Draws every vertex of this mesh with the program that is currently
+	 * bound.
+	 * 
+	 * @return This mesh */
+	public Mesh glDraw() {
+		return this.glDraw(0, this.vertexCount);
+	}
+	
+	/** Draws a range of this mesh's vertices with the program that is
+	 * currently bound.
+	 * 
+	 * @param first The first vertex to draw
+	 * @param count The number of vertices to draw
+	 * @return This mesh */
+	public Mesh glDraw(int first, int count) {
+		if(this.vao == 0 || count <= 0) {
+			return this;
+		}
+		this.checkContext();
+		final GLState state = GLState.get();
+		state.glBindVertexArray(this.vao);
+		GLStats.glDrawArrays(this.mode, first, count);
+		state.glBindVertexArray(0);
+		return this;
+	}
+	
+	/** Releases this mesh's vertex array and vertex buffer. They are deleted
+	 * by the {@link DeletionQueue} of the context that created them at the end
+	 * of that context's frame. */
+	public void dispose() {
+		if(this.deletionQueue != null) {
+			this.deletionQueue.deleteVertexArray(this.vao);
+			this.deletionQueue.deleteBuffer(this.vbo);
+			this.deletionQueue = null;
+		}
+		this.vao = this.vbo = 0;
+		this.vertexCount = this.capacity = 0;
+	}
+	
+}
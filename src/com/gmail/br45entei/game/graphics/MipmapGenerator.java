@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.thread.ThreadUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+
+/** Utility class which generates mipmap chains for uncompressed 8-bit
+ * texture data on the CPU using a 2x2 box filter.<br>
+ * Larger levels are split into horizontal bands which are filtered in
+ * parallel on the {@link ThreadUtils#getWorkerPool() shared worker pool}.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class MipmapGenerator {
+	
+	/** Levels with fewer pixels than this are filtered on the calling thread,
+	 * as handing them off to the worker pool would cost more than it saves */
+	private static final int MIN_PARALLEL_PIXELS = 128 * 128;
+	/** The minimum number of rows that each parallel band will contain */
+	private static final int MIN_BAND_ROWS = 16;
+	
+	private MipmapGenerator() {
+	}
+	
+	/** @param minFilter The minification filter to check
+	 * @return Whether or not the given minification filter samples from
+	 *         mipmap levels */
+	public static final boolean isMipmapFilter(int minFilter) {
+		switch(minFilter) {
+		case GL11.GL_NEAREST_MIPMAP_NEAREST:
+		case GL11.GL_NEAREST_MIPMAP_LINEAR:
+		case GL11.GL_LINEAR_MIPMAP_NEAREST:
+		case GL11.GL_LINEAR_MIPMAP_LINEAR:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/** @param minFilter The minification filter to convert
+	 * @return The equivalent minification filter that only samples from the
+	 *         base level ({@link GL11#GL_NEAREST} or {@link GL11#GL_LINEAR}) */
+	public static final int getBaseLevelFilter(int minFilter) {
+		switch(minFilter) {
+		case GL11.GL_NEAREST_MIPMAP_NEAREST:
+		case GL11.GL_NEAREST_MIPMAP_LINEAR:
+			return GL11.GL_NEAREST;
+		case GL11.GL_LINEAR_MIPMAP_NEAREST:
+		case GL11.GL_LINEAR_MIPMAP_LINEAR:
+			return GL11.GL_LINEAR;
+		default:
+			return minFilter;
+		}
+	}
+	
+	/** @param width The width of the base level
+	 * @param height The height of the base level
+	 * @return The number of levels in a full mipmap chain for the given size,
+	 *         including the base level */
+	public static final int getLevelCount(int width, int height) {
+		int size = Math.max(width, height), count = 1;
+		while(size > 1) {
+			size >>= 1;
+			count++;
+		}
+		return count;
+	}
+	
+	/** @param size The width or height of the base level
+	 * @param level The mipmap level
+	 * @return The width or height of the specified mipmap level */
+	public static final int getLevelSize(int size, int level) {
+		return Math.max(1, size >> level);
+	}
+	
+	/** Generates a full mipmap chain for the given base level.
+	 * 
+	 * @param base The tightly packed pixel data of the base level
+	 * @param width The width of the base level
+	 * @param height The height of the base level
+	 * @param components The number of 8-bit components per pixel (e.g.
+	 *            <tt>3</tt> for RGB, <tt>4</tt> for RGBA)
+	 * @return An array containing the base level followed by every generated
+	 *         level, down to and including the 1x1 level */
+	public static final ByteBuffer[] generate(ByteBuffer base, int width, int height, int components) {
+		if(width <= 0 || height <= 0 || components <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid base level dimensions: %sx%s with %s components!", Integer.toString(width), Integer.toString(height), Integer.toString(components)));
+		}
+		if(base.capacity() < width * height * components) {
+			throw new IllegalArgumentException(String.format("The base level buffer is too small: expected at least %s bytes, got %s!", Integer.toString(width * height * components), Integer.toString(base.capacity())));
+		}
+		final int levelCount = getLevelCount(width, height);
+		ByteBuffer[] levels = new ByteBuffer[levelCount];
+		levels[0] = base;
+		for(int level = 1; level < levelCount; level++) {
+			final int srcWidth = getLevelSize(width, level - 1), srcHeight = getLevelSize(height, level - 1);
+			final int dstWidth = getLevelSize(width, level), dstHeight = getLevelSize(height, level);
+			final ByteBuffer src = levels[level - 1];
+			final ByteBuffer dst = BufferUtils.createByteBuffer(dstWidth * dstHeight * components);
+			if(dstWidth * dstHeight < MIN_PARALLEL_PIXELS) {
+				downsample(src, srcWidth, srcHeight, dst, dstWidth, 0, dstHeight, components);
+			} else {
+				downsampleParallel(src, srcWidth, srcHeight, dst, dstWidth, dstHeight, components);
+			}
+			levels[level] = dst;
+		}
+		return levels;
+	}
+	
+	private static final void downsampleParallel(final ByteBuffer src, final int srcWidth, final int srcHeight, final ByteBuffer dst, final int dstWidth, final int dstHeight, final int components) {
+		final int threads = ThreadUtils.getWorkerPool().getMaximumPoolSize();
+		final int bandRows = Math.max(MIN_BAND_ROWS, (dstHeight + threads - 1) / threads);
+		List<Callable<Void>> bands = new ArrayList<>();
+		for(int y = 0; y < dstHeight; y += bandRows) {
+			final int startRow = y, endRow = Math.min(dstHeight, y + bandRows);
+			bands.add(() -> {
+				downsample(src, srcWidth, srcHeight, dst, dstWidth, startRow, endRow, components);
+				return null;
+			});
+		}
+		try {
+			for(Future<Void> band : ThreadUtils.getWorkerPool().invokeAll(bands)) {
+				band.get();
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating mipmaps!", ex);
+		} catch(ExecutionException ex) {
+			throw new IllegalStateException("Failed to generate mipmaps!", ex.getCause());
+		}
+	}
+	
+	/** Box-filters rows <tt>[startRow, endRow)</tt> of the destination level
+	 * from the source level.<br>
+	 * Odd source sizes are handled by clamping the second sample to the last
+	 * row/column. Only absolute indices are used, so several bands may safely
+	 * write to the same destination buffer at once. */
+	private static final void downsample(ByteBuffer src, int srcWidth, int srcHeight, ByteBuffer dst, int dstWidth, int startRow, int endRow, int components) {
+		final int srcStride = srcWidth * components, dstStride = dstWidth * components;
+		for(int y = startRow; y < endRow; y++) {
+			final int sy0 = Math.min(y * 2, srcHeight - 1), sy1 = Math.min(y * 2 + 1, srcHeight - 1);
+			for(int x = 0; x < dstWidth; x++) {
+				final int sx0 = Math.min(x * 2, srcWidth - 1), sx1 = Math.min(x * 2 + 1, srcWidth - 1);
+				final int i00 = sy0 * srcStride + sx0 * components, i01 = sy0 * srcStride + sx1 * components;
+				final int i10 = sy1 * srcStride + sx0 * components, i11 = sy1 * srcStride + sx1 * components;
+				final int o = y * dstStride + x * components;
+				for(int c = 0; c < components; c++) {
+					int sum = (src.get(i00 + c) & 0xFF) + (src.get(i01 + c) & 0xFF) + (src.get(i10 + c) & 0xFF) + (src.get(i11 + c) & 0xFF);
+					dst.put(o + c, (byte) ((sum + 2) >> 2));
+				}
+			}
+		}
+	}
+	
+}
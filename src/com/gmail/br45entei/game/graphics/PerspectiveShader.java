@@ -88,16 +88,23 @@ public class PerspectiveShader extends Shader {
 		this("Perspective Shader");
 	}
 	
+	/** Allows subclasses to supply their own sources. The sources must still
+	 * declare the <tt>projection</tt>, <tt>modelView</tt>,
+	 * <tt>textureColor</tt> and <tt>colorMode</tt> uniforms.
+	 *
+	 * @param name The name of this shader program
+	 * @param vertexShader The vertex shader source
+	 * @param fragmentShader The fragment shader source */
+	protected PerspectiveShader(String name, String vertexShader, String fragmentShader) {
+		super(name, vertexShader, fragmentShader);
+	}
+	
 	@Override
-	public boolean glCompileShader() {
-		if(super.glCompileShader()) {
-			this.getOrCreateUniform("projection", float[].class, GLUtil.getIdentityf(), false, false);
-			this.getOrCreateUniform("modelView", float[].class, GLUtil.getIdentityf(), false, false);
-			this.getOrCreateUniform("textureColor", float[].class, new float[] {1.0f, 1.0f, 1.0f, 1.0f}, false, false);
-			this.getOrCreateUniform("colorMode", int[].class, new int[] {0}, false, false);
-			return true;
-		}
-		return false;
+	protected void glOnLinked() {
+		this.getOrCreateUniform("projection", float[].class, GLUtil.getIdentityf(), false, false);
+		this.getOrCreateUniform("modelView", float[].class, GLUtil.getIdentityf(), false, false);
+		this.getOrCreateUniform("textureColor", float[].class, new float[] {1.0f, 1.0f, 1.0f, 1.0f}, false, false);
+		this.getOrCreateUniform("colorMode", int[].class, new int[] {0}, false, false);
 	}
 	
 	public float[] getProjection() {
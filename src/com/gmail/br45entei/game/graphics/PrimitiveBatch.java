@@ -0,0 +1,766 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.Shader.UniformInt;
+import com.gmail.br45entei.game.graphics.StagingBuffer.Region;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+/** Collects 2D rectangles, triangles, lines and circles and draws them all at
+ * once, using the same drawing vocabulary as {@link GLUtil}'s immediate-mode
+ * helpers ({@link GLUtil#glDrawRect2d(double, double, double, double)
+ * glDrawRect2d}, {@link GLUtil#glRenderQuad(Texture, org.lwjgl.util.vector.Vector2f, org.lwjgl.util.vector.Vector4f)
+ * glRenderQuad}, {@link GLUtil#glLegacyRenderCrosshairsAt(double, double,
+ * double, double, double, boolean) glLegacyRenderCrosshairsAt}, etc.).<br>
+ * <br>
+ * Every primitive is written into a single streamed vertex buffer (the shared
+ * {@link StagingBuffer#getArrayBuffer() array ring} when it is available).
+ * Consecutive primitives that share the same texture, {@link BlendMode blend
+ * mode} and primitive type are merged into one run, and each run is drawn
+ * with a single <tt>glDrawArrays</tt> call when the batch is
+ * {@link #flush() flushed}, so a user interface made of thousands of
+ * rectangles costs a handful of draw calls rather than thousands of
+ * <tt>glBegin</tt>/<tt>glEnd</tt> blocks.<br>
+ * <br>
+ * Primitives are drawn in the order they were added, in the coordinate space
+ * of whatever modelview matrix is current when the batch is flushed. On core
+ * profile contexts the batch is flushed with a {@link CoreShader} instead
+ * (see {@link CorePipeline#glDraw(PrimitiveBatch)}).
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class PrimitiveBatch {
+	
+	/** The size of each vertex, in bytes: a position (three floats), a texture
+	 * coordinate (two floats) and an RGBA color (four unsigned bytes) */
+	public static final int VERTEX_SIZE = 24;
+	
+	private static final int VERTEX_INTS = VERTEX_SIZE / 4;
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	private static final int WHITE = 0xFFFFFFFF;
+	
+	/** The blend modes that primitives can be drawn with.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static enum BlendMode {
+		/** Blending is disabled */
+		NONE,
+		/** Standard alpha blending ({@link GLUtil#glBlendAlphaMode()}) */
+		ALPHA,
+		/** Inverts the colors behind the primitive
+		 * ({@link GLUtil#glBlendInvertColorMode()}) */
+		INVERT,
+		/** Adds the primitive's color to the colors behind it */
+		ADDITIVE;
+		
+		void glApply() {
+			switch(this) {
+			case ALPHA:
+				GLUtil.glBlendAlphaMode();
+				break;
+			case INVERT:
+				GLUtil.glBlendInvertColorMode();
+				break;
+			case ADDITIVE:
+				GLUtil.glBlend(true, GL11.GL_SRC_ALPHA, GL11.GL_ONE, GL14.GL_FUNC_ADD);
+				break;
+			case NONE:
+			default:
+				GLUtil.glBlend(false, GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA, GL14.GL_FUNC_ADD);
+				break;
+			}
+		}
+		
+	}
+	
+	private int[] vertices = new int[VERTEX_INTS * 6 * 256];
+	private int vertexCount = 0;
+	
+	// Runs of consecutive vertices that share the same state, stored as parallel arrays
+	private int[] runMode = new int[16], runTexture = new int[16], runBlend = new int[16], runFirst = new int[16], runCount = new int[16];
+	private int runs = 0;
+	
+	private int color = WHITE;
+	private int texture = 0;
+	private BlendMode blendMode = BlendMode.ALPHA;
+	private int z = Float.floatToRawIntBits(0.0f);
+	
+	private ByteBuffer clientBuffer = null;
+	private int drawCalls = 0, lastFrameDrawCalls = 0;
+	// Only used by the shader path, which can't source vertices from client memory
+	private int vao = 0, vbo = 0;
+	/** The deletion queue of the context that {@link #vao} and {@link #vbo}
+	 * belong to */
+	private DeletionQueue deletionQueue = null;
+	
+	/** @return The number of vertices that are waiting to be drawn */
+	public int getVertexCount() {
+		return this.vertexCount;
+	}
+	
+	/** @return Whether or not this batch has nothing to draw */
+	public boolean isEmpty() {
+		return this.vertexCount == 0;
+	}
+	
+	/** @return The number of draw calls that the next {@link #flush()} will
+	 *         make */
+	public int getRunCount() {
+		return this.runs;
+	}
+	
+	/** @return The number of draw calls that this batch has made since the
+	 *         last call to {@link #endFrame()} */
+	public int getDrawCallsThisFrame() {
+		return this.drawCalls;
+	}
+	
+	/** @return The number of draw calls that this batch made during the
+	 *         previous frame */
+	public int getDrawCallsLastFrame() {
+		return this.lastFrameDrawCalls;
+	}
+	
+	/** Marks the end of a frame, resetting the per-frame draw call counter.
+	 * 
+	 * @return The number of draw calls that this batch made during the frame
+	 *         that just ended */
+	public int endFrame() {
+		this.lastFrameDrawCalls = this.drawCalls;
+		this.drawCalls = 0;
+		return this.lastFrameDrawCalls;
+	}
+	
+	/** Discards everything that has been added since the last flush. The
+	 * current color, texture, blend mode and depth are kept. */
+	public void clear() {
+		this.vertexCount = 0;
+		this.runs = 0;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Sets the color that subsequently added primitives are drawn with.
+	 * 
+	 * @param red The red component
+	 * @param green The green component
+	 * @param blue The blue component
+	 * @param alpha The alpha component
+	 * @return This batch */
+	public PrimitiveBatch setColor(double red, double green, double blue, double alpha) {
+		this.color = packColor(red, green, blue, alpha);
+		return this;
+	}
+	
+	/** @param rgba The red, green, blue and alpha components
+	 * @return This batch
+	 * @see #setColor(double, double, double, double) */
+	public PrimitiveBatch setColor(float[] rgba) {
+		return this.setColor(rgba[0], rgba[1], rgba[2], rgba.length > 3 ? rgba[3] : 1.0f);
+	}
+	
+	/** Sets the texture that subsequently added primitives are drawn with.
+	 * 
+	 * @param texture The 2D texture to draw with, or <tt><b>null</b></tt> to
+	 *            draw untextured primitives
+	 * @return This batch */
+	public PrimitiveBatch setTexture(Texture texture) {
+		return this.setTexture(texture == null ? 0 : texture.getID());
+	}
+	
+	/** @param textureID The ID of the 2D texture to draw with, or <tt>0</tt>
+	 *            to draw untextured primitives
+	 * @return This batch
+	 * @see #setTexture(Texture) */
+	public PrimitiveBatch setTexture(int textureID) {
+		this.texture = textureID;
+		return this;
+	}
+	
+	/** @param blendMode The blend mode that subsequently added primitives are
+	 *            drawn with
+	 * @return This batch */
+	public PrimitiveBatch setBlendMode(BlendMode blendMode) {
+		this.blendMode = blendMode == null ? BlendMode.NONE : blendMode;
+		return this;
+	}
+	
+	/** @param z The z coordinate that subsequently added primitives are drawn
+	 *            at
+	 * @return This batch */
+	public PrimitiveBatch setDepth(double z) {
+		this.z = Float.floatToRawIntBits((float) z);
+		return this;
+	}
+	
+	/** Starts a new run if the given primitive type or the current texture or
+	 * blend mode differ from those of the last run, and makes room for the
+	 * given number of vertices. */
+	private void beginPrimitive(int mode, int vertexCount) {
+		final int blend = this.blendMode.ordinal();
+		final int last = this.runs - 1;
+		if(last < 0 || this.runMode[last] != mode || this.runTexture[last] != this.texture || this.runBlend[last] != blend) {
+			if(this.runs == this.runMode.length) {
+				final int length = this.runs * 2;
+				this.runMode = copyOf(this.runMode, length);
+				this.runTexture = copyOf(this.runTexture, length);
+				this.runBlend = copyOf(this.runBlend, length);
+				this.runFirst = copyOf(this.runFirst, length);
+				this.runCount = copyOf(this.runCount, length);
+			}
+			this.runMode[this.runs] = mode;
+			this.runTexture[this.runs] = this.texture;
+			this.runBlend[this.runs] = blend;
+			this.runFirst[this.runs] = this.vertexCount;
+			this.runCount[this.runs] = 0;
+			this.runs++;
+		}
+		final int required = (this.vertexCount + vertexCount) * VERTEX_INTS;
+		if(required > this.vertices.length) {
+			this.vertices = copyOf(this.vertices, Math.max(required, this.vertices.length * 2));
+		}
+		this.runCount[this.runs - 1] += vertexCount;
+	}
+	
+	private static int[] copyOf(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+	
+	private void putVertex(double x, double y, double s, double t) {
+		int i = this.vertexCount * VERTEX_INTS;
+		final int[] data = this.vertices;
+		data[i++] = Float.floatToRawIntBits((float) x);
+		data[i++] = Float.floatToRawIntBits((float) y);
+		data[i++] = this.z;
+		data[i++] = Float.floatToRawIntBits((float) s);
+		data[i++] = Float.floatToRawIntBits((float) t);
+		data[i++] = this.color;
+		this.vertexCount++;
+	}
+	
+	private static int packColor(double red, double green, double blue, double alpha) {
+		int r = (int) Math.round(Math.max(0.0, Math.min(1.0, red)) * 255.0);
+		int g = (int) Math.round(Math.max(0.0, Math.min(1.0, green)) * 255.0);
+		int b = (int) Math.round(Math.max(0.0, Math.min(1.0, blue)) * 255.0);
+		int a = (int) Math.round(Math.max(0.0, Math.min(1.0, alpha)) * 255.0);
+		return LITTLE_ENDIAN ? (r | (g << 8) | (b << 16) | (a << 24)) : ((r << 24) | (g << 16) | (b << 8) | a);
+	}
+	
+	//=========================================================================================================================
+	
+	/** Adds a textured quad made of two triangles.
+	 * 
+	 * @return This batch */
+	private PrimitiveBatch addQuad(double x0, double y0, double s0, double t0, double x1, double y1, double s1, double t1, double x2, double y2, double s2, double t2, double x3, double y3, double s3, double t3) {
+		this.beginPrimitive(GL11.GL_TRIANGLES, 6);
+		this.putVertex(x0, y0, s0, t0);
+		this.putVertex(x1, y1, s1, t1);
+		this.putVertex(x2, y2, s2, t2);
+		this.putVertex(x0, y0, s0, t0);
+		this.putVertex(x2, y2, s2, t2);
+		this.putVertex(x3, y3, s3, t3);
+		return this;
+	}
+	
+	/** The batched equivalent of
+	 * {@link GLUtil#glDrawRect2d(double, double, double, double)}.
+	 * 
+	 * @param x The x coordinate of the rectangle
+	 * @param y The y coordinate of the rectangle
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 * @return This batch */
+	public PrimitiveBatch drawRect2d(double x, double y, double width, double height) {
+		return this.addQuad(x + width, y + height, 1, 1, x, y + height, 0, 1, x, y, 0, 0, x + width, y, 1, 0);
+	}
+	
+	/** @param bounds The x, y, width and height of the rectangle
+	 * @return This batch
+	 * @see #drawRect2d(double, double, double, double) */
+	public PrimitiveBatch drawRect2d(double[] bounds) {
+		return this.drawRect2d(bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+	
+	/** The batched equivalent of
+	 * {@link GLUtil#glInvertRect2d(double, double, double, double)}: inverts
+	 * the colors within the given rectangle.
+	 * 
+	 * @param x The x coordinate of the rectangle
+	 * @param y The y coordinate of the rectangle
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 * @return This batch */
+	public PrimitiveBatch invertRect2d(double x, double y, double width, double height) {
+		final int color = this.color, texture = this.texture;
+		final BlendMode blendMode = this.blendMode;
+		this.color = WHITE;
+		this.texture = 0;
+		this.blendMode = BlendMode.INVERT;
+		this.drawRect2d(x, y, width, height);
+		this.color = color;
+		this.texture = texture;
+		this.blendMode = blendMode;
+		return this;
+	}
+	
+	/** @param bounds The x, y, width and height of the rectangle
+	 * @return This batch
+	 * @see #invertRect2d(double, double, double, double) */
+	public PrimitiveBatch invertRect2d(double[] bounds) {
+		return this.invertRect2d(bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+	
+	/** The batched equivalent of
+	 * {@link GLUtil#glRenderQuad(Texture, org.lwjgl.util.vector.Vector2f, org.lwjgl.util.vector.Vector4f, boolean, boolean)}.
+	 * 
+	 * @param texture The texture to draw, or <tt><b>null</b></tt> to draw an
+	 *            untextured quad
+	 * @param x The x coordinate of the quad
+	 * @param y The y coordinate of the quad
+	 * @param width The width of the quad
+	 * @param height The height of the quad
+	 * @param flipHorizontally Whether or not the texture should be flipped
+	 *            horizontally(left to right)
+	 * @param flipVertically Whether or not the texture should be flipped
+	 *            vertically(top to bottom)
+	 * @return This batch */
+	public PrimitiveBatch drawQuad(Texture texture, double x, double y, double width, double height, boolean flipHorizontally, boolean flipVertically) {
+		final int previous = this.texture;
+		this.setTexture(texture);
+		final double s0 = flipHorizontally ? 1 : 0, s1 = 1 - s0;
+		final double t0 = flipVertically ? 1 : 0, t1 = 1 - t0;
+		this.addQuad(x, y, s0, t0, x + width, y, s1, t0, x + width, y + height, s1, t1, x, y + height, s0, t1);
+		this.texture = previous;
+		return this;
+	}
+	
+	/** @param texture The texture to draw
+	 * @param x The x coordinate of the quad
+	 * @param y The y coordinate of the quad
+	 * @param width The width of the quad
+	 * @param height The height of the quad
+	 * @return This batch
+	 * @see #drawQuad(Texture, double, double, double, double, boolean,
+	 *      boolean) */
+	public PrimitiveBatch drawQuad(Texture texture, double x, double y, double width, double height) {
+		return this.drawQuad(texture, x, y, width, height, false, false);
+	}
+	
+	/** The batched equivalent of
+	 * {@link GLUtil#glDrawTriangle2d(double, double, double, double, double, double, double, double, double, double, double, double)}.
+	 * 
+	 * @return This batch */
+	public PrimitiveBatch drawTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3, double s1, double t1, double s2, double t2, double s3, double t3) {
+		this.beginPrimitive(GL11.GL_TRIANGLES, 3);
+		this.putVertex(x3, y3, s3, t3);
+		this.putVertex(x2, y2, s2, t2);
+		this.putVertex(x1, y1, s1, t1);
+		return this;
+	}
+	
+	/** @return This batch
+	 * @see GLUtil#glDrawEquilateralTriangle2d(double, double, double, double,
+	 *      double, double) */
+	public PrimitiveBatch drawEquilateralTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3) {
+		return this.drawTriangle2d(x1, y1, x2, y2, x3, y3, 0, 0, 0.5, 1.0, 1.0, 0);
+	}
+	
+	/** @return This batch
+	 * @see GLUtil#glDrawTriangle2d(double, double, double, double, double,
+	 *      double) */
+	public PrimitiveBatch drawTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3) {
+		return this.drawEquilateralTriangle2d(x1, y1, x2, y2, x3, y3);
+	}
+	
+	/** @return This batch
+	 * @see GLUtil#glDrawBottomLeftRightAngledTriangle2d(double, double, double,
+	 *      double, double, double) */
+	public PrimitiveBatch drawBottomLeftRightAngledTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3) {
+		return this.drawTriangle2d(x1, y1, x2, y2, x3, y3, 0, 1.0, 1.0, 0, 0, 0);
+	}
+	
+	/** @return This batch
+	 * @see GLUtil#glDrawBottomRightRightAngledTriangle2d(double, double,
+	 *      double, double, double, double) */
+	public PrimitiveBatch drawBottomRightRightAngledTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3) {
+		return this.drawTriangle2d(x1, y1, x2, y2, x3, y3, 0, 0, 1.0, 1.0, 1.0, 0);
+	}
+	
+	/** @return This batch
+	 * @see GLUtil#glDrawTopLeftRightAngledTriangle2d(double, double, double,
+	 *      double, double, double) */
+	public PrimitiveBatch drawTopLeftRightAngledTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3) {
+		return this.drawTriangle2d(x1, y1, x2, y2, x3, y3, 0, 0, 0, 1.0, 1.0, 1.0);
+	}
+	
+	/** @return This batch
+	 * @see GLUtil#glDrawTopRightRightAngledTriangle2d(double, double, double,
+	 *      double, double, double) */
+	public PrimitiveBatch drawTopRightRightAngledTriangle2d(double x1, double y1, double x2, double y2, double x3, double y3) {
+		return this.drawTriangle2d(x1, y1, x2, y2, x3, y3, 0, 1.0, 1.0, 1.0, 1.0, 0);
+	}
+	
+	/** The batched equivalent of
+	 * {@link GLUtil#glDrawTriangle2dDistorted(double, double, double, double, double, double, double, double)}.
+	 * 
+	 * @return This batch */
+	public PrimitiveBatch drawTriangle2dDistorted(double x1, double y1, double x2, double y2, double x3, double y3, double sOffset, double tOffset) {
+		final double cx = (x1 + x2 + x3) / 3.0;
+		final double cy = (y1 + y2 + y3) / 3.0;
+		final double rx1 = x1 - cx, ry1 = y1 - cy;
+		final double rx2 = x2 - cx, ry2 = y2 - cy;
+		final double rx3 = x3 - cx, ry3 = y3 - cy;
+		final double nmag1 = Math.sqrt((rx1 * rx1) + (ry1 * ry1));
+		final double nmag2 = Math.sqrt((rx2 * rx2) + (ry2 * ry2));
+		final double nmag3 = Math.sqrt((rx3 * rx3) + (ry3 * ry3));
+		return this.drawTriangle2d(x1, y1, x2, y2, x3, y3, (rx1 / nmag1) + sOffset, (ry1 / nmag1) + tOffset, (rx2 / nmag2) + sOffset, (ry2 / nmag2) + tOffset, (rx3 / nmag3) + sOffset, (ry3 / nmag3) + tOffset);
+	}
+	
+	/** @return This batch
+	 * @see #drawTriangle2dDistorted(double, double, double, double, double,
+	 *      double, double, double) */
+	public PrimitiveBatch drawTriangle2dDistorted(double x1, double y1, double x2, double y2, double x3, double y3) {
+		return this.drawTriangle2dDistorted(x1, y1, x2, y2, x3, y3, 0, 0);
+	}
+	
+	/** Adds a line segment.
+	 * 
+	 * @param x1 The x coordinate of the line's start
+	 * @param y1 The y coordinate of the line's start
+	 * @param x2 The x coordinate of the line's end
+	 * @param y2 The y coordinate of the line's end
+	 * @return This batch */
+	public PrimitiveBatch drawLine2d(double x1, double y1, double x2, double y2) {
+		this.beginPrimitive(GL11.GL_LINES, 2);
+		this.putVertex(x1, y1, 0, 0);
+		this.putVertex(x2, y2, 1, 1);
+		return this;
+	}
+	
+	/** Adds the outline of a rectangle, made of four line segments.
+	 * 
+	 * @param x The x coordinate of the rectangle
+	 * @param y The y coordinate of the rectangle
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 * @return This batch */
+	public PrimitiveBatch drawRectOutline2d(double x, double y, double width, double height) {
+		this.drawLine2d(x, y, x + width, y);
+		this.drawLine2d(x + width, y, x + width, y + height);
+		this.drawLine2d(x + width, y + height, x, y + height);
+		return this.drawLine2d(x, y + height, x, y);
+	}
+	
+	/** Adds a filled circle, made of one triangle per segment. The texture is
+	 * mapped onto the circle's bounding square.
+	 * 
+	 * @param x The x coordinate of the circle's center
+	 * @param y The y coordinate of the circle's center
+	 * @param radius The radius of the circle
+	 * @param segments The number of segments to approximate the circle with
+	 *            (at least <tt>3</tt>)
+	 * @return This batch */
+	public PrimitiveBatch drawCircle2d(double x, double y, double radius, int segments) {
+		segments = Math.max(3, segments);
+		this.beginPrimitive(GL11.GL_TRIANGLES, segments * 3);
+		double cos0 = 1.0, sin0 = 0.0;
+		for(int i = 1; i <= segments; i++) {
+			final double angle = (2.0 * Math.PI * i) / segments;
+			final double cos1 = Math.cos(angle), sin1 = Math.sin(angle);
+			this.putVertex(x, y, 0.5, 0.5);
+			this.putVertex(x + (cos0 * radius), y + (sin0 * radius), 0.5 + (cos0 * 0.5), 0.5 + (sin0 * 0.5));
+			this.putVertex(x + (cos1 * radius), y + (sin1 * radius), 0.5 + (cos1 * 0.5), 0.5 + (sin1 * 0.5));
+			cos0 = cos1;
+			sin0 = sin1;
+		}
+		return this;
+	}
+	
+	/** Adds the outline of a circle, made of one line segment per segment.
+	 * 
+	 * @param x The x coordinate of the circle's center
+	 * @param y The y coordinate of the circle's center
+	 * @param radius The radius of the circle
+	 * @param segments The number of segments to approximate the circle with
+	 *            (at least <tt>3</tt>)
+	 * @return This batch */
+	public PrimitiveBatch drawCircleOutline2d(double x, double y, double radius, int segments) {
+		segments = Math.max(3, segments);
+		this.beginPrimitive(GL11.GL_LINES, segments * 2);
+		double cos0 = 1.0, sin0 = 0.0;
+		for(int i = 1; i <= segments; i++) {
+			final double angle = (2.0 * Math.PI * i) / segments;
+			final double cos1 = Math.cos(angle), sin1 = Math.sin(angle);
+			this.putVertex(x + (cos0 * radius), y + (sin0 * radius), 0.5 + (cos0 * 0.5), 0.5 + (sin0 * 0.5));
+			this.putVertex(x + (cos1 * radius), y + (sin1 * radius), 0.5 + (cos1 * 0.5), 0.5 + (sin1 * 0.5));
+			cos0 = cos1;
+			sin0 = sin1;
+		}
+		return this;
+	}
+	
+	/** The batched equivalent of
+	 * {@link GLUtil#glLegacyRenderCrosshairsAt(double, double, double, double, double, boolean)}.
+	 * 
+	 * @param x The x coordinate of the crosshairs' center
+	 * @param y The y coordinate of the crosshairs' center
+	 * @param width The length of each of the crosshairs' bars
+	 * @param height The thickness of each of the crosshairs' bars
+	 * @param invertBackground Whether or not the crosshairs should invert the
+	 *            colors behind them instead of being drawn in white
+	 * @return This batch */
+	public PrimitiveBatch drawCrosshairs2d(double x, double y, double width, double height, boolean invertBackground) {
+		final int color = this.color, texture = this.texture;
+		final BlendMode blendMode = this.blendMode;
+		this.color = WHITE;
+		this.texture = 0;
+		this.blendMode = invertBackground ? BlendMode.INVERT : BlendMode.NONE;
+		this.drawRect2d(x - (width / 2.0), y - (height / 2.0), width, height);
+		this.drawRect2d(x - (height / 2.0), y - (width / 2.0), height, width);
+		this.color = color;
+		this.texture = texture;
+		this.blendMode = blendMode;
+		return this;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Writes every vertex into one contiguous range.
+	 * 
+	 * @return The staging region that the vertices were written into, or
+	 *         <tt><b>null</b></tt> if they were written into
+	 *         {@link #clientBuffer client memory} instead */
+	private Region upload() {
+		final int size = this.vertexCount * VERTEX_SIZE;
+		StagingBuffer ring = StagingBuffer.getArrayBuffer();
+		Region region = ring == null ? null : ring.allocate(size);
+		ByteBuffer buf;
+		if(region != null) {
+			buf = region.data;
+		} else {
+			if(this.clientBuffer == null || this.clientBuffer.capacity() < size) {
+				this.clientBuffer = ByteBuffer.allocateDirect(Math.max(size, this.clientBuffer == null ? 0 : this.clientBuffer.capacity() * 2)).order(ByteOrder.nativeOrder());
+			}
+			buf = this.clientBuffer;
+			buf.clear();
+		}
+		IntBuffer ints = buf.asIntBuffer();
+		ints.put(this.vertices, 0, this.vertexCount * VERTEX_INTS);
+		return region;
+	}
+	
+	/** Draws everything in this batch using the fixed-function pipeline and
+	 * the current modelview and projection matrices, then clears it.<br>
+	 * The texture, blend and color state that was current before this call
+	 * is restored afterwards.
+	 * 
+	 * @return The number of draw calls that were made */
+	public int flush() {
+		if(this.isEmpty()) {
+			this.clear();
+			return 0;
+		}
+		Region region = this.upload();
+		
+		final GLState state = GLState.get();
+		final boolean tex2DEnabled = state.isEnabled(GL11.GL_TEXTURE_2D);
+		final int boundTexture = state.getBoundTexture(0, GL11.GL_TEXTURE_2D);
+		GLUtil.glPushBlendMode();
+		GLUtil.glPushColor();
+		GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+		if(region != null) {
+			region.bind();
+			GL11.glVertexPointer(3, GL11.GL_FLOAT, VERTEX_SIZE, region.offset);
+			GL11.glTexCoordPointer(2, GL11.GL_FLOAT, VERTEX_SIZE, region.offset + 12L);
+			GL11.glColorPointer(4, GL11.GL_UNSIGNED_BYTE, VERTEX_SIZE, region.offset + 20L);
+		} else {
+			ByteBuffer buf = this.clientBuffer;
+			GL11.glVertexPointer(3, GL11.GL_FLOAT, VERTEX_SIZE, buf.position(0));
+			GL11.glTexCoordPointer(2, GL11.GL_FLOAT, VERTEX_SIZE, buf.position(12));
+			GL11.glColorPointer(4, GL11.GL_UNSIGNED_BYTE, VERTEX_SIZE, buf.position(20));
+			buf.position(0);
+		}
+		
+		int texture = -1, blend = -1;
+		final BlendMode[] blendModes = BlendMode.values();
+		for(int run = 0; run < this.runs; run++) {
+			if(this.runTexture[run] != texture) {
+				texture = this.runTexture[run];
+				if(texture == 0) {
+					state.glDisable(GL11.GL_TEXTURE_2D);
+				} else {
+					state.glEnable(GL11.GL_TEXTURE_2D);
+					state.glBindTexture(0, GL11.GL_TEXTURE_2D, texture);
+				}
+			}
+			if(this.runBlend[run] != blend) {
+				blend = this.runBlend[run];
+				blendModes[blend].glApply();
+			}
+			GLStats.glDrawArrays(this.runMode[run], this.runFirst[run], this.runCount[run]);
+		}
+		final int draws = this.runs;
+		this.drawCalls += draws;
+		
+		GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+		GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+		if(region != null) {
+			region.unbind();
+		}
+		state.glBindTexture(0, GL11.GL_TEXTURE_2D, boundTexture);
+		state.glSetEnabled(GL11.GL_TEXTURE_2D, tex2DEnabled);
+		GLUtil.glPopColor();
+		GLUtil.glPopBlendMode();
+		this.clear();
+		return draws;
+	}
+	
+	/** Draws everything in this batch using the given shader, then clears it.
+	 * This only uses core profile functionality: untextured runs are drawn
+	 * with the {@link PerspectiveShader.ColorMode#INTERPOLATED_COLOR
+	 * INTERPOLATED_COLOR} color mode and textured runs with
+	 * {@link PerspectiveShader.ColorMode#INTERPOLATED_COLORED_TEXTURE
+	 * INTERPOLATED_COLORED_TEXTURE}, with their textures bound to unit
+	 * <tt>0</tt>.<br>
+	 * The shader's projection and modelview uniforms should already have been
+	 * set by the caller (as {@link CorePipeline#glDraw(PrimitiveBatch)}
+	 * does). The texture, blend and color mode state that was current before
+	 * this call is restored afterwards.
+	 * 
+	 * @param shader The shader to draw with
+	 * @return The number of draw calls that were made
+	 * @throws IllegalStateException Thrown if the shader could not be
+	 *             bound */
+	public int flush(CoreShader shader) throws IllegalStateException {
+		if(this.isEmpty()) {
+			this.clear();
+			return 0;
+		}
+		if(!shader.bind()) {
+			throw new IllegalStateException(String.format("Cannot draw primitives with the shader \"%s\" as it has not been compiled!", shader.getName()));
+		}
+		Region region = this.upload();
+		
+		final GLState state = GLState.get();
+		final int boundTexture = state.getBoundTexture(0, GL11.GL_TEXTURE_2D);
+		final UniformInt colorModeUniform = shader.getUniformInt("colorMode");
+		final int colorMode = colorModeUniform.get();
+		GLUtil.glPushBlendMode();
+		final DeletionQueue queue = DeletionQueue.get();
+		if(this.deletionQueue != queue) {// Vertex arrays aren't shared between contexts
+			this.releaseObjects();
+			this.deletionQueue = queue;
+		}
+		if(this.vao == 0) {
+			this.vao = GL30.glGenVertexArrays();
+		}
+		state.glBindVertexArray(this.vao);
+		GL20.glEnableVertexAttribArray(CoreShader.POSITION_ATTRIBUTE);
+		GL20.glEnableVertexAttribArray(CoreShader.TEXCOORD_ATTRIBUTE);
+		GL20.glEnableVertexAttribArray(CoreShader.COLOR_ATTRIBUTE);
+		long offset = 0L;
+		if(region != null) {
+			region.bind();
+			offset = region.offset;
+		} else {
+			if(this.vbo == 0) {
+				this.vbo = GL15.glGenBuffers();
+			}
+			ByteBuffer buf = this.clientBuffer;
+			buf.limit(this.vertexCount * VERTEX_SIZE);
+			state.glBindBuffer(GL15.GL_ARRAY_BUFFER, this.vbo);
+			GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buf, GL15.GL_STREAM_DRAW);
+			GLStats.count(GLStats.Counter.BUFFER_UPLOADS);
+			GLStats.count(GLStats.Counter.UPLOAD_BYTES, buf.remaining());
+			buf.clear();
+		}
+		GL20.glVertexAttribPointer(CoreShader.POSITION_ATTRIBUTE, 3, GL11.GL_FLOAT, false, VERTEX_SIZE, offset);
+		GL20.glVertexAttribPointer(CoreShader.TEXCOORD_ATTRIBUTE, 2, GL11.GL_FLOAT, false, VERTEX_SIZE, offset + 12L);
+		GL20.glVertexAttribPointer(CoreShader.COLOR_ATTRIBUTE, 4, GL11.GL_UNSIGNED_BYTE, true, VERTEX_SIZE, offset + 20L);
+		
+		int texture = -1, blend = -1;
+		final BlendMode[] blendModes = BlendMode.values();
+		for(int run = 0; run < this.runs; run++) {
+			if(this.runTexture[run] != texture) {
+				texture = this.runTexture[run];
+				if(texture == 0) {
+					colorModeUniform.glSet(PerspectiveShader.ColorMode.INTERPOLATED_COLOR.ordinal());
+				} else {
+					colorModeUniform.glSet(PerspectiveShader.ColorMode.INTERPOLATED_COLORED_TEXTURE.ordinal());
+					state.glBindTexture(0, GL11.GL_TEXTURE_2D, texture);
+				}
+			}
+			if(this.runBlend[run] != blend) {
+				blend = this.runBlend[run];
+				blendModes[blend].glApply();
+			}
+			GLStats.glDrawArrays(this.runMode[run], this.runFirst[run], this.runCount[run]);
+		}
+		final int draws = this.runs;
+		this.drawCalls += draws;
+		
+		if(region != null) {
+			region.unbind();
+		}
+		state.glBindVertexArray(0);
+		state.glBindTexture(0, GL11.GL_TEXTURE_2D, boundTexture);
+		colorModeUniform.glSet(colorMode);
+		GLUtil.glPopBlendMode();
+		this.clear();
+		return draws;
+	}
+	
+	/** Clears this batch, releases its client-side vertex buffer, and deletes
+	 * its vertex array and vertex buffer objects, if it has them. */
+	public void dispose() {
+		this.clear();
+		this.clientBuffer = null;
+		this.releaseObjects();
+		this.deletionQueue = null;
+	}
+	
+	private void releaseObjects() {
+		if(this.deletionQueue != null) {
+			this.deletionQueue.deleteVertexArray(this.vao);
+			this.deletionQueue.deleteBuffer(this.vbo);
+		}
+		this.vao = this.vbo = 0;
+	}
+	
+}
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.PrimitiveBatch.BlendMode;
+
+import java.util.Arrays;
+
+import org.lwjgl.opengl.GL11;
+
+/** Collects draw calls over the course of a frame and issues them sorted by
+ * the state that they need, rather than in the order that they were
+ * submitted in.<br>
+ * <br>
+ * Every {@link #submit(int, BlendMode, int, int, double, DrawCommand)
+ * submitted} item is given a 64-bit sort key, packed from most to least
+ * significant as follows:
+ * <ul>
+ * <li>the layer (8 bits), so that e.g. the sky, the world and the HUD are
+ * always drawn in that order;</li>
+ * <li>whether or not the item is blended (1 bit), so that opaque geometry is
+ * drawn before translucent geometry;</li>
+ * <li>for opaque items, the program (12 bits), texture (16 bits) and then
+ * depth (24 bits, front to back), so that items sharing state are drawn
+ * together and the nearest of them go first;</li>
+ * <li>for blended items, the depth (24 bits, back to front) and then the
+ * program, texture and blend mode, since blended geometry must be drawn in
+ * order of distance to look correct.</li>
+ * </ul>
+ * When the queue is {@link #flush() flushed}, the keys are radix sorted and
+ * the items are drawn in that order, with the program, texture and blend
+ * state only being changed between items that differ. Items with equal keys
+ * are drawn in the order that they were submitted in.<br>
+ * <br>
+ * Only the low bits of program and texture names are stored in the key, so
+ * two programs or textures can occasionally end up sharing a sort position;
+ * this only costs a redundant state change, since the state that is actually
+ * bound always comes from the item itself.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class RenderQueue {
+	
+	/** The highest layer that an item may be submitted on */
+	public static final int MAX_LAYER = 0xFF;
+	
+	private static final int DEPTH_BITS = 24, PROGRAM_BITS = 12, TEXTURE_BITS = 16, BLEND_BITS = 2;
+	private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1L, PROGRAM_MASK = (1L << PROGRAM_BITS) - 1L, TEXTURE_MASK = (1L << TEXTURE_BITS) - 1L;
+	private static final int LAYER_SHIFT = 56, TRANSLUCENT_SHIFT = 55;
+	private static final BlendMode[] BLEND_MODES = BlendMode.values();
+	
+	/** The code that issues the draw call(s) of a single item in a
+	 * {@link RenderQueue}. The item's program, texture and blend mode are
+	 * already bound when it is called.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	@FunctionalInterface
+	public static interface DrawCommand {
+		
+		/** Draws the item. */
+		public void draw();
+		
+	}
+	
+	// Submitted items, stored as parallel arrays
+	private long[] keys = new long[256];
+	private int[] programs = new int[256], textures = new int[256], blends = new int[256];
+	private DrawCommand[] commands = new DrawCommand[256];
+	private int count = 0;
+	
+	// Scratch space for the radix sort
+	private long[] sortKeys = new long[256], swapKeys = new long[256];
+	private int[] order = new int[256], swapOrder = new int[256];
+	private final int[] histogram = new int[256];
+	
+	private double depthNear = 0.01, depthFar = 1000.0;
+	private int stateChanges = 0, lastFrameStateChanges = 0;
+	private int items = 0, lastFrameItems = 0;
+	
+	/** @return The number of items that are waiting to be drawn */
+	public int size() {
+		return this.count;
+	}
+	
+	/** @return Whether or not this queue has nothing to draw */
+	public boolean isEmpty() {
+		return this.count == 0;
+	}
+	
+	/** @return The distance from the camera that maps to the front of the
+	 *         depth portion of the sort key */
+	public double getDepthNear() {
+		return this.depthNear;
+	}
+	
+	/** @return The distance from the camera that maps to the back of the
+	 *         depth portion of the sort key */
+	public double getDepthFar() {
+		return this.depthFar;
+	}
+	
+	/** Sets the range of distances that are spread over the depth portion of
+	 * the sort key. Items nearer or farther than this range are sorted as if
+	 * they were at its edges. This should roughly match the near and far
+	 * planes of the projection.
+	 * 
+	 * @param near The nearest distance from the camera
+	 * @param far The farthest distance from the camera
+	 * @return This queue
+	 * @throws IllegalArgumentException Thrown if <tt>far</tt> is not greater
+	 *             than <tt>near</tt> */
+	public RenderQueue setDepthRange(double near, double far) throws IllegalArgumentException {
+		if(!(far > near)) {
+			throw new IllegalArgumentException(String.format("Invalid depth range: %s to %s", Double.toString(near), Double.toString(far)));
+		}
+		this.depthNear = near;
+		this.depthFar = far;
+		return this;
+	}
+	
+	/** @return The number of program, texture and blend state changes that
+	 *         this queue has made since the last call to {@link #endFrame()} */
+	public int getStateChangesThisFrame() {
+		return this.stateChanges;
+	}
+	
+	/** @return The number of program, texture and blend state changes that
+	 *         this queue made during the previous frame */
+	public int getStateChangesLastFrame() {
+		return this.lastFrameStateChanges;
+	}
+	
+	/** @return The number of items that this queue drew during the previous
+	 *         frame */
+	public int getItemsLastFrame() {
+		return this.lastFrameItems;
+	}
+	
+	/** Marks the end of a frame, resetting the per-frame counters.
+	 * 
+	 * @return The number of state changes that this queue made during the
+	 *         frame that just ended */
+	public int endFrame() {
+		this.lastFrameStateChanges = this.stateChanges;
+		this.lastFrameItems = this.items;
+		this.stateChanges = this.items = 0;
+		return this.lastFrameStateChanges;
+	}
+	
+	/** Discards every item that has been submitted since the last flush. */
+	public void clear() {
+		Arrays.fill(this.commands, 0, this.count, null);
+		this.count = 0;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Adds an item to this queue.
+	 * 
+	 * @param layer The layer to draw the item on, from <tt>0</tt> to
+	 *            {@link #MAX_LAYER}. Lower layers are drawn first.
+	 * @param blendMode The blend mode to draw the item with. Items with a
+	 *            blend mode other than {@link BlendMode#NONE} are drawn after
+	 *            the opaque items on their layer, from back to front.
+	 * @param program The shader program to draw the item with, or <tt>0</tt>
+	 *            for the fixed-function pipeline
+	 * @param texture The 2D texture to bind to the first texture unit, or
+	 *            <tt>0</tt> for none
+	 * @param depth The distance from the camera to the item
+	 * @param command The code that draws the item
+	 * @return This queue
+	 * @throws IllegalArgumentException Thrown if the layer is out of range or
+	 *             the command is <tt>null</tt> */
+	public RenderQueue submit(int layer, BlendMode blendMode, int program, int texture, double depth, DrawCommand command) throws IllegalArgumentException {
+		if(layer < 0 || layer > MAX_LAYER) {
+			throw new IllegalArgumentException(String.format("Layer out of range (0-%s): %s", Integer.toString(MAX_LAYER), Integer.toString(layer)));
+		}
+		if(command == null) {
+			throw new IllegalArgumentException("Draw command cannot be null!");
+		}
+		blendMode = blendMode == null ? BlendMode.NONE : blendMode;
+		if(this.count == this.keys.length) {
+			int length = this.count * 2;
+			this.keys = Arrays.copyOf(this.keys, length);
+			this.programs = Arrays.copyOf(this.programs, length);
+			this.textures = Arrays.copyOf(this.textures, length);
+			this.blends = Arrays.copyOf(this.blends, length);
+			this.commands = Arrays.copyOf(this.commands, length);
+		}
+		int i = this.count++;
+		this.keys[i] = this.createSortKey(layer, blendMode, program, texture, depth);
+		this.programs[i] = program;
+		this.textures[i] = texture;
+		this.blends[i] = blendMode.ordinal();
+		this.commands[i] = command;
+		return this;
+	}
+	
+	/** Adds an item that uses the fixed-function pipeline to this queue.
+	 * 
+	 * @param layer The layer to draw the item on
+	 * @param blendMode The blend mode to draw the item with
+	 * @param texture The texture to bind, or <tt>null</tt> for none
+	 * @param depth The distance from the camera to the item
+	 * @param command The code that draws the item
+	 * @return This queue
+	 * @throws IllegalArgumentException Thrown if the layer is out of range or
+	 *             the command is <tt>null</tt>
+	 * @see #submit(int, BlendMode, int, int, double, DrawCommand) */
+	public RenderQueue submit(int layer, BlendMode blendMode, Texture texture, double depth, DrawCommand command) throws IllegalArgumentException {
+		return this.submit(layer, blendMode, 0, texture == null ? 0 : texture.getID(), depth, command);
+	}
+	
+	private final long createSortKey(int layer, BlendMode blendMode, int program, int texture, double depth) {
+		double normalized = (depth - this.depthNear) / (this.depthFar - this.depthNear);
+		long z = Math.round(Math.max(0.0, Math.min(1.0, normalized)) * DEPTH_MASK);
+		long key = ((long) layer) << LAYER_SHIFT;
+		if(blendMode == BlendMode.NONE) {
+			key |= (program & PROGRAM_MASK) << (TEXTURE_BITS + DEPTH_BITS + BLEND_BITS);
+			key |= (texture & TEXTURE_MASK) << (DEPTH_BITS + BLEND_BITS);
+			key |= z << BLEND_BITS;
+		} else {
+			key |= 1L << TRANSLUCENT_SHIFT;
+			key |= (DEPTH_MASK - z) << (PROGRAM_BITS + TEXTURE_BITS + BLEND_BITS);
+			key |= (program & PROGRAM_MASK) << (TEXTURE_BITS + BLEND_BITS);
+			key |= (texture & TEXTURE_MASK) << BLEND_BITS;
+			key |= blendMode.ordinal();
+		}
+		return key;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Sorts the submitted items into ascending key order with a stable
+	 * least-significant-digit radix sort, eight bits at a time. Digits that
+	 * every key shares are skipped, which is typical of the layer and
+	 * translucency bits. */
+	private final void sort() {
+		final int count = this.count;
+		if(this.sortKeys.length < count) {
+			this.sortKeys = new long[this.keys.length];
+			this.swapKeys = new long[this.keys.length];
+			this.order = new int[this.keys.length];
+			this.swapOrder = new int[this.keys.length];
+		}
+		long[] keys = this.sortKeys, swapKeys = this.swapKeys;
+		int[] order = this.order, swapOrder = this.swapOrder;
+		System.arraycopy(this.keys, 0, keys, 0, count);
+		for(int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		
+		final int[] histogram = this.histogram;
+		for(int shift = 0; shift < 64; shift += 8) {
+			Arrays.fill(histogram, 0);
+			for(int i = 0; i < count; i++) {
+				histogram[(int) (keys[i] >>> shift) & 0xFF]++;
+			}
+			if(histogram[(int) (keys[0] >>> shift) & 0xFF] == count) {
+				continue;
+			}
+			int offset = 0;
+			for(int digit = 0; digit < histogram.length; digit++) {
+				int digitCount = histogram[digit];
+				histogram[digit] = offset;
+				offset += digitCount;
+			}
+			for(int i = 0; i < count; i++) {
+				int position = histogram[(int) (keys[i] >>> shift) & 0xFF]++;
+				swapKeys[position] = keys[i];
+				swapOrder[position] = order[i];
+			}
+			long[] tmpKeys = keys;
+			keys = swapKeys;
+			swapKeys = tmpKeys;
+			int[] tmpOrder = order;
+			order = swapOrder;
+			swapOrder = tmpOrder;
+		}
+		this.sortKeys = keys;
+		this.swapKeys = swapKeys;
+		this.order = order;
+		this.swapOrder = swapOrder;
+	}
+	
+	/** Sorts and draws every item that has been submitted since the last
+	 * flush, then empties the queue. The texture unit's binding, the program
+	 * and the blend state are left as the last item needed them.
+	 * 
+	 * @return The number of state changes that were made */
+	public int flush() {
+		final int count = this.count;
+		if(count == 0) {
+			return 0;
+		}
+		this.sort();
+		
+		final GLState state = GLState.get();
+		final int[] order = this.order;
+		int changes = 0;
+		int program = -1, texture = -1, blend = -1;
+		for(int n = 0; n < count; n++) {
+			int i = order[n];
+			if(this.programs[i] != program) {
+				state.glUseProgram(program = this.programs[i]);
+				changes++;
+			}
+			if(this.textures[i] != texture) {
+				state.glBindTexture(0, GL11.GL_TEXTURE_2D, texture = this.textures[i]);
+				changes++;
+			}
+			if(this.blends[i] != blend) {
+				BLEND_MODES[blend = this.blends[i]].glApply();
+				changes++;
+			}
+			this.commands[i].draw();
+		}
+		this.stateChanges += changes;
+		this.items += count;
+		this.clear();
+		return changes;
+	}
+	
+}
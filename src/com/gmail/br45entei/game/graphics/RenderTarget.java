@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GLCapabilities;
+
+/** An offscreen framebuffer with one color attachment and an optional depth
+ * (or depth-stencil) attachment.<br>
+ * <br>
+ * Single-sampled targets render into a texture that can be sampled by later
+ * passes; multisampled targets render into renderbuffers and must be
+ * {@link #glResolve(RenderTarget) resolved} into a single-sampled target
+ * before their contents can be sampled.<br>
+ * <br>
+ * Render targets are normally handed out by a {@link RenderTargetPool}
+ * rather than created directly, so that passes which need a target of the
+ * same size and format share the same GL objects from frame to frame.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class RenderTarget {
+	
+	/** @return Whether or not the current OpenGL context supports framebuffer
+	 *         objects */
+	public static final boolean isSupported() {
+		try {
+			GLCapabilities caps = GL.getCapabilities();
+			return caps.glGenFramebuffers != 0L && caps.glBlitFramebuffer != 0L;
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+	}
+	
+	/** @return The largest sample count that the current context supports for
+	 *         multisampled targets */
+	public static final int getMaxSamples() {
+		return isSupported() ? GL11.glGetInteger(GL30.GL_MAX_SAMPLES) : 0;
+	}
+	
+	/** Binds the default framebuffer and sets the viewport to the given size.
+	 * 
+	 * @param width The width of the window
+	 * @param height The height of the window */
+	public static final void glBindDefault(int width, int height) {
+		GLState state = GLState.get();
+		state.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+		state.glViewport(0, 0, width, height);
+	}
+	
+	private static final boolean isFloatFormat(int internalFormat) {
+		switch(internalFormat) {
+		case GL30.GL_R16F:
+		case GL30.GL_R32F:
+		case GL30.GL_RG16F:
+		case GL30.GL_RG32F:
+		case GL30.GL_RGB16F:
+		case GL30.GL_RGB32F:
+		case GL30.GL_RGBA16F:
+		case GL30.GL_RGBA32F:
+		case GL30.GL_R11F_G11F_B10F:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	private static final int getPixelFormat(int internalFormat) {
+		switch(internalFormat) {
+		case GL30.GL_R8:
+		case GL30.GL_R16F:
+		case GL30.GL_R32F:
+			return GL11.GL_RED;
+		case GL30.GL_RG8:
+		case GL30.GL_RG16F:
+		case GL30.GL_RG32F:
+			return GL30.GL_RG;
+		case GL11.GL_RGB8:
+		case GL30.GL_RGB16F:
+		case GL30.GL_RGB32F:
+		case GL30.GL_R11F_G11F_B10F:
+			return GL11.GL_RGB;
+		default:
+			return GL11.GL_RGBA;
+		}
+	}
+	
+	private static final boolean hasStencil(int depthFormat) {
+		return depthFormat == GL30.GL_DEPTH24_STENCIL8 || depthFormat == GL30.GL_DEPTH32F_STENCIL8;
+	}
+	
+	//=========================================================================================================================
+	
+	/** The width of this target, in pixels */
+	public final int width;
+	/** The height of this target, in pixels */
+	public final int height;
+	/** The internal format of this target's color attachment (e.g.
+	 * {@link GL11#GL_RGBA8}) */
+	public final int colorFormat;
+	/** The number of samples per pixel, or <tt>0</tt> if this target is not
+	 * multisampled */
+	public final int samples;
+	/** The internal format of this target's depth attachment (e.g.
+	 * {@link GL14#GL_DEPTH_COMPONENT24}), or <tt>0</tt> if it has none */
+	public final int depthFormat;
+	
+	private volatile int framebuffer = 0;
+	private volatile int colorTexture = 0;
+	private volatile int colorRenderbuffer = 0;
+	private volatile int depthRenderbuffer = 0;
+	private volatile DeletionQueue deletionQueue = null;
+	
+	// Bookkeeping for RenderTargetPool
+	volatile boolean inUse = false;
+	volatile long lastUsedFrame = 0;
+	
+	/** Creates a new render target. This must be called on the thread that
+	 * the target will be rendered on.
+	 * 
+	 * @param width The width of the target, in pixels
+	 * @param height The height of the target, in pixels
+	 * @param colorFormat The internal format of the color attachment (e.g.
+	 *            {@link GL11#GL_RGBA8})
+	 * @param samples The number of samples per pixel, or <tt>0</tt> for a
+	 *            target that is not multisampled
+	 * @param depthFormat The internal format of the depth attachment (e.g.
+	 *            {@link GL14#GL_DEPTH_COMPONENT24}), or <tt>0</tt> for none
+	 * @throws IllegalArgumentException Thrown if the size or sample count is
+	 *             invalid
+	 * @throws IllegalStateException Thrown if framebuffer objects are not
+	 *             supported, or if the driver rejects the combination of
+	 *             formats */
+	public RenderTarget(int width, int height, int colorFormat, int samples, int depthFormat) throws IllegalArgumentException, IllegalStateException {
+		if(width <= 0 || height <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid render target size: %sx%s", Integer.toString(width), Integer.toString(height)));
+		}
+		if(samples < 0) {
+			throw new IllegalArgumentException(String.format("Invalid sample count: %s", Integer.toString(samples)));
+		}
+		if(!isSupported()) {
+			throw new IllegalStateException("Framebuffer objects are not supported by the current context!");
+		}
+		this.width = width;
+		this.height = height;
+		this.colorFormat = colorFormat;
+		this.samples = samples;
+		this.depthFormat = depthFormat;
+		this.glCreate();
+	}
+	
+	private final void glCreate() throws IllegalStateException {
+		final GLState state = GLState.get();
+		final int previousDraw = state.getDrawFramebuffer(), previousRead = state.getReadFramebuffer();
+		
+		this.framebuffer = GL30.glGenFramebuffers();
+		this.deletionQueue = DeletionQueue.get();
+		state.glBindFramebuffer(GL30.GL_FRAMEBUFFER, this.framebuffer);
+		if(this.samples > 0) {
+			this.colorRenderbuffer = GL30.glGenRenderbuffers();
+			GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, this.colorRenderbuffer);
+			GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, this.samples, this.colorFormat, this.width, this.height);
+			GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RENDERBUFFER, this.colorRenderbuffer);
+		} else {
+			this.colorTexture = GL11.glGenTextures();
+			state.glBindTexture(0, GL11.GL_TEXTURE_2D, this.colorTexture);
+			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, 0);
+			GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, this.colorFormat, this.width, this.height, 0, getPixelFormat(this.colorFormat), isFloatFormat(this.colorFormat) ? GL11.GL_FLOAT : GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+			state.glBindTexture(0, GL11.GL_TEXTURE_2D, 0);
+			GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL11.GL_TEXTURE_2D, this.colorTexture, 0);
+		}
+		if(this.depthFormat != 0) {
+			this.depthRenderbuffer = GL30.glGenRenderbuffers();
+			GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, this.depthRenderbuffer);
+			if(this.samples > 0) {
+				GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, this.samples, this.depthFormat, this.width, this.height);
+			} else {
+				GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, this.depthFormat, this.width, this.height);
+			}
+			GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, hasStencil(this.depthFormat) ? GL30.GL_DEPTH_STENCIL_ATTACHMENT : GL30.GL_DEPTH_ATTACHMENT, GL30.GL_RENDERBUFFER, this.depthRenderbuffer);
+		}
+		GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+		
+		final int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+		state.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, previousDraw);
+		state.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, previousRead);
+		if(status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+			this.dispose();
+			throw new IllegalStateException(String.format("Render target %s is incomplete: 0x%s", this.toString(), Integer.toHexString(status)));
+		}
+	}
+	
+	/** @return The framebuffer object that this target renders into */
+	public final int getFramebuffer() {
+		return this.framebuffer;
+	}
+	
+	/** @return The texture that holds this target's color attachment, or
+	 *         <tt>0</tt> if this target is multisampled (and must be
+	 *         {@link #glResolve(RenderTarget) resolved} first) */
+	public final int getColorTexture() {
+		return this.colorTexture;
+	}
+	
+	/** @return Whether or not this target is multisampled */
+	public final boolean isMultisampled() {
+		return this.samples > 0;
+	}
+	
+	/** @return Whether or not this target has a depth attachment */
+	public final boolean hasDepth() {
+		return this.depthFormat != 0;
+	}
+	
+	/** @return Whether or not this target has been {@link #dispose()
+	 *         disposed} */
+	public final boolean isDisposed() {
+		return this.framebuffer == 0;
+	}
+	
+	/** @param width The width to compare
+	 * @param height The height to compare
+	 * @param colorFormat The color format to compare
+	 * @param samples The sample count to compare
+	 * @param depthFormat The depth format to compare
+	 * @return Whether or not this target was created with the given size and
+	 *         formats */
+	public final boolean matches(int width, int height, int colorFormat, int samples, int depthFormat) {
+		return this.width == width && this.height == height && this.colorFormat == colorFormat && this.samples == samples && this.depthFormat == depthFormat;
+	}
+	
+	/** Binds this target for drawing and reading, and sets the viewport to
+	 * cover all of it.
+	 * 
+	 * @return This render target */
+	public final RenderTarget glBind() {
+		GLState state = GLState.get();
+		state.glBindFramebuffer(GL30.GL_FRAMEBUFFER, this.framebuffer);
+		state.glViewport(0, 0, this.width, this.height);
+		return this;
+	}
+	
+	/** Binds this target's color texture to the given texture unit.
+	 * 
+	 * @param unit The texture unit, starting at <tt>0</tt>
+	 * @return This render target
+	 * @throws IllegalStateException Thrown if this target is multisampled */
+	public final RenderTarget bindColorTexture(int unit) throws IllegalStateException {
+		if(this.colorTexture == 0) {
+			throw new IllegalStateException(String.format("Render target %s has no color texture to bind; resolve it into a single-sampled target first!", this.toString()));
+		}
+		GLState.get().glBindTexture(unit, GL11.GL_TEXTURE_2D, this.colorTexture);
+		return this;
+	}
+	
+	/** Copies this target's color (and depth, if both targets have depth of
+	 * the same format) into the given target, resolving multisampled pixels
+	 * and scaling if the sizes differ. Multisampled pixels can't be scaled
+	 * while they are resolved, so if this target is multisampled and the sizes
+	 * differ, only the area that both targets share (from their lower left
+	 * corners) is copied. The framebuffers that were bound for reading and
+	 * drawing beforehand are bound again afterwards.
+	 * 
+	 * @param destination The target to copy into, or <tt><b>null</b></tt> to
+	 *            copy into the default framebuffer, using this target's
+	 *            size
+	 * @return This render target */
+	public final RenderTarget glResolve(RenderTarget destination) {
+		if(destination == null) {
+			return this.glBlit(0, 0, 0, this.width, this.height, false);
+		}
+		final boolean depth = this.depthFormat != 0 && this.depthFormat == destination.depthFormat && this.width == destination.width && this.height == destination.height;
+		return this.glBlit(destination.framebuffer, 0, 0, destination.width, destination.height, depth);
+	}
+	
+	/** Copies this target's color into the given area of the default
+	 * framebuffer, scaling it if the sizes differ (or, if this target is
+	 * multisampled, copying only the area that both share). The framebuffers
+	 * that were bound for reading and drawing beforehand are bound again
+	 * afterwards.
+	 * 
+	 * @param x The x coordinate of the area's lower left corner
+	 * @param y The y coordinate of the area's lower left corner
+	 * @param width The width of the area
+	 * @param height The height of the area
+	 * @return This render target */
+	public final RenderTarget glBlitToScreen(int x, int y, int width, int height) {
+		return this.glBlit(0, x, y, width, height, false);
+	}
+	
+	private final RenderTarget glBlit(int framebuffer, int x, int y, int width, int height, boolean depth) {
+		GLState state = GLState.get();
+		final int previousRead = state.getReadFramebuffer(), previousDraw = state.getDrawFramebuffer();
+		state.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, this.framebuffer);
+		state.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, framebuffer);
+		// Multisampled sources can only be resolved into a rectangle of the same size, and depth can't be filtered
+		int srcWidth = this.width, srcHeight = this.height;
+		if(this.samples != 0) {
+			srcWidth = width = Math.min(this.width, width);
+			srcHeight = height = Math.min(this.height, height);
+		}
+		final boolean scaled = width != srcWidth || height != srcHeight;
+		final int filter = scaled ? GL11.GL_LINEAR : GL11.GL_NEAREST;
+		GL30.glBlitFramebuffer(0, 0, srcWidth, srcHeight, x, y, x + width, y + height, GL11.GL_COLOR_BUFFER_BIT, filter);
+		if(depth) {
+			GL30.glBlitFramebuffer(0, 0, srcWidth, srcHeight, x, y, x + width, y + height, GL11.GL_DEPTH_BUFFER_BIT, GL11.GL_NEAREST);
+		}
+		state.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, previousRead);
+		state.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, previousDraw);
+		return this;
+	}
+	
+	/** Releases this target's framebuffer, texture and renderbuffers. They
+	 * are deleted by the {@link DeletionQueue} of the context that created
+	 * them at the end of that context's frame. */
+	public final void dispose() {
+		final DeletionQueue queue = this.deletionQueue;
+		if(queue != null) {
+			queue.deleteFramebuffer(this.framebuffer);
+			queue.deleteTexture(this.colorTexture);
+			queue.deleteRenderbuffer(this.colorRenderbuffer);
+			queue.deleteRenderbuffer(this.depthRenderbuffer);
+			this.deletionQueue = null;
+		}
+		this.framebuffer = this.colorTexture = this.colorRenderbuffer = this.depthRenderbuffer = 0;
+	}
+	
+	@Override
+	public final String toString() {
+		return String.format("%sx%s (format 0x%s, %s samples, depth 0x%s)", Integer.toString(this.width), Integer.toString(this.height), Integer.toHexString(this.colorFormat), Integer.toString(this.samples), Integer.toHexString(this.depthFormat));
+	}
+	
+}
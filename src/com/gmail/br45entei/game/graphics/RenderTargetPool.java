@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.util.ArrayList;
+
+/** Hands out {@link RenderTarget}s to the passes of a frame and takes them
+ * back at the end of it, so that targets of the same size and formats are
+ * created once and reused from frame to frame instead of being rebuilt.<br>
+ * <br>
+ * A pass {@link #acquire(int, int, int, int, int) acquires} a target that
+ * nothing else is using this frame, creating one only if every matching
+ * target is taken. Every target is returned to the pool by
+ * {@link #endFrame()} (or earlier, by {@link #release(RenderTarget)}), and
+ * targets that have not been acquired for {@link #getEvictionFrames()}
+ * frames are deleted.<br>
+ * <br>
+ * Targets that should cover the whole window are acquired with
+ * {@link #acquireScreen(int, int, int)}. While the window is being resized
+ * those keep their previous size until the new size has held still for
+ * {@link #getResizeDebounceMillis()} milliseconds, so dragging the edge of
+ * the window doesn't reallocate every screen-sized target on every frame;
+ * in the meantime they should be drawn to the window scaled (e.g. with
+ * {@link RenderTarget#glBlitToScreen(int, int, int, int)}).<br>
+ * <br>
+ * Each thread has its own pool, since each context is only ever current on
+ * the thread that renders with it.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class RenderTargetPool {
+	
+	/** The default time that a new window size must hold still for before
+	 * screen-sized targets are reallocated, in milliseconds */
+	public static final long DEFAULT_RESIZE_DEBOUNCE = 200L;
+	/** The default number of frames that a target may go unused for before it
+	 * is deleted */
+	public static final int DEFAULT_EVICTION_FRAMES = 60;
+	
+	private static final ThreadLocal<RenderTargetPool> pools = ThreadLocal.withInitial(RenderTargetPool::new);
+	
+	/** @return The render target pool of the context that is current on the
+	 *         calling thread */
+	public static final RenderTargetPool get() {
+		return pools.get();
+	}
+	
+	//=========================================================================================================================
+	
+	private final ArrayList<RenderTarget> targets = new ArrayList<>();
+	private long frame = 1;
+	private volatile long resizeDebounce = DEFAULT_RESIZE_DEBOUNCE;
+	private volatile int evictionFrames = DEFAULT_EVICTION_FRAMES;
+	
+	private int screenWidth = 0, screenHeight = 0;
+	private int pendingWidth = 0, pendingHeight = 0;
+	private long pendingSince = 0L;
+	
+	private RenderTargetPool() {
+	}
+	
+	/** @return The time that a new window size must hold still for before
+	 *         screen-sized targets are reallocated, in milliseconds */
+	public final long getResizeDebounceMillis() {
+		return this.resizeDebounce;
+	}
+	
+	/** @param millis The time that a new window size must hold still for
+	 *            before screen-sized targets are reallocated, in
+	 *            milliseconds
+	 * @return This pool */
+	public final RenderTargetPool setResizeDebounceMillis(long millis) {
+		this.resizeDebounce = Math.max(0L, millis);
+		return this;
+	}
+	
+	/** @return The number of frames that a target may go unused for before it
+	 *         is deleted */
+	public final int getEvictionFrames() {
+		return this.evictionFrames;
+	}
+	
+	/** @param frames The number of frames that a target may go unused for
+	 *            before it is deleted
+	 * @return This pool */
+	public final RenderTargetPool setEvictionFrames(int frames) {
+		this.evictionFrames = Math.max(1, frames);
+		return this;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Tells this pool the current size of the window. This is called by the
+	 * {@link GLThread} before every frame.
+	 * 
+	 * @param width The width of the window
+	 * @param height The height of the window */
+	public final void setViewportSize(int width, int height) {
+		final long now = System.currentTimeMillis();
+		if(width != this.pendingWidth || height != this.pendingHeight) {
+			this.pendingWidth = width;
+			this.pendingHeight = height;
+			this.pendingSince = now;
+		}
+		if(this.screenWidth <= 0 || this.screenHeight <= 0 || now - this.pendingSince >= this.resizeDebounce) {
+			this.screenWidth = width;
+			this.screenHeight = height;
+		}
+	}
+	
+	/** @return The width that screen-sized targets are allocated with */
+	public final int getScreenWidth() {
+		return this.screenWidth;
+	}
+	
+	/** @return The height that screen-sized targets are allocated with */
+	public final int getScreenHeight() {
+		return this.screenHeight;
+	}
+	
+	/** @return Whether or not the window's size has changed recently enough
+	 *         that screen-sized targets are still at the previous size */
+	public final boolean isResizing() {
+		return this.screenWidth != this.pendingWidth || this.screenHeight != this.pendingHeight;
+	}
+	
+	/** Acquires a target that nothing else is using this frame, creating one
+	 * if necessary. The target is returned to the pool at the end of the
+	 * frame.
+	 * 
+	 * @param width The width of the target, in pixels
+	 * @param height The height of the target, in pixels
+	 * @param colorFormat The internal format of the color attachment
+	 * @param samples The number of samples per pixel, or <tt>0</tt> for a
+	 *            target that is not multisampled
+	 * @param depthFormat The internal format of the depth attachment, or
+	 *            <tt>0</tt> for none
+	 * @return The acquired render target
+	 * @throws IllegalArgumentException Thrown if the size or sample count is
+	 *             invalid
+	 * @throws IllegalStateException Thrown if a new target had to be created
+	 *             and could not be
+	 * @see RenderTarget#RenderTarget(int, int, int, int, int) */
+	public final RenderTarget acquire(int width, int height, int colorFormat, int samples, int depthFormat) throws IllegalArgumentException, IllegalStateException {
+		for(RenderTarget target : this.targets) {
+			if(!target.inUse && target.matches(width, height, colorFormat, samples, depthFormat)) {
+				return this.markUsed(target);
+			}
+		}
+		RenderTarget target = new RenderTarget(width, height, colorFormat, samples, depthFormat);
+		this.targets.add(target);
+		return this.markUsed(target);
+	}
+	
+	private final RenderTarget markUsed(RenderTarget target) {
+		target.inUse = true;
+		target.lastUsedFrame = this.frame;
+		return target;
+	}
+	
+	/** Acquires a target the size of the window (as of the last completed
+	 * resize).
+	 * 
+	 * @param colorFormat The internal format of the color attachment
+	 * @param samples The number of samples per pixel, or <tt>0</tt> for a
+	 *            target that is not multisampled
+	 * @param depthFormat The internal format of the depth attachment, or
+	 *            <tt>0</tt> for none
+	 * @return The acquired render target
+	 * @throws IllegalStateException Thrown if the window size is not known
+	 *             yet, or if a new target had to be created and could not
+	 *             be
+	 * @see #acquire(int, int, int, int, int) */
+	public final RenderTarget acquireScreen(int colorFormat, int samples, int depthFormat) throws IllegalStateException {
+		if(this.screenWidth <= 0 || this.screenHeight <= 0) {
+			throw new IllegalStateException(String.format("Cannot acquire a screen-sized render target: the window size is %sx%s!", Integer.toString(this.screenWidth), Integer.toString(this.screenHeight)));
+		}
+		return this.acquire(this.screenWidth, this.screenHeight, colorFormat, samples, depthFormat);
+	}
+	
+	/** Acquires two single-sampled targets of the same size and formats for a
+	 * chain of post-processing passes that each read the previous pass's
+	 * output.
+	 * 
+	 * @param width The width of the targets, in pixels
+	 * @param height The height of the targets, in pixels
+	 * @param colorFormat The internal format of the color attachments
+	 * @param depthFormat The internal format of the depth attachments, or
+	 *            <tt>0</tt> for none
+	 * @return The acquired pair of render targets
+	 * @see #acquire(int, int, int, int, int) */
+	public final PingPong acquirePingPong(int width, int height, int colorFormat, int depthFormat) {
+		return new PingPong(this.acquire(width, height, colorFormat, 0, depthFormat), this.acquire(width, height, colorFormat, 0, depthFormat));
+	}
+	
+	/** Returns the given target to the pool before the end of the frame, so
+	 * that a later pass in the same frame can acquire it.
+	 * 
+	 * @param target The target to release
+	 * @return This pool */
+	public final RenderTargetPool release(RenderTarget target) {
+		if(target != null) {
+			target.inUse = false;
+		}
+		return this;
+	}
+	
+	/** @param pair The pair of targets to release
+	 * @return This pool
+	 * @see #release(RenderTarget) */
+	public final RenderTargetPool release(PingPong pair) {
+		if(pair != null) {
+			this.release(pair.source);
+			this.release(pair.destination);
+		}
+		return this;
+	}
+	
+	/** Returns every target to the pool and deletes the targets that have not
+	 * been acquired for {@link #getEvictionFrames()} frames. This is called by
+	 * the {@link GLThread} after every frame. */
+	public final void endFrame() {
+		final long frame = this.frame++;
+		for(int i = this.targets.size() - 1; i >= 0; i--) {
+			RenderTarget target = this.targets.get(i);
+			target.inUse = false;
+			if(frame - target.lastUsedFrame >= this.evictionFrames) {
+				target.dispose();
+				this.targets.remove(i);
+			}
+		}
+	}
+	
+	/** @return The number of targets that currently exist in this pool */
+	public final int getTargetCount() {
+		return this.targets.size();
+	}
+	
+	/** Deletes every target in this pool. This should be called before the
+	 * context that they were created on is destroyed. */
+	public final void dispose() {
+		for(RenderTarget target : this.targets) {
+			target.dispose();
+		}
+		this.targets.clear();
+		this.screenWidth = this.screenHeight = this.pendingWidth = this.pendingHeight = 0;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Two render targets of the same size and formats that post-processing
+	 * passes alternate between: each pass reads the
+	 * {@link #getSource() source} and draws into the
+	 * {@link #getDestination() destination}, then the two are
+	 * {@link #swap() swapped} for the next pass.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class PingPong {
+		
+		private RenderTarget source, destination;
+		
+		protected PingPong(RenderTarget source, RenderTarget destination) {
+			this.source = source;
+			this.destination = destination;
+		}
+		
+		/** @return The target that the next pass reads from */
+		public final RenderTarget getSource() {
+			return this.source;
+		}
+		
+		/** @return The target that the next pass draws into */
+		public final RenderTarget getDestination() {
+			return this.destination;
+		}
+		
+		/** Swaps the source and destination targets, so that the output of the
+		 * pass that just finished becomes the input of the next one.
+		 * 
+		 * @return This pair */
+		public final PingPong swap() {
+			RenderTarget swap = this.source;
+			this.source = this.destination;
+			this.destination = swap;
+			return this;
+		}
+		
+	}
+	
+}
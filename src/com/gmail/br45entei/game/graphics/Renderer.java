@@ -203,7 +203,7 @@ public interface Renderer {
 		
 		@Override
 		public void onViewportChanged(Rectangle oldViewport, Rectangle newViewport) {
-			GL11.glViewport(newViewport.x, newViewport.y, newViewport.width, newViewport.height);// Set the viewport to match the glCanvas' size (and optional offset)
+			GLState.get().glViewport(newViewport.x, newViewport.y, newViewport.width, newViewport.height);// Set the viewport to match the glCanvas' size (and optional offset)
 		}
 		
 		@Override
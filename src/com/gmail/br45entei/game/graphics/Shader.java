@@ -23,6 +23,8 @@
  *******************************************************************************/
 package com.gmail.br45entei.game.graphics;
 
+import com.gmail.br45entei.game.graphics.GLStats.Counter;
+import com.gmail.br45entei.game.graphics.GLThread.InitializationProgress;
 import com.gmail.br45entei.game.math.Matrix4f;
 import com.gmail.br45entei.util.BufferUtil;
 import com.gmail.br45entei.util.CodeUtil;
@@ -30,16 +32,31 @@ import com.gmail.br45entei.util.CodeUtil;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 import java.util.regex.Pattern;
 
 import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.ARBParallelShaderCompile;
+import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
 import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.KHRParallelShaderCompile;
 import org.lwjgl.util.glu.Util;
 
 /** Shader is a class which can load and compile GLSL code which can then be
@@ -58,6 +75,8 @@ public class Shader {
 	protected volatile int program;
 	protected volatile int vertexShader;
 	protected volatile int fragmentShader;
+	/** The deletion queue of the context that this program was created on */
+	private volatile DeletionQueue deletionQueue;
 	
 	private volatile String vertexShaderErr;
 	private volatile String fragmentShaderErr;
@@ -67,8 +86,28 @@ public class Shader {
 	private volatile String programLog;
 	
 	private volatile boolean vertexCompiled, fragmentCompiled, programLinked;
+	/** Whether or not the shaders and program have been submitted to the
+	 * driver by {@link #glBeginCompile()} without their results having been
+	 * collected by {@link #glFinishCompile()} yet */
+	private volatile boolean compilePending = false;
+	private volatile boolean loadedFromCache = false;
+	private volatile byte[] cacheKey = null;
 	
 	private final ConcurrentHashMap<String, Uniform<?>> uniforms = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, TypedUniform> typedUniforms = new ConcurrentHashMap<>();
+	/** The typed uniforms whose shadow values differ from what was last
+	 * uploaded, in the order in which they were changed */
+	private final ArrayList<TypedUniform> dirtyUniforms = new ArrayList<>();
+	
+	/** The program's active uniforms and attributes as enumerated right after
+	 * it was linked, sorted by name. A variable's index in these arrays is its
+	 * slot. */
+	private volatile ActiveVariable[] activeUniforms = new ActiveVariable[0], activeAttributes = new ActiveVariable[0];
+	private volatile HashMap<String, ActiveVariable> activeUniformNames = new HashMap<>(), activeAttributeNames = new HashMap<>();
+	/** The uniform handles that have been created for this program, indexed by
+	 * slot */
+	private volatile Uniform<?>[] uniformSlots = new Uniform<?>[0];
+	private volatile TypedUniform[] typedUniformSlots = new TypedUniform[0];
 	
 	/** @param name The name of this shader program
 	 * @param vertexShaderSource The vertex shader's source code
@@ -101,6 +140,238 @@ public class Shader {
 		return this;
 	}
 	
+	/** Uploads every {@link TypedUniform} whose value has changed since it was
+	 * last uploaded, in one pass.<br>
+	 * This is called automatically by {@link #bind()}, so it only needs to be
+	 * called manually when typed uniforms are changed via their
+	 * <tt>set(...)</tt> methods while this shader is already bound.<br>
+	 * This shader must be bound when this method is called.
+	 * 
+	 * @return This shader */
+	public final Shader glFlushUniforms() {
+		synchronized(this.dirtyUniforms) {
+			final int size = this.dirtyUniforms.size();
+			for(int i = 0; i < size; i++) {
+				this.dirtyUniforms.get(i).glUpload();
+			}
+			this.dirtyUniforms.clear();
+		}
+		return this;
+	}
+	
+	final void markDirty(TypedUniform uniform) {
+		synchronized(this.dirtyUniforms) {
+			if(!uniform.dirty) {
+				uniform.dirty = true;
+				this.dirtyUniforms.add(uniform);
+			}
+		}
+	}
+	
+	/** Looks up the locations of this shader's typed uniforms again after the
+	 * program has been (re)linked, and marks them all as dirty so that their
+	 * shadow values are uploaded into the new program the next time it is
+	 * bound. */
+	private final void glRelocateTypedUniforms() {
+		final TypedUniform[] typedUniformSlots = this.typedUniformSlots;
+		for(TypedUniform uniform : this.typedUniforms.values()) {
+			ActiveVariable active = this.getActiveUniform(uniform.name);
+			uniform.location = active == null ? -1 : active.location;
+			uniform.slot = active == null ? -1 : active.slot;
+			if(active != null) {
+				typedUniformSlots[active.slot] = uniform;
+			}
+			this.markDirty(uniform);
+		}
+	}
+	
+	/** Enumerates the active uniforms and attributes of the freshly linked
+	 * program and assigns each of them its slot. */
+	private final void glReflectProgram() {
+		final ActiveVariable[] uniforms = glGetActiveVariables(this.program, true);
+		final ActiveVariable[] attributes = glGetActiveVariables(this.program, false);
+		this.activeUniformNames = mapActiveVariables(uniforms);
+		this.activeAttributeNames = mapActiveVariables(attributes);
+		this.uniformSlots = new Uniform<?>[uniforms.length];
+		this.typedUniformSlots = new TypedUniform[uniforms.length];
+		this.activeUniforms = uniforms;
+		this.activeAttributes = attributes;
+		
+		if(GLUtil.isGL31Available()) {
+			final int blocks = GL20.glGetProgrami(this.program, GL31.GL_ACTIVE_UNIFORM_BLOCKS);
+			for(int i = 0; i < blocks; i++) {
+				final int binding = UniformBuffer.getBindingPoint(GL31.glGetActiveUniformBlockName(this.program, i));
+				if(binding != -1) {
+					GL31.glUniformBlockBinding(this.program, i, binding);
+				}
+			}
+		}
+	}
+	
+	/** Binds the uniform block with the given name to the given binding
+	 * point. Blocks whose names were {@link UniformBuffer#registerBlock(String,
+	 * int) registered} are bound automatically when the program is linked.
+	 * 
+	 * @param blockName The name of the uniform block
+	 * @param binding The binding point to bind it to
+	 * @return Whether or not the program has an active uniform block with the
+	 *         given name */
+	public final boolean glSetUniformBlockBinding(String blockName, int binding) {
+		if(this.program == 0 || !GLUtil.isGL31Available()) {
+			return false;
+		}
+		final int index = GL31.glGetUniformBlockIndex(this.program, blockName);
+		if(index == GL31.GL_INVALID_INDEX) {
+			return false;
+		}
+		GL31.glUniformBlockBinding(this.program, index, binding);
+		return true;
+	}
+	
+	private final void clearReflection() {
+		this.activeUniforms = this.activeAttributes = new ActiveVariable[0];
+		this.activeUniformNames = this.activeAttributeNames = new HashMap<>();
+		this.uniformSlots = new Uniform<?>[0];
+		this.typedUniformSlots = new TypedUniform[0];
+	}
+	
+	private static final ActiveVariable[] glGetActiveVariables(int program, boolean uniformsOrAttributes) {
+		final int count = GL20.glGetProgrami(program, uniformsOrAttributes ? GL20.GL_ACTIVE_UNIFORMS : GL20.GL_ACTIVE_ATTRIBUTES);
+		final int maxLength = GL20.glGetProgrami(program, uniformsOrAttributes ? GL20.GL_ACTIVE_UNIFORM_MAX_LENGTH : GL20.GL_ACTIVE_ATTRIBUTE_MAX_LENGTH);
+		final IntBuffer size = BufferUtils.createIntBuffer(1), type = BufferUtils.createIntBuffer(1);
+		ActiveVariable[] variables = new ActiveVariable[count];
+		for(int i = 0; i < count; i++) {
+			String name = uniformsOrAttributes ? GL20.glGetActiveUniform(program, i, maxLength, size, type) : GL20.glGetActiveAttrib(program, i, maxLength, size, type);
+			final boolean array = name.endsWith("[0]");
+			if(array) {
+				name = name.substring(0, name.length() - 3);
+			}
+			final int location = uniformsOrAttributes ? GL20.glGetUniformLocation(program, name) : GL20.glGetAttribLocation(program, name);
+			variables[i] = new ActiveVariable(-1, name, type.get(0), size.get(0), array, location);
+		}
+		Arrays.sort(variables, (a, b) -> a.name.compareTo(b.name));
+		for(int slot = 0; slot < count; slot++) {
+			ActiveVariable variable = variables[slot];
+			variables[slot] = new ActiveVariable(slot, variable.name, variable.type, variable.size, variable.array, variable.location);
+		}
+		return variables;
+	}
+	
+	private static final HashMap<String, ActiveVariable> mapActiveVariables(ActiveVariable[] variables) {
+		HashMap<String, ActiveVariable> map = new HashMap<>();
+		for(ActiveVariable variable : variables) {
+			map.put(variable.name, variable);
+			if(variable.array) {
+				map.put(variable.name.concat("[0]"), variable);
+			}
+		}
+		return map;
+	}
+	
+	/** @return The number of active uniforms in this shader's program (and
+	 *         therefore the number of uniform slots), or <tt>0</tt> if it is
+	 *         not compiled */
+	public final int getActiveUniformCount() {
+		return this.activeUniforms.length;
+	}
+	
+	/** @return The number of active attributes in this shader's program (and
+	 *         therefore the number of attribute slots), or <tt>0</tt> if it is
+	 *         not compiled */
+	public final int getActiveAttributeCount() {
+		return this.activeAttributes.length;
+	}
+	
+	/** Resolves the slot of the active uniform with the given name. Slots are
+	 * stable for as long as the program stays linked, so callers should
+	 * resolve them once and then use the slot-based methods.
+	 * 
+	 * @param name The name of the uniform (arrays may be given with or without
+	 *            their <tt>[0]</tt> suffix)
+	 * @return The uniform's slot, or <tt>-1</tt> if the program does not have
+	 *         an active uniform with the given name */
+	public final int getUniformSlot(String name) {
+		ActiveVariable active = this.activeUniformNames.get(name);
+		return active == null ? -1 : active.slot;
+	}
+	
+	/** @param name The name of the attribute
+	 * @return The attribute's slot, or <tt>-1</tt> if the program does not
+	 *         have an active attribute with the given name
+	 * @see #getUniformSlot(String) */
+	public final int getAttributeSlot(String name) {
+		ActiveVariable active = this.activeAttributeNames.get(name);
+		return active == null ? -1 : active.slot;
+	}
+	
+	/** @param slot The uniform's slot
+	 * @return The active uniform in the given slot
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the slot is invalid */
+	public final ActiveVariable getActiveUniform(int slot) throws ArrayIndexOutOfBoundsException {
+		return this.activeUniforms[slot];
+	}
+	
+	/** @param name The name of the uniform
+	 * @return The active uniform with the given name, or <tt>null</tt> if there
+	 *         is none */
+	public final ActiveVariable getActiveUniform(String name) {
+		return this.activeUniformNames.get(name);
+	}
+	
+	/** @param slot The attribute's slot
+	 * @return The active attribute in the given slot
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the slot is invalid */
+	public final ActiveVariable getActiveAttribute(int slot) throws ArrayIndexOutOfBoundsException {
+		return this.activeAttributes[slot];
+	}
+	
+	/** @param name The name of the attribute
+	 * @return The active attribute with the given name, or <tt>null</tt> if
+	 *         there is none */
+	public final ActiveVariable getActiveAttribute(String name) {
+		return this.activeAttributeNames.get(name);
+	}
+	
+	/** @param slot The uniform's slot
+	 * @return The uniform's location, or <tt>-1</tt> if it is part of a
+	 *         uniform block
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the slot is invalid */
+	public final int getUniformLocation(int slot) throws ArrayIndexOutOfBoundsException {
+		return this.activeUniforms[slot].location;
+	}
+	
+	/** @param slot The attribute's slot
+	 * @return The attribute's location, or <tt>-1</tt> for built-in
+	 *         attributes
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the slot is invalid */
+	public final int getAttributeLocation(int slot) throws ArrayIndexOutOfBoundsException {
+		return this.activeAttributes[slot].location;
+	}
+	
+	/** @param name The name of the attribute
+	 * @return The attribute's location, or <tt>-1</tt> if the program does not
+	 *         have an active attribute with the given name */
+	public final int getAttributeLocation(String name) {
+		ActiveVariable active = this.activeAttributeNames.get(name);
+		return active == null ? -1 : active.location;
+	}
+	
+	/** @param slot The uniform's slot
+	 * @return The {@link Uniform} that was created for the given slot, or
+	 *         <tt>null</tt> if none has been created yet
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the slot is invalid */
+	public final Uniform<?> getUniform(int slot) throws ArrayIndexOutOfBoundsException {
+		return this.uniformSlots[slot];
+	}
+	
+	/** @param slot The uniform's slot
+	 * @return The {@link TypedUniform} that was created for the given slot, or
+	 *         <tt>null</tt> if none has been created yet
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the slot is invalid */
+	public final TypedUniform getTypedUniform(int slot) throws ArrayIndexOutOfBoundsException {
+		return this.typedUniformSlots[slot];
+	}
+	
 	public final String getName() {
 		return this.name;
 	}
@@ -110,24 +381,24 @@ public class Shader {
 		return this;
 	}
 	
-	private final boolean glCompileShader(boolean vertexOrFragment) {
-		getOpenGLError();
-		
+	private final int glSubmitShader(boolean vertexOrFragment) {
 		int shader = GL20.glCreateShader(vertexOrFragment ? GL20.GL_VERTEX_SHADER : GL20.GL_FRAGMENT_SHADER);
 		GL20.glShaderSource(shader, vertexOrFragment ? this.vertexShaderSource : this.fragmentShaderSource);
 		GL20.glCompileShader(shader);
-		
-		String err = getOpenGLError();
+		return shader;
+	}
+	
+	private final boolean glCheckShader(boolean vertexOrFragment) {
+		final int shader = vertexOrFragment ? this.vertexShader : this.fragmentShader;
+		String err = GLDebug.glPollErrors();
 		String log = getShaderLog(shader);
 		final int[] shaderCompiled = new int[1];
 		GL20.glGetShaderiv(shader, GL20.GL_COMPILE_STATUS, shaderCompiled);
 		
 		if(vertexOrFragment) {
-			this.vertexShader = shader;
 			this.vertexShaderErr = err;
 			this.vertexShaderLog = log;
 		} else {
-			this.fragmentShader = shader;
 			this.fragmentShaderErr = err;
 			this.fragmentShaderLog = log;
 		}
@@ -138,59 +409,261 @@ public class Shader {
 		return this.vertexCompiled && this.fragmentCompiled && this.programLinked && this.program != 0;
 	}
 	
+	/** Releases this shader's program and shader objects. They are deleted by
+	 * the {@link DeletionQueue} of the context that created them at the end of
+	 * that context's frame.
+	 * 
+	 * @return This shader */
 	public Shader glDisposeProgram() {
-		if(GL20.glIsShader(this.vertexShader)) {
-			GL20.glDeleteShader(this.vertexShader);
+		final DeletionQueue queue = this.deletionQueue;
+		if(queue != null) {
+			queue.deleteShader(this.vertexShader);
+			queue.deleteShader(this.fragmentShader);
+			queue.deleteProgram(this.program);
 		}
+		this.deletionQueue = null;
 		this.vertexShader = 0;
 		this.vertexCompiled = false;
 		
-		if(GL20.glIsShader(this.fragmentShader)) {
-			GL20.glDeleteShader(this.fragmentShader);
-		}
 		this.fragmentShader = 0;
 		this.fragmentCompiled = false;
 		
-		if(GL20.glIsProgram(this.program)) {
-			GL20.glDeleteProgram(this.program);
-		}
 		this.program = 0;
 		this.programLinked = false;
+		this.clearReflection();
 		return this;
 	}
 	
+	/** Compiles and links this shader program, or loads it from the
+	 * {@link ShaderCache} if an up-to-date binary of it was cached.<br>
+	 * To compile several shaders at once, use
+	 * {@link #glCompileAll(InitializationProgress, Collection)} instead.
+	 * 
+	 * @return Whether or not the program was successfully linked */
 	public boolean glCompileShader() {
-		this.vertexCompiled = this.glCompileShader(true);
-		this.fragmentCompiled = this.glCompileShader(false);
+		if(this.glBeginCompile()) {
+			return true;
+		}
+		return this.glFinishCompile();
+	}
+	
+	/** Loads this program from the {@link ShaderCache} if possible, and
+	 * otherwise submits its shaders for compilation and the program for
+	 * linking without waiting for the results, so that the driver may work on
+	 * several programs at once.<br>
+	 * If this method returns <tt>false</tt>, {@link #glFinishCompile()} must be
+	 * called afterwards (preferably once {@link #glPollCompile()} returns
+	 * <tt>true</tt>) to collect the results.
+	 * 
+	 * @return Whether or not the program was loaded from the cache, in which
+	 *         case it is already linked and ready to use */
+	public final boolean glBeginCompile() {
+		if(this.compilePending) {
+			return false;
+		}
+		this.loadedFromCache = false;
+		this.cacheKey = ShaderCache.isEnabled() && ShaderCache.isSupported() ? ShaderCache.getKey(this.vertexShaderSource, this.fragmentShaderSource) : null;
+		if(this.cacheKey != null && this.glLoadProgramBinary()) {
+			return true;
+		}
 		
-		if(this.vertexCompiled && this.fragmentCompiled) {
-			try {
-				this.program = GL20.glCreateProgram();
-				GL20.glAttachShader(this.program, this.vertexShader);
-				GL20.glAttachShader(this.program, this.fragmentShader);
-				GL20.glLinkProgram(this.program);
-				this.programErr = getOpenGLError();
+		GLDebug.glPollErrors();
+		this.vertexShader = this.glSubmitShader(true);
+		this.fragmentShader = this.glSubmitShader(false);
+		this.program = GL20.glCreateProgram();
+		this.deletionQueue = DeletionQueue.get();
+		if(this.cacheKey != null) {
+			GL41.glProgramParameteri(this.program, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+		}
+		GL20.glAttachShader(this.program, this.vertexShader);
+		GL20.glAttachShader(this.program, this.fragmentShader);
+		GL20.glLinkProgram(this.program);
+		this.compilePending = true;
+		return false;
+	}
+	
+	/** @return Whether or not the driver has finished compiling and linking
+	 *         the program that was submitted by {@link #glBeginCompile()}, so
+	 *         that {@link #glFinishCompile()} will not block. Always
+	 *         <tt>true</tt> if the driver does not support
+	 *         <tt>GL_KHR_parallel_shader_compile</tt>, or if nothing is
+	 *         pending. */
+	public final boolean glPollCompile() {
+		if(!this.compilePending || !isParallelCompileSupported()) {
+			return true;
+		}
+		return GL20.glGetProgrami(this.program, KHRParallelShaderCompile.GL_COMPLETION_STATUS_KHR) == GL11.GL_TRUE;
+	}
+	
+	/** Collects the results of the compilation that was started by
+	 * {@link #glBeginCompile()}, waiting for the driver to finish if
+	 * necessary. If the program linked, its binary is written to the
+	 * {@link ShaderCache}.
+	 * 
+	 * @return Whether or not the program was successfully linked */
+	public final boolean glFinishCompile() {
+		if(!this.compilePending) {
+			return this.isCompiled();
+		}
+		this.compilePending = false;
+		this.vertexCompiled = this.glCheckShader(true);
+		this.fragmentCompiled = this.glCheckShader(false);
+		this.programLinked = false;
+		try {
+			if(this.vertexCompiled && this.fragmentCompiled) {
+				this.programErr = GLDebug.glPollErrors();
 				this.programLog = getProgramLog(this.program);
 				final int[] linked = new int[1];
 				GL20.glGetProgramiv(this.program, GL20.GL_LINK_STATUS, linked);
 				this.programLinked = linked[0] == GL11.GL_TRUE;
-				
-				return this.programLinked;
-			} finally {
-				GL20.glDeleteShader(this.vertexShader);
-				GL20.glDeleteShader(this.fragmentShader);
-				this.vertexShader = 0;
-				this.fragmentShader = 0;
-				
-				if(!this.programLinked) {
-					GL20.glDeleteProgram(this.program);
-					this.program = 0;
+				if(this.programLinked) {
+					if(this.cacheKey != null) {
+						ShaderCache.store(this.name, this.cacheKey, this.program);
+					}
+					this.glLinked();
 				}
+			} else {
+				this.programErr = this.programLog = null;
+			}
+			return this.programLinked;
+		} finally {
+			GL20.glDeleteShader(this.vertexShader);
+			GL20.glDeleteShader(this.fragmentShader);
+			this.vertexShader = 0;
+			this.fragmentShader = 0;
+			
+			if(!this.programLinked) {
+				GL20.glDeleteProgram(this.program);
+				this.program = 0;
 			}
 		}
-		this.programLinked = false;
-		this.programErr = this.programLog = null;
-		return false;
+	}
+	
+	private final boolean glLoadProgramBinary() {
+		ShaderCache.Entry entry = ShaderCache.load(this.name, this.cacheKey);
+		if(entry == null) {
+			return false;
+		}
+		final int program = GL20.glCreateProgram();
+		GL41.glProgramBinary(program, entry.binaryFormat, entry.binary);
+		// A binary that the driver rejects always leaves the program unlinked, so there's no need to poll for errors here
+		final boolean linked = GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) == GL11.GL_TRUE;
+		if(!linked) {// The driver rejected the binary; fall back to compiling from source
+			GL20.glDeleteProgram(program);
+			ShaderCache.delete(this.name, this.cacheKey);
+			return false;
+		}
+		this.program = program;
+		this.deletionQueue = DeletionQueue.get();
+		this.vertexCompiled = this.fragmentCompiled = this.programLinked = true;
+		this.vertexShaderErr = this.fragmentShaderErr = this.programErr = "";
+		this.vertexShaderLog = this.fragmentShaderLog = this.programLog = "";
+		this.loadedFromCache = true;
+		this.glLinked();
+		return true;
+	}
+	
+	private final void glLinked() {
+		this.glReflectProgram();
+		this.glRelocateTypedUniforms();
+		this.glOnLinked();
+	}
+	
+	/** Called after this program has been successfully linked (or loaded from
+	 * the {@link ShaderCache}), and before it is used. Subclasses should
+	 * register their uniforms here.<br>
+	 * The default implementation does nothing. */
+	protected void glOnLinked() {
+	}
+	
+	/** @return Whether or not this program was loaded from the
+	 *         {@link ShaderCache} the last time it was compiled */
+	public final boolean wasLoadedFromCache() {
+		return this.loadedFromCache;
+	}
+	
+	/** @return Whether or not the current OpenGL context supports
+	 *         <tt>GL_KHR_parallel_shader_compile</tt> (or its ARB
+	 *         equivalent) */
+	public static final boolean isParallelCompileSupported() {
+		GLCapabilities caps;
+		try {
+			caps = GL.getCapabilities();
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+		return caps != null && (caps.GL_KHR_parallel_shader_compile || caps.GL_ARB_parallel_shader_compile);
+	}
+	
+	/** Compiles and links all of the given shaders at once.<br>
+	 * Programs that are in the {@link ShaderCache} are loaded from it; all of
+	 * the others are submitted to the driver together before any of their
+	 * results are collected, and, where <tt>GL_KHR_parallel_shader_compile</tt>
+	 * is supported, collected in whichever order the driver finishes them, so
+	 * that they can be compiled in parallel.
+	 * 
+	 * @param progress The progress tracker to report to as the shaders finish
+	 *            (may be <tt><b>null</b></tt>)
+	 * @param shaders The shaders to compile
+	 * @return The number of shaders that were successfully linked. Shaders
+	 *         which failed can be found via {@link #isCompiled()}, and their
+	 *         logs via {@link #getCompileLog()}. */
+	public static final int glCompileAll(InitializationProgress progress, Collection<? extends Shader> shaders) {
+		final int total = shaders.size();
+		if(total == 0) {
+			return 0;
+		}
+		GLCapabilities caps = GL.getCapabilities();
+		if(caps.GL_KHR_parallel_shader_compile) {
+			KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(0xFFFFFFFF);// Let the driver decide
+		} else if(caps.GL_ARB_parallel_shader_compile) {
+			ARBParallelShaderCompile.glMaxShaderCompilerThreadsARB(0xFFFFFFFF);
+		}
+		int finished = 0, linked = 0;
+		List<Shader> pending = new ArrayList<>(total);
+		for(Shader shader : shaders) {
+			if(shader.glBeginCompile()) {
+				finished++;
+				linked++;
+			} else {
+				pending.add(shader);
+			}
+		}
+		reportCompileProgress(progress, finished, total);
+		while(!pending.isEmpty()) {
+			boolean finishedAny = false;
+			for(Iterator<Shader> it = pending.iterator(); it.hasNext();) {
+				Shader shader = it.next();
+				if(shader.glPollCompile()) {
+					it.remove();
+					if(shader.glFinishCompile()) {
+						linked++;
+					}
+					finished++;
+					finishedAny = true;
+					reportCompileProgress(progress, finished, total);
+				}
+			}
+			if(!finishedAny) {
+				CodeUtil.sleep(1L);
+			}
+		}
+		return linked;
+	}
+	
+	/** @param progress The progress tracker to report to as the shaders finish
+	 *            (may be <tt><b>null</b></tt>)
+	 * @param shaders The shaders to compile
+	 * @return The number of shaders that were successfully linked
+	 * @see #glCompileAll(InitializationProgress, Collection) */
+	public static final int glCompileAll(InitializationProgress progress, Shader... shaders) {
+		return glCompileAll(progress, Arrays.asList(shaders));
+	}
+	
+	private static final void reportCompileProgress(InitializationProgress progress, int finished, int total) {
+		if(progress != null && !progress.isDisposed()) {
+			progress.set(finished / (float) total, String.format("Compiling shaders... (%s/%s)", Integer.toString(finished), Integer.toString(total)));
+		}
 	}
 	
 	public final String getCompileLog() {
@@ -225,16 +698,21 @@ public class Shader {
 	}
 	
 	public int glGetUniformLocation(String name) {
-		if(!GL20.glIsProgram(this.program)) {
-			return -1;
+		ActiveVariable active = this.activeUniformNames.get(name);
+		if(active != null) {
+			return active.location;
 		}
-		return GL20.glGetUniformLocation(this.program, nullTerminatedCharSequence(name));
+		if(this.program == 0 || name == null || name.indexOf('[') == -1) {
+			return -1;// Only individual array elements (e.g. "lights[3]") aren't reflected
+		}
+		return GL20.glGetUniformLocation(this.program, name);
 	}
 	
 	public boolean bind() {
 		if(this.program != 0) {//if(GL20.glIsProgram(this.program)) {
-			GL20.glUseProgram(this.program);
+			GLState.get().glUseProgram(this.program);
 			activeShader = this;
+			this.glFlushUniforms();
 			return true;
 		}
 		if(activeShader == this) {
@@ -253,7 +731,7 @@ public class Shader {
 	}
 	
 	public static final void unbind() {
-		GL20.glUseProgram(0);
+		GLState.get().glUseProgram(0);
 		activeShader = null;
 	}
 	
@@ -280,6 +758,10 @@ public class Shader {
 		}
 		Uniform<T> uniform = new Uniform<>(this, name, dataType, def, transpose, matrix2x2fOrVec4f);
 		this.uniforms.put(name, uniform);
+		ActiveVariable active = this.getActiveUniform(name);
+		if(active != null) {
+			this.uniformSlots[active.slot] = uniform;
+		}
 		return uniform;
 	}
 	
@@ -298,6 +780,240 @@ public class Shader {
 		return this.uniforms.get(name);
 	}
 	
+	private final <U extends TypedUniform> U getOrCreateTypedUniform(String name, Class<U> type, BiFunction<Shader, String, U> constructor) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		TypedUniform check = this.typedUniforms.get(name == null ? "" : name);
+		if(check != null) {
+			if(type.isInstance(check)) {
+				return type.cast(check);
+			}
+			throw new IllegalArgumentException(String.format("A typed uniform named \"%s\" already exists in the shader \"%s\", however its type (\"%s\") does not match the one requested (\"%s\")!", name, this.name, check.getClass().getSimpleName(), type.getSimpleName()));
+		}
+		if(!GL20.glIsProgram(this.program)) {
+			throw new IllegalStateException(String.format("Cannot get or create a uniform for the shader \"%s\" if it has not been successfully compiled!", this.name));
+		}
+		if(name == null || name.isEmpty()) {
+			throw new NullPointerException("Uniform name must be non-null and non-empty!");
+		}
+		ActiveVariable active = this.getActiveUniform(name);
+		if(active == null || active.location == -1) {
+			throw new IllegalArgumentException(String.format("The uniform \"%s\" is not defined in the shader program \"%s\"!", name, this.name));
+		}
+		U uniform = constructor.apply(this, name);
+		if(!uniform.isCompatibleType(active.type)) {
+			throw new IllegalArgumentException(String.format("The uniform \"%s\" in the shader program \"%s\" is of type %s, which cannot be set through a %s!", name, this.name, getTypeName(active.type), type.getSimpleName()));
+		}
+		uniform.slot = active.slot;
+		uniform.glReadValue();
+		this.typedUniforms.put(name, uniform);
+		this.typedUniformSlots[active.slot] = uniform;
+		return uniform;
+	}
+	
+	/** @param name The name of the <tt>int</tt> or <tt>bool</tt> uniform
+	 * @return The typed handle for the uniform with the given name
+	 * @throws IllegalStateException Thrown if this shader is not compiled
+	 * @throws NullPointerException Thrown if the name is null or empty
+	 * @throws IllegalArgumentException Thrown if the uniform is not defined in
+	 *             this shader, or if a handle of a different type was
+	 *             already created for it */
+	public final UniformInt getUniformInt(String name) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		return this.getOrCreateTypedUniform(name, UniformInt.class, UniformInt::new);
+	}
+	
+	/** @param name The name of the <tt>float</tt> uniform
+	 * @return The typed handle for the uniform with the given name
+	 * @see #getUniformInt(String) */
+	public final UniformFloat getUniformFloat(String name) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		return this.getOrCreateTypedUniform(name, UniformFloat.class, UniformFloat::new);
+	}
+	
+	/** @param name The name of the <tt>vec2</tt> uniform
+	 * @return The typed handle for the uniform with the given name
+	 * @see #getUniformInt(String) */
+	public final UniformVec2 getUniformVec2(String name) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		return this.getOrCreateTypedUniform(name, UniformVec2.class, UniformVec2::new);
+	}
+	
+	/** @param name The name of the <tt>vec3</tt> uniform
+	 * @return The typed handle for the uniform with the given name
+	 * @see #getUniformInt(String) */
+	public final UniformVec3 getUniformVec3(String name) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		return this.getOrCreateTypedUniform(name, UniformVec3.class, UniformVec3::new);
+	}
+	
+	/** @param name The name of the <tt>vec4</tt> uniform
+	 * @return The typed handle for the uniform with the given name
+	 * @see #getUniformInt(String) */
+	public final UniformVec4 getUniformVec4(String name) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		return this.getOrCreateTypedUniform(name, UniformVec4.class, UniformVec4::new);
+	}
+	
+	/** @param name The name of the <tt>mat4</tt> uniform
+	 * @return The typed handle for the uniform with the given name
+	 * @see #getUniformInt(String) */
+	public final UniformMat4 getUniformMat4(String name) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		return this.getOrCreateTypedUniform(name, UniformMat4.class, UniformMat4::new);
+	}
+	
+	/** @param name The name of the <tt>sampler*</tt> uniform
+	 * @return The typed handle for the uniform with the given name
+	 * @see #getUniformInt(String) */
+	public final UniformSampler getUniformSampler(String name) throws IllegalStateException, NullPointerException, IllegalArgumentException {
+		return this.getOrCreateTypedUniform(name, UniformSampler.class, UniformSampler::new);
+	}
+	
+	/** @param type The GL type enum of a uniform or attribute, as reported by
+	 *            {@link ActiveVariable#type}
+	 * @return Whether or not the given type is one of the sampler types */
+	public static final boolean isSamplerType(int type) {
+		switch(type) {
+		case GL20.GL_SAMPLER_1D:
+		case GL20.GL_SAMPLER_2D:
+		case GL20.GL_SAMPLER_3D:
+		case GL20.GL_SAMPLER_CUBE:
+		case GL20.GL_SAMPLER_1D_SHADOW:
+		case GL20.GL_SAMPLER_2D_SHADOW:
+		case GL30.GL_SAMPLER_1D_ARRAY:
+		case GL30.GL_SAMPLER_2D_ARRAY:
+		case GL30.GL_SAMPLER_1D_ARRAY_SHADOW:
+		case GL30.GL_SAMPLER_2D_ARRAY_SHADOW:
+		case GL30.GL_SAMPLER_CUBE_SHADOW:
+		case GL30.GL_INT_SAMPLER_1D:
+		case GL30.GL_INT_SAMPLER_2D:
+		case GL30.GL_INT_SAMPLER_3D:
+		case GL30.GL_INT_SAMPLER_CUBE:
+		case GL30.GL_INT_SAMPLER_1D_ARRAY:
+		case GL30.GL_INT_SAMPLER_2D_ARRAY:
+		case GL30.GL_UNSIGNED_INT_SAMPLER_1D:
+		case GL30.GL_UNSIGNED_INT_SAMPLER_2D:
+		case GL30.GL_UNSIGNED_INT_SAMPLER_3D:
+		case GL30.GL_UNSIGNED_INT_SAMPLER_CUBE:
+		case GL30.GL_UNSIGNED_INT_SAMPLER_1D_ARRAY:
+		case GL30.GL_UNSIGNED_INT_SAMPLER_2D_ARRAY:
+		case GL31.GL_SAMPLER_2D_RECT:
+		case GL31.GL_SAMPLER_2D_RECT_SHADOW:
+		case GL31.GL_SAMPLER_BUFFER:
+		case GL31.GL_INT_SAMPLER_2D_RECT:
+		case GL31.GL_INT_SAMPLER_BUFFER:
+		case GL31.GL_UNSIGNED_INT_SAMPLER_2D_RECT:
+		case GL31.GL_UNSIGNED_INT_SAMPLER_BUFFER:
+		case GL32.GL_SAMPLER_2D_MULTISAMPLE:
+		case GL32.GL_INT_SAMPLER_2D_MULTISAMPLE:
+		case GL32.GL_UNSIGNED_INT_SAMPLER_2D_MULTISAMPLE:
+		case GL32.GL_SAMPLER_2D_MULTISAMPLE_ARRAY:
+		case GL32.GL_INT_SAMPLER_2D_MULTISAMPLE_ARRAY:
+		case GL32.GL_UNSIGNED_INT_SAMPLER_2D_MULTISAMPLE_ARRAY:
+		case GL40.GL_SAMPLER_CUBE_MAP_ARRAY:
+		case GL40.GL_SAMPLER_CUBE_MAP_ARRAY_SHADOW:
+		case GL40.GL_INT_SAMPLER_CUBE_MAP_ARRAY:
+		case GL40.GL_UNSIGNED_INT_SAMPLER_CUBE_MAP_ARRAY:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/** @param type The GL type enum of a uniform or attribute, as reported by
+	 *            {@link ActiveVariable#type}
+	 * @return The scalar type that the given type is made up of (one of
+	 *         <tt>GL_FLOAT</tt>, <tt>GL_DOUBLE</tt>, <tt>GL_INT</tt>,
+	 *         <tt>GL_UNSIGNED_INT</tt> or <tt>GL_BOOL</tt>; samplers are
+	 *         <tt>GL_INT</tt>), or <tt>0</tt> if it is unknown */
+	public static final int getComponentType(int type) {
+		switch(type) {
+		case GL11.GL_FLOAT:
+		case GL20.GL_FLOAT_VEC2:
+		case GL20.GL_FLOAT_VEC3:
+		case GL20.GL_FLOAT_VEC4:
+		case GL20.GL_FLOAT_MAT2:
+		case GL20.GL_FLOAT_MAT3:
+		case GL20.GL_FLOAT_MAT4:
+		case GL21.GL_FLOAT_MAT2x3:
+		case GL21.GL_FLOAT_MAT2x4:
+		case GL21.GL_FLOAT_MAT3x2:
+		case GL21.GL_FLOAT_MAT3x4:
+		case GL21.GL_FLOAT_MAT4x2:
+		case GL21.GL_FLOAT_MAT4x3:
+			return GL11.GL_FLOAT;
+		case GL11.GL_DOUBLE:
+		case GL40.GL_DOUBLE_VEC2:
+		case GL40.GL_DOUBLE_VEC3:
+		case GL40.GL_DOUBLE_VEC4:
+		case GL40.GL_DOUBLE_MAT2:
+		case GL40.GL_DOUBLE_MAT3:
+		case GL40.GL_DOUBLE_MAT4:
+		case GL40.GL_DOUBLE_MAT2x3:
+		case GL40.GL_DOUBLE_MAT2x4:
+		case GL40.GL_DOUBLE_MAT3x2:
+		case GL40.GL_DOUBLE_MAT3x4:
+		case GL40.GL_DOUBLE_MAT4x2:
+		case GL40.GL_DOUBLE_MAT4x3:
+			return GL11.GL_DOUBLE;
+		case GL11.GL_INT:
+		case GL20.GL_INT_VEC2:
+		case GL20.GL_INT_VEC3:
+		case GL20.GL_INT_VEC4:
+			return GL11.GL_INT;
+		case GL11.GL_UNSIGNED_INT:
+		case GL30.GL_UNSIGNED_INT_VEC2:
+		case GL30.GL_UNSIGNED_INT_VEC3:
+		case GL30.GL_UNSIGNED_INT_VEC4:
+			return GL11.GL_UNSIGNED_INT;
+		case GL20.GL_BOOL:
+		case GL20.GL_BOOL_VEC2:
+		case GL20.GL_BOOL_VEC3:
+		case GL20.GL_BOOL_VEC4:
+			return GL20.GL_BOOL;
+		default:
+			return isSamplerType(type) ? GL11.GL_INT : 0;
+		}
+	}
+	
+	/** @param type The GL type enum of a uniform or attribute, as reported by
+	 *            {@link ActiveVariable#type}
+	 * @return The GLSL name of the given type if it is a common one, or its
+	 *         hexadecimal value otherwise */
+	public static final String getTypeName(int type) {
+		switch(type) {
+		case GL11.GL_FLOAT:
+			return "float";
+		case GL20.GL_FLOAT_VEC2:
+			return "vec2";
+		case GL20.GL_FLOAT_VEC3:
+			return "vec3";
+		case GL20.GL_FLOAT_VEC4:
+			return "vec4";
+		case GL20.GL_FLOAT_MAT2:
+			return "mat2";
+		case GL20.GL_FLOAT_MAT3:
+			return "mat3";
+		case GL20.GL_FLOAT_MAT4:
+			return "mat4";
+		case GL11.GL_DOUBLE:
+			return "double";
+		case GL11.GL_INT:
+			return "int";
+		case GL20.GL_INT_VEC2:
+			return "ivec2";
+		case GL20.GL_INT_VEC3:
+			return "ivec3";
+		case GL20.GL_INT_VEC4:
+			return "ivec4";
+		case GL11.GL_UNSIGNED_INT:
+			return "uint";
+		case GL20.GL_BOOL:
+			return "bool";
+		case GL20.GL_SAMPLER_2D:
+			return "sampler2D";
+		case GL30.GL_SAMPLER_2D_ARRAY:
+			return "sampler2DArray";
+		case GL20.GL_SAMPLER_CUBE:
+			return "samplerCube";
+		default:
+			return isSamplerType(type) ? "sampler (0x".concat(Integer.toHexString(type)).concat(")") : "0x".concat(Integer.toHexString(type));
+		}
+	}
+	
 	public static final String getShaderLog(int shader) {
 		int[] len = new int[1];
 		GL20.glGetShaderiv(shader, GL20.GL_INFO_LOG_LENGTH, len);
@@ -365,6 +1081,10 @@ public class Shader {
 			if(this.dataType == null) {
 				throw new NullPointerException("The uniform's dataType must not be null!");
 			}
+			ActiveVariable active = this.shader.getActiveUniform(name);
+			if(active != null && !isCompatibleType(dataType, active.type)) {
+				throw new IllegalArgumentException(String.format("The uniform \"%s\" in the shader program \"%s\" is of type %s, which cannot be set with a value of type %s!", name, this.shader.getName(), getTypeName(active.type), dataType.getName()));
+			}
 			this.value = this.def = def;
 			if(this.def == null) {
 				throw new NullPointerException("The uniform's default value 'def' must not be null!");
@@ -374,6 +1094,23 @@ public class Shader {
 			this.glSetValue(null);
 		}
 		
+		private static final boolean isCompatibleType(Class<?> dataType, int type) {
+			final int componentType = getComponentType(type);
+			if(componentType == 0) {
+				return true;// Unknown to us; let the driver decide
+			}
+			if(Integer.TYPE.isAssignableFrom(dataType) || Integer.class.isAssignableFrom(dataType) || int[].class.isAssignableFrom(dataType)) {
+				return componentType == GL11.GL_INT || componentType == GL20.GL_BOOL;
+			}
+			if(Float.TYPE.isAssignableFrom(dataType) || Float.class.isAssignableFrom(dataType) || float[].class.isAssignableFrom(dataType) || Matrix4f.class.isAssignableFrom(dataType) || org.lwjgl.util.vector.Matrix4f.class.isAssignableFrom(dataType)) {
+				return componentType == GL11.GL_FLOAT || componentType == GL20.GL_BOOL;
+			}
+			if(Double.TYPE.isAssignableFrom(dataType) || Double.class.isAssignableFrom(dataType) || double[].class.isAssignableFrom(dataType)) {
+				return componentType == GL11.GL_DOUBLE;
+			}
+			return true;
+		}
+		
 		public boolean getTranspose() {
 			return this.transpose;
 		}
@@ -522,6 +1259,7 @@ public class Shader {
 				if(value == null) {
 					value = this.def;
 				}
+				GLStats.count(Counter.UNIFORM_UPLOADS);
 				if(Integer.TYPE.isAssignableFrom(this.dataType)) {
 					Integer val = (Integer) value;
 					GL20.glUniform1i(this.location, val.intValue());
@@ -653,4 +1391,501 @@ public class Shader {
 		
 	}
 	
+	//=====================================================================================================================
+	
+	/** Describes one of the active uniforms or attributes of a linked shader
+	 * program, as reported by <tt>glGetActiveUniform</tt> or
+	 * <tt>glGetActiveAttrib</tt>.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class ActiveVariable {
+		
+		/** This variable's index in its program's sorted list of active
+		 * uniforms or attributes */
+		public final int slot;
+		/** This variable's name, without the <tt>[0]</tt> suffix if it is an
+		 * array */
+		public final String name;
+		/** This variable's GL type enum, e.g. <tt>GL_FLOAT_VEC4</tt> */
+		public final int type;
+		/** The number of array elements, or <tt>1</tt> if this variable is not
+		 * an array */
+		public final int size;
+		public final boolean array;
+		/** This variable's location, or <tt>-1</tt> for uniforms in uniform
+		 * blocks and for built-in attributes */
+		public final int location;
+		
+		ActiveVariable(int slot, String name, int type, int size, boolean array, int location) {
+			this.slot = slot;
+			this.name = name;
+			this.type = type;
+			this.size = size;
+			this.array = array;
+			this.location = location;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%s %s%s (slot %s, location %s)", getTypeName(this.type), this.name, this.array ? "[".concat(Integer.toString(this.size)).concat("]") : "", Integer.toString(this.slot), Integer.toString(this.location));
+		}
+		
+	}
+	
+	/** TypedUniform is the base class of the typed uniform handles returned by
+	 * {@link Shader#getUniformFloat(String)} and its siblings.<br>
+	 * Unlike {@link Uniform}, typed uniforms keep a primitive shadow copy of
+	 * their value, never box it, and never bind or unbind their program: their
+	 * <tt>set(...)</tt> methods only record the new value and mark the uniform
+	 * as dirty if it actually changed, and all dirty uniforms of a shader are
+	 * then uploaded in one pass the next time that shader is
+	 * {@link Shader#bind() bound}.<br>
+	 * The <tt>glSet(...)</tt> variants additionally upload the value right
+	 * away if the shader is already bound.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static abstract class TypedUniform {
+		
+		public final Shader shader;
+		public final String name;
+		volatile int location;
+		volatile int slot = -1;
+		volatile boolean dirty = false;
+		
+		TypedUniform(Shader shader, String name) {
+			this.shader = shader;
+			this.name = name;
+			this.location = shader.glGetUniformLocation(name);
+		}
+		
+		/** @return This uniform's location in its shader's program, or
+		 *         <tt>-1</tt> if the program no longer defines it */
+		public final int getLocation() {
+			return this.location;
+		}
+		
+		/** @return This uniform's slot in its shader's program, or <tt>-1</tt>
+		 *         if the program no longer defines it
+		 * @see Shader#getUniformSlot(String) */
+		public final int getSlot() {
+			return this.slot;
+		}
+		
+		/** @return Whether or not this uniform's value has changed since it was
+		 *         last uploaded */
+		public final boolean isDirty() {
+			return this.dirty;
+		}
+		
+		/** Marks this uniform as dirty, forcing its value to be uploaded again
+		 * the next time its shader is bound.
+		 * 
+		 * @return This uniform */
+		public TypedUniform invalidate() {
+			this.shader.markDirty(this);
+			return this;
+		}
+		
+		/** Uploads this uniform's value now if its shader is bound; otherwise
+		 * the value stays dirty until the shader is next bound. */
+		final void glUploadIfBound() {
+			if(this.dirty && this.shader.isBound()) {
+				this.shader.glFlushUniforms();
+			}
+		}
+		
+		final void glUpload() {
+			this.dirty = false;
+			if(this.location != -1) {
+				this.glUploadValue();
+				GLStats.count(Counter.UNIFORM_UPLOADS);
+			}
+		}
+		
+		/** Issues the <tt>glUniform*</tt> call for this uniform's current
+		 * shadow value. The program is guaranteed to be bound. */
+		protected abstract void glUploadValue();
+		
+		/** Reads this uniform's current value back from the program into its
+		 * shadow copy, so that initializers and <tt>layout(binding=N)</tt>
+		 * qualifiers in the GLSL source are respected. */
+		protected abstract void glReadValue();
+		
+		/** @param type The GL type enum of the active uniform that this handle
+		 *            is being registered for
+		 * @return Whether or not this handle can set a uniform of the given
+		 *         type */
+		protected abstract boolean isCompatibleType(int type);
+		
+	}
+	
+	/** A typed handle for an <tt>int</tt> or <tt>bool</tt> uniform.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static class UniformInt extends TypedUniform {
+		
+		volatile int value;
+		
+		UniformInt(Shader shader, String name) {
+			super(shader, name);
+		}
+		
+		@Override
+		protected boolean isCompatibleType(int type) {
+			return type == GL11.GL_INT || type == GL20.GL_BOOL || isSamplerType(type);
+		}
+		
+		public final int get() {
+			return this.value;
+		}
+		
+		public UniformInt set(int value) {
+			if(this.value != value) {
+				this.value = value;
+				this.shader.markDirty(this);
+			}
+			return this;
+		}
+		
+		public UniformInt set(boolean value) {
+			return this.set(value ? 1 : 0);
+		}
+		
+		public UniformInt glSet(int value) {
+			this.set(value).glUploadIfBound();
+			return this;
+		}
+		
+		@Override
+		protected void glUploadValue() {
+			GL20.glUniform1i(this.location, this.value);
+		}
+		
+		@Override
+		protected void glReadValue() {
+			this.value = GL20.glGetUniformi(this.shader.program, this.location);
+		}
+		
+	}
+	
+	/** A typed handle for a <tt>sampler*</tt> uniform, whose value is the
+	 * texture unit that the sampler reads from.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class UniformSampler extends UniformInt {
+		
+		UniformSampler(Shader shader, String name) {
+			super(shader, name);
+		}
+		
+		@Override
+		protected boolean isCompatibleType(int type) {
+			return isSamplerType(type);
+		}
+		
+		/** @return The texture unit (<tt>0</tt>-based, not
+		 *         <tt>GL_TEXTURE0</tt>-based) that this sampler reads from */
+		public final int getUnit() {
+			return this.value;
+		}
+		
+		/** @param unit The texture unit (<tt>0</tt>-based, not
+		 *            <tt>GL_TEXTURE0</tt>-based) that this sampler should
+		 *            read from
+		 * @return This uniform */
+		public UniformSampler setUnit(int unit) {
+			if(unit < 0) {
+				throw new IllegalArgumentException(String.format("Invalid texture unit specified for sampler uniform \"%s\": %s", this.name, Integer.toString(unit)));
+			}
+			this.set(unit);
+			return this;
+		}
+		
+	}
+	
+	/** A typed handle for a <tt>float</tt> uniform.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class UniformFloat extends TypedUniform {
+		
+		private volatile float value;
+		
+		UniformFloat(Shader shader, String name) {
+			super(shader, name);
+		}
+		
+		@Override
+		protected boolean isCompatibleType(int type) {
+			return type == GL11.GL_FLOAT;
+		}
+		
+		public final float get() {
+			return this.value;
+		}
+		
+		public UniformFloat set(float value) {
+			if(Float.floatToIntBits(this.value) != Float.floatToIntBits(value)) {
+				this.value = value;
+				this.shader.markDirty(this);
+			}
+			return this;
+		}
+		
+		public UniformFloat glSet(float value) {
+			this.set(value).glUploadIfBound();
+			return this;
+		}
+		
+		@Override
+		protected void glUploadValue() {
+			GL20.glUniform1f(this.location, this.value);
+		}
+		
+		@Override
+		protected void glReadValue() {
+			this.value = GL20.glGetUniformf(this.shader.program, this.location);
+		}
+		
+	}
+	
+	/** Base class for the typed handles of uniforms that are backed by a small
+	 * fixed-length <tt>float</tt> array.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	static abstract class TypedUniformFloats extends TypedUniform {
+		
+		protected final float[] value;
+		
+		TypedUniformFloats(Shader shader, String name, int length) {
+			super(shader, name);
+			this.value = new float[length];
+		}
+		
+		/** @return This uniform's current (shadow) value. The returned array
+		 *         must not be modified. */
+		public final float[] get() {
+			return this.value;
+		}
+		
+		/** @param dst The array to copy this uniform's current value into
+		 * @return The given array */
+		public final float[] get(float[] dst) {
+			System.arraycopy(this.value, 0, dst, 0, this.value.length);
+			return dst;
+		}
+		
+		@Override
+		protected void glReadValue() {
+			GL20.glGetUniformfv(this.shader.program, this.location, this.value);
+		}
+		
+		protected final void setComponent(int index, float value) {
+			if(Float.floatToIntBits(this.value[index]) != Float.floatToIntBits(value)) {
+				this.value[index] = value;
+				this.shader.markDirty(this);
+			}
+		}
+		
+		protected final void setComponents(float[] values, int offset) {
+			if(values.length - offset < this.value.length) {
+				throw new IllegalArgumentException(String.format("Invalid [float] array length specified for uniform \"%s\"! Expected at least %s values after offset %s; got %s", this.name, Integer.toString(this.value.length), Integer.toString(offset), Integer.toString(values.length - offset)));
+			}
+			for(int i = 0; i < this.value.length; i++) {
+				this.setComponent(i, values[offset + i]);
+			}
+		}
+		
+	}
+	
+	/** A typed handle for a <tt>vec2</tt> uniform.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class UniformVec2 extends TypedUniformFloats {
+		
+		UniformVec2(Shader shader, String name) {
+			super(shader, name, 2);
+		}
+		
+		@Override
+		protected boolean isCompatibleType(int type) {
+			return type == GL20.GL_FLOAT_VEC2;
+		}
+		
+		public UniformVec2 set(float x, float y) {
+			this.setComponent(0, x);
+			this.setComponent(1, y);
+			return this;
+		}
+		
+		public UniformVec2 set(float[] xy, int offset) {
+			this.setComponents(xy, offset);
+			return this;
+		}
+		
+		public UniformVec2 glSet(float x, float y) {
+			this.set(x, y).glUploadIfBound();
+			return this;
+		}
+		
+		@Override
+		protected void glUploadValue() {
+			GL20.glUniform2f(this.location, this.value[0], this.value[1]);
+		}
+		
+	}
+	
+	/** A typed handle for a <tt>vec3</tt> uniform.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class UniformVec3 extends TypedUniformFloats {
+		
+		UniformVec3(Shader shader, String name) {
+			super(shader, name, 3);
+		}
+		
+		@Override
+		protected boolean isCompatibleType(int type) {
+			return type == GL20.GL_FLOAT_VEC3;
+		}
+		
+		public UniformVec3 set(float x, float y, float z) {
+			this.setComponent(0, x);
+			this.setComponent(1, y);
+			this.setComponent(2, z);
+			return this;
+		}
+		
+		public UniformVec3 set(float[] xyz, int offset) {
+			this.setComponents(xyz, offset);
+			return this;
+		}
+		
+		public UniformVec3 glSet(float x, float y, float z) {
+			this.set(x, y, z).glUploadIfBound();
+			return this;
+		}
+		
+		@Override
+		protected void glUploadValue() {
+			GL20.glUniform3f(this.location, this.value[0], this.value[1], this.value[2]);
+		}
+		
+	}
+	
+	/** A typed handle for a <tt>vec4</tt> uniform.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class UniformVec4 extends TypedUniformFloats {
+		
+		UniformVec4(Shader shader, String name) {
+			super(shader, name, 4);
+		}
+		
+		@Override
+		protected boolean isCompatibleType(int type) {
+			return type == GL20.GL_FLOAT_VEC4;
+		}
+		
+		public UniformVec4 set(float x, float y, float z, float w) {
+			this.setComponent(0, x);
+			this.setComponent(1, y);
+			this.setComponent(2, z);
+			this.setComponent(3, w);
+			return this;
+		}
+		
+		public UniformVec4 set(float[] xyzw, int offset) {
+			this.setComponents(xyzw, offset);
+			return this;
+		}
+		
+		public UniformVec4 glSet(float x, float y, float z, float w) {
+			this.set(x, y, z, w).glUploadIfBound();
+			return this;
+		}
+		
+		@Override
+		protected void glUploadValue() {
+			GL20.glUniform4f(this.location, this.value[0], this.value[1], this.value[2], this.value[3]);
+		}
+		
+	}
+	
+	/** A typed handle for a <tt>mat4</tt> uniform. Matrices are stored and
+	 * uploaded in the same (row-major) order as
+	 * {@link Matrix4f#getMBuffer(FloatBuffer)}, unless
+	 * {@link #setTranspose(boolean) transposed}.
+	 *
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class UniformMat4 extends TypedUniformFloats {
+		
+		private volatile boolean transpose = false;
+		
+		UniformMat4(Shader shader, String name) {
+			super(shader, name, 16);
+		}
+		
+		@Override
+		protected boolean isCompatibleType(int type) {
+			return type == GL20.GL_FLOAT_MAT4;
+		}
+		
+		public boolean getTranspose() {
+			return this.transpose;
+		}
+		
+		public UniformMat4 setTranspose(boolean transpose) {
+			if(this.transpose != transpose) {
+				this.transpose = transpose;
+				this.shader.markDirty(this);
+			}
+			return this;
+		}
+		
+		public UniformMat4 set(float[] matrix) {
+			this.setComponents(matrix, 0);
+			return this;
+		}
+		
+		public UniformMat4 set(float[] matrix, int offset) {
+			this.setComponents(matrix, offset);
+			return this;
+		}
+		
+		public UniformMat4 set(Matrix4f matrix) {
+			for(int i = 0; i < 4; i++) {
+				for(int j = 0; j < 4; j++) {
+					this.setComponent((i * 4) + j, matrix.get(i, j));
+				}
+			}
+			return this;
+		}
+		
+		public UniformMat4 glSet(float[] matrix) {
+			this.set(matrix).glUploadIfBound();
+			return this;
+		}
+		
+		public UniformMat4 glSet(Matrix4f matrix) {
+			this.set(matrix).glUploadIfBound();
+			return this;
+		}
+		
+		@Override
+		protected void glUploadValue() {
+			GL20.glUniformMatrix4fv(this.location, this.transpose, this.value);
+		}
+		
+	}
+	
 }
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.opengl.GLCapabilities;
+
+/** Persistent on-disk cache of linked shader program binaries.<br>
+ * Each cache file consists of a small big-endian header followed by the
+ * driver-specific program binary returned by {@code glGetProgramBinary}.
+ * Entries are keyed by a hash of the program's vertex and fragment sources
+ * together with the driver's vendor, renderer and version strings, so that
+ * editing a shader or updating the driver automatically invalidates its
+ * entry.<br>
+ * On a cache hit the binary is handed to {@code glProgramBinary}, skipping
+ * compilation and linking entirely. Drivers may still reject a binary (e.g.
+ * after an update that did not change the version string), in which case the
+ * entry is deleted and the program is compiled from source as usual.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class ShaderCache {
+	
+	/** The magic number that every shader cache file begins with
+	 * (<tt>"BSHC"</tt>) */
+	public static final int MAGIC = 0x42534843;
+	/** The version of the cache file format. Files with any other version are
+	 * treated as a cache miss. */
+	public static final int VERSION = 1;
+	/** The file extension used for shader cache files */
+	public static final String EXTENSION = ".shadercache";
+	
+	private static volatile File cacheFolder = new File(System.getProperty("user.dir"), "cache".concat(File.separator).concat("shaders"));
+	private static volatile boolean enabled = true;
+	
+	private ShaderCache() {
+	}
+	
+	/** @return The folder that shader cache files are stored in */
+	public static final File getCacheFolder() {
+		return cacheFolder;
+	}
+	
+	/** @param folder The new folder that shader cache files will be stored in */
+	public static final void setCacheFolder(File folder) {
+		if(folder != null) {
+			cacheFolder = folder;
+		}
+	}
+	
+	/** @return Whether or not the shader cache is used when {@link Shader}s
+	 *         are compiled */
+	public static final boolean isEnabled() {
+		return enabled;
+	}
+	
+	/** @param enabled Whether or not the shader cache should be used when
+	 *            {@link Shader}s are compiled */
+	public static final void setEnabled(boolean enabled) {
+		ShaderCache.enabled = enabled;
+	}
+	
+	/** @return Whether or not the current OpenGL context can retrieve and
+	 *         load program binaries (OpenGL 4.1 or
+	 *         <tt>GL_ARB_get_program_binary</tt>, with at least one binary
+	 *         format) */
+	public static final boolean isSupported() {
+		GLCapabilities caps;
+		try {
+			caps = GL.getCapabilities();
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+		if(caps == null || !(GLUtil.isGL41Available(caps) || caps.GL_ARB_get_program_binary)) {
+			return false;
+		}
+		return GL11.glGetInteger(GL41.GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+	}
+	
+	/** Computes the cache key of a program from its sources and the driver of
+	 * the current OpenGL context.
+	 * 
+	 * @param vertexShaderSource The vertex shader's source code
+	 * @param fragmentShaderSource The fragment shader's source code
+	 * @return The SHA-1 hash identifying the resulting program binary */
+	public static final byte[] getKey(String[] vertexShaderSource, String[] fragmentShaderSource) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch(NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-1 is not available on this platform!", ex);
+		}
+		for(String line : vertexShaderSource) {
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+		digest.update((byte) 0);
+		for(String line : fragmentShaderSource) {
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+		for(int name : new int[] {GL11.GL_VENDOR, GL11.GL_RENDERER, GL11.GL_VERSION}) {
+			digest.update((byte) 0);
+			String value = GL11.glGetString(name);
+			digest.update((value == null ? "" : value).getBytes(StandardCharsets.UTF_8));
+		}
+		return digest.digest();
+	}
+	
+	/** @param shaderName The name of the shader program
+	 * @param key The program's {@link #getKey(String[], String[]) cache key}
+	 * @return The cache file that would contain the program's binary */
+	public static final File getCacheFile(String shaderName, byte[] key) {
+		StringBuilder sb = new StringBuilder(key.length * 2);
+		for(int i = 0; i < Math.min(key.length, 8); i++) {
+			sb.append(Character.forDigit((key[i] >> 4) & 0xF, 16)).append(Character.forDigit(key[i] & 0xF, 16));
+		}
+		return new File(getCacheFolder(), FileUtil.makeStringFilesystemSafe(shaderName == null ? "shader" : shaderName).concat("_").concat(sb.toString()).concat(EXTENSION));
+	}
+	
+	/** Deletes every shader cache file in the {@link #getCacheFolder() cache
+	 * folder}.
+	 * 
+	 * @return The number of cache files that were deleted */
+	public static final int clear() {
+		File[] files = getCacheFolder().listFiles();
+		int count = 0;
+		if(files != null) {
+			for(File file : files) {
+				if(file.isFile() && file.getName().endsWith(EXTENSION) && file.delete()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+	
+	//=========================================================================================================================
+	
+	/** A loaded shader cache entry.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Entry {
+		
+		/** The driver-specific format of {@link #binary} */
+		public final int binaryFormat;
+		/** The program binary, from its position to its limit */
+		public final ByteBuffer binary;
+		
+		protected Entry(int binaryFormat, ByteBuffer binary) {
+			this.binaryFormat = binaryFormat;
+			this.binary = binary;
+		}
+		
+	}
+	
+	/** Looks up the cached binary of the given program.
+	 * 
+	 * @param shaderName The name of the shader program
+	 * @param key The program's {@link #getKey(String[], String[]) cache key}
+	 * @return The cache entry, or <tt><b>null</b></tt> if there was no valid
+	 *         entry for the given key */
+	public static final Entry load(String shaderName, byte[] key) {
+		File file = getCacheFile(shaderName, key);
+		if(!file.isFile()) {
+			return null;
+		}
+		Entry entry = null;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if(size <= Integer.MAX_VALUE) {
+				ByteBuffer buf = BufferUtils.createByteBuffer((int) size);
+				while(buf.hasRemaining() && channel.read(buf) != -1) {
+				}
+				buf.flip();
+				entry = parse(buf, key);
+			}
+		} catch(IOException | RuntimeException ex) {//Unreadable, truncated or otherwise corrupt cache file
+			entry = null;
+		}
+		if(entry == null) {
+			file.delete();
+		}
+		return entry;
+	}
+	
+	private static final Entry parse(ByteBuffer buf, byte[] key) {
+		buf.order(ByteOrder.BIG_ENDIAN);
+		if(buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+			return null;
+		}
+		byte[] storedKey = new byte[buf.getInt()];
+		buf.get(storedKey);
+		if(!Arrays.equals(storedKey, key)) {
+			return null;
+		}
+		final int binaryFormat = buf.getInt(), length = buf.getInt();
+		if(length <= 0 || length != buf.remaining()) {
+			return null;
+		}
+		return new Entry(binaryFormat, buf.slice().order(ByteOrder.nativeOrder()));
+	}
+	
+	/** Deletes the cached binary of the given program, if any. This is used
+	 * when the driver rejects a cached binary.
+	 * 
+	 * @param shaderName The name of the shader program
+	 * @param key The program's {@link #getKey(String[], String[]) cache key}
+	 * @return Whether or not a cache file was deleted */
+	public static final boolean delete(String shaderName, byte[] key) {
+		return getCacheFile(shaderName, key).delete();
+	}
+	
+	/** Retrieves the binary of the given linked program and writes it to the
+	 * cache, replacing any existing entry.<br>
+	 * The program should have been linked with
+	 * <tt>GL_PROGRAM_BINARY_RETRIEVABLE_HINT</tt> set. The data is written to
+	 * a temporary file first and then moved into place, so that a crash can
+	 * never leave a partially written entry behind.
+	 * 
+	 * @param shaderName The name of the shader program
+	 * @param key The program's {@link #getKey(String[], String[]) cache key}
+	 * @param program The linked program object
+	 * @return Whether or not the entry was successfully written */
+	public static final boolean store(String shaderName, byte[] key, int program) {
+		final int length = GL20.glGetProgrami(program, GL41.GL_PROGRAM_BINARY_LENGTH);
+		if(length <= 0) {
+			return false;
+		}
+		File folder = getCacheFolder();
+		if(!folder.isDirectory() && !folder.mkdirs()) {
+			return false;
+		}
+		ByteBuffer binary = BufferUtils.createByteBuffer(length);
+		final int[] written = new int[1], binaryFormat = new int[1];
+		GL41.glGetProgramBinary(program, written, binaryFormat, binary);
+		if(written[0] <= 0) {
+			return false;
+		}
+		binary.limit(written[0]);
+		
+		ByteBuffer header = ByteBuffer.allocate(4 * 3 + key.length + 4 * 2).order(ByteOrder.BIG_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION);
+		header.putInt(key.length).put(key);
+		header.putInt(binaryFormat[0]).putInt(written[0]);
+		header.flip();
+		
+		File file = getCacheFile(shaderName, key);
+		File tmp = new File(folder, file.getName().concat(".tmp"));
+		try {
+			try(FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while(header.hasRemaining()) {
+					channel.write(header);
+				}
+				while(binary.hasRemaining()) {
+					channel.write(binary);
+				}
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch(AtomicMoveNotSupportedException ex) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} catch(IOException ex) {
+			System.err.print("Failed to write shader cache file \"".concat(file.getAbsolutePath()).concat("\": "));
+			System.err.println(ex);
+			tmp.delete();
+			return false;
+		}
+	}
+	
+}
@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.GLStats.Counter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.system.MemoryUtil;
+
+/** A fixed-size ring of buffer memory that texture, font and vertex data is
+ * written into before being handed to OpenGL.<br>
+ * <br>
+ * Uploads are issued from offsets into the ring's buffer object rather than
+ * from client memory, which lets the driver perform the copy asynchronously
+ * and removes the need to allocate a new direct buffer for every upload.
+ * The ring is split into segments; when the write position leaves a
+ * segment, a fence is inserted behind the commands that read from it, and
+ * that fence is waited upon before the segment is written to again.<br>
+ * <br>
+ * When <tt>GL_ARB_buffer_storage</tt> (or OpenGL 4.4) is available the
+ * buffer is persistently mapped once; otherwise each allocation maps its own
+ * range unsynchronized. Rings require OpenGL 3.2 (for fences); on older
+ * contexts {@link #getPixelUnpackBuffer()} and {@link #getArrayBuffer()}
+ * return <tt><b>null</b></tt> and the static upload helpers fall back to
+ * uploading from client memory.<br>
+ * <br>
+ * Like every other GL object, the rings belong to the context that was
+ * current when they were created, and must only be used on that context's
+ * thread. Each context has its own set of shared rings; the static getters
+ * return the rings of the context that is current on the calling thread.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class StagingBuffer {
+	
+	/** The default size of each ring, in bytes */
+	public static final int DEFAULT_CAPACITY = 32 * 1024 * 1024;
+	/** The default number of fenced segments in each ring */
+	public static final int DEFAULT_SEGMENTS = 4;
+	/** The default alignment of every allocation, in bytes */
+	public static final int ALIGNMENT = 16;
+	
+	/** The shared rings of one context */
+	private static final class Rings {
+		
+		StagingBuffer pixelUnpackBuffer = null;
+		StagingBuffer arrayBuffer = null;
+		StagingBuffer uniformBuffer = null;
+		boolean unsupported = false;
+		
+		Rings() {
+		}
+		
+	}
+	
+	private static final ThreadLocal<Rings> rings = ThreadLocal.withInitial(Rings::new);
+	
+	/** @return Whether or not the current OpenGL context supports staging
+	 *         rings */
+	public static final boolean isSupported() {
+		try {
+			return GLUtil.isGL32Available();
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+	}
+	
+	/** @return The shared {@link GL21#GL_PIXEL_UNPACK_BUFFER pixel unpack}
+	 *         ring of the current context used for texture uploads, or
+	 *         <tt><b>null</b></tt> if the current context does not support
+	 *         staging rings */
+	public static final StagingBuffer getPixelUnpackBuffer() {
+		final Rings rings = StagingBuffer.rings.get();
+		if(rings.pixelUnpackBuffer == null && !rings.unsupported) {
+			if(!isSupported()) {
+				rings.unsupported = true;
+				return null;
+			}
+			rings.pixelUnpackBuffer = new StagingBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, DEFAULT_CAPACITY, DEFAULT_SEGMENTS);
+		}
+		return rings.pixelUnpackBuffer;
+	}
+	
+	/** @return The shared {@link GL15#GL_ARRAY_BUFFER array buffer} ring of
+	 *         the current context used for streamed vertex data, or
+	 *         <tt><b>null</b></tt> if the current context does not support
+	 *         staging rings */
+	public static final StagingBuffer getArrayBuffer() {
+		final Rings rings = StagingBuffer.rings.get();
+		if(rings.arrayBuffer == null && !rings.unsupported) {
+			if(!isSupported()) {
+				rings.unsupported = true;
+				return null;
+			}
+			rings.arrayBuffer = new StagingBuffer(GL15.GL_ARRAY_BUFFER, DEFAULT_CAPACITY / 4, DEFAULT_SEGMENTS);
+		}
+		return rings.arrayBuffer;
+	}
+	
+	/** @return The shared {@link GL31#GL_UNIFORM_BUFFER uniform buffer} ring
+	 *         of the current context used for sub-allocating uniform blocks,
+	 *         whose allocations are aligned to
+	 *         <tt>GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT</tt>, or
+	 *         <tt><b>null</b></tt> if the current context does not support
+	 *         staging rings */
+	public static final StagingBuffer getUniformBuffer() {
+		final Rings rings = StagingBuffer.rings.get();
+		if(rings.uniformBuffer == null && !rings.unsupported) {
+			if(!isSupported()) {
+				rings.unsupported = true;
+				return null;
+			}
+			final int alignment = Math.max(ALIGNMENT, GL11.glGetInteger(GL31.GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT));
+			rings.uniformBuffer = new StagingBuffer(GL31.GL_UNIFORM_BUFFER, DEFAULT_CAPACITY / 8, DEFAULT_SEGMENTS, alignment);
+		}
+		return rings.uniformBuffer;
+	}
+	
+	/** Deletes the shared rings of the current context; the rings of other
+	 * contexts are left alone. This is called by the {@link GLThread} before
+	 * its context is destroyed. */
+	public static final void disposeAll() {
+		final Rings rings = StagingBuffer.rings.get();
+		if(rings.pixelUnpackBuffer != null) {
+			rings.pixelUnpackBuffer.dispose();
+		}
+		if(rings.arrayBuffer != null) {
+			rings.arrayBuffer.dispose();
+		}
+		if(rings.uniformBuffer != null) {
+			rings.uniformBuffer.dispose();
+		}
+		StagingBuffer.rings.remove();
+	}
+	
+	//=========================================================================================================================
+	
+	private final int target;
+	private final int capacity;
+	private final int alignment;
+	private final int segmentSize;
+	private final long[] fences;
+	private final boolean[] pending;
+	private final boolean persistent;
+	private volatile int bufferID;
+	private final DeletionQueue deletionQueue;
+	private volatile ByteBuffer mapping;
+	private volatile int head = 0;
+	
+	/** Creates a new staging ring.
+	 * 
+	 * @param target The buffer binding target that uploads will be sourced
+	 *            from (e.g. {@link GL21#GL_PIXEL_UNPACK_BUFFER} or
+	 *            {@link GL15#GL_ARRAY_BUFFER})
+	 * @param capacity The size of the ring, in bytes
+	 * @param segments The number of fenced segments the ring is split into
+	 * @throws IllegalArgumentException Thrown if there are fewer than two
+	 *             segments, or the capacity is too small to split */
+	public StagingBuffer(int target, int capacity, int segments) throws IllegalArgumentException {
+		this(target, capacity, segments, ALIGNMENT);
+	}
+	
+	/** Creates a new staging ring whose allocations are aligned to the given
+	 * number of bytes.
+	 * 
+	 * @param target The buffer binding target that uploads will be sourced
+	 *            from
+	 * @param capacity The size of the ring, in bytes
+	 * @param segments The number of fenced segments the ring is split into
+	 * @param alignment The alignment of every allocation, in bytes
+	 * @throws IllegalArgumentException Thrown if there are fewer than two
+	 *             segments, the capacity is too small to split, or the
+	 *             alignment is not positive */
+	public StagingBuffer(int target, int capacity, int segments, int alignment) throws IllegalArgumentException {
+		if(alignment <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid staging ring alignment: %s bytes!", Integer.toString(alignment)));
+		}
+		if(segments < 2 || capacity < segments * alignment) {
+			throw new IllegalArgumentException(String.format("Invalid staging ring size: %s bytes in %s segments!", Integer.toString(capacity), Integer.toString(segments)));
+		}
+		this.target = target;
+		this.alignment = alignment;
+		this.segmentSize = ((capacity / segments) / alignment) * alignment;
+		this.capacity = this.segmentSize * segments;
+		this.fences = new long[segments];
+		this.pending = new boolean[segments];
+		this.persistent = GLUtil.isGL44Available() || GL.getCapabilities().GL_ARB_buffer_storage;
+		
+		this.bufferID = GL15.glGenBuffers();
+		this.deletionQueue = DeletionQueue.get();
+		GLState.get().glBindBuffer(target, this.bufferID);
+		if(this.persistent) {
+			final int flags = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+			GL44.glBufferStorage(target, this.capacity, flags);
+			this.mapping = GL30.glMapBufferRange(target, 0, this.capacity, flags).order(ByteOrder.nativeOrder());
+		} else {
+			GL15.glBufferData(target, this.capacity, GL15.GL_STREAM_DRAW);
+		}
+		GLState.get().glBindBuffer(target, 0);
+	}
+	
+	/** @return The buffer binding target of this ring */
+	public final int getTarget() {
+		return this.target;
+	}
+	
+	/** @return The buffer object ID of this ring */
+	public final int getBufferID() {
+		return this.bufferID;
+	}
+	
+	/** @return The size of this ring, in bytes */
+	public final int getCapacity() {
+		return this.capacity;
+	}
+	
+	/** @return The alignment of every allocation made from this ring, in
+	 *         bytes */
+	public final int getAlignment() {
+		return this.alignment;
+	}
+	
+	/** @return Whether or not this ring is persistently mapped */
+	public final boolean isPersistent() {
+		return this.persistent;
+	}
+	
+	/** Reserves the given number of bytes in this ring, waiting for the GPU to
+	 * finish with them first if they were used by an earlier upload.<br>
+	 * Unless this ring is {@link #isPersistent() persistently mapped}, the
+	 * returned region must be {@link Region#bind() bound} before the next
+	 * allocation is made, as a buffer may only have one range mapped at a
+	 * time.
+	 * 
+	 * @param size The number of bytes to reserve
+	 * @return The reserved region, or <tt><b>null</b></tt> if the size is
+	 *         larger than this ring or this ring has been disposed */
+	public Region allocate(int size) {
+		final int offset = this.reserve(size);
+		if(offset < 0) {
+			return null;
+		}
+		ByteBuffer data;
+		if(this.persistent) {
+			data = this.mapping.duplicate().position(offset).limit(offset + size).slice().order(ByteOrder.nativeOrder());
+		} else {
+			GLState.get().glBindBuffer(this.target, this.bufferID);
+			data = GL30.glMapBufferRange(this.target, offset, size, GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_RANGE_BIT | GL30.GL_MAP_UNSYNCHRONIZED_BIT).order(ByteOrder.nativeOrder());
+			GLState.get().glBindBuffer(this.target, 0);
+		}
+		return new Region(this, offset, size, data);
+	}
+	
+	/** Reserves the given number of bytes in this ring and copies the given
+	 * data into them, without creating a {@link Region}. This is meant for
+	 * small uploads that are made many times per frame (such as per-object
+	 * uniform blocks).
+	 * 
+	 * @param data The data to copy, from its position to its limit (must be
+	 *            direct)
+	 * @return The offset within this ring's buffer object that the data was
+	 *         copied to, or <tt>-1</tt> if the data is larger than this ring
+	 *         or this ring has been disposed */
+	public int upload(ByteBuffer data) {
+		final int size = data.remaining();
+		final int offset = this.reserve(size);
+		if(offset < 0) {
+			return -1;
+		}
+		if(this.persistent) {
+			MemoryUtil.memCopy(MemoryUtil.memAddress(data), MemoryUtil.memAddress(this.mapping) + offset, size);
+		} else {
+			GLState.get().glBindBuffer(this.target, this.bufferID);
+			long address = GL30.nglMapBufferRange(this.target, offset, size, GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_RANGE_BIT | GL30.GL_MAP_UNSYNCHRONIZED_BIT);
+			MemoryUtil.memCopy(MemoryUtil.memAddress(data), address, size);
+			GL15.glUnmapBuffer(this.target);
+			GLState.get().glBindBuffer(this.target, 0);
+		}
+		return offset;
+	}
+	
+	/** Reserves the given number of bytes in this ring, waiting for the GPU to
+	 * finish with them first if necessary.
+	 * 
+	 * @param size The number of bytes to reserve
+	 * @return The offset of the reserved range, or <tt>-1</tt> if the size is
+	 *         larger than this ring or this ring has been disposed */
+	private final int reserve(int size) {
+		if(size <= 0 || size > this.capacity || this.bufferID == 0) {
+			return -1;
+		}
+		int offset = ((this.head + this.alignment - 1) / this.alignment) * this.alignment;
+		if(offset + size > this.capacity) {
+			offset = 0;
+		}
+		// when the write position wraps around, the range may cover memory that was written earlier in the same segment
+		final boolean wrapped = offset < this.head;
+		final int first = offset / this.segmentSize, last = (offset + size - 1) / this.segmentSize;
+		
+		// fence the segments that are being left behind, and (after wrapping) the ones that are about to be written over,
+		// including the one currently being filled; every command reading from them has already been issued
+		for(int segment = 0; segment < this.pending.length; segment++) {
+			if(this.pending[segment] && (wrapped || segment < first || segment > last)) {
+				this.fences[segment] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+				this.pending[segment] = false;
+			}
+		}
+		// then wait for the GPU to finish reading from the segments that are about to be overwritten
+		for(int segment = first; segment <= last; segment++) {
+			final long fence = this.fences[segment];
+			if(fence != 0) {
+				int result;
+				do {
+					result = GL32.glClientWaitSync(fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, 1000000000L);
+				} while(result == GL32.GL_TIMEOUT_EXPIRED);
+				GL32.glDeleteSync(fence);
+				this.fences[segment] = 0;
+			}
+			this.pending[segment] = true;
+		}
+		this.head = offset + size;
+		GLStats.count(Counter.BUFFER_UPLOADS);
+		GLStats.count(Counter.UPLOAD_BYTES, size);
+		return offset;
+	}
+	
+	/** Deletes this ring's buffer object and fences. */
+	public void dispose() {
+		for(int segment = 0; segment < this.fences.length; segment++) {
+			if(this.fences[segment] != 0) {
+				GL32.glDeleteSync(this.fences[segment]);
+				this.fences[segment] = 0;
+			}
+			this.pending[segment] = false;
+		}
+		if(this.bufferID != 0) {
+			if(this.persistent) {
+				GLState.get().glBindBuffer(this.target, this.bufferID);
+				GL15.glUnmapBuffer(this.target);
+				GLState.get().glBindBuffer(this.target, 0);
+			}
+			this.deletionQueue.deleteBuffer(this.bufferID);
+			this.bufferID = 0;
+			this.mapping = null;
+		}
+	}
+	
+	/** A range of a {@link StagingBuffer} that has been reserved for a single
+	 * upload.<br>
+	 * Write the data into {@link #data}, then {@link #bind()} the region and
+	 * issue the GL call that reads from it using {@link #offset}, then
+	 * {@link #unbind()} it.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Region {
+		
+		/** The ring that this region belongs to */
+		public final StagingBuffer buffer;
+		/** The offset of this region within the ring's buffer object */
+		public final int offset;
+		/** The size of this region, in bytes */
+		public final int size;
+		/** The writable memory of this region. Only valid until
+		 * {@link #bind()} is called. */
+		public final ByteBuffer data;
+		private volatile boolean bound = false;
+		
+		protected Region(StagingBuffer buffer, int offset, int size, ByteBuffer data) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.size = size;
+			this.data = data;
+		}
+		
+		/** Finishes writing to this region and binds its ring to the ring's
+		 * target, so that GL calls which take a buffer offset read from it.
+		 * 
+		 * @return This region */
+		public Region bind() {
+			GLState.get().glBindBuffer(this.buffer.target, this.buffer.bufferID);
+			if(!this.bound && !this.buffer.persistent) {
+				GL15.glUnmapBuffer(this.buffer.target);
+			}
+			this.bound = true;
+			return this;
+		}
+		
+		/** Unbinds this region's ring from its target, so that later GL calls
+		 * read from client memory again. */
+		public void unbind() {
+			GLState.get().glBindBuffer(this.buffer.target, 0);
+		}
+		
+	}
+	
+	//=========================================================================================================================
+	
+	/** Uploads a texture image through the shared pixel unpack ring, falling
+	 * back to uploading from client memory if the ring is unavailable or the
+	 * image is too large for it.<br>
+	 * The current unpack pixel store settings apply as usual.
+	 * 
+	 * @param target The texture target
+	 * @param level The mipmap level
+	 * @param internalFormat The internal format of the texture
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @param border The border width (must be <tt>0</tt>)
+	 * @param format The pixel format of the data
+	 * @param type The data type of the data
+	 * @param pixels The image data, from its position to its limit (need not
+	 *            be direct) */
+	public static final void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, ByteBuffer pixels) {
+		StagingBuffer ring = getPixelUnpackBuffer();
+		Region region = ring == null ? null : ring.allocate(pixels.remaining());
+		if(region == null) {
+			GL11.glTexImage2D(target, level, internalFormat, width, height, border, format, type, toDirect(pixels));
+			GLStats.count(Counter.BUFFER_UPLOADS);
+			GLStats.count(Counter.UPLOAD_BYTES, pixels.remaining());
+			return;
+		}
+		region.data.put(pixels.duplicate());
+		region.bind();
+		GL11.glTexImage2D(target, level, internalFormat, width, height, border, format, type, region.offset);
+		region.unbind();
+	}
+	
+	/** Uploads a texture image through the shared pixel unpack ring, writing
+	 * the given array straight into the ring without any intermediate
+	 * buffer.
+	 * 
+	 * @param target The texture target
+	 * @param level The mipmap level
+	 * @param internalFormat The internal format of the texture
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @param border The border width (must be <tt>0</tt>)
+	 * @param format The pixel format of the data
+	 * @param type The data type of the data
+	 * @param pixels The image data
+	 * @see #glTexImage2D(int, int, int, int, int, int, int, int,
+	 *      ByteBuffer) */
+	public static final void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, byte[] pixels) {
+		StagingBuffer ring = getPixelUnpackBuffer();
+		Region region = ring == null ? null : ring.allocate(pixels.length);
+		if(region == null) {
+			GL11.glTexImage2D(target, level, internalFormat, width, height, border, format, type, BufferUtils.createByteBuffer(pixels.length).put(pixels).rewind());
+			GLStats.count(Counter.BUFFER_UPLOADS);
+			GLStats.count(Counter.UPLOAD_BYTES, pixels.length);
+			return;
+		}
+		region.data.put(pixels);
+		region.bind();
+		GL11.glTexImage2D(target, level, internalFormat, width, height, border, format, type, region.offset);
+		region.unbind();
+	}
+	
+	/** Uploads a compressed texture image through the shared pixel unpack
+	 * ring, falling back to uploading from client memory if the ring is
+	 * unavailable or the image is too large for it.
+	 * 
+	 * @param target The texture target
+	 * @param level The mipmap level
+	 * @param internalFormat The compressed internal format of the texture
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @param border The border width (must be <tt>0</tt>)
+	 * @param data The compressed image data, from its position to its limit
+	 *            (need not be direct) */
+	public static final void glCompressedTexImage2D(int target, int level, int internalFormat, int width, int height, int border, ByteBuffer data) {
+		StagingBuffer ring = getPixelUnpackBuffer();
+		Region region = ring == null ? null : ring.allocate(data.remaining());
+		if(region == null) {
+			GL13.glCompressedTexImage2D(target, level, internalFormat, width, height, border, toDirect(data));
+			GLStats.count(Counter.BUFFER_UPLOADS);
+			GLStats.count(Counter.UPLOAD_BYTES, data.remaining());
+			return;
+		}
+		final int size = data.remaining();
+		region.data.put(data.duplicate());
+		region.bind();
+		GL13.glCompressedTexImage2D(target, level, internalFormat, width, height, border, size, region.offset);
+		region.unbind();
+	}
+	
+	private static final ByteBuffer toDirect(ByteBuffer buf) {
+		if(buf.isDirect()) {
+			return buf;
+		}
+		return BufferUtils.createByteBuffer(buf.remaining()).put(buf.duplicate()).rewind();
+	}
+	
+}
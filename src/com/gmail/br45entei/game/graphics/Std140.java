@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.nio.ByteBuffer;
+
+/** Writes values into a buffer following the <tt>std140</tt> layout rules of
+ * GLSL uniform blocks, inserting the padding that those rules require between
+ * members.<br>
+ * <br>
+ * The rules this class implements are:
+ * <ul>
+ * <li><tt>float</tt>, <tt>int</tt> and <tt>bool</tt> are 4-byte aligned;</li>
+ * <li><tt>vec2</tt> is 8-byte aligned;</li>
+ * <li><tt>vec3</tt> and <tt>vec4</tt> are 16-byte aligned (a <tt>vec3</tt>
+ * only occupies 12 bytes, so a scalar may follow it directly);</li>
+ * <li>every element of an array, and every column of a matrix, is 16-byte
+ * aligned and occupies a multiple of 16 bytes;</li>
+ * <li>the size of a block is rounded up to a multiple of 16 bytes.</li>
+ * </ul>
+ * Matrices are expected in the same column-major order as the
+ * <tt>float[]</tt> matrices that are passed to
+ * {@link PerspectiveShader#glSetProjection(float[])}.<br>
+ * <br>
+ * A writer that was created without a buffer only advances its offset, which
+ * can be used to measure the size of a block before allocating it.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class Std140 {
+	
+	/** The size of a <tt>float</tt>, <tt>int</tt> or <tt>bool</tt>, in
+	 * bytes */
+	public static final int SCALAR_SIZE = 4;
+	/** The size of a <tt>vec2</tt>, in bytes */
+	public static final int VEC2_SIZE = 8;
+	/** The size of a <tt>vec3</tt>, in bytes (its alignment is that of a
+	 * <tt>vec4</tt>) */
+	public static final int VEC3_SIZE = 12;
+	/** The size of a <tt>vec4</tt>, in bytes */
+	public static final int VEC4_SIZE = 16;
+	/** The size of a <tt>mat3</tt>, in bytes (three padded columns) */
+	public static final int MAT3_SIZE = 48;
+	/** The size of a <tt>mat4</tt>, in bytes */
+	public static final int MAT4_SIZE = 64;
+	/** The alignment of arrays, matrices, structures and whole blocks, in
+	 * bytes */
+	public static final int BASE_ALIGNMENT = 16;
+	
+	/** @param offset The offset to align
+	 * @param alignment The alignment to round the offset up to
+	 * @return The given offset, rounded up to the next multiple of the given
+	 *         alignment */
+	public static final int align(int offset, int alignment) {
+		return ((offset + alignment - 1) / alignment) * alignment;
+	}
+	
+	private final ByteBuffer buffer;
+	private final int base;
+	private int offset = 0;
+	
+	/** Creates a new writer that writes into the given buffer, starting at its
+	 * current position. The buffer's position is left untouched; all writes
+	 * are absolute.
+	 * 
+	 * @param buffer The buffer to write into, or <tt><b>null</b></tt> to only
+	 *            measure */
+	public Std140(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.base = buffer == null ? 0 : buffer.position();
+	}
+	
+	/** Creates a new writer that only measures the size of the block that is
+	 * written into it. */
+	public Std140() {
+		this(null);
+	}
+	
+	/** @return The buffer that this writer writes into, or
+	 *         <tt><b>null</b></tt> if it only measures */
+	public final ByteBuffer getBuffer() {
+		return this.buffer;
+	}
+	
+	/** @return The offset, relative to the start of the block, at which the
+	 *         next member will be written (before it is aligned) */
+	public final int getOffset() {
+		return this.offset;
+	}
+	
+	/** @return The size of the block written so far, rounded up to a multiple
+	 *         of {@link #BASE_ALIGNMENT} as <tt>std140</tt> requires */
+	public final int getSize() {
+		return align(this.offset, BASE_ALIGNMENT);
+	}
+	
+	/** Moves the offset back to the start of the block, so that this writer
+	 * can be reused to write another block into the same memory.
+	 * 
+	 * @return This writer */
+	public final Std140 rewind() {
+		this.offset = 0;
+		return this;
+	}
+	
+	/** Advances the offset to the next multiple of the given alignment.
+	 * 
+	 * @param alignment The alignment to pad to
+	 * @return This writer */
+	public final Std140 align(int alignment) {
+		this.offset = align(this.offset, alignment);
+		return this;
+	}
+	
+	/** Skips the given number of bytes without writing anything to them.
+	 * 
+	 * @param bytes The number of bytes to skip
+	 * @return This writer */
+	public final Std140 skip(int bytes) {
+		this.offset += bytes;
+		return this;
+	}
+	
+	private final void put(int offset, float value) {
+		if(this.buffer != null) {
+			this.buffer.putFloat(this.base + offset, value);
+		}
+	}
+	
+	private final void put(int offset, int value) {
+		if(this.buffer != null) {
+			this.buffer.putInt(this.base + offset, value);
+		}
+	}
+	
+	/** @param value The <tt>float</tt> to write
+	 * @return This writer */
+	public final Std140 putFloat(float value) {
+		this.align(SCALAR_SIZE);
+		this.put(this.offset, value);
+		this.offset += SCALAR_SIZE;
+		return this;
+	}
+	
+	/** @param value The <tt>int</tt> to write
+	 * @return This writer */
+	public final Std140 putInt(int value) {
+		this.align(SCALAR_SIZE);
+		this.put(this.offset, value);
+		this.offset += SCALAR_SIZE;
+		return this;
+	}
+	
+	/** @param value The <tt>bool</tt> to write
+	 * @return This writer */
+	public final Std140 putBoolean(boolean value) {
+		return this.putInt(value ? 1 : 0);
+	}
+	
+	/** @param x The first component
+	 * @param y The second component
+	 * @return This writer */
+	public final Std140 putVec2(float x, float y) {
+		this.align(VEC2_SIZE);
+		this.put(this.offset, x);
+		this.put(this.offset + 4, y);
+		this.offset += VEC2_SIZE;
+		return this;
+	}
+	
+	/** @param x The first component
+	 * @param y The second component
+	 * @param z The third component
+	 * @return This writer */
+	public final Std140 putVec3(float x, float y, float z) {
+		this.align(VEC4_SIZE);
+		this.put(this.offset, x);
+		this.put(this.offset + 4, y);
+		this.put(this.offset + 8, z);
+		this.offset += VEC3_SIZE;
+		return this;
+	}
+	
+	/** @param x The first component
+	 * @param y The second component
+	 * @param z The third component
+	 * @param w The fourth component
+	 * @return This writer */
+	public final Std140 putVec4(float x, float y, float z, float w) {
+		this.align(VEC4_SIZE);
+		this.put(this.offset, x);
+		this.put(this.offset + 4, y);
+		this.put(this.offset + 8, z);
+		this.put(this.offset + 12, w);
+		this.offset += VEC4_SIZE;
+		return this;
+	}
+	
+	/** @param xyzw An array containing at least four components
+	 * @return This writer */
+	public final Std140 putVec4(float[] xyzw) {
+		return this.putVec4(xyzw[0], xyzw[1], xyzw[2], xyzw[3]);
+	}
+	
+	/** @param matrix A column-major 3x3 matrix (9 values)
+	 * @return This writer
+	 * @throws IllegalArgumentException Thrown if the array is not of length
+	 *             <tt>9</tt> */
+	public final Std140 putMat3(float[] matrix) throws IllegalArgumentException {
+		if(matrix == null || matrix.length != 9) {
+			throw new IllegalArgumentException(String.format("Cannot write a mat3 from an array of length %s! Expected 9.", matrix == null ? "null" : Integer.toString(matrix.length)));
+		}
+		this.align(BASE_ALIGNMENT);
+		for(int column = 0; column < 3; column++) {
+			final int offset = this.offset + (column * VEC4_SIZE);
+			this.put(offset, matrix[column * 3]);
+			this.put(offset + 4, matrix[(column * 3) + 1]);
+			this.put(offset + 8, matrix[(column * 3) + 2]);
+		}
+		this.offset += MAT3_SIZE;
+		return this;
+	}
+	
+	/** @param matrix A column-major 4x4 matrix (16 values)
+	 * @return This writer
+	 * @throws IllegalArgumentException Thrown if the array is not of length
+	 *             <tt>16</tt> */
+	public final Std140 putMat4(float[] matrix) throws IllegalArgumentException {
+		if(matrix == null || matrix.length != 16) {
+			throw new IllegalArgumentException(String.format("Cannot write a mat4 from an array of length %s! Expected 16.", matrix == null ? "null" : Integer.toString(matrix.length)));
+		}
+		this.align(BASE_ALIGNMENT);
+		for(int i = 0; i < 16; i++) {
+			this.put(this.offset + (i * SCALAR_SIZE), matrix[i]);
+		}
+		this.offset += MAT4_SIZE;
+		return this;
+	}
+	
+	/** Writes a <tt>float[]</tt> array, each element of which occupies 16
+	 * bytes.
+	 * 
+	 * @param values The values to write
+	 * @return This writer */
+	public final Std140 putFloatArray(float[] values) {
+		this.align(BASE_ALIGNMENT);
+		for(int i = 0; i < values.length; i++) {
+			this.put(this.offset + (i * BASE_ALIGNMENT), values[i]);
+		}
+		this.offset += values.length * BASE_ALIGNMENT;
+		return this;
+	}
+	
+	/** Writes an <tt>int[]</tt> array, each element of which occupies 16
+	 * bytes.
+	 * 
+	 * @param values The values to write
+	 * @return This writer */
+	public final Std140 putIntArray(int[] values) {
+		this.align(BASE_ALIGNMENT);
+		for(int i = 0; i < values.length; i++) {
+			this.put(this.offset + (i * BASE_ALIGNMENT), values[i]);
+		}
+		this.offset += values.length * BASE_ALIGNMENT;
+		return this;
+	}
+	
+	/** Writes a <tt>vec4[]</tt> array from tightly packed components.
+	 * 
+	 * @param values The components to write; four per element
+	 * @return This writer */
+	public final Std140 putVec4Array(float[] values) {
+		this.align(BASE_ALIGNMENT);
+		for(int i = 0; i < values.length; i++) {
+			this.put(this.offset + (i * SCALAR_SIZE), values[i]);
+		}
+		this.offset += align(values.length * SCALAR_SIZE, BASE_ALIGNMENT);
+		return this;
+	}
+	
+	/** Begins a nested structure, which is aligned to
+	 * {@link #BASE_ALIGNMENT}. Call {@link #endStruct()} after writing its
+	 * members.
+	 * 
+	 * @return This writer */
+	public final Std140 beginStruct() {
+		return this.align(BASE_ALIGNMENT);
+	}
+	
+	/** Ends a nested structure, padding its size to a multiple of
+	 * {@link #BASE_ALIGNMENT}.
+	 * 
+	 * @return This writer */
+	public final Std140 endStruct() {
+		return this.align(BASE_ALIGNMENT);
+	}
+	
+}
@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.FontRender.GLFont;
+import com.gmail.br45entei.game.graphics.FontRender.GLFontBounds;
+import com.gmail.br45entei.game.graphics.FontRender.Glyph;
+import com.gmail.br45entei.game.graphics.FontRender.GlyphPage;
+import com.gmail.br45entei.game.graphics.StagingBuffer.Region;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+/** Collects positioned, colored glyph quads for any number of strings and
+ * draws them all at once.<br>
+ * Every quad is written into a single streamed vertex buffer (the shared
+ * {@link StagingBuffer#getArrayBuffer() array ring} when it is available),
+ * and the batch is drawn with one <tt>glDrawArrays</tt> call per glyph page
+ * instead of a display list call and a matrix translation per character.<br>
+ * <br>
+ * Strings are laid out by {@link TextLayout}, in the coordinate space of
+ * whatever modelview matrix is current when the batch is {@link #flush()
+ * flushed}.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class TextBatch {
+	
+	/** The size of each vertex, in bytes: a position (three floats), a texture
+	 * coordinate (two floats) and an RGBA color (four unsigned bytes) */
+	public static final int VERTEX_SIZE = 24;
+	/** The vertex attribute location of the position, for the shader path */
+	public static final int POSITION_ATTRIBUTE = 0;
+	/** The vertex attribute location of the texture coordinate, for the
+	 * shader path */
+	public static final int TEXCOORD_ATTRIBUTE = 1;
+	/** The vertex attribute location of the color, for the shader path */
+	public static final int COLOR_ATTRIBUTE = 2;
+	
+	private static final int VERTEX_INTS = VERTEX_SIZE / 4;
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	
+	/** The vertices of the glyphs that are drawn from a single page */
+	private static final class PageVertices {
+		int[] data = new int[VERTEX_INTS * 6 * 64];
+		int length = 0;
+		int first = 0;
+		
+		void ensureCapacity(int length) {
+			if(length > this.data.length) {
+				int[] data = new int[Math.max(length, this.data.length * 2)];
+				System.arraycopy(this.data, 0, data, 0, this.length);
+				this.data = data;
+			}
+		}
+		
+	}
+	
+	private final LinkedHashMap<GlyphPage, PageVertices> pages = new LinkedHashMap<>();
+	private volatile int vertexCount = 0;
+	private volatile ByteBuffer clientBuffer = null;
+	private volatile int vao = 0;
+	/** The deletion queue of the context that {@link #vao} belongs to */
+	private volatile DeletionQueue deletionQueue = null;
+	
+	/** @return The number of vertices that are waiting to be drawn */
+	public int getVertexCount() {
+		return this.vertexCount;
+	}
+	
+	/** @return Whether or not this batch has nothing to draw */
+	public boolean isEmpty() {
+		return this.vertexCount == 0;
+	}
+	
+	/** @return The number of draw calls that the next {@link #flush()} will
+	 *         make */
+	public int getPageCount() {
+		int count = 0;
+		for(PageVertices vertices : this.pages.values()) {
+			if(vertices.length > 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/** Discards everything that has been added since the last flush. */
+	public void clear() {
+		Iterator<PageVertices> it = this.pages.values().iterator();
+		while(it.hasNext()) {
+			PageVertices vertices = it.next();
+			if(vertices.length == 0) {// Forget pages that went a whole batch without being used, so that destroyed fonts aren't kept alive
+				it.remove();
+			}
+			vertices.length = 0;
+		}
+		this.vertexCount = 0;
+	}
+	
+	//=========================================================================================================================
+	
+	public GLFontBounds add(GLFont font, CharSequence s, double x, double y) {
+		double[] color = GLUtil.getGLColor();
+		return this.add(font, s, x, y, color[0], color[1], color[2], color[3]);
+	}
+	
+	public GLFontBounds add(GLFont font, CharSequence s, double x, double y, double red, double green, double blue, double alpha) {
+		return this.add(font, s, x, y, red, green, blue, alpha, 1.0, 1.0, 1.0);
+	}
+	
+	/** Lays out the given string and adds its glyphs to this batch.
+	 * 
+	 * @param font The font to draw the string with
+	 * @param s The string to draw
+	 * @param x The x coordinate of the string's origin
+	 * @param y The y coordinate of the string's origin
+	 * @param red The red component of the string's color
+	 * @param green The green component of the string's color
+	 * @param blue The blue component of the string's color
+	 * @param alpha The alpha component of the string's color
+	 * @param scaleX The horizontal scale of the string
+	 * @param scaleY The vertical scale of the string
+	 * @param scaleZ The depth scale of the string
+	 * @return The bounds of the string */
+	public GLFontBounds add(GLFont font, CharSequence s, double x, double y, double red, double green, double blue, double alpha, double scaleX, double scaleY, double scaleZ) {
+		final int color = packColor(red, green, blue, alpha);
+		final int z = Float.floatToRawIntBits((float) (1.0 - scaleZ));
+		
+		TextLayout layout = TextLayout.get(font, s);
+		for(int i = 0, count = layout.getGlyphCount(); i < count; i++) {
+			this.addGlyph(layout.getGlyph(i), x + (layout.getGlyphX(i) * scaleX), y - (layout.getGlyphY(i) * scaleY), scaleX, scaleY, z, color);
+		}
+		return layout.getBounds(x, y, 1.0, 1.0);
+	}
+	
+	/** Adds a single glyph quad as two triangles. The quad is flipped
+	 * vertically, just as the rotation in
+	 * {@link FontRender#drawString(GLFont, CharSequence, double, double, double, double, double, double, double, double, double)
+	 * drawString(...)} flips it, so the same faces are culled. */
+	private void addGlyph(Glyph g, double x, double y, double scaleX, double scaleY, int z, int color) {
+		PageVertices vertices = this.pages.get(g.page);
+		if(vertices == null) {
+			this.pages.put(g.page, vertices = new PageVertices());
+		}
+		vertices.ensureCapacity(vertices.length + (VERTEX_INTS * 6));
+		
+		final float tw = g.page.width, th = g.page.height;
+		final float gW = g.w - 1, gH = g.h - 1;
+		final int x0 = Float.floatToRawIntBits((float) x), x1 = Float.floatToRawIntBits((float) (x + (gW * scaleX)));
+		final int y0 = Float.floatToRawIntBits((float) y), y1 = Float.floatToRawIntBits((float) (y - (gH * scaleY)));
+		final int u0 = Float.floatToRawIntBits(g.x / tw), u1 = Float.floatToRawIntBits((g.x + gW) / tw);
+		final int v0 = Float.floatToRawIntBits(g.y / th), v1 = Float.floatToRawIntBits((g.y + gH) / th);
+		
+		final int[] data = vertices.data;
+		int i = vertices.length;
+		i = putVertex(data, i, x0, y0, z, u0, v0, color);
+		i = putVertex(data, i, x1, y0, z, u1, v0, color);
+		i = putVertex(data, i, x1, y1, z, u1, v1, color);
+		i = putVertex(data, i, x0, y0, z, u0, v0, color);
+		i = putVertex(data, i, x1, y1, z, u1, v1, color);
+		i = putVertex(data, i, x0, y1, z, u0, v1, color);
+		vertices.length = i;
+		this.vertexCount += 6;
+	}
+	
+	private static int putVertex(int[] data, int i, int x, int y, int z, int u, int v, int color) {
+		data[i++] = x;
+		data[i++] = y;
+		data[i++] = z;
+		data[i++] = u;
+		data[i++] = v;
+		data[i++] = color;
+		return i;
+	}
+	
+	private static int packColor(double red, double green, double blue, double alpha) {
+		int r = (int) Math.round(Math.max(0.0, Math.min(1.0, red)) * 255.0);
+		int g = (int) Math.round(Math.max(0.0, Math.min(1.0, green)) * 255.0);
+		int b = (int) Math.round(Math.max(0.0, Math.min(1.0, blue)) * 255.0);
+		int a = (int) Math.round(Math.max(0.0, Math.min(1.0, alpha)) * 255.0);
+		return LITTLE_ENDIAN ? (r | (g << 8) | (b << 16) | (a << 24)) : ((r << 24) | (g << 16) | (b << 8) | a);
+	}
+	
+	//=========================================================================================================================
+	
+	/** Writes every page's vertices into one contiguous range, recording
+	 * where each page's vertices start.
+	 * 
+	 * @return The staging region that the vertices were written into, or
+	 *         <tt><b>null</b></tt> if they were written into
+	 *         {@link #clientBuffer client memory} instead */
+	private Region upload() {
+		final int size = this.vertexCount * VERTEX_SIZE;
+		StagingBuffer ring = StagingBuffer.getArrayBuffer();
+		Region region = ring == null ? null : ring.allocate(size);
+		ByteBuffer buf;
+		if(region != null) {
+			buf = region.data;
+		} else {
+			if(this.clientBuffer == null || this.clientBuffer.capacity() < size) {
+				this.clientBuffer = ByteBuffer.allocateDirect(Math.max(size, this.clientBuffer == null ? 0 : this.clientBuffer.capacity() * 2)).order(ByteOrder.nativeOrder());
+			}
+			buf = this.clientBuffer;
+			buf.clear();
+		}
+		IntBuffer ints = buf.asIntBuffer();
+		int first = 0;
+		for(PageVertices vertices : this.pages.values()) {
+			vertices.first = first;
+			ints.put(vertices.data, 0, vertices.length);
+			first += vertices.length / VERTEX_INTS;
+		}
+		return region;
+	}
+	
+	/** Draws each page's vertices.
+	 * 
+	 * @param shader The shader that is being drawn with, or
+	 *            <tt><b>null</b></tt> for the fixed-function pipeline */
+	private void drawPages(TextShader shader) {
+		final GLState state = GLState.get();
+		boolean distanceField = false;
+		for(Entry<GlyphPage, PageVertices> entry : this.pages.entrySet()) {
+			PageVertices vertices = entry.getValue();
+			if(vertices.length == 0) {
+				continue;
+			}
+			GlyphPage page = entry.getKey();
+			page.bind();
+			// Distance fields are meant to be interpolated, and are thresholded at their edge by an alpha test or the shader
+			final int filter = page.distanceField ? GL11.GL_LINEAR : GL11.GL_NEAREST;
+			state.glSetFilter(0, GL11.GL_TEXTURE_2D, filter, filter);
+			if(page.distanceField != distanceField) {
+				distanceField = page.distanceField;
+				if(shader != null) {
+					shader.glSetDistanceField(distanceField);
+				} else if(distanceField) {
+					state.glEnable(GL11.GL_ALPHA_TEST);
+					GL11.glAlphaFunc(GL11.GL_GEQUAL, 0.5f);
+				} else {
+					state.glDisable(GL11.GL_ALPHA_TEST);
+				}
+			}
+			GLStats.glDrawArrays(GL11.GL_TRIANGLES, vertices.first, vertices.length / VERTEX_INTS);
+		}
+		if(distanceField) {
+			if(shader != null) {
+				shader.glSetDistanceField(false);
+			} else {
+				state.glDisable(GL11.GL_ALPHA_TEST);
+			}
+		}
+		state.glBindSampler(0, 0);
+	}
+	
+	private static void glPushTextState() {
+		GLUtil.glPushCullMode();
+		GLUtil.glCullFront();
+		GLUtil.glPushBlendMode();
+		GLUtil.glBlend(true, GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+	}
+	
+	private static void glPopTextState() {
+		final GLState state = GLState.get();
+		state.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		state.glDisable(GL11.GL_BLEND);
+		GLUtil.glPopBlendMode();
+		GLUtil.glPopCullMode();
+	}
+	
+	/** Draws everything in this batch using the fixed-function pipeline and
+	 * the current modelview and projection matrices, then clears it. */
+	public void flush() {
+		if(this.isEmpty()) {
+			this.clear();
+			return;
+		}
+		Region region = this.upload();
+		
+		glPushTextState();
+		GLUtil.glPushColor();
+		GLState.get().glEnable(GL11.GL_TEXTURE_2D);
+		GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+		if(region != null) {
+			region.bind();
+			GL11.glVertexPointer(3, GL11.GL_FLOAT, VERTEX_SIZE, region.offset);
+			GL11.glTexCoordPointer(2, GL11.GL_FLOAT, VERTEX_SIZE, region.offset + 12L);
+			GL11.glColorPointer(4, GL11.GL_UNSIGNED_BYTE, VERTEX_SIZE, region.offset + 20L);
+		} else {
+			ByteBuffer buf = this.clientBuffer;
+			GL11.glVertexPointer(3, GL11.GL_FLOAT, VERTEX_SIZE, buf.position(0));
+			GL11.glTexCoordPointer(2, GL11.GL_FLOAT, VERTEX_SIZE, buf.position(12));
+			GL11.glColorPointer(4, GL11.GL_UNSIGNED_BYTE, VERTEX_SIZE, buf.position(20));
+			buf.position(0);
+		}
+		
+		this.drawPages(null);
+		
+		GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+		GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+		if(region != null) {
+			region.unbind();
+		}
+		GLState.get().glDisable(GL11.GL_TEXTURE_2D);
+		GLUtil.glPopColor();
+		glPopTextState();
+		this.clear();
+	}
+	
+	/** Draws everything in this batch using the given shader, then clears it.
+	 * The shader's projection and modelview uniforms should already have been
+	 * set by the caller.
+	 * 
+	 * @param shader The shader to draw with
+	 * @throws IllegalStateException Thrown if the shader could not be
+	 *             bound */
+	public void flush(TextShader shader) throws IllegalStateException {
+		if(this.isEmpty()) {
+			this.clear();
+			return;
+		}
+		if(!shader.bind()) {
+			throw new IllegalStateException(String.format("Cannot draw text with the shader \"%s\" as it has not been compiled!", shader.getName()));
+		}
+		Region region = this.upload();
+		
+		glPushTextState();
+		if(GLUtil.isGL30Available()) {// Core profiles can't draw without a vertex array object
+			final DeletionQueue queue = DeletionQueue.get();
+			if(this.vao != 0 && this.deletionQueue != queue) {// Vertex arrays aren't shared between contexts
+				this.deletionQueue.deleteVertexArray(this.vao);
+				this.vao = 0;
+			}
+			if(this.vao == 0) {
+				this.vao = GL30.glGenVertexArrays();
+				this.deletionQueue = queue;
+			}
+			GLState.get().glBindVertexArray(this.vao);
+		}
+		GL20.glEnableVertexAttribArray(POSITION_ATTRIBUTE);
+		GL20.glEnableVertexAttribArray(TEXCOORD_ATTRIBUTE);
+		GL20.glEnableVertexAttribArray(COLOR_ATTRIBUTE);
+		if(region != null) {
+			region.bind();
+			GL20.glVertexAttribPointer(POSITION_ATTRIBUTE, 3, GL11.GL_FLOAT, false, VERTEX_SIZE, region.offset);
+			GL20.glVertexAttribPointer(TEXCOORD_ATTRIBUTE, 2, GL11.GL_FLOAT, false, VERTEX_SIZE, region.offset + 12L);
+			GL20.glVertexAttribPointer(COLOR_ATTRIBUTE, 4, GL11.GL_UNSIGNED_BYTE, true, VERTEX_SIZE, region.offset + 20L);
+		} else {
+			ByteBuffer buf = this.clientBuffer;
+			GL20.glVertexAttribPointer(POSITION_ATTRIBUTE, 3, GL11.GL_FLOAT, false, VERTEX_SIZE, buf.position(0));
+			GL20.glVertexAttribPointer(TEXCOORD_ATTRIBUTE, 2, GL11.GL_FLOAT, false, VERTEX_SIZE, buf.position(12));
+			GL20.glVertexAttribPointer(COLOR_ATTRIBUTE, 4, GL11.GL_UNSIGNED_BYTE, true, VERTEX_SIZE, buf.position(20));
+			buf.position(0);
+		}
+		
+		this.drawPages(shader);
+		
+		GL20.glDisableVertexAttribArray(COLOR_ATTRIBUTE);
+		GL20.glDisableVertexAttribArray(TEXCOORD_ATTRIBUTE);
+		GL20.glDisableVertexAttribArray(POSITION_ATTRIBUTE);
+		if(region != null) {
+			region.unbind();
+		}
+		if(this.vao != 0) {
+			GLState.get().glBindVertexArray(0);
+		}
+		glPopTextState();
+		this.clear();
+	}
+	
+	/** Clears this batch and deletes its vertex array object, if it has
+	 * one. */
+	public void dispose() {
+		this.pages.clear();
+		this.vertexCount = 0;
+		this.clientBuffer = null;
+		if(this.vao != 0) {
+			this.deletionQueue.deleteVertexArray(this.vao);
+			this.vao = 0;
+			this.deletionQueue = null;
+		}
+	}
+	
+}
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.game.graphics.FontRender.GLFont;
+import com.gmail.br45entei.game.graphics.FontRender.GLFontBounds;
+import com.gmail.br45entei.game.graphics.FontRender.Glyph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/** The laid out glyphs of a string: the position of every visible glyph,
+ * where each line starts, and the bounds of the whole string.<br>
+ * Layouts are computed by walking the string's code points in place, without
+ * allocating anything once the layout's arrays are large enough. The
+ * {@link #get(GLFont, CharSequence) cached} layouts are shared by
+ * {@link FontRender#sizeOf(GLFont, CharSequence, double, double, double, double)
+ * FontRender.sizeOf(...)} and {@link TextBatch}, so a string that is measured
+ * and drawn every frame is only laid out once.<br>
+ * <br>
+ * All positions are relative to the string's origin and are unscaled; the y
+ * axis points down, one {@link GLFont#getLineHeight() line} per newline.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class TextLayout {
+	
+	/** The maximum number of layouts that are kept in the cache */
+	public static final int CACHE_SIZE = 256;
+	
+	/** A cache key matching a font and the contents of a string. The shared
+	 * {@link TextLayout#lookup lookup} key wraps the caller's string so that
+	 * cache hits do not allocate. */
+	private static final class Key {
+		GLFont font;
+		CharSequence text;
+		int hash;
+		
+		Key set(GLFont font, CharSequence text) {
+			this.font = font;
+			this.text = text;
+			int hash = System.identityHashCode(font);
+			if(text != null) {
+				for(int i = 0, length = text.length(); i < length; i++) {
+					hash = (31 * hash) + text.charAt(i);
+				}
+			}
+			this.hash = hash;
+			return this;
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			if(other.font != this.font || other.hash != this.hash || other.text.length() != this.text.length()) {
+				return false;
+			}
+			for(int i = 0, length = this.text.length(); i < length; i++) {
+				if(other.text.charAt(i) != this.text.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+	}
+	
+	@SuppressWarnings("serial")
+	private static final LinkedHashMap<Key, TextLayout> cache = new LinkedHashMap<Key, TextLayout>(CACHE_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Entry<Key, TextLayout> eldest) {
+			return this.size() > CACHE_SIZE;
+		}
+	};
+	private static final Key lookup = new Key();
+	
+	/** Returns the cached layout of the given string, laying it out and
+	 * caching it first if it has not been seen recently.<br>
+	 * The returned layout must not be {@link #layout(GLFont, CharSequence)
+	 * laid out again} by the caller.
+	 * 
+	 * @param font The font that the string will be drawn with
+	 * @param s The string
+	 * @return The layout of the string */
+	public static final TextLayout get(GLFont font, CharSequence s) {
+		synchronized(cache) {
+			TextLayout layout = cache.get(lookup.set(font, s));
+			if(layout == null) {
+				final String text = s.toString();
+				layout = new TextLayout().layout(font, text);
+				cache.put(new Key().set(font, text), layout);
+			}
+			lookup.set(null, null);
+			return layout;
+		}
+	}
+	
+	/** Removes every cached layout of the given font. This is called whenever
+	 * the font's glyph pages are replaced.
+	 * 
+	 * @param font The font whose layouts will be discarded */
+	public static final void invalidate(GLFont font) {
+		synchronized(cache) {
+			Iterator<TextLayout> it = cache.values().iterator();
+			while(it.hasNext()) {
+				if(it.next().font == font) {
+					it.remove();
+				}
+			}
+		}
+	}
+	
+	/** Removes every cached layout. */
+	public static final void invalidateAll() {
+		synchronized(cache) {
+			cache.clear();
+		}
+	}
+	
+	//=========================================================================================================================
+	
+	private volatile GLFont font;
+	private volatile CharSequence text;
+	
+	private Glyph[] glyphs = new Glyph[16];
+	private float[] glyphX = new float[16];
+	private float[] glyphY = new float[16];
+	private int glyphCount = 0;
+	private int[] lineStarts = new int[4];
+	private int lineCount = 0;
+	
+	private double lineHeight;
+	private double smallestWidth, smallestHeight, largestWidth, largestHeight;
+	
+	/** Creates an empty layout that can be {@link #layout(GLFont, CharSequence)
+	 * laid out} any number of times. */
+	public TextLayout() {
+	}
+	
+	/** Lays the given string out, replacing this layout's contents.
+	 * 
+	 * @param font The font that the string will be drawn with
+	 * @param s The string
+	 * @return This layout */
+	public TextLayout layout(GLFont font, CharSequence s) {
+		this.font = font;
+		this.text = s;
+		this.glyphCount = 0;
+		this.lineCount = 0;
+		this.addLine();
+		
+		final double lineHeight = this.lineHeight = font.getLineHeight();
+		final double standardCharWidth = (font.size + 0.0) * 0.75;
+		double penX = 0, penY = 0;
+		double lineWidth = 0;
+		double sizeWidth = 0;
+		double sizeHeight = lineHeight;
+		
+		double smallestWidth = 0;
+		double smallestHeight = 0;
+		double largestWidth = sizeWidth;
+		double largestHeight = sizeHeight;
+		double lastCharWidth = 0;
+		for(int i = 0, length = s.length(); i < length;) {
+			final int cp = Character.codePointAt(s, i);
+			i += Character.charCount(cp);
+			Glyph g = font.getGlyphForCodePoint(cp);
+			
+			double w = Math.round(g.w - (font.widerGlyphs ? -0.0 : g.w * 0.15));
+			switch(cp) {
+			case '\b':
+				penX -= lastCharWidth;
+				lineWidth -= lastCharWidth;
+				sizeWidth -= lastCharWidth;
+				break;
+			case '\r':
+				penX -= lineWidth;
+				lineWidth = 0;
+				sizeWidth = 0;
+				break;
+			case '\n':
+				double h = Math.round(lineHeight);
+				penY += h;
+				sizeHeight += h;
+				smallestHeight = Math.min(smallestHeight, sizeHeight);
+				largestHeight = Math.max(largestHeight, sizeHeight);
+				this.addLine();
+				break;
+			case '\t':
+				if(Math.round(w) == 0.0) {
+					w = Math.round(standardCharWidth * 4.0);//Math.round(font.size * 0.5625 * 5.3333333333333333);
+				}
+				penX += w;
+				lineWidth += w;
+				sizeWidth += w;
+				break;
+			default:
+				this.addGlyph(g, (float) penX, (float) penY);
+				penX += w;
+				lineWidth += w;
+				sizeWidth += w;
+				break;
+			}
+			smallestWidth = Math.min(smallestWidth, sizeWidth);
+			largestWidth = Math.max(largestWidth, sizeWidth);
+			if(cp != '\b' && cp != '\r' && cp != '\n') {
+				lastCharWidth = w;
+			}
+		}
+		this.smallestWidth = smallestWidth;
+		this.smallestHeight = smallestHeight;
+		this.largestWidth = largestWidth;
+		this.largestHeight = largestHeight;
+		return this;
+	}
+	
+	private void addLine() {
+		if(this.lineCount == this.lineStarts.length) {
+			int[] lineStarts = new int[this.lineStarts.length * 2];
+			System.arraycopy(this.lineStarts, 0, lineStarts, 0, this.lineCount);
+			this.lineStarts = lineStarts;
+		}
+		this.lineStarts[this.lineCount++] = this.glyphCount;
+	}
+	
+	private void addGlyph(Glyph g, float x, float y) {
+		if(this.glyphCount == this.glyphs.length) {
+			final int capacity = this.glyphs.length * 2;
+			Glyph[] glyphs = new Glyph[capacity];
+			float[] glyphX = new float[capacity], glyphY = new float[capacity];
+			System.arraycopy(this.glyphs, 0, glyphs, 0, this.glyphCount);
+			System.arraycopy(this.glyphX, 0, glyphX, 0, this.glyphCount);
+			System.arraycopy(this.glyphY, 0, glyphY, 0, this.glyphCount);
+			this.glyphs = glyphs;
+			this.glyphX = glyphX;
+			this.glyphY = glyphY;
+		}
+		this.glyphs[this.glyphCount] = g;
+		this.glyphX[this.glyphCount] = x;
+		this.glyphY[this.glyphCount] = y;
+		this.glyphCount++;
+	}
+	
+	//=========================================================================================================================
+	
+	/** @return The font that this layout was laid out with */
+	public GLFont getFont() {
+		return this.font;
+	}
+	
+	/** @return The string that this layout was laid out from */
+	public CharSequence getText() {
+		return this.text;
+	}
+	
+	/** @return The number of visible glyphs in this layout */
+	public int getGlyphCount() {
+		return this.glyphCount;
+	}
+	
+	Glyph getGlyph(int index) {
+		return this.glyphs[index];
+	}
+	
+	/** @param index The index of the visible glyph
+	 * @return The x position of the glyph, relative to the string's origin */
+	public float getGlyphX(int index) {
+		return this.glyphX[index];
+	}
+	
+	/** @param index The index of the visible glyph
+	 * @return The y position of the glyph, relative to the string's origin */
+	public float getGlyphY(int index) {
+		return this.glyphY[index];
+	}
+	
+	/** @return The number of lines in this layout */
+	public int getLineCount() {
+		return this.lineCount;
+	}
+	
+	/** @param line The line
+	 * @return The index of the first visible glyph on the given line */
+	public int getLineStart(int line) {
+		return this.lineStarts[line];
+	}
+	
+	/** Returns the bounds of this layout, as if it were drawn at the given
+	 * position and scale.
+	 * 
+	 * @param x The x coordinate of the string's origin
+	 * @param y The y coordinate of the string's origin
+	 * @param scaleX The horizontal scale of the string
+	 * @param scaleY The vertical scale of the string
+	 * @return The bounds of this layout */
+	public GLFontBounds getBounds(double x, double y, double scaleX, double scaleY) {
+		// The first line's height is never scaled; only the lines that follow it are
+		return new GLFontBounds(x, y, this.smallestWidth * scaleX, this.smallestHeight, this.largestWidth * scaleX, this.lineHeight + ((this.largestHeight - this.lineHeight) * scaleY));
+	}
+	
+}
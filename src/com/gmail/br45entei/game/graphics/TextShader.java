@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+/** A {@link PerspectiveShader} for drawing {@link TextBatch text batches}.<br>
+ * In addition to the usual position and texture coordinate attributes, each
+ * vertex has its own color (location <tt>2</tt>), which is multiplied with
+ * the glyph page's texel and the <tt>textureColor</tt> uniform.<br>
+ * When the <tt>distanceField</tt> uniform is set, the texel's alpha is
+ * treated as a signed distance field and is turned into a smooth edge one
+ * screen pixel wide, so that
+ * {@link FontRender#createDistanceFieldFont(String, boolean, boolean)
+ * distance field fonts} stay crisp at any scale.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class TextShader extends PerspectiveShader {
+	
+	/** The value of the <tt>distanceField</tt> uniform, reused for every
+	 * update */
+	private final int[] distanceField = {0};
+	
+	/** @param name The name of this shader program */
+	public TextShader(String name) {
+		super(name, ""//@formatter:off
+				+ "#version 420\n"
+				+ "\n"
+				+ "layout (location=0) in vec3 position;\n"
+				+ "layout (location=1) in vec2 texCoord;\n"
+				+ "layout (location=2) in vec4 vertexColor;\n"
+				+ "out vec2 tc;\n"
+				+ "out vec4 vc;\n"
+				+ "uniform mat4 modelView;\n"
+				+ "uniform mat4 projection;\n"
+				+ "layout (binding=0) uniform sampler2D samp;\n"// not used in vertex shader
+				+ "uniform vec4 textureColor;\n"// not used in vertex shader
+				+ "uniform int colorMode;\n"// not used in vertex shader
+				+ "\n"
+				+ "void main(void) {\n"
+				+ "	gl_Position = projection * modelView * vec4(position, 1.0);\n"
+				+ "	tc = texCoord;\n"
+				+ "	vc = vertexColor;\n"
+				+ "}\n"
+				+ "\n",
+				
+				"#version 420\n"
+				+ "\n"
+				+ "in vec2 tc;\n"
+				+ "in vec4 vc;\n"
+				+ "out vec4 color;\n"
+				+ "uniform mat4 modelView;\n"
+				+ "uniform mat4 projection;\n"
+				+ "layout (binding=0) uniform sampler2D samp;\n"
+				+ "uniform vec4 textureColor;\n"
+				+ "uniform int colorMode;\n"
+				+ "uniform int distanceField;\n"
+				+ "\n"
+				+ "void main(void) {\n"
+				+ "	vec4 texel = texture(samp, tc);\n"
+				+ "	if(distanceField != 0) {\n"
+				+ "		float edge = max(fwidth(texel.a), 0.0001) * 0.5;\n"
+				+ "		texel.a = smoothstep(0.5 - edge, 0.5 + edge, texel.a);\n"
+				+ "	}\n"
+				+ "	if(colorMode == 3) {\n"
+				+ "		color = vec4(vc.rgb, vc.a * texel.a) * textureColor;\n"
+				+ "	} else {\n"
+				+ "		color = texel * vc * textureColor;\n"
+				+ "	}\n"
+				+ "}\n"
+				+ "\n"
+		);//@formatter:on
+	}
+	
+	public TextShader() {
+		this("Text Shader");
+	}
+	
+	@Override
+	protected void glOnLinked() {
+		super.glOnLinked();
+		this.getOrCreateUniform("distanceField", int[].class, new int[] {0}, false, false);
+	}
+	
+	public boolean isDistanceField() {
+		return this.getUniform("distanceField", int[].class).getCachedValue()[0] != 0;
+	}
+	
+	public TextShader glSetDistanceField(boolean distanceField) {
+		this.distanceField[0] = distanceField ? 1 : 0;
+		this.getUniform("distanceField", int[].class).glSetValue(this.distanceField);
+		return this;
+	}
+	
+}
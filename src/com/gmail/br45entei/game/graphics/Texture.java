@@ -3,7 +3,6 @@ package com.gmail.br45entei.game.graphics;
 import com.gmail.br45entei.game.ui.Window;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
 
 /** A texture to be bound within <strike>JOGL</strike> LWJGL. This
@@ -44,6 +43,8 @@ public class Texture {
 	private float heightRatio;
 	
 	private volatile boolean isDisposed = false;
+	/** The deletion queue of the context that this texture was created on */
+	private final DeletionQueue deletionQueue;
 	
 	/** Create a new texture
 	 *
@@ -56,6 +57,7 @@ public class Texture {
 		this.textureID = textureID;
 		this.name = name;
 		this.hasAlpha = hasAlpha;
+		this.deletionQueue = textureID == 0 ? null : DeletionQueue.get();
 	}
 	
 	/** @return This texture's id */
@@ -90,11 +92,9 @@ public class Texture {
 		if(GLUtil.isGL15Available()) {
 			GL15.glBindBuffer(0, 0);//sets active buffer to null
 		}
-		if(GLUtil.isGL13Available()) {
-			GL13.glActiveTexture(GL13.GL_TEXTURE0);//unbinds sampler slots and sets active texture to default
-		}
-		GL11.glBindTexture(GL11.GL_TEXTURE_1D, 0);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		final GLState state = GLState.get();
+		state.glBindTexture(0, GL11.GL_TEXTURE_1D, 0);//sets active texture to default
+		state.glBindTexture(0, GL11.GL_TEXTURE_2D, 0);
 		
 	}
 	
@@ -111,8 +111,7 @@ public class Texture {
 			throw new IllegalArgumentException("Sampler slot out of range(must be >= 0 and <= 31)!");
 		}
 		
-		GL13.glActiveTexture(GL13.GL_TEXTURE0 + samplerSlot);
-		GL11.glBindTexture(this.target, this.getID());
+		GLState.get().glBindTexture(samplerSlot, this.target, this.getID());
 	}
 	
 	/** Set the height of the image
@@ -207,10 +206,15 @@ public class Texture {
 		return this;
 	}
 	
-	/** Disposes of this Texture's resources */
+	/** Disposes of this Texture's resources.<br>
+	 * The texture itself is deleted by the {@link DeletionQueue} of the
+	 * context that created it at the end of that context's frame, so this
+	 * method may be called from any thread. */
 	public final void dispose() {
 		this.isDisposed = true;
-		GL11.glDeleteTextures(this.textureID);
+		if(this.deletionQueue != null) {
+			this.deletionQueue.deleteTexture(this.textureID);
+		}
 	}
 	
 	/** @return Whether or not this Texture has been {@link #dispose()
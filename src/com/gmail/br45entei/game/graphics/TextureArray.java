@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Hashtable;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/** A {@link Texture} whose frames are stored as the layers of a single
+ * {@link GL30#GL_TEXTURE_2D_ARRAY 2D array texture}.<br>
+ * Since every frame lives in the same texture object, switching frames only
+ * requires changing the layer that is sampled (see {@link TextureArrayShader}),
+ * so any number of animated sprites that share a TextureArray can be drawn
+ * without re-binding anything in between.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class TextureArray extends Texture {
+	
+	private final int layers;
+	
+	/** Create a new texture array
+	 * 
+	 * @param textureID The GL texture ID
+	 * @param name The path to the resource used to load this texture array
+	 * @param hasAlpha Whether or not this texture array has an alpha channel
+	 * @param layers The number of layers in this texture array */
+	protected TextureArray(int textureID, String name, boolean hasAlpha, int layers) {
+		super(GL30.GL_TEXTURE_2D_ARRAY, textureID, name, hasAlpha);
+		this.layers = layers;
+	}
+	
+	/** @return The number of layers(frames) in this texture array */
+	public final int getLayerCount() {
+		return this.layers;
+	}
+	
+	/** @return Whether or not the current OpenGL context supports 2D array
+	 *         textures */
+	public static final boolean isSupported() {
+		try {
+			return GLUtil.isGL30Available() || GL.getCapabilities().GL_EXT_texture_array;
+		} catch(IllegalStateException ex) {
+			return false;
+		}
+	}
+	
+	/** Uploads the given frames as the layers of a new texture array.<br>
+	 * Every frame must have the same size, and should already be flipped
+	 * vertically(as returned by {@link TextureLoader#loadImage(String)}).
+	 * 
+	 * @param name The name of the new texture array
+	 * @param minFilter The minimizing filter
+	 * @param magFilter The magnification filter
+	 * @param frames The frames to upload, in order
+	 * @return The new texture array
+	 * @throws IllegalArgumentException Thrown if no frames were given, or if
+	 *             the frames are not all the same size */
+	public static final TextureArray create(String name, int minFilter, int magFilter, BufferedImage... frames) throws IllegalArgumentException {
+		if(frames == null || frames.length == 0) {
+			throw new IllegalArgumentException("A texture array requires at least one frame!");
+		}
+		final int width = frames[0].getWidth(), height = frames[0].getHeight();
+		boolean hasAlpha = false;
+		for(BufferedImage frame : frames) {
+			if(frame.getWidth() != width || frame.getHeight() != height) {
+				throw new IllegalArgumentException(String.format("All frames of a texture array must be the same size! Expected %sx%s, got %sx%s.", Integer.toString(width), Integer.toString(height), Integer.toString(frame.getWidth()), Integer.toString(frame.getHeight())));
+			}
+			hasAlpha |= frame.getColorModel().hasAlpha();
+		}
+		
+		final int target = GL30.GL_TEXTURE_2D_ARRAY;
+		final int textureID = GL11.glGenTextures();
+		GLState.get().glBindTexture(0, target, textureID);
+		TextureArray texture = new TextureArray(textureID, name, hasAlpha, frames.length);
+		texture.setWidth(width);
+		texture.setHeight(height);
+		texture.setTextureWidth(width);
+		texture.setTextureHeight(height);
+		
+		GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+		GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_ROWS, 0);
+		GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_MIN_FILTER, minFilter);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_MAG_FILTER, magFilter);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(target, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+		
+		GL12.glTexImage3D(target, 0, GL11.GL_RGBA8, width, height, frames.length, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+		ByteBuffer buf = BufferUtils.createByteBuffer(width * height * 4);
+		WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 4, new Point(0, 0));
+		BufferedImage texImage = new BufferedImage(TextureLoader.glAlphaColorModel, raster, false, new Hashtable<>());
+		for(int layer = 0; layer < frames.length; layer++) {
+			Graphics2D g = texImage.createGraphics();
+			g.setComposite(AlphaComposite.Src);
+			g.setColor(new Color(0f, 0f, 0f, 0f));
+			g.fillRect(0, 0, width, height);
+			g.drawImage(frames[layer], 0, 0, null);
+			g.dispose();
+			buf.clear();
+			buf.put(((DataBufferByte) raster.getDataBuffer()).getData()).flip();
+			GL12.glTexSubImage3D(target, 0, 0, 0, layer, width, height, 1, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
+		}
+		if(MipmapGenerator.isMipmapFilter(minFilter)) {
+			GL30.glGenerateMipmap(target);
+		}
+		
+		GLState.get().glBindTexture(0, target, 0);
+		return texture;
+	}
+	
+	//=========================================================================================================================
+	
+	/** The decoded frames of an animation, along with how long each frame
+	 * should be displayed for.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Frames {
+		
+		/** The frames of the animation, already flipped vertically */
+		public final BufferedImage[] images;
+		/** The time, in milliseconds, that each frame is displayed for */
+		public final double[] durations;
+		
+		protected Frames(BufferedImage[] images, double[] durations) {
+			this.images = images;
+			this.durations = durations;
+		}
+		
+	}
+	
+	/** Splits a sprite sheet into equally sized frames.<br>
+	 * Frames are read left to right, then top to bottom, as they appear in
+	 * the image file.
+	 * 
+	 * @param resourcePath The location of the sprite sheet resource
+	 * @param frameWidth The width of each frame
+	 * @param frameHeight The height of each frame
+	 * @param frameCount The number of frames to read, or <tt>-1</tt> to read
+	 *            every frame in the sheet
+	 * @param millisBetweenChanges The time, in milliseconds, that each frame
+	 *            is displayed for
+	 * @return The resulting frames
+	 * @throws IOException Indicates a failure to find or decode the resource
+	 * @throws IllegalArgumentException Thrown if the frame size or count does
+	 *             not fit the sprite sheet */
+	public static final Frames loadSpriteSheet(String resourcePath, int frameWidth, int frameHeight, int frameCount, double millisBetweenChanges) throws IOException, IllegalArgumentException {
+		resourcePath = TextureLoader.fullPath(resourcePath);
+		BufferedImage sheet = readImage(resourcePath);
+		if(frameWidth <= 0 || frameHeight <= 0 || frameWidth > sheet.getWidth() || frameHeight > sheet.getHeight()) {
+			throw new IllegalArgumentException(String.format("Invalid frame size %sx%s for sprite sheet \"%s\"(%sx%s)!", Integer.toString(frameWidth), Integer.toString(frameHeight), resourcePath, Integer.toString(sheet.getWidth()), Integer.toString(sheet.getHeight())));
+		}
+		final int columns = sheet.getWidth() / frameWidth, rows = sheet.getHeight() / frameHeight;
+		frameCount = frameCount < 0 ? columns * rows : frameCount;
+		if(frameCount == 0 || frameCount > columns * rows) {
+			throw new IllegalArgumentException(String.format("Sprite sheet \"%s\" only contains %s frames of size %sx%s(requested %s)!", resourcePath, Integer.toString(columns * rows), Integer.toString(frameWidth), Integer.toString(frameHeight), Integer.toString(frameCount)));
+		}
+		BufferedImage[] images = new BufferedImage[frameCount];
+		double[] durations = new double[frameCount];
+		for(int i = 0; i < frameCount; i++) {
+			images[i] = TextureLoader.createFlipped(sheet.getSubimage((i % columns) * frameWidth, (i / columns) * frameHeight, frameWidth, frameHeight));
+			durations[i] = millisBetweenChanges;
+		}
+		return new Frames(images, durations);
+	}
+	
+	/** Decodes every frame of an animated GIF, compositing each frame onto the
+	 * previous ones as specified by the GIF's disposal methods.
+	 * 
+	 * @param resourcePath The location of the GIF resource
+	 * @return The resulting frames
+	 * @throws IOException Indicates a failure to find or decode the resource */
+	public static final Frames loadGIF(String resourcePath) throws IOException {
+		resourcePath = TextureLoader.fullPath(resourcePath);
+		byte[] data = TextureCache.readResource(resourcePath);
+		if(data == null) {
+			throw new IOException("Cannot find: " + resourcePath);
+		}
+		Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
+		if(!readers.hasNext()) {
+			throw new IOException("No GIF image reader is available!");
+		}
+		ImageReader reader = readers.next();
+		try(ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+			reader.setInput(in, false);
+			final int count = reader.getNumImages(true);
+			if(count <= 0) {
+				throw new IOException("GIF contains no frames: " + resourcePath);
+			}
+			int width = 0, height = 0;
+			IIOMetadata streamMetadata = reader.getStreamMetadata();
+			if(streamMetadata != null) {
+				Node screen = findChild(streamMetadata.getAsTree("javax_imageio_gif_stream_1.0"), "LogicalScreenDescriptor");
+				width = getIntAttribute(screen, "logicalScreenWidth", 0);
+				height = getIntAttribute(screen, "logicalScreenHeight", 0);
+			}
+			BufferedImage[] images = new BufferedImage[count];
+			double[] durations = new double[count];
+			BufferedImage canvas = null;
+			for(int i = 0; i < count; i++) {
+				BufferedImage frame = reader.read(i);
+				Node metadata = reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+				Node descriptor = findChild(metadata, "ImageDescriptor"), control = findChild(metadata, "GraphicControlExtension");
+				final int left = getIntAttribute(descriptor, "imageLeftPosition", 0), top = getIntAttribute(descriptor, "imageTopPosition", 0);
+				final int delay = getIntAttribute(control, "delayTime", 0);//Hundredths of a second
+				final String disposal = control == null ? "none" : control.getAttributes().getNamedItem("disposalMethod").getNodeValue();
+				if(canvas == null) {
+					canvas = new BufferedImage(Math.max(width, left + frame.getWidth()), Math.max(height, top + frame.getHeight()), BufferedImage.TYPE_INT_ARGB);
+				}
+				BufferedImage previous = null;
+				if(disposal.equals("restoreToPrevious")) {
+					previous = new BufferedImage(canvas.getWidth(), canvas.getHeight(), BufferedImage.TYPE_INT_ARGB);
+					previous.setData(canvas.getData());
+				}
+				Graphics2D g = canvas.createGraphics();
+				g.drawImage(frame, left, top, null);
+				g.dispose();
+				
+				images[i] = TextureLoader.createFlipped(canvas);
+				durations[i] = delay <= 1 ? 100.0 : delay * 10.0;//Mimic web browsers, which treat 0 and 1 as 'as fast as possible' and slow them down to 100ms
+				
+				if(disposal.equals("restoreToBackgroundColor")) {
+					g = canvas.createGraphics();
+					g.setComposite(AlphaComposite.Clear);
+					g.fillRect(left, top, frame.getWidth(), frame.getHeight());
+					g.dispose();
+				} else if(previous != null) {
+					canvas = previous;
+				}
+			}
+			return new Frames(images, durations);
+		} finally {
+			reader.dispose();
+		}
+	}
+	
+	private static final BufferedImage readImage(String resourcePath) throws IOException {
+		byte[] data = TextureCache.readResource(resourcePath);
+		if(data == null) {
+			throw new IOException("Cannot find: " + resourcePath);
+		}
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+		if(image == null) {
+			throw new IOException("Unsupported image format: " + resourcePath);
+		}
+		return image;
+	}
+	
+	private static final Node findChild(Node node, String name) {
+		for(Node child = node == null ? null : node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if(child.getNodeName().equals(name)) {
+				return child;
+			}
+		}
+		return null;
+	}
+	
+	private static final int getIntAttribute(Node node, String name, int def) {
+		if(node == null) {
+			return def;
+		}
+		NamedNodeMap attributes = node.getAttributes();
+		Node attribute = attributes == null ? null : attributes.getNamedItem(name);
+		if(attribute == null) {
+			return def;
+		}
+		try {
+			return Integer.parseInt(attribute.getNodeValue());
+		} catch(NumberFormatException ex) {
+			return def;
+		}
+	}
+	
+}
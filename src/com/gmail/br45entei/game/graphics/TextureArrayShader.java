@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+/** A {@link PerspectiveShader} which samples from a {@link TextureArray}
+ * instead of a regular 2D texture.<br>
+ * The layer that is sampled is the sum of the <tt>baseLayer</tt> uniform and
+ * the optional per-vertex <tt>layer</tt> attribute (location <tt>2</tt>), so
+ * a whole batch of sprites can each display a different animation frame from
+ * a single bound texture.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class TextureArrayShader extends PerspectiveShader {
+	
+	/** The value of the <tt>baseLayer</tt> uniform, reused for every update */
+	private final int[] layer = {0};
+	
+	/** @param name The name of this shader program */
+	public TextureArrayShader(String name) {
+		super(name, ""//@formatter:off
+				+ "#version 420\n"
+				+ "\n"
+				+ "layout (location=0) in vec3 position;\n"
+				+ "layout (location=1) in vec2 texCoord;\n"
+				+ "layout (location=2) in float layer;\n"// per-vertex layer offset; defaults to 0 when the attribute array is disabled
+				+ "out vec2 tc;\n"
+				+ "flat out float tl;\n"// texture layer output to rasterizer
+				+ "out vec3 interpolatedTextureColor;\n"
+				+ "uniform mat4 modelView;\n"
+				+ "uniform mat4 projection;\n"
+				+ "layout (binding=0) uniform sampler2DArray samp;\n"// not used in vertex shader
+				+ "uniform vec4 textureColor;\n"// not used in vertex shader
+				+ "uniform int colorMode;\n"// not used in vertex shader
+				+ "uniform int baseLayer;\n"
+				+ "\n"
+				+ "void main(void) {\n"
+				+ "	gl_Position = projection * modelView * vec4(position, 1.0);\n"
+				+ "	tc = texCoord;\n"
+				+ "	tl = float(baseLayer) + layer;\n"
+				+ "	interpolatedTextureColor = textureColor.rgb;"
+				+ "}\n"
+				+ "\n",
+				
+				"#version 420\n"
+				+ "\n"
+				+ "in vec2 tc;\n"
+				+ "flat in float tl;\n"
+				+ "in vec3 interpolatedTextureColor;\n"
+				+ "out vec4 color;\n"
+				+ "uniform mat4 modelView;\n"
+				+ "uniform mat4 projection;\n"
+				+ "layout (binding=0) uniform sampler2DArray samp;\n"
+				+ "uniform vec4 textureColor;\n"
+				+ "uniform int colorMode;\n"
+				+ "uniform int baseLayer;\n"
+				+ "\n"
+				+ "void main(void) {\n"
+				+ "	vec4 texel = texture(samp, vec3(tc, tl));\n"
+				+ "	if(colorMode == 0) {\n"
+				+ "		color = texel * textureColor;\n"
+				+ "	} else if(colorMode == 1) {\n"
+				+ "		color = texel * vec4(interpolatedTextureColor, 1.0);\n"
+				+ "	} else if(colorMode == 2) {\n"
+				+ "		color = texel * vec4(interpolatedTextureColor, 1.0) * textureColor;\n"
+				+ "	} else if(colorMode == 3) {\n"
+				+ "		color = textureColor;\n"
+				+ "	} else if(colorMode == 4) {\n"
+				+ "		color = vec4(interpolatedTextureColor, 1.0);\n"
+				+ "	} else {\n"
+				+ "		color = vec4(interpolatedTextureColor, 1.0) * textureColor;\n"
+				+ "	}\n"
+				+ "	\n"
+				+ "}\n"
+				+ "\n"
+		);//@formatter:on
+	}
+	
+	public TextureArrayShader() {
+		this("Texture Array Shader");
+	}
+	
+	@Override
+	protected void glOnLinked() {
+		super.glOnLinked();
+		this.getOrCreateUniform("baseLayer", int[].class, new int[] {0}, false, false);
+	}
+	
+	public int getLayer() {
+		return this.getUniform("baseLayer", int[].class).getCachedValue()[0];
+	}
+	
+	public TextureArrayShader setLayer(int layer) {
+		this.layer[0] = layer;
+		this.getUniform("baseLayer", int[].class).setCachedValue(this.layer);
+		return this;
+	}
+	
+	public TextureArrayShader glSetLayer(int layer) {
+		this.layer[0] = layer;
+		this.getUniform("baseLayer", int[].class).glSetValue(this.layer);
+		return this;
+	}
+	
+}
@@ -0,0 +1,461 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import com.gmail.br45entei.util.BufferUtil;
+import com.gmail.br45entei.util.FileUtil;
+import com.gmail.br45entei.util.ResourceUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/** Persistent on-disk cache of GPU-ready texture data.<br>
+ * Each cache file consists of a small big-endian header followed by the raw
+ * pixel data of every stored mipmap level, exactly as it is handed to
+ * {@code glTexImage2D}(or {@code glCompressedTexImage2D}). Entries are keyed by
+ * the source resource path, its last modified time and a hash of its
+ * contents, so that editing an image automatically invalidates its entry.<br>
+ * On a cache hit the file is memory-mapped and the levels are uploaded
+ * straight from the mapping, skipping image decoding entirely.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class TextureCache {
+	
+	/** The magic number that every texture cache file begins with
+	 * (<tt>"BTXC"</tt>) */
+	public static final int MAGIC = 0x42545843;
+	/** The version of the cache file format. Files with any other version are
+	 * treated as a cache miss. */
+	public static final int VERSION = 1;
+	/** The file extension used for texture cache files */
+	public static final String EXTENSION = ".texcache";
+	
+	/** Flag bit set when the cached texture has an alpha channel */
+	public static final int FLAG_ALPHA = 0x1;
+	/** Flag bit set when the cached levels are in a compressed internal
+	 * format */
+	public static final int FLAG_COMPRESSED = 0x2;
+	
+	private static volatile File cacheFolder = new File(System.getProperty("user.dir"), "cache".concat(File.separator).concat("textures"));
+	private static volatile boolean enabled = true;
+	
+	private TextureCache() {
+	}
+	
+	/** @return The folder that texture cache files are stored in */
+	public static final File getCacheFolder() {
+		return cacheFolder;
+	}
+	
+	/** @param folder The new folder that texture cache files will be stored in */
+	public static final void setCacheFolder(File folder) {
+		if(folder != null) {
+			cacheFolder = folder;
+		}
+	}
+	
+	/** @return Whether or not the texture cache is used by the
+	 *         {@link TextureLoader} */
+	public static final boolean isEnabled() {
+		return enabled;
+	}
+	
+	/** @param enabled Whether or not the texture cache should be used by the
+	 *            {@link TextureLoader} */
+	public static final void setEnabled(boolean enabled) {
+		TextureCache.enabled = enabled;
+	}
+	
+	/** @param resourcePath The resource path of the source image
+	 * @return The cache file that would contain the data for the given
+	 *         resource */
+	public static final File getCacheFile(String resourcePath) {
+		return new File(getCacheFolder(), FileUtil.makeStringFilesystemSafe(resourcePath).concat(EXTENSION));
+	}
+	
+	/** Deletes every texture cache file in the {@link #getCacheFolder() cache
+	 * folder}.
+	 * 
+	 * @return The number of cache files that were deleted */
+	public static final int clear() {
+		File[] files = getCacheFolder().listFiles();
+		int count = 0;
+		if(files != null) {
+			for(File file : files) {
+				if(file.isFile() && file.getName().endsWith(EXTENSION) && file.delete()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Holds the raw contents of a source image along with the information
+	 * used to key its cache entry.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Source {
+		
+		/** The resource path of the source image */
+		public final String path;
+		/** The source image's last modified time, or <tt>0</tt> if it could
+		 * not be determined */
+		public final long lastModified;
+		/** The raw (still encoded) contents of the source image */
+		public final byte[] data;
+		/** The SHA-1 hash of {@link #data} */
+		public final byte[] hash;
+		
+		protected Source(String path, long lastModified, byte[] data, byte[] hash) {
+			this.path = path;
+			this.lastModified = lastModified;
+			this.data = data;
+			this.hash = hash;
+		}
+		
+	}
+	
+	/** Reads the specified resource into memory so that it can be looked up in
+	 * (or stored to) the cache.
+	 * 
+	 * @param resourcePath The resource path of the source image
+	 * @return The resulting Source, or <tt><b>null</b></tt> if the resource
+	 *         does not exist or could not be read */
+	public static final Source readSource(String resourcePath) {
+		final byte[] data = readResource(resourcePath);
+		if(data == null) {
+			return null;
+		}
+		return new Source(resourcePath, getLastModified(resourcePath), data, sha1(data));
+	}
+	
+	/** @param resourcePath The resource path to read
+	 * @return The contents of the specified resource, or <tt><b>null</b></tt>
+	 *         if the resource does not exist or could not be read */
+	public static final byte[] readResource(String resourcePath) {
+		try(InputStream in = ResourceUtil.loadResource(resourcePath)) {
+			if(in == null) {
+				return null;
+			}
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			byte[] buf = new byte[4096];
+			int read;
+			while((read = in.read(buf)) != -1) {
+				baos.write(buf, 0, read);
+			}
+			return baos.toByteArray();
+		} catch(IOException ex) {
+			return null;
+		}
+	}
+	
+	/** @param resourcePath The resource path to check
+	 * @return The last modified time of the specified resource, or <tt>0</tt>
+	 *         if it could not be determined */
+	public static final long getLastModified(String resourcePath) {
+		try {
+			URL url = TextureCache.class.getResource(resourcePath);
+			if(url == null) {
+				return 0L;
+			}
+			URLConnection conn = url.openConnection();
+			long lastModified = conn.getLastModified();
+			try {
+				conn.getInputStream().close();//Closes the underlying jar file, if any
+			} catch(IOException ignored) {
+			}
+			return lastModified;
+		} catch(IOException | SecurityException ex) {
+			return 0L;
+		}
+	}
+	
+	private static final byte[] sha1(byte[] data) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(data);
+		} catch(NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-1 is not available on this platform!", ex);
+		}
+	}
+	
+	//=========================================================================================================================
+	
+	/** A loaded texture cache entry.<br>
+	 * Entries that were read from disk are backed by a memory mapping of the
+	 * cache file, which is released when the entry is {@link #close()
+	 * closed}.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Entry implements AutoCloseable {
+		
+		/** The GL target that the texture data was prepared for */
+		public final int target;
+		/** The internal format of the texture data */
+		public final int internalFormat;
+		/** The pixel format of the texture data(unused for compressed data) */
+		public final int format;
+		/** The pixel type of the texture data(unused for compressed data) */
+		public final int type;
+		/** The combination of {@link TextureCache#FLAG_ALPHA} and
+		 * {@link TextureCache#FLAG_COMPRESSED} that applies to this entry */
+		public final int flags;
+		/** The width of the original image */
+		public final int imageWidth;
+		/** The height of the original image */
+		public final int imageHeight;
+		
+		protected final int[] levelWidths;
+		protected final int[] levelHeights;
+		protected final ByteBuffer[] levels;
+		private volatile MappedByteBuffer mapping;
+		
+		/** Creates a new Entry from texture data that is already in memory.
+		 * 
+		 * @param target The GL target that the texture data was prepared for
+		 * @param internalFormat The internal format of the texture data
+		 * @param format The pixel format of the texture data
+		 * @param type The pixel type of the texture data
+		 * @param flags Any combination of {@link TextureCache#FLAG_ALPHA} and
+		 *            {@link TextureCache#FLAG_COMPRESSED}
+		 * @param imageWidth The width of the original image
+		 * @param imageHeight The height of the original image
+		 * @param levelWidths The width of each mipmap level
+		 * @param levelHeights The height of each mipmap level
+		 * @param levels The pixel data of each mipmap level */
+		public Entry(int target, int internalFormat, int format, int type, int flags, int imageWidth, int imageHeight, int[] levelWidths, int[] levelHeights, ByteBuffer[] levels) {
+			if(levels.length == 0 || levelWidths.length != levels.length || levelHeights.length != levels.length) {
+				throw new IllegalArgumentException(String.format("Mismatched level data: %s widths, %s heights and %s buffers!", Integer.toString(levelWidths.length), Integer.toString(levelHeights.length), Integer.toString(levels.length)));
+			}
+			this.target = target;
+			this.internalFormat = internalFormat;
+			this.format = format;
+			this.type = type;
+			this.flags = flags;
+			this.imageWidth = imageWidth;
+			this.imageHeight = imageHeight;
+			this.levelWidths = levelWidths;
+			this.levelHeights = levelHeights;
+			this.levels = levels;
+		}
+		
+		/** @return Whether or not the cached texture has an alpha channel */
+		public final boolean hasAlpha() {
+			return (this.flags & FLAG_ALPHA) != 0;
+		}
+		
+		/** @return Whether or not the cached levels are compressed */
+		public final boolean isCompressed() {
+			return (this.flags & FLAG_COMPRESSED) != 0;
+		}
+		
+		/** @return The number of mipmap levels stored in this entry */
+		public final int getLevelCount() {
+			return this.levels.length;
+		}
+		
+		/** @param level The mipmap level
+		 * @return The width of the specified mipmap level */
+		public final int getLevelWidth(int level) {
+			return this.levelWidths[level];
+		}
+		
+		/** @param level The mipmap level
+		 * @return The height of the specified mipmap level */
+		public final int getLevelHeight(int level) {
+			return this.levelHeights[level];
+		}
+		
+		/** @param level The mipmap level
+		 * @return A read-only view of the pixel data of the specified mipmap
+		 *         level */
+		public final ByteBuffer getLevel(int level) {
+			return this.levels[level].asReadOnlyBuffer().rewind();
+		}
+		
+		/** Releases the memory mapping that backs this entry, if any.<br>
+		 * The level buffers must not be used after calling this method. */
+		@SuppressWarnings("deprecation")
+		@Override
+		public void close() {
+			MappedByteBuffer mapping = this.mapping;
+			this.mapping = null;
+			if(mapping != null) {
+				BufferUtil.freeDirectBufferMemory(mapping);
+			}
+		}
+		
+	}
+	
+	//=========================================================================================================================
+	
+	/** Looks up the cache entry for the given source.
+	 * 
+	 * @param source The source whose cache entry will be loaded
+	 * @return The memory-mapped cache entry, or <tt><b>null</b></tt> if there
+	 *         was no valid entry for the source's path, last modified time and
+	 *         content hash */
+	public static final Entry load(Source source) {
+		File file = getCacheFile(source.path);
+		if(!file.isFile()) {
+			return null;
+		}
+		MappedByteBuffer map;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch(IOException ex) {
+			return null;
+		}
+		Entry entry = null;
+		try {
+			entry = parse(map, source);
+		} catch(RuntimeException ex) {//Truncated or otherwise corrupt cache file
+			entry = null;
+		}
+		if(entry == null) {
+			unmap(map);
+			file.delete();
+			return null;
+		}
+		entry.mapping = map;
+		return entry;
+	}
+	
+	private static final Entry parse(MappedByteBuffer map, Source source) {
+		ByteBuffer buf = map.duplicate().order(ByteOrder.BIG_ENDIAN);
+		if(buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+			return null;
+		}
+		byte[] path = new byte[buf.getInt()];
+		buf.get(path);
+		if(!source.path.equals(new String(path, StandardCharsets.UTF_8))) {
+			return null;
+		}
+		if(buf.getLong() != source.lastModified || buf.getLong() != source.data.length) {
+			return null;
+		}
+		byte[] hash = new byte[buf.getInt()];
+		buf.get(hash);
+		if(!Arrays.equals(hash, source.hash)) {
+			return null;
+		}
+		final int target = buf.getInt(), internalFormat = buf.getInt(), format = buf.getInt(), type = buf.getInt(), flags = buf.getInt();
+		final int imageWidth = buf.getInt(), imageHeight = buf.getInt(), levelCount = buf.getInt();
+		final int[] widths = new int[levelCount], heights = new int[levelCount], lengths = new int[levelCount];
+		for(int i = 0; i < levelCount; i++) {
+			widths[i] = buf.getInt();
+			heights[i] = buf.getInt();
+			lengths[i] = buf.getInt();
+		}
+		ByteBuffer[] levels = new ByteBuffer[levelCount];
+		int offset = buf.position();
+		for(int i = 0; i < levelCount; i++) {
+			levels[i] = map.duplicate().position(offset).limit(offset + lengths[i]).slice().order(ByteOrder.nativeOrder());
+			offset += lengths[i];
+		}
+		return new Entry(target, internalFormat, format, type, flags, imageWidth, imageHeight, widths, heights, levels);
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static final void unmap(MappedByteBuffer map) {
+		BufferUtil.freeDirectBufferMemory(map);
+	}
+	
+	/** Writes the given entry to the cache for the given source, replacing
+	 * any existing entry.<br>
+	 * The data is written to a temporary file first and then moved into
+	 * place, so that a crash can never leave a partially written entry
+	 * behind.
+	 * 
+	 * @param source The source that the entry was created from
+	 * @param entry The entry to store
+	 * @return Whether or not the entry was successfully written */
+	public static final boolean store(Source source, Entry entry) {
+		File folder = getCacheFolder();
+		if(!folder.isDirectory() && !folder.mkdirs()) {
+			return false;
+		}
+		final byte[] path = source.path.getBytes(StandardCharsets.UTF_8);
+		final int levelCount = entry.getLevelCount();
+		ByteBuffer header = ByteBuffer.allocate(4 * 3 + path.length + 8 * 2 + 4 + source.hash.length + 4 * 8 + levelCount * 4 * 3).order(ByteOrder.BIG_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION);
+		header.putInt(path.length).put(path);
+		header.putLong(source.lastModified).putLong(source.data.length);
+		header.putInt(source.hash.length).put(source.hash);
+		header.putInt(entry.target).putInt(entry.internalFormat).putInt(entry.format).putInt(entry.type).putInt(entry.flags);
+		header.putInt(entry.imageWidth).putInt(entry.imageHeight).putInt(levelCount);
+		for(int i = 0; i < levelCount; i++) {
+			header.putInt(entry.levelWidths[i]).putInt(entry.levelHeights[i]).putInt(entry.levels[i].capacity());
+		}
+		header.flip();
+		
+		File file = getCacheFile(source.path);
+		File tmp = new File(folder, file.getName().concat(".tmp"));
+		try {
+			try(FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while(header.hasRemaining()) {
+					channel.write(header);
+				}
+				for(int i = 0; i < levelCount; i++) {
+					ByteBuffer level = entry.levels[i].duplicate().clear();
+					while(level.hasRemaining()) {
+						channel.write(level);
+					}
+				}
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch(AtomicMoveNotSupportedException ex) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} catch(IOException ex) {
+			System.err.print("Failed to write texture cache file \"".concat(file.getAbsolutePath()).concat("\": "));
+			System.err.println(ex);
+			tmp.delete();
+			return false;
+		}
+	}
+	
+}
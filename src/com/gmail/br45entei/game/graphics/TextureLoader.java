@@ -19,6 +19,7 @@ import java.awt.image.LookupTable;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -29,9 +30,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import javax.imageio.ImageIO;
 
-import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL31;
 
 /** A utility class to load textures for <strike>JOGL</strike>. This source is
@@ -107,7 +107,7 @@ public class TextureLoader {
 		} catch(IOException e) {
 			//LogUtil.printErr("Failed to load texture \"" + resourceName + "\": ");
 			//LogUtil.printErrln(e);
-			GL11.glDeleteTextures(textureID);
+			DeletionQueue.get().deleteTexture(textureID);
 			return null;
 		}
 		final boolean hasAlpha = bufferedImage.getColorModel().hasAlpha();
@@ -127,7 +127,7 @@ public class TextureLoader {
 		
 		// convert that image into a byte buffer of texture data 
 		
-		ByteBuffer textureBuffer = convertImageData(bufferedImage, texture);
+		byte[] textureData = convertImageData(bufferedImage, texture);
 		
 		if(target == GL11.GL_TEXTURE_2D) {
 			GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
@@ -141,12 +141,11 @@ public class TextureLoader {
 		
 		// produce a texture from the byte buffer
 		
-		GL11.glTexImage2D(target, 0, dstPixelFormat, get2Fold(bufferedImage.getWidth()), get2Fold(bufferedImage.getHeight()), 0, srcPixelFormat, GL11.GL_UNSIGNED_BYTE, textureBuffer);
+		StagingBuffer.glTexImage2D(target, 0, dstPixelFormat, get2Fold(bufferedImage.getWidth()), get2Fold(bufferedImage.getHeight()), 0, srcPixelFormat, GL11.GL_UNSIGNED_BYTE, textureData);
 		
 		// Unbind the newly created texture
 		
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL11.glBindTexture(target, 0);
+		GLState.get().glBindTexture(0, target, 0);
 		table.put(missingNo, texture);
 		return texture;
 	}
@@ -269,7 +268,16 @@ public class TextureLoader {
 	}
 	
 	/** Load a texture into OpenGL from a image reference on
-	 * disk.
+	 * disk.<br>
+	 * If the {@link TextureCache} is {@link TextureCache#isEnabled() enabled},
+	 * the GPU-ready pixel data is uploaded directly from the cache when the
+	 * source image has not changed since it was last cached; otherwise the
+	 * image is decoded as usual and the result is written to the cache.<br>
+	 * Precompressed <tt>.dds</tt> and <tt>.ktx</tt> files are loaded by the
+	 * {@link CompressedTextureLoader} instead, and are decompressed on the CPU
+	 * if the driver does not support their format.<br>
+	 * If the minimizing filter is a mipmap filter, a full mipmap chain is
+	 * generated for images that do not already contain one.
 	 *
 	 * @param resourceName The location of the resource to load
 	 * @param target The GL target to load the texture against
@@ -279,12 +287,26 @@ public class TextureLoader {
 	 * @return The loaded texture */
 	public static Texture createTexture(String resourceName, int target, int dstPixelFormat, int minFilter, int magFilter) {
 		resourceName = fullPath(resourceName);
+		final boolean compressed = CompressedTextureLoader.isCompressedFile(resourceName);
+		TextureCache.Source source = TextureCache.isEnabled() && !compressed ? TextureCache.readSource(resourceName) : null;
+		if(source != null) {
+			try(TextureCache.Entry entry = TextureCache.load(source)) {
+				// rectangle textures have no mipmaps, so any entry stored under that target is complete
+				if(entry != null && entry.internalFormat == dstPixelFormat && entry.target == getUploadTarget(target, entry.imageWidth, entry.imageHeight) && (entry.target == GL31.GL_TEXTURE_RECTANGLE || entry.getLevelCount() > 1 || !MipmapGenerator.isMipmapFilter(minFilter))) {
+					return createTexture(entry, resourceName, minFilter, magFilter);
+				}
+			}
+		}
 		BufferedImage bufferedImage = null;
 		try {
-			bufferedImage = loadImage(resourceName);
+			if(compressed) {
+				return createTexture(loadCompressedTexture(resourceName), resourceName, minFilter, magFilter);
+			}
+			bufferedImage = source != null ? loadImage(source.data, resourceName) : loadImage(resourceName);
 		} catch(IOException e) {
 			//LogUtil.printErr("Failed to load texture \"" + resourceName + "\": ");
 			//LogUtil.printErrln(e);
+			source = null;//Don't cache the missing texture under this texture's name
 			try {
 				bufferedImage = loadImage(missingNo);
 			} catch(IOException e1) {
@@ -293,10 +315,28 @@ public class TextureLoader {
 				return null;
 			}
 		}
-		return createTexture(bufferedImage, resourceName, target, dstPixelFormat, minFilter, magFilter);
+		return createTexture(bufferedImage, resourceName, target, dstPixelFormat, minFilter, magFilter, source);
 	}
 	
 	public static Texture createTexture(BufferedImage bufferedImage, String resourceName, int target, int dstPixelFormat, int minFilter, int magFilter) {
+		return createTexture(bufferedImage, resourceName, target, dstPixelFormat, minFilter, magFilter, null);
+	}
+	
+	/** @param target The GL target that was requested for an image
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @return The GL target that the image is actually uploaded to: non-square
+	 *         {@link GL11#GL_TEXTURE_2D 2D} images are uploaded as
+	 *         {@link GL31#GL_TEXTURE_RECTANGLE rectangle} textures when OpenGL
+	 *         3.1 is available */
+	private static int getUploadTarget(int target, int width, int height) {
+		if(target == GL11.GL_TEXTURE_2D && width != height && GLUtil.isGL31Available()) {
+			return GL31.GL_TEXTURE_RECTANGLE;
+		}
+		return target;
+	}
+	
+	private static Texture createTexture(BufferedImage bufferedImage, String resourceName, int target, int dstPixelFormat, int minFilter, int magFilter, TextureCache.Source source) {
 		resourceName = fullPath(resourceName);
 		int srcPixelFormat = 0;
 		
@@ -304,8 +344,7 @@ public class TextureLoader {
 		int textureID = createTextureID();
 		
 		// bind this texture 
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL11.glBindTexture(target, textureID);
+		GLState.get().glBindTexture(0, target, textureID);
 		final boolean hasAlpha = bufferedImage.getColorModel().hasAlpha();
 		if(hasAlpha) {
 			srcPixelFormat = GL11.GL_RGBA;
@@ -315,15 +354,11 @@ public class TextureLoader {
 		Texture texture = new Texture(target, textureID, resourceName, hasAlpha);
 		texture.setWidth(bufferedImage.getWidth());
 		texture.setHeight(bufferedImage.getHeight());
-		if(target == GL11.GL_TEXTURE_2D) {
-			if(texture.getWidth() != texture.getHeight() && GLUtil.isGL31Available()) {
-				target = texture.target = GL31.GL_TEXTURE_RECTANGLE;
-			}
-		}
+		target = texture.target = getUploadTarget(target, bufferedImage.getWidth(), bufferedImage.getHeight());
 		
 		// convert that image into a byte buffer of texture data 
 		
-		ByteBuffer textureBuffer = convertImageData(bufferedImage, texture);
+		byte[] textureData = convertImageData(bufferedImage, texture);
 		
 		if(target == GL11.GL_TEXTURE_2D) {
 			GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
@@ -337,17 +372,100 @@ public class TextureLoader {
 		
 		// produce a texture from the byte buffer
 		
-		int level = 0;
 		int width = target == GL31.GL_TEXTURE_RECTANGLE ? bufferedImage.getWidth() : get2Fold(bufferedImage.getWidth());
 		int height = target == GL31.GL_TEXTURE_RECTANGLE ? bufferedImage.getHeight() : get2Fold(bufferedImage.getHeight());
 		int border = 0;
 		int type = GL11.GL_UNSIGNED_BYTE;
-		GL11.glTexImage2D(target, level, dstPixelFormat, width, height, border, srcPixelFormat, type, textureBuffer);
+		
+		// generate the rest of the mipmap chain on the worker threads, if it will be sampled
+		
+		ByteBuffer[] levels = {ByteBuffer.wrap(textureData)};
+		if(target == GL11.GL_TEXTURE_2D && MipmapGenerator.isMipmapFilter(minFilter)) {
+			levels = MipmapGenerator.generate(levels[0], width, height, hasAlpha ? 4 : 3);
+		}
+		int[] widths = new int[levels.length], heights = new int[levels.length];
+		for(int level = 0; level < levels.length; level++) {
+			widths[level] = MipmapGenerator.getLevelSize(width, level);
+			heights[level] = MipmapGenerator.getLevelSize(height, level);
+			StagingBuffer.glTexImage2D(target, level, dstPixelFormat, widths[level], heights[level], border, srcPixelFormat, type, levels[level]);
+		}
+		if(levels.length > 1) {
+			GL11.glTexParameteri(target, GL12.GL_TEXTURE_MAX_LEVEL, levels.length - 1);
+		}
 		
 		// Unbind the newly created texture
 		
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL11.glBindTexture(target, 0);
+		GLState.get().glBindTexture(0, target, 0);
+		
+		if(source != null) {
+			TextureCache.store(source, new TextureCache.Entry(target, dstPixelFormat, srcPixelFormat, type, hasAlpha ? TextureCache.FLAG_ALPHA : 0, bufferedImage.getWidth(), bufferedImage.getHeight(), widths, heights, levels));
+		}
+		return texture;
+	}
+	
+	/** Creates a texture from data that was loaded from the
+	 * {@link TextureCache} or by the {@link CompressedTextureLoader}.<br>
+	 * If the entry only contains its base level and the minimizing filter is a
+	 * mipmap filter, the rest of the mipmap chain is generated when possible;
+	 * otherwise the minimizing filter falls back to its base level
+	 * equivalent.
+	 *
+	 * @param entry The cache entry containing the texture data
+	 * @param resourceName The location of the resource that the entry was
+	 *            created from
+	 * @param minFilter The minimizing filter
+	 * @param magFilter The magnification filter
+	 * @return The loaded texture */
+	public static Texture createTexture(TextureCache.Entry entry, String resourceName, int minFilter, int magFilter) {
+		resourceName = fullPath(resourceName);
+		final int target = entry.target;
+		int textureID = createTextureID();
+		
+		GLState.get().glBindTexture(0, target, textureID);
+		Texture texture = new Texture(target, textureID, resourceName, entry.hasAlpha());
+		texture.setWidth(entry.imageWidth);
+		texture.setHeight(entry.imageHeight);
+		texture.setTextureWidth(entry.getLevelWidth(0));
+		texture.setTextureHeight(entry.getLevelHeight(0));
+		
+		if(entry.getLevelCount() == 1 && target != GL31.GL_TEXTURE_RECTANGLE && MipmapGenerator.isMipmapFilter(minFilter)) {
+			if(!entry.isCompressed() && entry.type == GL11.GL_UNSIGNED_BYTE && (entry.format == GL11.GL_RGBA || entry.format == GL11.GL_RGB)) {
+				final int width = entry.getLevelWidth(0), height = entry.getLevelHeight(0);
+				ByteBuffer[] levels = MipmapGenerator.generate(entry.levels[0], width, height, entry.format == GL11.GL_RGBA ? 4 : 3);
+				int[] widths = new int[levels.length], heights = new int[levels.length];
+				for(int level = 0; level < levels.length; level++) {
+					widths[level] = MipmapGenerator.getLevelSize(width, level);
+					heights[level] = MipmapGenerator.getLevelSize(height, level);
+				}
+				entry = new TextureCache.Entry(target, entry.internalFormat, entry.format, entry.type, entry.flags, entry.imageWidth, entry.imageHeight, widths, heights, levels);
+			} else {
+				minFilter = MipmapGenerator.getBaseLevelFilter(minFilter);//Incomplete textures sample as black
+			}
+		}
+		
+		if(target == GL11.GL_TEXTURE_2D) {
+			GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
+			GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+			GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_ROWS, 0);
+			GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+			
+			GL11.glTexParameteri(target, GL11.GL_TEXTURE_MIN_FILTER, minFilter);
+			GL11.glTexParameteri(target, GL11.GL_TEXTURE_MAG_FILTER, magFilter);
+		}
+		
+		final int levelCount = entry.getLevelCount();
+		for(int level = 0; level < levelCount; level++) {
+			if(entry.isCompressed()) {
+				StagingBuffer.glCompressedTexImage2D(target, level, entry.internalFormat, entry.getLevelWidth(level), entry.getLevelHeight(level), 0, entry.levels[level]);
+			} else {
+				StagingBuffer.glTexImage2D(target, level, entry.internalFormat, entry.getLevelWidth(level), entry.getLevelHeight(level), 0, entry.format, entry.type, entry.levels[level]);
+			}
+		}
+		if(levelCount > 1) {
+			GL11.glTexParameteri(target, GL12.GL_TEXTURE_MAX_LEVEL, levelCount - 1);
+		}
+		
+		GLState.get().glBindTexture(0, target, 0);
 		return texture;
 	}
 	
@@ -379,9 +497,9 @@ public class TextureLoader {
 	 *
 	 * @param bufferedImage The image to convert to a texture
 	 * @param texture The texture to store the data into
-	 * @return A buffer containing the data */
-	private static ByteBuffer convertImageData(BufferedImage bufferedImage, Texture texture) {
-		ByteBuffer imageBuffer = null;
+	 * @return An array containing the data, which is written straight into
+	 *         the {@link StagingBuffer staging ring} when uploaded */
+	private static byte[] convertImageData(BufferedImage bufferedImage, Texture texture) {
 		WritableRaster raster;
 		BufferedImage texImage;
 		
@@ -424,9 +542,7 @@ public class TextureLoader {
 		imageBuffer.order(ByteOrder.nativeOrder());
 		imageBuffer.put(data, 0, data.length);
 		imageBuffer.flip();*/
-		imageBuffer = BufferUtils.createByteBuffer(data.length).rewind().put(data).rewind();//BufferUtil.wrapDirect(data);
-		
-		return imageBuffer;
+		return data;
 	}
 	
 	/** Load a given resource as a buffered image
@@ -446,6 +562,39 @@ public class TextureLoader {
 		return bufferedImage;
 	}
 	
+	/** Loads a precompressed DDS or KTX texture, decompressing it on the CPU
+	 * if the driver does not support its format.
+	 * 
+	 * @param resourceName The location of the resource to load
+	 * @return The loaded texture data
+	 * @throws IOException Indicates a failure to find or parse the resource */
+	public static TextureCache.Entry loadCompressedTexture(String resourceName) throws IOException {
+		byte[] data = TextureCache.readResource(resourceName);
+		if(data == null) {
+			throw new IOException("Cannot find: " + resourceName);
+		}
+		TextureCache.Entry entry = CompressedTextureLoader.load(data, resourceName);
+		if(entry.isCompressed() && !CompressedTextureLoader.isFormatSupported(entry.internalFormat)) {
+			entry = CompressedTextureLoader.decompress(entry);
+		}
+		return entry;
+	}
+	
+	/** Decodes the given encoded image data as a buffered image
+	 * 
+	 * @param data The raw (encoded) contents of the image
+	 * @param ref The location that the data was loaded from(used for error
+	 *            messages)
+	 * @return The loaded buffered image
+	 * @throws IOException Indicates that the data could not be decoded */
+	public static BufferedImage loadImage(byte[] data, String ref) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+		if(image == null) {
+			throw new IOException("Unsupported image format: " + ref);
+		}
+		return createFlipped(image);
+	}
+	
 	/** Creates an integer buffer to hold specified ints
 	 * - strictly a utility method
 	 *
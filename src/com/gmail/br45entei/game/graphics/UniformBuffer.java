@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+
+/** Shares uniform data between shader programs through uniform buffer
+ * objects.<br>
+ * <br>
+ * Values that are the same for every program during a frame (the camera's
+ * matrices, the time, the lighting) are written once per frame into a
+ * <tt>std140</tt> block and bound to a fixed binding point, instead of being
+ * uploaded into every program separately. Any {@link Shader} that declares a
+ * block with one of the {@link #registerBlock(String, int) registered} names
+ * (e.g. by including {@link #CAMERA_BLOCK_GLSL}) has that block bound to its
+ * binding point automatically when it is linked.<br>
+ * <br>
+ * Every block is sub-allocated from the current context's
+ * {@link StagingBuffer#getUniformBuffer() uniform ring}, so per-object blocks
+ * can be written and bound once per draw without waiting for the GPU to
+ * finish with the previous draw's data. The <tt>glSet...</tt> methods write
+ * each block into a small per-thread buffer and copy it straight into the
+ * ring, so setting a block doesn't allocate anything. Uniform blocks require
+ * OpenGL 3.2 here (for the ring's fences); on older contexts the
+ * <tt>glSet...</tt> methods return <tt>false</tt> and do nothing.<br>
+ * <br>
+ * Like every other GL object, the blocks belong to the context that was
+ * current when they were written, and must only be used on that context's
+ * thread.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public final class UniformBuffer {
+	
+	/** The binding point of the per-frame camera block */
+	public static final int CAMERA_BINDING = 0;
+	/** The binding point of the per-frame time block */
+	public static final int FRAME_BINDING = 1;
+	/** The binding point of the per-frame lighting block */
+	public static final int LIGHTING_BINDING = 2;
+	/** The binding point of the per-object block */
+	public static final int OBJECT_BINDING = 3;
+	
+	public static final String CAMERA_BLOCK = "Camera";
+	public static final String FRAME_BLOCK = "Frame";
+	public static final String LIGHTING_BLOCK = "Lighting";
+	public static final String OBJECT_BLOCK = "Object";
+	
+	//@formatter:off
+	/** The GLSL declaration of the camera block */
+	public static final String CAMERA_BLOCK_GLSL = ""
+			+ "layout(std140) uniform Camera {\n"
+			+ "	mat4 cameraProjection;\n"
+			+ "	mat4 cameraView;\n"
+			+ "	vec4 cameraPosition;\n"
+			+ "};\n";
+	/** The GLSL declaration of the frame block */
+	public static final String FRAME_BLOCK_GLSL = ""
+			+ "layout(std140) uniform Frame {\n"
+			+ "	float frameTime;\n"
+			+ "	float frameDeltaTime;\n"
+			+ "	int frameNumber;\n"
+			+ "	vec2 viewportSize;\n"
+			+ "};\n";
+	/** The GLSL declaration of the lighting block */
+	public static final String LIGHTING_BLOCK_GLSL = ""
+			+ "layout(std140) uniform Lighting {\n"
+			+ "	vec4 ambientColor;\n"
+			+ "	vec4 lightDirection;\n"
+			+ "	vec4 lightColor;\n"
+			+ "};\n";
+	/** The GLSL declaration of the per-object block */
+	public static final String OBJECT_BLOCK_GLSL = ""
+			+ "layout(std140) uniform Object {\n"
+			+ "	mat4 objectModel;\n"
+			+ "	vec4 objectColor;\n"
+			+ "};\n";
+	//@formatter:on
+	
+	/** The <tt>std140</tt> size of the camera block, in bytes */
+	public static final int CAMERA_BLOCK_SIZE = Std140.MAT4_SIZE + Std140.MAT4_SIZE + Std140.VEC4_SIZE;
+	/** The <tt>std140</tt> size of the frame block, in bytes */
+	public static final int FRAME_BLOCK_SIZE = new Std140().putFloat(0).putFloat(0).putInt(0).putVec2(0, 0).getSize();
+	/** The <tt>std140</tt> size of the lighting block, in bytes */
+	public static final int LIGHTING_BLOCK_SIZE = Std140.VEC4_SIZE * 3;
+	/** The <tt>std140</tt> size of the per-object block, in bytes */
+	public static final int OBJECT_BLOCK_SIZE = Std140.MAT4_SIZE + Std140.VEC4_SIZE;
+	
+	private static final ConcurrentHashMap<String, Integer> bindingPoints = new ConcurrentHashMap<>();
+	/** The writers that the <tt>glSet...</tt> methods write their blocks
+	 * with, one per thread */
+	private static final ThreadLocal<Std140> writers = ThreadLocal.withInitial(() -> new Std140(BufferUtils.createByteBuffer(Math.max(Math.max(CAMERA_BLOCK_SIZE, FRAME_BLOCK_SIZE), Math.max(LIGHTING_BLOCK_SIZE, OBJECT_BLOCK_SIZE)))));
+	
+	static {
+		registerBlock(CAMERA_BLOCK, CAMERA_BINDING);
+		registerBlock(FRAME_BLOCK, FRAME_BINDING);
+		registerBlock(LIGHTING_BLOCK, LIGHTING_BINDING);
+		registerBlock(OBJECT_BLOCK, OBJECT_BINDING);
+	}
+	
+	/** Assigns a fixed binding point to every uniform block with the given
+	 * name. Shaders that are linked afterwards have their blocks of that name
+	 * bound to it automatically.
+	 * 
+	 * @param blockName The name of the uniform block, as declared in GLSL
+	 * @param binding The binding point to bind the block to
+	 * @throws IllegalArgumentException Thrown if the binding point is
+	 *             negative */
+	public static final void registerBlock(String blockName, int binding) throws IllegalArgumentException {
+		if(binding < 0) {
+			throw new IllegalArgumentException(String.format("Invalid binding point for uniform block \"%s\": %s", blockName, Integer.toString(binding)));
+		}
+		bindingPoints.put(blockName, Integer.valueOf(binding));
+	}
+	
+	/** @param blockName The name of a uniform block
+	 * @return The binding point that was registered for the given block name,
+	 *         or <tt>-1</tt> if none was */
+	public static final int getBindingPoint(String blockName) {
+		Integer binding = blockName == null ? null : bindingPoints.get(blockName);
+		return binding == null ? -1 : binding.intValue();
+	}
+	
+	/** @return Whether or not the current OpenGL context supports shared
+	 *         uniform blocks */
+	public static final boolean isSupported() {
+		return StagingBuffer.isSupported();
+	}
+	
+	/** Reserves a block of the given size in the shared uniform ring.<br>
+	 * Write the block's members through {@link Block#writer}, then
+	 * {@link Block#glBind() bind} it before the next block is allocated.
+	 * 
+	 * @param binding The binding point that the block will be bound to
+	 * @param size The <tt>std140</tt> size of the block, in bytes
+	 * @return The reserved block, or <tt><b>null</b></tt> if the current
+	 *         context does not support uniform blocks */
+	public static final Block allocate(int binding, int size) {
+		StagingBuffer ring = StagingBuffer.getUniformBuffer();
+		if(ring == null) {
+			return null;
+		}
+		StagingBuffer.Region region = ring.allocate(size);
+		return region == null ? null : new Block(binding, region);
+	}
+	
+	/** Copies the block that was written into the given writer into the
+	 * uniform ring and binds it to the given binding point.
+	 * 
+	 * @param ring The uniform ring of the current context
+	 * @param binding The binding point to bind the block to
+	 * @param writer The writer that the block was written with
+	 * @param size The <tt>std140</tt> size of the block, in bytes
+	 * @return Whether or not the block was bound */
+	private static final boolean glBind(StagingBuffer ring, int binding, Std140 writer, int size) {
+		final ByteBuffer data = writer.getBuffer();
+		data.clear().limit(size);
+		final int offset = ring.upload(data);
+		data.clear();
+		if(offset < 0) {
+			return false;
+		}
+		final GLState state = GLState.get();
+		state.glBindBuffer(GL31.GL_UNIFORM_BUFFER, ring.getBufferID());
+		GL30.glBindBufferRange(GL31.GL_UNIFORM_BUFFER, binding, ring.getBufferID(), offset, size);
+		state.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+		return true;
+	}
+	
+	/** Writes and binds the camera block. This should be called once per
+	 * frame, before anything is drawn.
+	 * 
+	 * @param projection The column-major projection matrix
+	 * @param view The column-major view (or model-view) matrix
+	 * @param x The camera's x position
+	 * @param y The camera's y position
+	 * @param z The camera's z position
+	 * @return Whether or not the block was written */
+	public static final boolean glSetCamera(float[] projection, float[] view, float x, float y, float z) {
+		StagingBuffer ring = StagingBuffer.getUniformBuffer();
+		if(ring == null) {
+			return false;
+		}
+		Std140 writer = writers.get().rewind();
+		writer.putMat4(projection).putMat4(view).putVec4(x, y, z, 1.0f);
+		return glBind(ring, CAMERA_BINDING, writer, CAMERA_BLOCK_SIZE);
+	}
+	
+	/** Writes and binds the frame block. This should be called once per
+	 * frame, before anything is drawn.
+	 * 
+	 * @param time The time since rendering began, in seconds
+	 * @param deltaTime The time since the previous frame, in seconds
+	 * @param frameNumber The number of the current frame
+	 * @param width The width of the viewport
+	 * @param height The height of the viewport
+	 * @return Whether or not the block was written */
+	public static final boolean glSetFrame(float time, float deltaTime, int frameNumber, int width, int height) {
+		StagingBuffer ring = StagingBuffer.getUniformBuffer();
+		if(ring == null) {
+			return false;
+		}
+		Std140 writer = writers.get().rewind();
+		writer.putFloat(time).putFloat(deltaTime).putInt(frameNumber).putVec2(width, height);
+		return glBind(ring, FRAME_BINDING, writer, FRAME_BLOCK_SIZE);
+	}
+	
+	/** Writes and binds the lighting block. This should be called once per
+	 * frame, before anything is drawn.
+	 * 
+	 * @param ambient The ambient light's RGBA color
+	 * @param direction The directional light's direction (the fourth
+	 *            component is passed through unchanged)
+	 * @param color The directional light's RGBA color
+	 * @return Whether or not the block was written */
+	public static final boolean glSetLighting(float[] ambient, float[] direction, float[] color) {
+		StagingBuffer ring = StagingBuffer.getUniformBuffer();
+		if(ring == null) {
+			return false;
+		}
+		Std140 writer = writers.get().rewind();
+		writer.putVec4(ambient).putVec4(direction).putVec4(color);
+		return glBind(ring, LIGHTING_BINDING, writer, LIGHTING_BLOCK_SIZE);
+	}
+	
+	/** Writes and binds a per-object block. Each call sub-allocates a new
+	 * block from the ring, so this can be called before every draw.
+	 * 
+	 * @param model The column-major model matrix of the object
+	 * @param r The red component of the object's color
+	 * @param g The green component of the object's color
+	 * @param b The blue component of the object's color
+	 * @param a The alpha component of the object's color
+	 * @return Whether or not the block was written */
+	public static final boolean glSetObject(float[] model, float r, float g, float b, float a) {
+		StagingBuffer ring = StagingBuffer.getUniformBuffer();
+		if(ring == null) {
+			return false;
+		}
+		Std140 writer = writers.get().rewind();
+		writer.putMat4(model).putVec4(r, g, b, a);
+		return glBind(ring, OBJECT_BINDING, writer, OBJECT_BLOCK_SIZE);
+	}
+	
+	/** A uniform block that has been reserved in the shared uniform ring.
+	 * 
+	 * @since 1.0
+	 * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Block {
+		
+		/** The binding point that this block will be bound to */
+		public final int binding;
+		/** The ring region that backs this block */
+		public final StagingBuffer.Region region;
+		/** The writer to write this block's members with. Only valid until
+		 * {@link #glBind()} is called. */
+		public final Std140 writer;
+		
+		protected Block(int binding, StagingBuffer.Region region) {
+			this.binding = binding;
+			this.region = region;
+			this.writer = new Std140(region.data);
+		}
+		
+		/** Finishes writing this block and binds it to its binding point. The
+		 * binding stays in effect for every program until another block is
+		 * bound to the same point.
+		 * 
+		 * @return This block */
+		public Block glBind() {
+			this.region.bind();
+			GL30.glBindBufferRange(GL31.GL_UNIFORM_BUFFER, this.binding, this.region.buffer.getBufferID(), this.region.offset, this.region.size);
+			this.region.unbind();
+			return this;
+		}
+		
+	}
+	
+}
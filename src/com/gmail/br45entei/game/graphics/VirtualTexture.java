@@ -0,0 +1,676 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2022 Brian_Entei (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.game.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.imageio.ImageIO;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+
+/** A tiled, streamed texture for images that are too large to upload in one
+ * piece (or that would waste video memory if they were).<br>
+ * <br>
+ * The source image is split into square tiles at every mip level. Only the
+ * tiles that cover the visible region are uploaded, into a fixed-size
+ * <em>tile cache</em> texture whose slots are recycled in least recently used
+ * order. A small <em>indirection</em> texture holds one texel per level zero
+ * tile, pointing at the cache slot and level of the finest resident tile that
+ * covers it, so a fragment shader can sample the virtual image with
+ * {@link #GLSL_LOOKUP}. Tiles that have not been streamed in yet fall back to
+ * their nearest resident ancestor, and the coarsest level (a single tile
+ * covering the whole image) is always kept resident.<br>
+ * <br>
+ * Virtual coordinates are image pixels, with the origin at the top left of
+ * the image and the y axis pointing down.<br>
+ * All methods other than the constructor and getters must be called on the
+ * thread that owns the OpenGL context.
+ * 
+ * @since 1.0
+ * @author Brian_Entei &lt;br45entei&#064;gmail.com&gt; */
+public class VirtualTexture {
+	
+	/** The default width and height of each tile, in pixels */
+	public static final int DEFAULT_TILE_SIZE = 256;
+	/** The default number of tile slots along each side of the tile cache */
+	public static final int DEFAULT_CACHE_TILES = 8;
+	/** The default maximum number of tiles that are uploaded per
+	 * {@link #update(double, double, double, double, double) update} */
+	public static final int DEFAULT_MAX_UPLOADS = 8;
+	/** The number of pixels copied from neighbouring tiles around each tile
+	 * in the cache, so that bilinear filtering does not bleed between
+	 * unrelated slots */
+	public static final int TILE_BORDER = 1;
+	
+	/** GLSL source for a <tt>vec4 virtualTexture(vec2 uv)</tt> function which
+	 * samples a VirtualTexture using its indirection texture.<br>
+	 * The <tt>vtParams</tt> and <tt>vtCacheParams</tt> uniforms should be set
+	 * to {@link #getShaderParameters()} and
+	 * {@link #getShaderCacheParameters()} respectively, and the two samplers
+	 * to the slots passed to {@link #bind(int, int)}. */
+	public static final String GLSL_LOOKUP = ""//@formatter:off
+			+ "uniform sampler2D vtCache;\n"
+			+ "uniform sampler2D vtIndirection;\n"
+			+ "uniform vec4 vtParams;\n"// image width, image height, tile size, padded tile size
+			+ "uniform vec2 vtCacheParams;\n"// tile border, cache texture size
+			+ "\n"
+			+ "vec4 virtualTexture(vec2 uv) {\n"
+			+ "	vec2 pixel = clamp(uv, 0.0, 1.0) * vtParams.xy;\n"
+			+ "	ivec2 tile = min(ivec2(pixel / vtParams.z), textureSize(vtIndirection, 0) - 1);\n"
+			+ "	vec4 entry = floor(texelFetch(vtIndirection, tile, 0) * 255.0 + 0.5);\n"
+			+ "	if(entry.a == 0.0) {\n"
+			+ "		return vec4(0.0);\n"
+			+ "	}\n"
+			+ "	vec2 levelPixel = pixel / exp2(entry.b);\n"
+			+ "	vec2 local = levelPixel - floor(levelPixel / vtParams.z) * vtParams.z;\n"
+			+ "	vec2 physical = entry.rg * vtParams.w + vtCacheParams.x + local;\n"
+			+ "	return texture(vtCache, physical / vtCacheParams.y);\n"
+			+ "}\n";//@formatter:on
+	
+	private final String name;
+	private final int width, height;
+	private final int tileSize, paddedTileSize;
+	private final int levelCount;
+	private final int[] tilesX, tilesY;
+	private final BufferedImage[] levels;
+	
+	private volatile int requestedCacheTiles;
+	private volatile int cacheTiles = 0, cacheSize = 0;
+	private volatile int cacheTextureID = 0, indirectionTextureID = 0;
+	private volatile DeletionQueue deletionQueue = null;
+	private volatile int maxUploadsPerUpdate = DEFAULT_MAX_UPLOADS;
+	
+	private final HashMap<Long, Integer> residentTiles = new HashMap<>();
+	private long[] slotKeys;
+	private long[] slotLastUsed;
+	private int[] freeSlots;
+	private int freeSlotCount;
+	private long frame = 0;
+	
+	private IntBuffer indirection;
+	private boolean indirectionRebuild = true;
+	private int dirtyMinX, dirtyMinY, dirtyMaxX = -1, dirtyMaxY = -1;
+	
+	private final int[] regionPixels;
+	private final IntBuffer tileBuffer;
+	
+	private volatile int currentLevel = 0;
+	private volatile double visibleX0, visibleY0, visibleX1, visibleY1;
+	
+	/** Creates a new VirtualTexture for the given image.<br>
+	 * No OpenGL resources are created until the first
+	 * {@link #update(double, double, double, double, double) update}.
+	 * 
+	 * @param name The name of this virtual texture
+	 * @param image The source image, with its first row at the top
+	 * @param tileSize The width and height of each tile, in pixels
+	 * @param cacheTiles The number of tile slots along each side of the tile
+	 *            cache (clamped to what the driver's maximum texture size
+	 *            allows)
+	 * @throws IllegalArgumentException Thrown if the tile size or cache size
+	 *             is invalid */
+	public VirtualTexture(String name, BufferedImage image, int tileSize, int cacheTiles) throws IllegalArgumentException {
+		if(tileSize < 16) {
+			throw new IllegalArgumentException(String.format("Tile size must be at least 16 pixels(got %s)!", Integer.toString(tileSize)));
+		}
+		if(cacheTiles < 2 || cacheTiles > 255) {
+			throw new IllegalArgumentException(String.format("The tile cache must be between 2 and 255 tiles wide(got %s)!", Integer.toString(cacheTiles)));
+		}
+		this.name = name;
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+		this.tileSize = tileSize;
+		this.paddedTileSize = tileSize + (TILE_BORDER * 2);
+		this.requestedCacheTiles = cacheTiles;
+		
+		int count = 1;
+		final int baseTilesX = ceilDiv(this.width, tileSize), baseTilesY = ceilDiv(this.height, tileSize);
+		while(ceilDiv(baseTilesX, 1 << (count - 1)) > 1 || ceilDiv(baseTilesY, 1 << (count - 1)) > 1) {
+			count++;
+		}
+		this.levelCount = count;
+		this.tilesX = new int[count];
+		this.tilesY = new int[count];
+		for(int level = 0; level < count; level++) {
+			this.tilesX[level] = ceilDiv(baseTilesX, 1 << level);
+			this.tilesY[level] = ceilDiv(baseTilesY, 1 << level);
+		}
+		this.levels = new BufferedImage[count];
+		this.levels[0] = image;
+		
+		this.regionPixels = new int[this.paddedTileSize * this.paddedTileSize];
+		this.tileBuffer = BufferUtils.createIntBuffer(this.paddedTileSize * this.paddedTileSize);
+		this.visibleX1 = this.width;
+		this.visibleY1 = this.height;
+	}
+	
+	/** Creates a new VirtualTexture for the given image, using the
+	 * {@link #DEFAULT_TILE_SIZE default tile size} and
+	 * {@link #DEFAULT_CACHE_TILES default cache size}.
+	 * 
+	 * @param name The name of this virtual texture
+	 * @param image The source image, with its first row at the top */
+	public VirtualTexture(String name, BufferedImage image) {
+		this(name, image, DEFAULT_TILE_SIZE, DEFAULT_CACHE_TILES);
+	}
+	
+	/** Loads the given image resource as a VirtualTexture.<br>
+	 * The image is decoded on the calling thread; no OpenGL calls are made.
+	 * 
+	 * @param resourcePath The location of the image resource
+	 * @param tileSize The width and height of each tile, in pixels
+	 * @param cacheTiles The number of tile slots along each side of the tile
+	 *            cache
+	 * @return The new VirtualTexture
+	 * @throws IOException Indicates a failure to find or decode the resource */
+	public static final VirtualTexture load(String resourcePath, int tileSize, int cacheTiles) throws IOException {
+		resourcePath = TextureLoader.fullPath(resourcePath);
+		byte[] data = TextureCache.readResource(resourcePath);
+		if(data == null) {
+			throw new IOException("Cannot find: " + resourcePath);
+		}
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+		if(image == null) {
+			throw new IOException("Unsupported image format: " + resourcePath);
+		}
+		return new VirtualTexture(resourcePath, image, tileSize, cacheTiles);
+	}
+	
+	private static final int ceilDiv(int value, int divisor) {
+		return Math.max(1, (value + divisor - 1) / divisor);
+	}
+	
+	private static final int square(int value) {
+		return value * value;
+	}
+	
+	private static final long getTileKey(int level, int tileX, int tileY) {
+		return (((long) level) << 48) | (((long) tileY) << 24) | tileX;
+	}
+	
+	//=========================================================================================================================
+	
+	/** @return The name of this virtual texture */
+	public final String getName() {
+		return this.name;
+	}
+	
+	/** @return The width of the source image */
+	public final int getWidth() {
+		return this.width;
+	}
+	
+	/** @return The height of the source image */
+	public final int getHeight() {
+		return this.height;
+	}
+	
+	/** @return The width and height of each tile, in pixels */
+	public final int getTileSize() {
+		return this.tileSize;
+	}
+	
+	/** @return The number of mip levels, the last of which is a single tile */
+	public final int getLevelCount() {
+		return this.levelCount;
+	}
+	
+	/** @param level The mip level
+	 * @return The number of tile columns at the given level */
+	public final int getTilesX(int level) {
+		return this.tilesX[level];
+	}
+	
+	/** @param level The mip level
+	 * @return The number of tile rows at the given level */
+	public final int getTilesY(int level) {
+		return this.tilesY[level];
+	}
+	
+	/** @return The mip level selected by the last update */
+	public final int getCurrentLevel() {
+		return this.currentLevel;
+	}
+	
+	/** @return The number of tiles currently resident in the tile cache */
+	public final int getResidentTileCount() {
+		return this.residentTiles.size();
+	}
+	
+	/** @return The number of tile slots in the tile cache, or <tt>0</tt> if
+	 *         the cache has not been created yet */
+	public final int getCacheCapacity() {
+		return this.cacheTiles * this.cacheTiles;
+	}
+	
+	/** @return The maximum number of tiles that are uploaded per update */
+	public final int getMaxUploadsPerUpdate() {
+		return this.maxUploadsPerUpdate;
+	}
+	
+	/** Limits how many tiles may be uploaded per update, spreading the cost of
+	 * streaming over several frames.
+	 * 
+	 * @param maxUploads The maximum number of tiles to upload per update
+	 * @return This VirtualTexture */
+	public final VirtualTexture setMaxUploadsPerUpdate(int maxUploads) {
+		this.maxUploadsPerUpdate = Math.max(1, maxUploads);
+		return this;
+	}
+	
+	/** @return The tile cache texture ID, or <tt>0</tt> if it has not been
+	 *         created yet */
+	public final int getCacheTextureID() {
+		return this.cacheTextureID;
+	}
+	
+	/** @return The indirection texture ID, or <tt>0</tt> if it has not been
+	 *         created yet */
+	public final int getIndirectionTextureID() {
+		return this.indirectionTextureID;
+	}
+	
+	/** @return The value for the <tt>vtParams</tt> uniform in
+	 *         {@link #GLSL_LOOKUP} */
+	public final float[] getShaderParameters() {
+		return new float[] {this.width, this.height, this.tileSize, this.paddedTileSize};
+	}
+	
+	/** @return The value for the <tt>vtCacheParams</tt> uniform in
+	 *         {@link #GLSL_LOOKUP} */
+	public final float[] getShaderCacheParameters() {
+		return new float[] {TILE_BORDER, this.cacheSize};
+	}
+	
+	/** @param texelsPerPixel The number of image pixels covered by one screen
+	 *            pixel
+	 * @return The mip level that best matches the given scale */
+	public final int selectLevel(double texelsPerPixel) {
+		if(!(texelsPerPixel > 1.0)) {
+			return 0;
+		}
+		return Math.min(this.levelCount - 1, (int) Math.floor(Math.log(texelsPerPixel) / Math.log(2.0)));
+	}
+	
+	//=========================================================================================================================
+	
+	private final void glInit() {
+		if(this.cacheTextureID != 0) {
+			return;
+		}
+		final int maxSize = GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE);
+		if(this.tilesX[0] > maxSize || this.tilesY[0] > maxSize) {
+			throw new IllegalStateException(String.format("The indirection texture for \"%s\" would be %sx%s, which exceeds GL_MAX_TEXTURE_SIZE(%s)! Use a larger tile size.", this.name, Integer.toString(this.tilesX[0]), Integer.toString(this.tilesY[0]), Integer.toString(maxSize)));
+		}
+		this.cacheTiles = Math.max(1, Math.min(this.requestedCacheTiles, maxSize / this.paddedTileSize));
+		this.cacheSize = this.cacheTiles * this.paddedTileSize;
+		final int slots = this.cacheTiles * this.cacheTiles;
+		this.slotKeys = new long[slots];
+		this.slotLastUsed = new long[slots];
+		this.freeSlots = new int[slots];
+		for(int i = 0; i < slots; i++) {
+			this.freeSlots[i] = slots - 1 - i;
+		}
+		this.freeSlotCount = slots;
+		this.indirection = BufferUtils.createIntBuffer(this.tilesX[0] * this.tilesY[0]);
+		
+		GLState.get().glActiveTexture(0);
+		this.cacheTextureID = GL11.glGenTextures();
+		this.deletionQueue = DeletionQueue.get();
+		GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, this.cacheTextureID);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, 0);
+		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, this.cacheSize, this.cacheSize, 0, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, (IntBuffer) null);
+		
+		this.indirectionTextureID = GL11.glGenTextures();
+		GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, this.indirectionTextureID);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, 0);
+		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, this.tilesX[0], this.tilesY[0], 0, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, this.indirection);
+		GLState.get().glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		this.indirectionRebuild = true;
+	}
+	
+	/** Streams in the tiles needed to display the given region of the image
+	 * at the given scale, evicting the least recently used tiles if the
+	 * cache is full, and then updates the indirection texture.<br>
+	 * This should be called once per frame, before drawing.
+	 * 
+	 * @param x0 The left edge of the visible region, in image pixels
+	 * @param y0 The top edge of the visible region, in image pixels
+	 * @param x1 The right edge of the visible region, in image pixels
+	 * @param y1 The bottom edge of the visible region, in image pixels
+	 * @param texelsPerPixel The number of image pixels covered by one screen
+	 *            pixel, used to {@link #selectLevel(double) select} the mip
+	 *            level
+	 * @return The number of tiles that were uploaded */
+	public int update(double x0, double y0, double x1, double y1, double texelsPerPixel) {
+		this.glInit();
+		this.frame++;
+		this.visibleX0 = Math.max(0, Math.min(x0, x1));
+		this.visibleY0 = Math.max(0, Math.min(y0, y1));
+		this.visibleX1 = Math.min(this.width, Math.max(x0, x1));
+		this.visibleY1 = Math.min(this.height, Math.max(y0, y1));
+		final int level = this.selectLevel(texelsPerPixel);
+		if(level != this.currentLevel) {
+			this.currentLevel = level;
+			this.indirectionRebuild = true;
+		}
+		
+		//The coarsest tile is requested first on every update, so it is never an eviction candidate
+		int uploads = this.request(this.levelCount - 1, 0, 0) ? 1 : 0;
+		
+		final int span = this.tileSize << level;
+		final int tx0 = (int) Math.floor(this.visibleX0 / span), ty0 = (int) Math.floor(this.visibleY0 / span);
+		final int tx1 = Math.min(this.tilesX[level] - 1, (int) Math.ceil(this.visibleX1 / span) - 1);
+		final int ty1 = Math.min(this.tilesY[level] - 1, (int) Math.ceil(this.visibleY1 / span) - 1);
+		ArrayList<int[]> missing = new ArrayList<>();
+		for(int ty = ty0; ty <= ty1; ty++) {
+			for(int tx = tx0; tx <= tx1; tx++) {
+				if(!this.touch(level, tx, ty)) {
+					missing.add(new int[] {tx, ty});
+				}
+			}
+		}
+		//Stream the tiles nearest the center of the view in first
+		final int centerX = tx0 + tx1, centerY = ty0 + ty1;
+		missing.sort((a, b) -> Integer.compare(square((a[0] * 2) - centerX) + square((a[1] * 2) - centerY), square((b[0] * 2) - centerX) + square((b[1] * 2) - centerY)));
+		for(int[] tile : missing) {
+			if(uploads >= this.maxUploadsPerUpdate) {
+				break;
+			}
+			if(!this.request(level, tile[0], tile[1])) {
+				break;//Every slot is in use this frame
+			}
+			uploads++;
+		}
+		
+		this.flushIndirection();
+		return uploads;
+	}
+	
+	/** Marks the given tile as used this frame if it is resident. */
+	private final boolean touch(int level, int tileX, int tileY) {
+		Integer slot = this.residentTiles.get(Long.valueOf(getTileKey(level, tileX, tileY)));
+		if(slot == null) {
+			return false;
+		}
+		this.slotLastUsed[slot.intValue()] = this.frame;
+		return true;
+	}
+	
+	/** Makes the given tile resident, uploading it if necessary.
+	 * 
+	 * @return Whether or not the tile had to be uploaded */
+	private final boolean request(int level, int tileX, int tileY) {
+		if(this.touch(level, tileX, tileY)) {
+			return false;
+		}
+		final int slot = this.allocateSlot();
+		if(slot < 0) {
+			return false;
+		}
+		final long key = getTileKey(level, tileX, tileY);
+		this.uploadTile(level, tileX, tileY, slot);
+		this.residentTiles.put(Long.valueOf(key), Integer.valueOf(slot));
+		this.slotKeys[slot] = key;
+		this.slotLastUsed[slot] = this.frame;
+		this.invalidate(level, tileX, tileY);
+		return true;
+	}
+	
+	/** @return A free slot, evicting the least recently used tile that was
+	 *         not used this frame if necessary, or <tt>-1</tt> if every slot
+	 *         is in use this frame */
+	private final int allocateSlot() {
+		if(this.freeSlotCount > 0) {
+			return this.freeSlots[--this.freeSlotCount];
+		}
+		int oldest = -1;
+		long oldestFrame = this.frame;
+		for(int slot = 0; slot < this.slotLastUsed.length; slot++) {
+			if(this.slotLastUsed[slot] < oldestFrame) {
+				oldestFrame = this.slotLastUsed[slot];
+				oldest = slot;
+			}
+		}
+		if(oldest >= 0) {
+			final long key = this.slotKeys[oldest];
+			this.residentTiles.remove(Long.valueOf(key));
+			this.invalidate((int) (key >>> 48), (int) (key & 0xFFFFFF), (int) ((key >>> 24) & 0xFFFFFF));
+		}
+		return oldest;
+	}
+	
+	private final BufferedImage getLevelImage(int level) {
+		BufferedImage image = this.levels[level];
+		if(image == null) {
+			BufferedImage parent = this.getLevelImage(level - 1);
+			final int levelWidth = Math.max(1, (parent.getWidth() + 1) / 2), levelHeight = Math.max(1, (parent.getHeight() + 1) / 2);
+			image = new BufferedImage(levelWidth, levelHeight, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(parent, 0, 0, levelWidth, levelHeight, null);
+			g.dispose();
+			this.levels[level] = image;
+		}
+		return image;
+	}
+	
+	/** Copies the given tile (plus its border, clamped to the edges of the
+	 * image) into the given cache slot. */
+	private final void uploadTile(int level, int tileX, int tileY, int slot) {
+		final BufferedImage image = this.getLevelImage(level);
+		final int levelWidth = image.getWidth(), levelHeight = image.getHeight(), size = this.paddedTileSize;
+		final int x0 = (tileX * this.tileSize) - TILE_BORDER, y0 = (tileY * this.tileSize) - TILE_BORDER;
+		final int rx0 = Math.max(0, Math.min(levelWidth - 1, x0)), ry0 = Math.max(0, Math.min(levelHeight - 1, y0));
+		final int rx1 = Math.max(0, Math.min(levelWidth - 1, x0 + size - 1)), ry1 = Math.max(0, Math.min(levelHeight - 1, y0 + size - 1));
+		final int regionWidth = (rx1 - rx0) + 1, regionHeight = (ry1 - ry0) + 1;
+		image.getRGB(rx0, ry0, regionWidth, regionHeight, this.regionPixels, 0, regionWidth);
+		
+		this.tileBuffer.clear();
+		for(int row = 0; row < size; row++) {
+			final int sy = Math.max(ry0, Math.min(ry1, y0 + row)) - ry0;
+			for(int column = 0; column < size; column++) {
+				final int sx = Math.max(rx0, Math.min(rx1, x0 + column)) - rx0;
+				this.tileBuffer.put(this.regionPixels[(sy * regionWidth) + sx]);
+			}
+		}
+		this.tileBuffer.flip();
+		
+		GLState.get().glBindTexture(0, GL11.GL_TEXTURE_2D, this.cacheTextureID);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+		GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_ROWS, 0);
+		GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+		GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, (slot % this.cacheTiles) * size, (slot / this.cacheTiles) * size, size, size, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, this.tileBuffer);
+	}
+	
+	//=========================================================================================================================
+	
+	/** Recomputes the indirection entries that the given tile covers. */
+	private final void invalidate(int level, int tileX, int tileY) {
+		if(this.indirectionRebuild || level < this.currentLevel) {
+			return;
+		}
+		final int x0 = tileX << level, y0 = tileY << level;
+		final int x1 = Math.min(this.tilesX[0], (tileX + 1) << level), y1 = Math.min(this.tilesY[0], (tileY + 1) << level);
+		for(int y = y0; y < y1; y++) {
+			for(int x = x0; x < x1; x++) {
+				this.indirection.put((y * this.tilesX[0]) + x, this.lookup(0, x, y, this.currentLevel));
+			}
+		}
+		if(this.dirtyMaxX < this.dirtyMinX) {
+			this.dirtyMinX = x0;
+			this.dirtyMinY = y0;
+			this.dirtyMaxX = x1 - 1;
+			this.dirtyMaxY = y1 - 1;
+		} else {
+			this.dirtyMinX = Math.min(this.dirtyMinX, x0);
+			this.dirtyMinY = Math.min(this.dirtyMinY, y0);
+			this.dirtyMaxX = Math.max(this.dirtyMaxX, x1 - 1);
+			this.dirtyMaxY = Math.max(this.dirtyMaxY, y1 - 1);
+		}
+	}
+	
+	/** Finds the finest resident tile, no finer than <tt>minLevel</tt>, that
+	 * covers the given tile.
+	 * 
+	 * @return The packed indirection entry (cache slot x and y, level and a
+	 *         residency flag as BGRA), or <tt>0</tt> if nothing is
+	 *         resident */
+	private final int lookup(int level, int tileX, int tileY, int minLevel) {
+		for(int l = Math.max(level, minLevel); l < this.levelCount; l++) {
+			Integer slot = this.residentTiles.get(Long.valueOf(getTileKey(l, tileX >> (l - level), tileY >> (l - level))));
+			if(slot != null) {
+				final int s = slot.intValue();
+				return 0xFF000000 | ((s % this.cacheTiles) << 16) | ((s / this.cacheTiles) << 8) | l;
+			}
+		}
+		return 0;
+	}
+	
+	private final void flushIndirection() {
+		final int columns = this.tilesX[0];
+		if(this.indirectionRebuild) {
+			this.indirectionRebuild = false;
+			for(int y = 0; y < this.tilesY[0]; y++) {
+				for(int x = 0; x < columns; x++) {
+					this.indirection.put((y * columns) + x, this.lookup(0, x, y, this.currentLevel));
+				}
+			}
+			this.dirtyMinX = this.dirtyMinY = 0;
+			this.dirtyMaxX = columns - 1;
+			this.dirtyMaxY = this.tilesY[0] - 1;
+		}
+		if(this.dirtyMaxX < this.dirtyMinX) {
+			return;
+		}
+		GLState.get().glBindTexture(0, GL11.GL_TEXTURE_2D, this.indirectionTextureID);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, columns);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+		GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_ROWS, 0);
+		GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+		this.indirection.position((this.dirtyMinY * columns) + this.dirtyMinX);
+		GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, this.dirtyMinX, this.dirtyMinY, (this.dirtyMaxX - this.dirtyMinX) + 1, (this.dirtyMaxY - this.dirtyMinY) + 1, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, this.indirection);
+		this.indirection.position(0);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
+		this.dirtyMinX = this.dirtyMinY = 0;
+		this.dirtyMaxX = this.dirtyMaxY = -1;
+	}
+	
+	//=========================================================================================================================
+	
+	/** Binds the tile cache and indirection textures for use with
+	 * {@link #GLSL_LOOKUP}.
+	 * 
+	 * @param cacheSlot The sampler slot for the tile cache texture
+	 * @param indirectionSlot The sampler slot for the indirection texture
+	 * @return This VirtualTexture */
+	public VirtualTexture bind(int cacheSlot, int indirectionSlot) {
+		GLState.get().glBindTexture(indirectionSlot, GL11.GL_TEXTURE_2D, this.indirectionTextureID);
+		GLState.get().glBindTexture(cacheSlot, GL11.GL_TEXTURE_2D, this.cacheTextureID);
+		return this;
+	}
+	
+	/** Draws the region passed to the last
+	 * {@link #update(double, double, double, double, double) update} using the
+	 * fixed-function pipeline, one quad per tile, in image pixel coordinates
+	 * (so the caller's model view matrix decides where the image appears).<br>
+	 * Tiles that are not resident yet are drawn from their nearest resident
+	 * ancestor.<br>
+	 * {@link GL11#GL_TEXTURE_2D} must be enabled by the caller. */
+	public void draw() {
+		if(this.cacheTextureID == 0) {
+			return;
+		}
+		final int level = this.currentLevel, span = this.tileSize << level;
+		final int tx0 = (int) Math.floor(this.visibleX0 / span), ty0 = (int) Math.floor(this.visibleY0 / span);
+		final int tx1 = Math.min(this.tilesX[level] - 1, (int) Math.ceil(this.visibleX1 / span) - 1);
+		final int ty1 = Math.min(this.tilesY[level] - 1, (int) Math.ceil(this.visibleY1 / span) - 1);
+		final double scale = 1.0 / this.cacheSize;
+		
+		GLState.get().glBindTexture(0, GL11.GL_TEXTURE_2D, this.cacheTextureID);
+		GLStats.glBegin(GL11.GL_QUADS);
+		for(int ty = ty0; ty <= ty1; ty++) {
+			for(int tx = tx0; tx <= tx1; tx++) {
+				final int entry = this.lookup(level, tx, ty, level);
+				if(entry == 0) {
+					continue;
+				}
+				final int slotX = (entry >>> 16) & 0xFF, slotY = (entry >>> 8) & 0xFF, residentLevel = entry & 0xFF;
+				final double x0 = tx * (double) span, y0 = ty * (double) span;
+				final double x1 = Math.min(this.width, x0 + span), y1 = Math.min(this.height, y0 + span);
+				
+				//Position of the quad within the resident tile, in that tile's level pixels
+				final double levelScale = 1.0 / (1 << residentLevel), residentSpan = this.tileSize << residentLevel;
+				final double originX = Math.floor(x0 / residentSpan) * this.tileSize, originY = Math.floor(y0 / residentSpan) * this.tileSize;
+				final double baseU = (slotX * this.paddedTileSize) + TILE_BORDER - originX, baseV = (slotY * this.paddedTileSize) + TILE_BORDER - originY;
+				final double u0 = (baseU + (x0 * levelScale)) * scale, v0 = (baseV + (y0 * levelScale)) * scale;
+				final double u1 = (baseU + (x1 * levelScale)) * scale, v1 = (baseV + (y1 * levelScale)) * scale;
+				
+				GL11.glTexCoord2d(u0, v0);
+				GLStats.glVertex2d(x0, y0);
+				GL11.glTexCoord2d(u0, v1);
+				GLStats.glVertex2d(x0, y1);
+				GL11.glTexCoord2d(u1, v1);
+				GLStats.glVertex2d(x1, y1);
+				GL11.glTexCoord2d(u1, v0);
+				GLStats.glVertex2d(x1, y0);
+			}
+		}
+		GLStats.glEnd();
+	}
+	
+	/** Deletes this VirtualTexture's OpenGL textures and forgets every
+	 * resident tile. The VirtualTexture may still be used afterwards; its
+	 * textures will be recreated on the next update. */
+	public void dispose() {
+		if(this.cacheTextureID != 0) {
+			this.deletionQueue.deleteTexture(this.cacheTextureID);
+			this.deletionQueue.deleteTexture(this.indirectionTextureID);
+			this.cacheTextureID = this.indirectionTextureID = 0;
+		}
+		this.residentTiles.clear();
+		this.cacheTiles = this.cacheSize = 0;
+		this.indirectionRebuild = true;
+	}
+	
+}
@@ -26,6 +26,7 @@ package com.gmail.br45entei.game.ui;
 import com.badlogic.gdx.controllers.Controller;
 import com.gmail.br45entei.audio.SoundManager;
 import com.gmail.br45entei.game.Game;
+import com.gmail.br45entei.game.graphics.GLDebug;
 import com.gmail.br45entei.game.graphics.GLThread;
 import com.gmail.br45entei.game.graphics.Renderer;
 import com.gmail.br45entei.game.input.ControllerManager;
@@ -321,7 +322,8 @@ public class Window {// TODO Implement InputCallback.isModal() within the Mouse
 	 * {@link Window}.<br>
 	 * DoubleBuffer is enabled, the swap interval is set to <tt>1,</tt> the
 	 * OpenGL version is set to <tt>3.3</tt>, and the context is set to be
-	 * forward compatible.
+	 * forward compatible. A debug context is requested if
+	 * {@link GLDebug#ENABLED debug mode} is on.
 	 *
 	 * @return A new {@link GLData} with the default settings for creating a
 	 *         {@link Window}. */
@@ -332,6 +334,7 @@ public class Window {// TODO Implement InputCallback.isModal() within the Mouse
 		data.majorVersion = 3;
 		data.minorVersion = 3;
 		data.forwardCompatible = true;
+		data.debug = GLDebug.ENABLED;
 		return data;
 	}
 	
@@ -357,6 +360,7 @@ public class Window {// TODO Implement InputCallback.isModal() within the Mouse
 		data.majorVersion = majorVersion;
 		data.minorVersion = minorVersion;
 		data.forwardCompatible = forwardCompatible;
+		data.debug = GLDebug.ENABLED;
 		return data;
 	}
 	
@@ -396,6 +400,7 @@ public class Window {// TODO Implement InputCallback.isModal() within the Mouse
 		data.majorVersion = majorVersion;
 		data.minorVersion = minorVersion;
 		data.forwardCompatible = forwardCompatible;
+		data.debug = GLDebug.ENABLED;
 		return data;
 	}
 	
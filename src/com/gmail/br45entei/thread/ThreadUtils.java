@@ -37,6 +37,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class ThreadUtils {
 	
 	private static volatile ThreadGroup defaultThreadGroup = getDefaultThreadGroup();
+	private static volatile ThreadPoolExecutor workerPool = null;
 	
 	/** @param args Program command line arguments */
 	public static final void main(String[] args) {
@@ -77,6 +78,26 @@ public class ThreadUtils {
 		return defaultThreadGroup;
 	}
 	
+	/** Returns the shared pool of daemon worker threads, creating it if it
+	 * does not exist yet.<br>
+	 * The pool has one thread per available processor, and is intended for
+	 * short, CPU-bound jobs such as preparing texture or font data off of the
+	 * OpenGL thread.
+	 * 
+	 * @return The shared worker thread pool */
+	public static final ThreadPoolExecutor getWorkerPool() {
+		ThreadPoolExecutor pool = workerPool;
+		if(pool == null) {
+			synchronized(ThreadUtils.class) {
+				pool = workerPool;
+				if(pool == null) {
+					workerPool = pool = new ExecutorGroup("Workers", true).getExecutor(Math.max(1, Runtime.getRuntime().availableProcessors()));
+				}
+			}
+		}
+		return pool;
+	}
+	
 	/** @author Brian_Entei &ltbr45entei&#064;gmail.com&gt; */
 	public static final class CustomThreadFactory implements ThreadFactory {
 		